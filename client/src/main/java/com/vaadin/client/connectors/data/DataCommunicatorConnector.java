@@ -62,6 +62,11 @@ public class DataCommunicatorConnector extends AbstractExtensionConnector {
                             resetDataAndSize(size);
                         }
 
+                        @Override
+                        public void updateSize(int size) {
+                            VaadinDataSource.this.updateSize(size);
+                        }
+
                         @Override
                         public void setData(int firstIndex, JsonArray data) {
                             List<JsonObject> rows = new ArrayList<>(
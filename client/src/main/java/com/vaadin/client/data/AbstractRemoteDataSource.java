@@ -937,6 +937,25 @@ public abstract class AbstractRemoteDataSource<T> implements DataSource<T> {
         getHandlers().forEach(dch -> dch.resetDataAndSize(newSize));
     }
 
+    /**
+     * Updates the size without discarding cached data. Rows are added to or
+     * removed from the end, which allows the size to grow while more rows are
+     * found when the exact size is not known in advance.
+     *
+     * @param newSize
+     *            the new size of the container
+     * @since 8.13
+     */
+    protected void updateSize(int newSize) {
+        if (size < 0) {
+            resetDataAndSize(newSize);
+        } else if (newSize > size) {
+            insertRowData(size, newSize - size);
+        } else if (newSize < size) {
+            removeRowData(newSize, size - newSize);
+        }
+    }
+
     protected int indexOfKey(Object rowKey) {
         if (!keyToIndexMap.containsKey(rowKey)) {
             return -1;
@@ -19,6 +19,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -61,6 +63,11 @@ public abstract class AbstractBackEndDataProvider<T, F> extends
         return fetchFromBackEnd(mixInSortOrders(query));
     }
 
+    @Override
+    public CompletionStage<List<T>> fetchAsync(Query<T, F> query) {
+        return fetchFromBackEndAsync(mixInSortOrders(query));
+    }
+
     @Override
     public int size(Query<T, F> query) {
         return sizeInBackEnd(mixInSortOrders(query));
@@ -76,6 +83,24 @@ public abstract class AbstractBackEndDataProvider<T, F> extends
      */
     protected abstract Stream<T> fetchFromBackEnd(Query<T, F> query);
 
+    /**
+     * Fetches data from the back end using the given query without blocking
+     * the calling thread. Override this method if the back end has an
+     * asynchronous API. The default implementation calls
+     * {@link #fetchFromBackEnd(Query)} and returns an already completed stage.
+     *
+     * @param query
+     *            the query that defines sorting, filtering and paging for
+     *            fetching the data
+     * @return a completion stage for the list of items matching the query
+     * @since 8.13
+     */
+    protected CompletionStage<List<T>> fetchFromBackEndAsync(
+            Query<T, F> query) {
+        return CompletableFuture.completedFuture(
+                fetchFromBackEnd(query).collect(Collectors.toList()));
+    }
+
     /**
      * Counts the number of items available in the back end.
      *
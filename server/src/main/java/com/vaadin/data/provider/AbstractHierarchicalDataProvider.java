@@ -15,6 +15,8 @@
  */
 package com.vaadin.data.provider;
 
+import com.vaadin.data.provider.DataChangeEvent.DataRefreshEvent;
+
 /**
  * Abstract hierarchical data provider implementation which takes care of item
  * refreshes and associated events.
@@ -30,4 +32,8 @@ package com.vaadin.data.provider;
 public abstract class AbstractHierarchicalDataProvider<T, F> extends
         AbstractDataProvider<T, F> implements HierarchicalDataProvider<T, F> {
 
+    @Override
+    public void refreshItem(T item, boolean refreshChildren) {
+        fireEvent(new DataRefreshEvent<>(this, item, refreshChildren));
+    }
 }
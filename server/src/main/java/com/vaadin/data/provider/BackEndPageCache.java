@@ -0,0 +1,329 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.vaadin.shared.Range;
+
+/**
+ * Cache of fixed size pages of items fetched from a back end data provider,
+ * used by {@link DataCommunicator}. Keeps at most a given number of pages,
+ * evicting the least recently used ones, and determines which pages to read
+ * ahead in the direction the user is scrolling.
+ * <p>
+ * The cache is not thread safe. It is used while holding the session lock,
+ * and pages read ahead in a background thread are added through
+ * {@link com.vaadin.ui.UI#access(com.vaadin.server.Command)}.
+ *
+ * @param <T>
+ *            the item type
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+class BackEndPageCache<T> implements Serializable {
+
+    private static class PageMap<T> extends LinkedHashMap<Integer, List<T>> {
+        private final int maxPages;
+
+        private PageMap(int maxPages) {
+            super(16, 0.75f, true);
+            this.maxPages = maxPages;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<Integer, List<T>> eldest) {
+            return size() > maxPages;
+        }
+    }
+
+    /**
+     * The maximum number of read aheads waiting for a thread of the default
+     * executor. Further read aheads are skipped.
+     */
+    private static final int MAX_QUEUED_READ_AHEADS = 64;
+
+    private static volatile ExecutorService defaultExecutor;
+
+    private final int pageSize;
+    private final int readAheadPages;
+    private final PageMap<T> pages;
+    private final Set<Integer> pendingPages = new HashSet<>();
+
+    /** Index of the last page, or -1 if not yet known. */
+    private int lastPage = -1;
+    private int previousOffset = 0;
+    private int generation = 0;
+
+    /**
+     * Creates a new page cache.
+     *
+     * @param pageSize
+     *            the number of items in a page, at least 1
+     * @param readAheadPages
+     *            the number of pages to read ahead, at least 0
+     * @param maxPages
+     *            the maximum number of pages to keep, at least 1
+     */
+    BackEndPageCache(int pageSize, int readAheadPages, int maxPages) {
+        this.pageSize = pageSize;
+        this.readAheadPages = readAheadPages;
+        pages = new PageMap<>(maxPages);
+    }
+
+    /**
+     * Gets items for the given range, fetching the pages not found in the
+     * cache with a single query using the given fetch function.
+     *
+     * @param offset
+     *            the index of the first item
+     * @param limit
+     *            the maximum number of items
+     * @param fetch
+     *            function fetching the items in a range from the back end
+     * @return the items in the range
+     */
+    List<T> get(int offset, int limit, Function<Range, List<T>> fetch) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        int firstPage = offset / pageSize;
+        int endPage = (int) (((long) offset + limit - 1) / pageSize) + 1;
+        if (lastPage >= 0) {
+            endPage = Math.min(endPage, lastPage + 1);
+        }
+
+        int firstMissing = -1;
+        int lastMissing = -1;
+        for (int page = firstPage; page < endPage; page++) {
+            if (!pages.containsKey(page)) {
+                if (firstMissing < 0) {
+                    firstMissing = page;
+                }
+                lastMissing = page;
+            }
+        }
+        if (firstMissing >= 0) {
+            put(firstMissing, lastMissing - firstMissing + 1,
+                    fetch.apply(Range.withLength(firstMissing * pageSize,
+                            (lastMissing - firstMissing + 1) * pageSize)));
+        }
+
+        List<T> items = new ArrayList<>(limit);
+        for (int page = firstPage; page < endPage; page++) {
+            List<T> pageItems = pages.get(page);
+            if (pageItems == null) {
+                // Past the end, or evicted again if the cache is very small
+                if (lastPage >= 0 && page > lastPage) {
+                    break;
+                }
+                pageItems = fetch.apply(
+                        Range.withLength(page * pageSize, pageSize));
+            }
+            int from = Math.max(0, offset - page * pageSize);
+            int to = (int) Math.min(pageItems.size(),
+                    (long) offset + limit - (long) page * pageSize);
+            if (from < to) {
+                items.addAll(pageItems.subList(from, to));
+            }
+            if (pageItems.size() < pageSize) {
+                break;
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Gets the range of items to read ahead after a request for the given
+     * range, in the direction of scrolling. The pages of the returned range
+     * are marked as pending until {@link #putReadAhead(int, Range, List)} is
+     * called for them.
+     *
+     * @param offset
+     *            the index of the first requested item
+     * @param limit
+     *            the number of requested items
+     * @return the range of items to read ahead, may be empty
+     */
+    Range getReadAheadRange(int offset, int limit) {
+        boolean backwards = offset < previousOffset;
+        previousOffset = offset;
+        if (readAheadPages == 0 || limit <= 0) {
+            return Range.withLength(0, 0);
+        }
+
+        int first;
+        int end;
+        if (backwards) {
+            end = offset / pageSize;
+            first = Math.max(0, end - readAheadPages);
+        } else {
+            first = (int) (((long) offset + limit - 1) / pageSize) + 1;
+            end = first + readAheadPages;
+            if (lastPage >= 0) {
+                end = Math.min(end, lastPage + 1);
+            }
+        }
+        // Only the missing pages
+        while (first < end && isAvailable(first)) {
+            first++;
+        }
+        while (end > first && isAvailable(end - 1)) {
+            end--;
+        }
+        if (first >= end) {
+            return Range.withLength(0, 0);
+        }
+        for (int page = first; page < end; page++) {
+            pendingPages.add(page);
+        }
+        return Range.between(first * pageSize, end * pageSize);
+    }
+
+    /**
+     * Adds items read ahead in the background. The items are ignored if the
+     * cache has been cleared after the read ahead was started.
+     *
+     * @param generation
+     *            the generation of the cache when the read ahead was started
+     * @param range
+     *            the range returned by {@link #getReadAheadRange(int, int)}
+     * @param items
+     *            the fetched items, or <code>null</code> if fetching failed
+     */
+    void putReadAhead(int generation, Range range, List<T> items) {
+        if (generation != this.generation) {
+            return;
+        }
+        int firstPage = range.getStart() / pageSize;
+        int pageCount = range.length() / pageSize;
+        for (int page = firstPage; page < firstPage + pageCount; page++) {
+            pendingPages.remove(page);
+        }
+        if (items != null) {
+            put(firstPage, pageCount, items);
+        }
+    }
+
+    /**
+     * Replaces the cached instance of a refreshed item.
+     *
+     * @param item
+     *            the refreshed item
+     * @param identifierGetter
+     *            function for getting the identifier of an item
+     */
+    void refresh(T item, Function<T, Object> identifierGetter) {
+        Object id = identifierGetter.apply(item);
+        for (List<T> pageItems : pages.values()) {
+            for (int i = 0; i < pageItems.size(); i++) {
+                if (Objects.equals(id,
+                        identifierGetter.apply(pageItems.get(i)))) {
+                    pageItems.set(i, item);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all pages and ignores any read ahead in progress.
+     */
+    void clear() {
+        pages.clear();
+        pendingPages.clear();
+        lastPage = -1;
+        generation++;
+    }
+
+    /**
+     * Gets the generation of the cache, which changes whenever the cache is
+     * cleared.
+     *
+     * @return the generation
+     */
+    int getGeneration() {
+        return generation;
+    }
+
+    private boolean isAvailable(int page) {
+        return pages.containsKey(page) || pendingPages.contains(page);
+    }
+
+    private void put(int firstPage, int pageCount, List<T> items) {
+        for (int i = 0; i < pageCount; i++) {
+            int from = i * pageSize;
+            if (from > items.size()) {
+                break;
+            }
+            int to = Math.min(from + pageSize, items.size());
+            pages.put(firstPage + i, new ArrayList<>(items.subList(from, to)));
+            if (to - from < pageSize) {
+                lastPage = firstPage + i;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Gets the executor used for reading ahead when no other executor has
+     * been set. It uses a bounded number of daemon threads and a bounded
+     * queue. When the queue is full, new read aheads are discarded by
+     * rejecting them, so that the caller can release the pages it marked as
+     * pending.
+     *
+     * @return the default executor
+     */
+    static ExecutorService getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            synchronized (BackEndPageCache.class) {
+                if (defaultExecutor == null) {
+                    int threads = Math.max(2,
+                            Runtime.getRuntime().availableProcessors());
+                    AtomicInteger count = new AtomicInteger();
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                            threads, threads, 60, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<>(MAX_QUEUED_READ_AHEADS),
+                            runnable -> {
+                                Thread thread = new Thread(runnable,
+                                        "vaadin-read-ahead-"
+                                                + count.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            }, new ThreadPoolExecutor.AbortPolicy());
+                    executor.allowCoreThreadTimeOut(true);
+                    defaultExecutor = executor;
+                }
+            }
+        }
+        return defaultExecutor;
+    }
+}
@@ -42,6 +42,7 @@ public class DataChangeEvent<T> extends EventObject {
     public static class DataRefreshEvent<T> extends DataChangeEvent<T> {
 
         private final T item;
+        private final boolean refreshChildren;
 
         /**
          * Creates a new data refresh event originating from the given data
@@ -53,9 +54,27 @@ public class DataChangeEvent<T> extends EventObject {
          *            the updated item, not null
          */
         public DataRefreshEvent(DataProvider<T, ?> source, T item) {
+            this(source, item, false);
+        }
+
+        /**
+         * Creates a new data refresh event originating from the given data
+         * provider.
+         *
+         * @param source
+         *            the data provider, not null
+         * @param item
+         *            the updated item, not null
+         * @param refreshChildren
+         *            whether the children of the item have also changed
+         * @since 8.13
+         */
+        public DataRefreshEvent(DataProvider<T, ?> source, T item,
+                boolean refreshChildren) {
             super(source);
             Objects.requireNonNull(item, "Refreshed item can't be null");
             this.item = item;
+            this.refreshChildren = refreshChildren;
         }
 
         /**
@@ -66,6 +85,18 @@ public class DataChangeEvent<T> extends EventObject {
         public T getItem() {
             return item;
         }
+
+        /**
+         * Gets whether the children of the refreshed item have also changed,
+         * for example items have been added or removed under it.
+         *
+         * @return {@code true} if the children should be refreshed,
+         *         {@code false} if only the item itself has changed
+         * @since 8.13
+         */
+        public boolean isRefreshChildren() {
+            return refreshChildren;
+        }
     }
 
     /**
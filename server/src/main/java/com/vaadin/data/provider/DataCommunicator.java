@@ -15,6 +15,7 @@
  */
 package com.vaadin.data.provider;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -25,15 +26,24 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.vaadin.data.ValueProvider;
 import com.vaadin.data.provider.DataChangeEvent.DataRefreshEvent;
 import com.vaadin.server.AbstractExtension;
-import com.vaadin.server.KeyMapper;
+import com.vaadin.server.EncodedJson;
 import com.vaadin.server.SerializableConsumer;
+import com.vaadin.server.VaadinSession;
 import com.vaadin.shared.Range;
 import com.vaadin.shared.Registration;
 import com.vaadin.shared.data.DataCommunicatorClientRpc;
@@ -41,6 +51,10 @@ import com.vaadin.shared.data.DataCommunicatorConstants;
 import com.vaadin.shared.data.DataRequestRpc;
 import com.vaadin.shared.extension.datacommunicator.DataCommunicatorState;
 import com.vaadin.ui.ComboBox;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
+import com.vaadin.util.CurrentInstance;
+import com.vaadin.util.ReflectTools;
 
 import elemental.json.Json;
 import elemental.json.JsonArray;
@@ -59,6 +73,47 @@ import elemental.json.JsonObject;
  */
 public class DataCommunicator<T> extends AbstractExtension {
 
+    /**
+     * Strategies for finding the number of items to show on the client side.
+     *
+     * @see DataCommunicator#setSizeStrategy(SizeStrategy)
+     * @since 8.13
+     */
+    public enum SizeStrategy {
+        /**
+         * The size is queried from the data provider every time the data is
+         * reset. This is the default.
+         */
+        EXACT,
+
+        /**
+         * The size is queried from the data provider once and reused until
+         * the filter or the data provider changes, or the data provider fires
+         * a {@link DataChangeEvent} that is not about a single item.
+         */
+        CACHED,
+
+        /**
+         * The size is never queried from the data provider. The client side is
+         * given an estimated size which grows as the user scrolls towards the
+         * end of the estimate and full pages of items are fetched. The
+         * estimate is corrected to the exact size once a page with fewer
+         * items than requested is fetched.
+         */
+        ESTIMATED
+    }
+
+    /**
+     * The smallest number of items by which an estimated size grows.
+     */
+    private static final int MIN_SIZE_ESTIMATE_INCREMENT = 50;
+
+    /**
+     * Requested ranges separated by at most this many rows are fetched with a
+     * single query.
+     */
+    private static final int MAX_COALESCED_GAP = 40;
+
     private Registration dataProviderUpdateRegistration;
 
     /**
@@ -97,13 +152,13 @@ public class DataCommunicator<T> extends AbstractExtension {
         /**
          * Set of key strings for currently active data objects
          */
-        private final Set<String> activeData = new HashSet<>();
+        private final Set<String> activeData = new IntKeySet();
 
         /**
          * Set of key strings for data objects dropped on the client. This set
          * is used to clean up old data when it's no longer needed.
          */
-        private final Set<String> droppedData = new HashSet<>();
+        private final Set<String> droppedData = new IntKeySet();
 
         /**
          * Adds given objects as currently active objects.
@@ -186,6 +241,25 @@ public class DataCommunicator<T> extends AbstractExtension {
                     .collect(Collectors.toMap(getId, i -> i));
         }
 
+        /**
+         * Gets the currently active data object with the same id as the given
+         * object. Unlike {@link #getActiveData()}, this does not go through
+         * all the active data.
+         *
+         * @param data
+         *            the data object to look for
+         * @return the active data object, or <code>null</code> if the object
+         *         is not active
+         * @since 8.13
+         */
+        public T getActiveItem(T data) {
+            if (!getKeyMapper().has(data)) {
+                return null;
+            }
+            String key = getKeyMapper().key(data);
+            return activeData.contains(key) ? getKeyMapper().get(key) : null;
+        }
+
         @Override
         public void generateData(T data, JsonObject jsonObject) {
             // Make sure KeyMapper is up to date
@@ -196,6 +270,12 @@ public class DataCommunicator<T> extends AbstractExtension {
                     getKeyMapper().key(data));
         }
 
+        @Override
+        public void generateData(T data, DataObjectWriter writer) {
+            getKeyMapper().refresh(data);
+            writer.put(DataCommunicatorConstants.KEY, getKeyMapper().key(data));
+        }
+
         @Override
         public void destroyData(T data) {
             // Remove from active data set
@@ -225,13 +305,43 @@ public class DataCommunicator<T> extends AbstractExtension {
     protected boolean reset = true;
     private final Set<T> updatedData = new HashSet<>();
     private int minPushSize = 40;
-    private Range pushRows = Range.withLength(0, minPushSize);
+    /** Sorted ranges of rows to push, neither overlapping nor adjacent. */
+    private final List<Range> pushRows = new ArrayList<>(
+            Collections.singletonList(Range.withLength(0, minPushSize)));
 
     private Object filter;
     private Comparator<T> inMemorySorting;
     private final List<QuerySortOrder> backEndSorting = new ArrayList<>();
     private final DataCommunicatorClientRpc rpc;
 
+    private SizeStrategy sizeStrategy = SizeStrategy.EXACT;
+    private int cachedSize = -1;
+    private int estimatedSize;
+    private boolean estimatedSizeExact;
+
+    private BackEndPageCache<T> pageCache;
+    private transient Executor readAheadExecutor;
+
+    private boolean fetchAsynchronously = false;
+    /** Changes whenever the results of fetches in progress become stale. */
+    private int fetchGeneration = 0;
+
+    private int queryCount = 0;
+    private int lastQueryCount = 0;
+
+    private static final Method SET_DATA_METHOD = ReflectTools.findMethod(
+            DataCommunicatorClientRpc.class, "setData", int.class,
+            JsonArray.class);
+    private static final Method UPDATE_DATA_METHOD = ReflectTools.findMethod(
+            DataCommunicatorClientRpc.class, "updateData", JsonArray.class);
+
+    /**
+     * Whether a subclass overrides {@link #getDataObject(Object)}, in which
+     * case the data objects cannot be written directly as text.
+     */
+    private final boolean dataObjectOverridden = isDataObjectOverridden();
+    private transient DataObjectWriter dataObjectWriter;
+
     public DataCommunicator() {
         addDataGenerator(handler);
         rpc = getRpcProxy(DataCommunicatorClientRpc.class);
@@ -258,17 +368,51 @@ public class DataCommunicator<T> extends AbstractExtension {
      * @since 8.0.6
      */
     protected void setPushRows(Range pushRows) {
-        this.pushRows = pushRows;
+        this.pushRows.clear();
+        if (!pushRows.isEmpty()) {
+            this.pushRows.add(pushRows);
+        }
+    }
+
+    /**
+     * Adds a range of rows to push in the next response. Overlapping and
+     * adjacent ranges are merged, so that rows requested several times in
+     * one round trip are only fetched and sent once.
+     *
+     * @param rows
+     *            the range of rows to add
+     */
+    private void addPushRows(Range rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Range merged = rows;
+        int index = 0;
+        while (index < pushRows.size()
+                && pushRows.get(index).getEnd() < merged.getStart()) {
+            index++;
+        }
+        while (index < pushRows.size()
+                && pushRows.get(index).getStart() <= merged.getEnd()) {
+            merged = merged.combineWith(pushRows.remove(index));
+        }
+        pushRows.add(index, merged);
     }
 
     /**
-     * Get the current range of rows to push in the next response.
+     * Get the current range of rows to push in the next response. If rows
+     * have been requested in several separate ranges, the smallest range
+     * containing all of them is returned.
      *
      * @return the range of rows to push
      * @since 8.0.6
      */
     protected Range getPushRows() {
-        return pushRows;
+        if (pushRows.isEmpty()) {
+            return Range.withLength(0, 0);
+        }
+        return Range.between(pushRows.get(0).getStart(),
+                pushRows.get(pushRows.size() - 1).getEnd());
     }
 
     /**
@@ -306,7 +450,7 @@ public class DataCommunicator<T> extends AbstractExtension {
      */
     protected void onRequestRows(int firstRowIndex, int numberOfRows,
             int firstCachedRowIndex, int cacheSize) {
-        setPushRows(Range.withLength(firstRowIndex, numberOfRows));
+        addPushRows(Range.withLength(firstRowIndex, numberOfRows));
         markAsDirty();
     }
 
@@ -354,38 +498,81 @@ public class DataCommunicator<T> extends AbstractExtension {
         if (initial || reset) {
             if (reset) {
                 handler.dropAllActiveData();
+                fetchGeneration++;
             }
 
-            rpc.reset(getDataProviderSize());
+            rpc.reset(getResetSize());
         }
 
         if (!updatedData.isEmpty()) {
-            JsonArray dataArray = Json.createArray();
-            int i = 0;
-            for (T data : updatedData) {
-                dataArray.set(i++, getDataObject(data));
-            }
-            rpc.updateData(dataArray);
+            queueDataCall(UPDATE_DATA_METHOD, createDataArray(updatedData));
         }
 
-        Range requestedRows = getPushRows();
         boolean triggerReset = false;
-        if (!requestedRows.isEmpty()) {
-            int offset = requestedRows.getStart();
-            int limit = requestedRows.length();
-
-            List<T> rowsToPush = fetchItemsWithRange(offset, limit);
+        for (List<Range> window : getFetchWindows()) {
+            boolean resetIfMissing = !initial && !reset;
+            List<T> rowsToPush = fetchRowsToPush(window, resetIfMissing);
 
-            if (!initial && !reset && rowsToPush.isEmpty()) {
+            // null if pushed once an asynchronous fetch completes
+            if (rowsToPush != null
+                    && pushFetchedRows(window, rowsToPush, resetIfMissing)) {
                 triggerReset = true;
             }
-
-            pushData(offset, rowsToPush);
         }
 
         setPushRows(Range.withLength(0, 0));
         reset = triggerReset;
         updatedData.clear();
+        lastQueryCount = queryCount;
+        queryCount = 0;
+    }
+
+    /**
+     * Groups the ranges of rows to push into windows that are each fetched
+     * with a single query. Ranges separated by a gap of at most
+     * {@link #MAX_COALESCED_GAP} rows are fetched together.
+     */
+    private List<List<Range>> getFetchWindows() {
+        List<List<Range>> windows = new ArrayList<>();
+        List<Range> window = null;
+        for (Range range : pushRows) {
+            if (window == null || range.getStart()
+                    - window.get(window.size() - 1).getEnd() > MAX_COALESCED_GAP) {
+                window = new ArrayList<>();
+                windows.add(window);
+            }
+            window.add(range);
+        }
+        return windows;
+    }
+
+    /**
+     * Pushes the requested ranges of a window from the rows fetched for it.
+     *
+     * @return <code>true</code> if requested rows were not found and a reset
+     *         is needed, <code>false</code> otherwise
+     */
+    private boolean pushFetchedRows(List<Range> window, List<T> rows,
+            boolean resetIfMissing) {
+        int offset = window.get(0).getStart();
+        if (sizeStrategy == SizeStrategy.ESTIMATED) {
+            // Fewer rows than expected only adjust the estimate
+            updateEstimatedSize(offset,
+                    window.get(window.size() - 1).getEnd() - offset,
+                    rows.size());
+            resetIfMissing = false;
+        }
+
+        boolean missing = false;
+        for (Range range : window) {
+            int from = Math.min(range.getStart() - offset, rows.size());
+            int to = Math.min(range.getEnd() - offset, rows.size());
+            List<T> rangeRows = from == 0 && to == rows.size() ? rows
+                    : rows.subList(from, to);
+            missing |= rangeRows.isEmpty();
+            pushData(range.getStart(), rangeRows);
+        }
+        return resetIfMissing && missing;
     }
 
     /**
@@ -399,13 +586,172 @@ public class DataCommunicator<T> extends AbstractExtension {
      *
      * @since 8.1
      */
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     public List<T> fetchItemsWithRange(int offset, int limit) {
+        if (pageCache == null || getDataProvider().isInMemory()) {
+            return fetchFromDataProvider(offset, limit);
+        }
+        List<T> items = pageCache.get(offset, limit,
+                range -> fetchFromDataProvider(range.getStart(),
+                        range.length()));
+        readAhead(offset, limit);
+        return items;
+    }
+
+    /**
+     * Fetches a list of items from the DataProvider without blocking the
+     * calling thread, if the data provider supports it. Used instead of
+     * {@link #fetchItemsWithRange(int, int)} when fetching asynchronously has
+     * been enabled.
+     *
+     * @see #setFetchAsynchronously(boolean)
+     *
+     * @param offset
+     *            the starting index of the range
+     * @param limit
+     *            the max number of results
+     * @return a completion stage for the list of items in given range
+     *
+     * @since 8.13
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    protected CompletionStage<List<T>> fetchItemsWithRangeAsync(int offset,
+            int limit) {
+        if (pageCache != null && !getDataProvider().isInMemory()) {
+            return CompletableFuture
+                    .completedFuture(fetchItemsWithRange(offset, limit));
+        }
+        queryCount++;
+        return ((DataProvider) getDataProvider()).fetchAsync(new Query(offset,
+                limit, new ArrayList<>(backEndSorting), inMemorySorting,
+                filter));
+    }
+
+    /**
+     * Gets the rows for the given window of ranges, or <code>null</code> if
+     * they are fetched asynchronously and pushed once available.
+     */
+    private List<T> fetchRowsToPush(List<Range> window,
+            boolean resetIfMissing) {
+        int offset = window.get(0).getStart();
+        int limit = window.get(window.size() - 1).getEnd() - offset;
+        if (!fetchAsynchronously) {
+            return fetchItemsWithRange(offset, limit);
+        }
+        CompletableFuture<List<T>> future = fetchItemsWithRangeAsync(offset,
+                limit).toCompletableFuture();
+        UI ui = getUI();
+        if (future.isDone() || ui == null || !canPushLater(ui)) {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                throw asRuntimeException(e.getCause());
+            }
+        }
+
+        int generation = fetchGeneration;
+        future.whenComplete((rows, error) -> {
+            try {
+                ui.access(() -> {
+                    if (generation != fetchGeneration || reset) {
+                        // Filter, sorting or data changed, discard the rows
+                        return;
+                    }
+                    if (error != null) {
+                        throw asRuntimeException(
+                                error instanceof CompletionException
+                                        ? error.getCause()
+                                        : error);
+                    }
+                    if (pushFetchedRows(window, rows, resetIfMissing)) {
+                        reset = true;
+                        markAsDirty();
+                    }
+                });
+            } catch (UIDetachedException e) {
+                // Nothing to push to
+            }
+        });
+        return null;
+    }
+
+    /**
+     * Checks whether rows can be sent to the client after the current
+     * response, which requires server push or polling.
+     */
+    private static boolean canPushLater(UI ui) {
+        return ui.getPushConfiguration().getPushMode().isEnabled()
+                || ui.getPollInterval() > 0;
+    }
+
+    private static RuntimeException asRuntimeException(Throwable throwable) {
+        if (throwable instanceof RuntimeException) {
+            return (RuntimeException) throwable;
+        }
+        return new RuntimeException(throwable);
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private List<T> fetchFromDataProvider(int offset, int limit) {
+        queryCount++;
         return (List<T>) getDataProvider().fetch(new Query(offset, limit,
                 backEndSorting, inMemorySorting, filter))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Starts fetching the pages following the given range in the scrolling
+     * direction in a background thread. The fetched pages are added to the
+     * cache while holding the session lock.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private void readAhead(int offset, int limit) {
+        UI ui = getUI();
+        if (ui == null) {
+            return;
+        }
+        BackEndPageCache<T> cache = pageCache;
+        Range range = cache.getReadAheadRange(offset, limit);
+        if (range.isEmpty()) {
+            return;
+        }
+        int generation = cache.getGeneration();
+        DataProvider<T, ?> provider = getDataProvider();
+        Query query = new Query(range.getStart(), range.length(),
+                new ArrayList<>(backEndSorting), inMemorySorting, filter);
+        Map<Class<?>, CurrentInstance> instances = CurrentInstance
+                .getInstances();
+
+        Executor executor = readAheadExecutor != null ? readAheadExecutor
+                : BackEndPageCache.getDefaultExecutor();
+        try {
+            executor.execute(() -> {
+                List<T> items = null;
+                Map<Class<?>, CurrentInstance> old = CurrentInstance
+                        .getInstances();
+                CurrentInstance.clearAll();
+                CurrentInstance.restoreInstances(instances);
+                try {
+                    items = (List<T>) provider.fetch(query)
+                            .collect(Collectors.toList());
+                } catch (RuntimeException e) {
+                    getLogger().log(Level.FINE, "Reading ahead failed", e);
+                } finally {
+                    CurrentInstance.clearAll();
+                    CurrentInstance.restoreInstances(old);
+                }
+                List<T> fetched = items;
+                try {
+                    ui.access(() -> cache.putReadAhead(generation, range,
+                            fetched));
+                } catch (UIDetachedException e) {
+                    // Nobody needs the items anymore
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            cache.putReadAhead(generation, range, null);
+        }
+    }
+
     /**
      * Adds a data generator to this data communicator. Data generators can be
      * used to insert custom data to the rows sent to the client. If the data
@@ -454,14 +800,7 @@ public class DataCommunicator<T> extends AbstractExtension {
      *            data objects to send as an iterable
      */
     protected void pushData(int firstIndex, List<T> data) {
-        JsonArray dataArray = Json.createArray();
-
-        int i = 0;
-        for (T item : data) {
-            dataArray.set(i++, getDataObject(item));
-        }
-
-        rpc.setData(firstIndex, dataArray);
+        queueDataCall(SET_DATA_METHOD, firstIndex, createDataArray(data));
         handler.addActiveData(data.stream());
         handler.cleanUp(data.stream());
     }
@@ -469,6 +808,10 @@ public class DataCommunicator<T> extends AbstractExtension {
     /**
      * Creates the JsonObject for given data object. This method calls all data
      * generators for it.
+     * <p>
+     * Data sent to the client side is written directly as text with
+     * {@link DataGenerator#generateData(Object, DataObjectWriter)} instead,
+     * unless this method is overridden.
      *
      * @param data
      *            data object to be made into a json object
@@ -484,6 +827,61 @@ public class DataCommunicator<T> extends AbstractExtension {
         return dataObject;
     }
 
+    /**
+     * Creates the JSON array of data objects for the given items. Unless
+     * {@link #getDataObject(Object)} is overridden, the data generators write
+     * the array directly as text, without building a JSON object per item.
+     *
+     * @param items
+     *            the items to create data objects for
+     * @return a {@link JsonArray} or an {@link EncodedJson} array
+     */
+    private Object createDataArray(Collection<T> items) {
+        if (dataObjectOverridden) {
+            JsonArray dataArray = Json.createArray();
+            int i = 0;
+            for (T item : items) {
+                dataArray.set(i++, getDataObject(item));
+            }
+            return dataArray;
+        }
+
+        if (dataObjectWriter == null) {
+            dataObjectWriter = new DataObjectWriter();
+        }
+        StringBuilder json = new StringBuilder().append('[');
+        for (T item : items) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            // Drop anything left behind by a generator that failed earlier
+            dataObjectWriter.clear();
+            for (DataGenerator<T> generator : generators) {
+                generator.generateData(item, dataObjectWriter);
+            }
+            dataObjectWriter.writeTo(json);
+        }
+        return new EncodedJson(json.append(']').toString());
+    }
+
+    private void queueDataCall(Method method, Object... parameters) {
+        addMethodInvocationToQueue(DataCommunicatorClientRpc.class.getName(),
+                method, parameters);
+    }
+
+    private boolean isDataObjectOverridden() {
+        for (Class<?> type = getClass(); type != DataCommunicator.class;
+                type = type.getSuperclass()) {
+            try {
+                type.getDeclaredMethod("getDataObject", Object.class);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // Not overridden in this class
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns the active data handler.
      *
@@ -535,7 +933,7 @@ public class DataCommunicator<T> extends AbstractExtension {
                 beforeClientResponse(true);
             }
             // Soft reset through client-side re-request.
-            getClientRpc().reset(getDataProviderSize());
+            getClientRpc().reset(getResetSize());
         }
     }
 
@@ -548,17 +946,15 @@ public class DataCommunicator<T> extends AbstractExtension {
     public void refresh(T data) {
         Objects.requireNonNull(data,
                 "DataCommunicator can not refresh null object");
-        Object id = getDataProvider().getId(data);
-
         // ActiveDataHandler has always the latest data through KeyMapper.
-        Map<Object, T> activeData = getActiveDataHandler().getActiveData();
+        T activeItem = getActiveDataHandler().getActiveItem(data);
 
-        if (activeData.containsKey(id)) {
+        if (activeItem != null) {
             // Item is currently available at the client-side
             if (updatedData.isEmpty()) {
                 markAsDirty();
             }
-            updatedData.add(activeData.get(id));
+            updatedData.add(activeItem);
         }
     }
 
@@ -586,6 +982,7 @@ public class DataCommunicator<T> extends AbstractExtension {
     public void setInMemorySorting(Comparator<T> comparator,
             boolean immediateReset) {
         inMemorySorting = comparator;
+        discardFetchedData();
         if (immediateReset) {
             reset();
         }
@@ -626,6 +1023,7 @@ public class DataCommunicator<T> extends AbstractExtension {
             boolean immediateReset) {
         backEndSorting.clear();
         backEndSorting.addAll(sortOrder);
+        discardFetchedData();
         if (immediateReset) {
             reset();
         }
@@ -654,7 +1052,8 @@ public class DataCommunicator<T> extends AbstractExtension {
     /**
      * Creates a {@link DataKeyMapper} to use with this DataCommunicator.
      * <p>
-     * This method is called from the constructor.
+     * This method is called from the constructor. By default, an
+     * {@link IntKeyMapper} is used.
      *
      * @param identifierGetter
      *            has to return a unique key for every bean, and the returned
@@ -668,7 +1067,7 @@ public class DataCommunicator<T> extends AbstractExtension {
      */
     protected DataKeyMapper<T> createKeyMapper(
             ValueProvider<T, Object> identifierGetter) {
-        return new KeyMapper<T>(identifierGetter);
+        return new IntKeyMapper<T>(identifierGetter);
     }
 
     /**
@@ -765,6 +1164,8 @@ public class DataCommunicator<T> extends AbstractExtension {
      */
     protected <F> void setFilter(F filter) {
         this.filter = filter;
+        cachedSize = -1;
+        discardFetchedData();
     }
 
     /**
@@ -812,9 +1213,233 @@ public class DataCommunicator<T> extends AbstractExtension {
      */
     @SuppressWarnings({ "unchecked", "rawtypes" })
     public int getDataProviderSize() {
+        queryCount++;
         return getDataProvider().size(new Query(getFilter()));
     }
 
+    /**
+     * Gets the number of queries made to the data provider while preparing
+     * the most recent response, including size queries. Rows requested in
+     * overlapping or nearby ranges during one round trip are fetched with a
+     * single query. Pages read ahead in the background are not included.
+     *
+     * @return the number of data provider queries for the latest response
+     * @since 8.13
+     */
+    public int getLastResponseQueryCount() {
+        return lastQueryCount;
+    }
+
+    /**
+     * Sets the strategy for finding the number of items to show on the client
+     * side. Querying the size can be as expensive as fetching the items for
+     * some back ends, in which case {@link SizeStrategy#CACHED} or
+     * {@link SizeStrategy#ESTIMATED} can be used to avoid most size queries.
+     * The default is {@link SizeStrategy#EXACT}.
+     *
+     * @param sizeStrategy
+     *            the size strategy to use, not <code>null</code>
+     * @since 8.13
+     */
+    public void setSizeStrategy(SizeStrategy sizeStrategy) {
+        Objects.requireNonNull(sizeStrategy, "size strategy cannot be null");
+        if (this.sizeStrategy != sizeStrategy) {
+            this.sizeStrategy = sizeStrategy;
+            cachedSize = -1;
+            reset = true;
+            markAsDirty();
+        }
+    }
+
+    /**
+     * Gets the strategy for finding the number of items to show on the client
+     * side.
+     *
+     * @return the size strategy, not <code>null</code>
+     * @since 8.13
+     */
+    public SizeStrategy getSizeStrategy() {
+        return sizeStrategy;
+    }
+
+    /**
+     * Gets the size to send to the client side when the data is reset,
+     * according to the size strategy.
+     */
+    private int getResetSize() {
+        switch (sizeStrategy) {
+        case CACHED:
+            if (cachedSize < 0) {
+                cachedSize = getDataProviderSize();
+            }
+            return cachedSize;
+        case ESTIMATED:
+            estimatedSize = Math.max(getMinPushSize(),
+                    MIN_SIZE_ESTIMATE_INCREMENT);
+            estimatedSizeExact = false;
+            return estimatedSize;
+        default:
+            return getDataProviderSize();
+        }
+    }
+
+    /**
+     * Updates the estimated size based on the number of items fetched for a
+     * range, and informs the client side if it changed. This is done before
+     * sending the items, as the client side does not accept items beyond the
+     * size.
+     */
+    private void updateEstimatedSize(int offset, int limit, int count) {
+        int size = estimatedSize;
+        if (count < limit) {
+            if (count > 0 || offset == 0) {
+                // The end was reached
+                size = offset + count;
+                estimatedSizeExact = true;
+            } else {
+                // The end is somewhere before the offset
+                size = Math.min(size, offset);
+            }
+        } else {
+            int end = offset + count;
+            int increment = Math.max(limit, MIN_SIZE_ESTIMATE_INCREMENT);
+            if (!estimatedSizeExact && end + increment > size) {
+                size = end + increment;
+            } else {
+                size = Math.max(size, end);
+            }
+        }
+        if (size != estimatedSize) {
+            estimatedSize = size;
+            getClientRpc().updateSize(size);
+        }
+    }
+
+    /**
+     * Enables caching pages of items fetched from a data provider that is not
+     * in memory, such as a {@link BackEndDataProvider}. When rows are
+     * requested, the missing pages are fetched with a single query and the
+     * given number of following pages in the scrolling direction are fetched
+     * in a background thread. This way scrolling often finds the rows already
+     * in the cache instead of waiting for the back end.
+     * <p>
+     * The cache is cleared when the filter, the sorting or the data provider
+     * changes, or when the data provider fires a {@link DataChangeEvent} that
+     * is not about a single item. Refreshed items replace the cached ones.
+     * <p>
+     * The background fetches run with the current UI and session set like in
+     * the request thread, but without holding the session lock. The data
+     * provider must support being used from several threads at once.
+     *
+     * @see #setReadAheadExecutor(Executor)
+     *
+     * @param pageSize
+     *            the number of items in a page, at least 1
+     * @param readAheadPages
+     *            the number of pages to fetch in the background after each
+     *            request, or 0 to only cache the requested pages
+     * @param maxPages
+     *            the maximum number of pages to keep in the cache, or 0 to
+     *            disable caching, which is the default
+     * @since 8.13
+     */
+    public void setBackEndPageCache(int pageSize, int readAheadPages,
+            int maxPages) {
+        if (pageSize < 1 || readAheadPages < 0 || maxPages < 0) {
+            throw new IllegalArgumentException(
+                    "Page size must be positive and other values not negative");
+        }
+        pageCache = maxPages == 0 ? null
+                : new BackEndPageCache<>(pageSize, readAheadPages, maxPages);
+    }
+
+    /**
+     * Sets the executor to use for fetching pages in the background when the
+     * back end page cache is enabled. By default, a bounded number of threads
+     * shared by all data communicators is used. The executor is not
+     * serialized with the data communicator.
+     *
+     * @see #setBackEndPageCache(int, int, int)
+     *
+     * @param readAheadExecutor
+     *            the executor to use, or <code>null</code> to use the default
+     * @since 8.13
+     */
+    public void setReadAheadExecutor(Executor readAheadExecutor) {
+        this.readAheadExecutor = readAheadExecutor;
+    }
+
+    /**
+     * Sets whether rows are fetched using
+     * {@link DataProvider#fetchAsync(Query)}. When enabled and the returned
+     * stage is not yet completed, the response is sent without the requested
+     * rows and the session lock is released while the data provider is
+     * waiting for the back end. The rows are pushed to the client once the
+     * stage completes, unless the filter, the sorting or the data has changed
+     * in the meantime.
+     * <p>
+     * Sending the rows later requires server push or polling to be enabled for
+     * the UI. Otherwise, the request waits for the fetch to complete like when
+     * fetching synchronously. The default is <code>false</code>.
+     *
+     * @param fetchAsynchronously
+     *            <code>true</code> to fetch rows asynchronously,
+     *            <code>false</code> to fetch them while holding the session
+     *            lock
+     * @since 8.13
+     */
+    public void setFetchAsynchronously(boolean fetchAsynchronously) {
+        this.fetchAsynchronously = fetchAsynchronously;
+    }
+
+    /**
+     * Gets whether rows are fetched asynchronously.
+     *
+     * @see #setFetchAsynchronously(boolean)
+     *
+     * @return <code>true</code> if rows are fetched asynchronously,
+     *         <code>false</code> otherwise
+     * @since 8.13
+     */
+    public boolean isFetchAsynchronously() {
+        return fetchAsynchronously;
+    }
+
+    /**
+     * Clears the page cache and discards the results of asynchronous fetches
+     * that are still in progress.
+     */
+    private void discardFetchedData() {
+        fetchGeneration++;
+        if (pageCache != null) {
+            pageCache.clear();
+        }
+    }
+
+    /**
+     * Runs the action for the page cache, if enabled, while holding the
+     * session lock. Data provider events may be fired from any thread.
+     */
+    private void accessPageCache(Consumer<BackEndPageCache<T>> action) {
+        if (pageCache == null) {
+            return;
+        }
+        VaadinSession session = getSession();
+        if (session == null || session.hasLock()) {
+            action.accept(pageCache);
+        } else {
+            getUI().access(() -> {
+                if (pageCache != null) {
+                    action.accept(pageCache);
+                }
+            });
+        }
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(DataCommunicator.class.getName());
+    }
+
     @Override
     protected DataCommunicatorState getState(boolean markAsDirty) {
         return (DataCommunicatorState) super.getState(markAsDirty);
@@ -829,17 +1454,46 @@ public class DataCommunicator<T> extends AbstractExtension {
         dataProviderUpdateRegistration = getDataProvider()
                 .addDataProviderListener(event -> {
                     if (event instanceof DataRefreshEvent) {
-                        T item = ((DataRefreshEvent<T>) event).getItem();
-                        getKeyMapper().refresh(item);
-                        generators.forEach(g -> g.refreshData(item));
-                        getUI().access(() -> refresh(item));
+                        handleDataRefreshEvent((DataRefreshEvent<T>) event);
                     } else {
-                        reset = true;
-                        getUI().access(() -> markAsDirty());
+                        handleDataChangeEvent(event);
                     }
                 });
     }
 
+    /**
+     * Handles a refresh of a single item in the data provider by updating the
+     * item for the client side.
+     *
+     * @param event
+     *            the data refresh event, not {@code null}
+     * @since 8.13
+     */
+    protected void handleDataRefreshEvent(DataRefreshEvent<T> event) {
+        T item = event.getItem();
+        getKeyMapper().refresh(item);
+        accessPageCache(
+                cache -> cache.refresh(item, getDataProvider()::getId));
+        generators.forEach(g -> g.refreshData(item));
+        getUI().access(() -> refresh(item));
+    }
+
+    /**
+     * Handles a change of all data in the data provider by discarding the
+     * cached data and sending all data to the client side again.
+     *
+     * @param event
+     *            the data change event, not {@code null}
+     * @since 8.13
+     */
+    protected void handleDataChangeEvent(DataChangeEvent<T> event) {
+        reset = true;
+        cachedSize = -1;
+        fetchGeneration++;
+        accessPageCache(BackEndPageCache::clear);
+        getUI().access(() -> markAsDirty());
+    }
+
     private void detachDataProviderListener() {
         if (dataProviderUpdateRegistration != null) {
             dataProviderUpdateRegistration.remove();
@@ -858,6 +1512,8 @@ public class DataCommunicator<T> extends AbstractExtension {
         detachDataProviderListener();
         dropAllData();
         this.dataProvider = dataProvider;
+        cachedSize = -1;
+        discardFetchedData();
         getKeyMapper().setIdentifierGetter(dataProvider::getId);
     }
 }
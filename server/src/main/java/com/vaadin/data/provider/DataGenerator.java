@@ -17,6 +17,7 @@ package com.vaadin.data.provider;
 
 import java.io.Serializable;
 
+import elemental.json.Json;
 import elemental.json.JsonObject;
 
 /**
@@ -45,6 +46,27 @@ public interface DataGenerator<T> extends Serializable {
      */
     void generateData(T item, JsonObject jsonObject);
 
+    /**
+     * Writes custom data for the given item directly as JSON text. Data
+     * generators that are used for large numbers of items can override this
+     * method to avoid creating a {@code JsonObject} for every item.
+     * <p>
+     * The default implementation calls
+     * {@link #generateData(Object, JsonObject)} with a new JSON object and
+     * writes its members to the writer.
+     *
+     * @param item
+     *            the data item being serialized
+     * @param writer
+     *            the writer for the data sent to the client
+     * @since 8.13
+     */
+    public default void generateData(T item, DataObjectWriter writer) {
+        JsonObject jsonObject = Json.createObject();
+        generateData(item, jsonObject);
+        writer.putAll(jsonObject);
+    }
+
     /**
      * Informs the {@code DataGenerator} that the given data item has been
      * dropped and is no longer needed. This method should clean up any unneeded
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+/**
+ * Writes the JSON representation of a data item directly as text, used by
+ * {@link DataGenerator#generateData(Object, DataObjectWriter)}. Compared to
+ * building a {@link JsonObject} for each item, no objects are allocated for
+ * the members, and the same writer is reused for all items.
+ * <p>
+ * The members can either be written directly to the data object, or to a
+ * nested object identified by a key. All members of a nested object are
+ * written together, even when they come from several data generators. If the
+ * same key is written more than once, the last value is used by the client
+ * side.
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+public class DataObjectWriter implements Serializable {
+
+    private static class NestedObject implements Serializable {
+        private final StringBuilder members = new StringBuilder();
+        private boolean present = false;
+    }
+
+    private final StringBuilder members = new StringBuilder();
+    private final Map<String, NestedObject> nestedObjects = new LinkedHashMap<>();
+
+    /**
+     * Writes a string member to the data object.
+     *
+     * @param key
+     *            the member key
+     * @param value
+     *            the string value, <code>null</code> is written as a JSON null
+     */
+    public void put(String key, String value) {
+        writeKey(members, key);
+        writeString(members, value);
+    }
+
+    /**
+     * Writes a number member to the data object.
+     *
+     * @param key
+     *            the member key
+     * @param value
+     *            the number value
+     */
+    public void put(String key, double value) {
+        writeKey(members, key);
+        writeNumber(members, value);
+    }
+
+    /**
+     * Writes a boolean member to the data object.
+     *
+     * @param key
+     *            the member key
+     * @param value
+     *            the boolean value
+     */
+    public void put(String key, boolean value) {
+        writeKey(members, key);
+        members.append(value);
+    }
+
+    /**
+     * Writes a member with any JSON value to the data object.
+     *
+     * @param key
+     *            the member key
+     * @param value
+     *            the JSON value, <code>null</code> is written as a JSON null
+     */
+    public void put(String key, JsonValue value) {
+        writeKey(members, key);
+        writeValue(members, value);
+    }
+
+    /**
+     * Writes a string member to a nested object of the data object.
+     *
+     * @param objectKey
+     *            the key of the nested object
+     * @param key
+     *            the member key within the nested object
+     * @param value
+     *            the string value, <code>null</code> is written as a JSON null
+     */
+    public void put(String objectKey, String key, String value) {
+        StringBuilder nested = getNestedObject(objectKey);
+        writeKey(nested, key);
+        writeString(nested, value);
+    }
+
+    /**
+     * Writes a member with any JSON value to a nested object of the data
+     * object.
+     *
+     * @param objectKey
+     *            the key of the nested object
+     * @param key
+     *            the member key within the nested object
+     * @param value
+     *            the JSON value, <code>null</code> is written as a JSON null
+     */
+    public void put(String objectKey, String key, JsonValue value) {
+        StringBuilder nested = getNestedObject(objectKey);
+        writeKey(nested, key);
+        writeValue(nested, value);
+    }
+
+    /**
+     * Writes all members of a JSON object to the data object. Members with
+     * object values are written to the nested object with the same key, so
+     * that they are combined with members written by other data generators.
+     *
+     * @param jsonObject
+     *            the JSON object to write, not <code>null</code>
+     */
+    public void putAll(JsonObject jsonObject) {
+        for (String key : jsonObject.keys()) {
+            JsonValue value = jsonObject.get(key);
+            if (value != null && value.getType() == JsonType.OBJECT) {
+                JsonObject object = (JsonObject) value;
+                getNestedObject(key);
+                for (String nestedKey : object.keys()) {
+                    put(key, nestedKey, object.get(nestedKey));
+                }
+            } else {
+                put(key, value);
+            }
+        }
+    }
+
+    /**
+     * Appends the written data object to the given builder and clears this
+     * writer for the next item.
+     *
+     * @param builder
+     *            the builder to append to
+     */
+    void writeTo(StringBuilder builder) {
+        builder.append('{');
+        builder.append(members);
+        boolean empty = members.length() == 0;
+        for (Map.Entry<String, NestedObject> entry : nestedObjects
+                .entrySet()) {
+            NestedObject nested = entry.getValue();
+            if (!nested.present) {
+                continue;
+            }
+            if (!empty) {
+                builder.append(',');
+            }
+            empty = false;
+            writeString(builder, entry.getKey());
+            builder.append(":{").append(nested.members).append('}');
+            nested.members.setLength(0);
+            nested.present = false;
+        }
+        builder.append('}');
+        members.setLength(0);
+    }
+
+    /**
+     * Discards everything written since the last data object was completed,
+     * e.g. when a data generator has failed partway through an item.
+     */
+    void clear() {
+        members.setLength(0);
+        for (NestedObject nested : nestedObjects.values()) {
+            nested.members.setLength(0);
+            nested.present = false;
+        }
+    }
+
+    private StringBuilder getNestedObject(String objectKey) {
+        NestedObject nested = nestedObjects.get(objectKey);
+        if (nested == null) {
+            nested = new NestedObject();
+            nestedObjects.put(objectKey, nested);
+        }
+        nested.present = true;
+        return nested.members;
+    }
+
+    private static void writeKey(StringBuilder builder, String key) {
+        if (builder.length() > 0) {
+            builder.append(',');
+        }
+        writeString(builder, key);
+        builder.append(':');
+    }
+
+    private static void writeValue(StringBuilder builder, JsonValue value) {
+        if (value == null) {
+            builder.append("null");
+            return;
+        }
+        switch (value.getType()) {
+        case STRING:
+            writeString(builder, value.asString());
+            break;
+        case NUMBER:
+            writeNumber(builder, value.asNumber());
+            break;
+        case BOOLEAN:
+            builder.append(value.asBoolean());
+            break;
+        case NULL:
+            builder.append("null");
+            break;
+        default:
+            builder.append(JsonUtil.stringify(value));
+        }
+    }
+
+    private static void writeNumber(StringBuilder builder, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            builder.append("null");
+        } else if (value == (long) value
+                && Math.abs(value) < (double) (1L << 53)) {
+            builder.append((long) value);
+        } else {
+            builder.append(value);
+        }
+    }
+
+    private static void writeString(StringBuilder builder, String value) {
+        if (value == null) {
+            builder.append("null");
+            return;
+        }
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                builder.append("\\\"");
+                break;
+            case '\\':
+                builder.append("\\\\");
+                break;
+            case '\n':
+                builder.append("\\n");
+                break;
+            case '\r':
+                builder.append("\\r");
+                break;
+            case '\t':
+                builder.append("\\t");
+                break;
+            default:
+                if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                    builder.append(String.format("\\u%04x", (int) c));
+                } else {
+                    builder.append(c);
+                }
+            }
+        }
+        builder.append('"');
+    }
+}
@@ -19,7 +19,10 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -89,6 +92,29 @@ public interface DataProvider<T, F> extends Serializable {
      */
     Stream<T> fetch(Query<T, F> query);
 
+    /**
+     * Fetches data from this DataProvider using given {@code query} without
+     * blocking the calling thread. Data providers backed by a service with an
+     * asynchronous API can override this method to return a stage that is
+     * completed once the data is available, which allows a
+     * {@link DataCommunicator} to release the session lock while the query is
+     * running.
+     * <p>
+     * The default implementation calls {@link #fetch(Query)} and returns an
+     * already completed stage.
+     *
+     * @param query
+     *            given query to request data
+     * @return a completion stage for the list of data objects, not
+     *         {@code null}
+     * @see DataCommunicator#setFetchAsynchronously(boolean)
+     * @since 8.13
+     */
+    public default CompletionStage<List<T>> fetchAsync(Query<T, F> query) {
+        return CompletableFuture
+                .completedFuture(fetch(query).collect(Collectors.toList()));
+    }
+
     /**
      * Refreshes the given item. This method should be used to inform all
      * {@link DataProviderListener DataProviderListeners} that an item has been
@@ -15,7 +15,9 @@
  */
 package com.vaadin.data.provider;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletionStage;
 import java.util.stream.Stream;
 
 import com.vaadin.shared.Registration;
@@ -92,6 +94,12 @@ public abstract class DataProviderWrapper<T, F, M>
                 t.getSortOrders(), t.getInMemorySorting(), getFilter(t)));
     }
 
+    @Override
+    public CompletionStage<List<T>> fetchAsync(Query<T, F> t) {
+        return dataProvider.fetchAsync(new Query<>(t.getOffset(), t.getLimit(),
+                t.getSortOrders(), t.getInMemorySorting(), getFilter(t)));
+    }
+
     /**
      * Gets the filter that should be used in the modified Query.
      *
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+
+/**
+ * Binary indexed tree of non-negative integer values with a fixed size.
+ * Updating a value, calculating a prefix sum and finding the position of a
+ * cumulative offset all take logarithmic time.
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+class FenwickTree implements Serializable {
+
+    /** One based tree, tree[i] holds the sum of values (i - lowbit(i), i]. */
+    private final int[] tree;
+    private int total;
+
+    /**
+     * Creates a tree with the given initial values in linear time.
+     *
+     * @param values
+     *            the initial values, not negative
+     */
+    FenwickTree(int[] values) {
+        tree = new int[values.length + 1];
+        for (int i = 1; i <= values.length; i++) {
+            tree[i] += values[i - 1];
+            total += values[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= values.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    /**
+     * Gets the number of values.
+     *
+     * @return the number of values
+     */
+    int size() {
+        return tree.length - 1;
+    }
+
+    /**
+     * Gets the sum of all values.
+     *
+     * @return the sum of all values
+     */
+    int getTotal() {
+        return total;
+    }
+
+    /**
+     * Adds a delta to the value at the given position.
+     *
+     * @param position
+     *            the position, from 0 to {@code size() - 1}
+     * @param delta
+     *            the amount to add, the resulting value may not be negative
+     */
+    void add(int position, int delta) {
+        total += delta;
+        for (int i = position + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Gets the value at the given position.
+     *
+     * @param position
+     *            the position, from 0 to {@code size() - 1}
+     * @return the value
+     */
+    int get(int position) {
+        return prefixSum(position + 1) - prefixSum(position);
+    }
+
+    /**
+     * Gets the sum of the values before the given position.
+     *
+     * @param position
+     *            the end position, exclusive, from 0 to {@code size()}
+     * @return the sum of values in the positions [0, position)
+     */
+    int prefixSum(int position) {
+        int sum = 0;
+        for (int i = position; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Finds the position whose value covers the given offset when all values
+     * are laid out one after the other, i.e. the first position for which
+     * {@code prefixSum(position + 1) > offset}.
+     *
+     * @param offset
+     *            the offset, not negative
+     * @return the position covering the offset, or {@code size()} if the
+     *         offset is not less than the total
+     */
+    int find(int offset) {
+        int position = 0;
+        int remaining = offset;
+        for (int step = Integer.highestOneBit(Math.max(1, size()));
+                step > 0; step >>= 1) {
+            int next = position + step;
+            if (next < tree.length && tree[next] <= remaining) {
+                position = next;
+                remaining -= tree[next];
+            }
+        }
+        return position;
+    }
+}
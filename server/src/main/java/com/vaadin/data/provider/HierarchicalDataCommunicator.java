@@ -19,11 +19,15 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.vaadin.data.TreeData;
+import com.vaadin.data.provider.DataChangeEvent.DataRefreshEvent;
 import com.vaadin.server.SerializableConsumer;
+import com.vaadin.server.VaadinSession;
 import com.vaadin.shared.Range;
 import com.vaadin.shared.extension.datacommunicator.HierarchicalDataCommunicatorState;
 import com.vaadin.ui.ItemCollapseAllowedProvider;
@@ -73,6 +77,94 @@ public class HierarchicalDataCommunicator<T> extends DataCommunicator<T> {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The flattened hierarchy is built from the children of all expanded
+     * items, which requires holding the session lock. The items are therefore
+     * always fetched synchronously and an already completed stage is
+     * returned.
+     */
+    @Override
+    protected CompletionStage<List<T>> fetchItemsWithRangeAsync(int offset,
+            int limit) {
+        return CompletableFuture
+                .completedFuture(fetchItemsWithRange(offset, limit));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The children of expanded items are cached by the hierarchy mapper. The
+     * cache is discarded when all data is sent to the client, so that changes
+     * in the data provider are taken into account.
+     */
+    @Override
+    protected void sendDataToClient(boolean initial) {
+        if (mapper != null && (initial || reset)) {
+            mapper.invalidateHierarchy();
+        }
+        super.sendDataToClient(initial);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Whether the items have children is checked for all the items at once
+     * with
+     * {@link HierarchicalDataProvider#hasChildrenForItems(java.util.Collection)}.
+     */
+    @Override
+    protected void pushData(int firstIndex, List<T> data) {
+        mapper.prefetchHasChildren(data);
+        super.pushData(firstIndex, data);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If the children of the item are refreshed, the cached information about
+     * them is discarded and all data is sent to the client again.
+     */
+    @Override
+    protected void handleDataRefreshEvent(DataRefreshEvent<T> event) {
+        T item = event.getItem();
+        if (event.isRefreshChildren()) {
+            accessMapper(m -> m.refreshChildren(item));
+            super.handleDataChangeEvent(event);
+        } else {
+            accessMapper(m -> m.refreshHasChildren(item));
+        }
+        super.handleDataRefreshEvent(event);
+    }
+
+    @Override
+    protected void handleDataChangeEvent(DataChangeEvent<T> event) {
+        accessMapper(HierarchyMapper::refreshAll);
+        super.handleDataChangeEvent(event);
+    }
+
+    /**
+     * Runs the action for the hierarchy mapper while holding the session lock.
+     * Data provider events may be fired from any thread.
+     */
+    private void accessMapper(
+            SerializableConsumer<HierarchyMapper<T, ?>> action) {
+        if (mapper == null) {
+            return;
+        }
+        VaadinSession session = getSession();
+        if (session == null || session.hasLock()) {
+            action.accept(mapper);
+        } else {
+            getUI().access(() -> {
+                if (mapper != null) {
+                    action.accept(mapper);
+                }
+            });
+        }
+    }
+
     @Override
     public HierarchicalDataProvider<T, ?> getDataProvider() {
         return (HierarchicalDataProvider<T, ?>) super.getDataProvider();
@@ -405,6 +497,24 @@ public class HierarchicalDataCommunicator<T> extends DataCommunicator<T> {
         return mapper.getTreeSize();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The size of hierarchical data changes when items are expanded or
+     * collapsed, so only {@link SizeStrategy#EXACT} is supported.
+     *
+     * @throws UnsupportedOperationException
+     *             if the size strategy is not {@link SizeStrategy#EXACT}
+     */
+    @Override
+    public void setSizeStrategy(SizeStrategy sizeStrategy) {
+        if (sizeStrategy != SizeStrategy.EXACT) {
+            throw new UnsupportedOperationException(
+                    "Only the exact size strategy is supported for hierarchical data");
+        }
+        super.setSizeStrategy(sizeStrategy);
+    }
+
     @Override
     public void setBackEndSorting(List<QuerySortOrder> sortOrder,
             boolean immediateReset) {
@@ -15,6 +15,9 @@
  */
 package com.vaadin.data.provider;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.stream.Stream;
 
 /**
@@ -104,4 +107,43 @@ public interface HierarchicalDataProvider<T, F> extends DataProvider<T, F> {
      */
     public boolean hasChildren(T item);
 
+    /**
+     * Checks whether the given items have any children associated with them.
+     * Used for all items of a page of data at once, so that a back end can
+     * check them with a single query instead of one query per item.
+     * <p>
+     * The default implementation calls {@link #hasChildren(Object)} for each
+     * item.
+     *
+     * @param items
+     *            the items to check for children, not {@code null}
+     * @return a map from each of the given items to whether it has children
+     * @since 8.13
+     */
+    public default Map<T, Boolean> hasChildrenForItems(Collection<T> items) {
+        Map<T, Boolean> result = new HashMap<>();
+        for (T item : items) {
+            result.put(item, hasChildren(item));
+        }
+        return result;
+    }
+
+    /**
+     * Refreshes the given item and optionally its children. Refreshing the
+     * children is needed when children have been added or removed under the
+     * item, or the item has been moved in the hierarchy.
+     * <p>
+     * The default implementation only calls {@link #refreshItem(Object)}.
+     *
+     * @param item
+     *            the item to refresh
+     * @param refreshChildren
+     *            whether the children of the item should also be refreshed
+     * @see #refreshItem(Object)
+     * @since 8.13
+     */
+    public default void refreshItem(T item, boolean refreshChildren) {
+        refreshItem(item);
+    }
+
 }
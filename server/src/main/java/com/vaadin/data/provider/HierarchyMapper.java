@@ -15,17 +15,19 @@
  */
 package com.vaadin.data.provider;
 
-import java.util.Collections;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -40,7 +42,12 @@ import elemental.json.JsonObject;
  * Mapper for hierarchical data.
  * <p>
  * Keeps track of the expanded nodes, and size of of the subtrees for each
- * expanded node.
+ * expanded node. The children of the visible expanded nodes are cached
+ * together with the sizes of their subtrees, so that finding the index of an
+ * item, fetching a range of the flattened hierarchy and expanding or
+ * collapsing an item do not need to go through the whole hierarchy. The cache
+ * is built again from the data provider after
+ * {@link #invalidateHierarchy()}.
  * <p>
  * This class is framework internal implementation details, and can be changed /
  * moved at any point. This means that you should not directly use this for
@@ -56,11 +63,65 @@ import elemental.json.JsonObject;
  */
 public class HierarchyMapper<T, F> implements DataGenerator<T> {
 
+    private static final int MAX_CACHED_CHILD_COUNTS = 1000;
+
+    /**
+     * Child counts of the most recently used parents.
+     */
+    private static class ChildCountCache
+            extends LinkedHashMap<Object, Integer> {
+        private ChildCountCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<Object, Integer> eldest) {
+            return size() > MAX_CACHED_CHILD_COUNTS;
+        }
+    }
+
+    /**
+     * The cached children of the root or of a visible expanded item.
+     */
+    private class ExpandedNode implements Serializable {
+        private final ExpandedNode parent;
+        /** Position of the expanded item among the children of the parent. */
+        private final int position;
+        /** Depth of the children, 0 for root items. */
+        private final int depth;
+        private final List<T> children;
+        private final Map<Object, Integer> positions = new HashMap<>();
+        /** Expanded nodes of the children, null for collapsed children. */
+        private final List<ExpandedNode> childNodes;
+        /** Number of rows for each child: 1 + rows in its subtree. */
+        private FenwickTree rows;
+
+        private ExpandedNode(ExpandedNode parent, int position,
+                List<T> children) {
+            this.parent = parent;
+            this.position = position;
+            depth = parent == null ? 0 : parent.depth + 1;
+            this.children = children;
+            childNodes = new ArrayList<>(children.size());
+        }
+    }
+
     // childMap is only used for finding parents of items and clean up on
-    // removing children of expanded nodes.
-    private Map<T, Set<T>> childMap = new HashMap<>();
+    // removing children of expanded nodes. The keys are item ids.
+    private Map<Object, Set<T>> childMap = new HashMap<>();
     private Map<Object, T> parentIdMap = new HashMap<>();
 
+    /** Cached expanded hierarchy, or null if not built. */
+    private ExpandedNode rootNode;
+    /** The cached node containing each visible item as a child. */
+    private Map<Object, ExpandedNode> nodesByItemId = new HashMap<>();
+
+    /** Cached results of hasChildren by item id. */
+    private Map<Object, Boolean> hasChildrenCache = new HashMap<>();
+    /** Cached child counts with the current filter by parent id. */
+    private Map<Object, Integer> childCountCache = new ChildCountCache();
+
     private final HierarchicalDataProvider<T, F> provider;
     private F filter;
     private List<QuerySortOrder> backEndSorting;
@@ -85,7 +146,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return the amount of available data
      */
     public int getTreeSize() {
-        return (int) getHierarchy(null).count();
+        return getRootNode().rows.getTotal();
     }
 
     /**
@@ -97,9 +158,8 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      *
      */
     public Integer getParentIndex(T item) {
-        // TODO: This can be optimized.
-        List<T> flatHierarchy = getHierarchy(null).collect(Collectors.toList());
-        return flatHierarchy.indexOf(getParentOfItem(item));
+        T parent = getParentOfItem(item);
+        return parent == null ? -1 : getIndexOf(parent).orElse(-1);
     }
 
     /**
@@ -127,9 +187,14 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return range of rows added by expanding the item
      */
     public Range expand(T item, Integer position) {
-        if (doExpand(item) && position != null) {
-            return Range.withLength(position + 1,
-                    (int) getHierarchy(item, false).count());
+        if (position != null) {
+            getRootNode();
+        }
+        if (doExpand(item) && rootNode != null) {
+            int addedRows = attachChildNode(item);
+            if (position != null) {
+                return Range.withLength(position + 1, addedRows);
+            }
         }
 
         return Range.emptyRange();
@@ -179,11 +244,14 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return range of rows removed by collapsing the item
      */
     public Range collapse(T item, Integer position) {
+        if (position != null) {
+            getRootNode();
+        }
         Range removedRows = Range.emptyRange();
         if (isExpanded(item)) {
+            int rows = rootNode == null ? 0 : detachChildNode(item);
             if (position != null) {
-                removedRows = Range.withLength(position + 1,
-                        (int) getHierarchy(item, false).count());
+                removedRows = Range.withLength(position + 1, rows);
             }
             expandedItemIds.remove(getDataProvider().getId(item));
         }
@@ -216,7 +284,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
                     depth);
         }
 
-        boolean isLeaf = !getDataProvider().hasChildren(item);
+        boolean isLeaf = !hasChildren(item);
         if (isLeaf) {
             hierarchyData.put(HierarchicalDataCommunicatorConstants.ROW_LEAF,
                     true);
@@ -275,6 +343,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      */
     public void setInMemorySorting(Comparator<T> inMemorySorting) {
         this.inMemorySorting = inMemorySorting;
+        invalidateHierarchy();
     }
 
     /**
@@ -295,6 +364,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      */
     public void setBackEndSorting(List<QuerySortOrder> backEndSorting) {
         this.backEndSorting = backEndSorting;
+        invalidateHierarchy();
     }
 
     /**
@@ -315,6 +385,74 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      */
     public void setFilter(Object filter) {
         this.filter = (F) filter;
+        childCountCache.clear();
+        invalidateHierarchy();
+    }
+
+    /**
+     * Discards the cached children of the expanded items, so that the
+     * hierarchy is fetched again from the data provider when it is needed
+     * next. Should be called when the data of the data provider has changed.
+     *
+     * @since 8.13
+     */
+    public void invalidateHierarchy() {
+        rootNode = null;
+        nodesByItemId.clear();
+    }
+
+    /**
+     * Discards all cached information about the hierarchy, including the
+     * cached child counts and whether items have children. Should be called
+     * when all data in the data provider has been refreshed.
+     *
+     * @since 8.13
+     */
+    public void refreshAll() {
+        hasChildrenCache.clear();
+        childCountCache.clear();
+        invalidateHierarchy();
+    }
+
+    /**
+     * Discards the cached information about the children of the given item
+     * and of its visible descendants. Should be called when children have
+     * been added or removed under the item.
+     *
+     * @param item
+     *            the item whose children have changed, not {@code null}
+     * @since 8.13
+     */
+    public void refreshChildren(T item) {
+        Object id = getDataProvider().getId(item);
+        hasChildrenCache.remove(id);
+        childCountCache.remove(id);
+        ExpandedNode node = rootNode == null ? null : getChildNode(item);
+        if (node != null) {
+            forEachDescendantId(node, descendantId -> {
+                hasChildrenCache.remove(descendantId);
+                childCountCache.remove(descendantId);
+            });
+        }
+        invalidateHierarchy();
+    }
+
+    /**
+     * Discards the cached result of {@link #hasChildren(Object)} for the given
+     * item. Must be called while holding the session lock.
+     *
+     * @param item
+     *            the refreshed item, not {@code null}
+     */
+    void refreshHasChildren(T item) {
+        hasChildrenCache.remove(getDataProvider().getId(item));
+    }
+
+    @Override
+    public void destroyData(T item) {
+        // Only called when cleaning up data sent to the client, while the
+        // session is locked
+        hasChildrenCache.remove(getDataProvider().getId(item));
     }
 
     /**
@@ -328,14 +466,45 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
     }
 
     /**
-     * Returns whether given item has children.
+     * Returns whether given item has children. The result is cached until the
+     * item is refreshed.
      *
      * @param item
      *            the node to test
      * @return {@code true} if node has children; {@code false} if not
      */
     public boolean hasChildren(T item) {
-        return getDataProvider().hasChildren(item);
+        Object id = getDataProvider().getId(item);
+        Boolean hasChildren = hasChildrenCache.get(id);
+        if (hasChildren == null) {
+            hasChildren = getDataProvider().hasChildren(item);
+            hasChildrenCache.put(id, hasChildren);
+        }
+        return hasChildren;
+    }
+
+    /**
+     * Checks whether the given items have children with a single call to
+     * {@link HierarchicalDataProvider#hasChildrenForItems(Collection)}, and
+     * caches the
+     * results for {@link #hasChildren(Object)}. Items with a cached result are
+     * not checked again.
+     *
+     * @param items
+     *            the items to check, not {@code null}
+     * @since 8.13
+     */
+    public void prefetchHasChildren(Collection<T> items) {
+        List<T> uncachedItems = items.stream()
+                .filter(item -> !hasChildrenCache
+                        .containsKey(getDataProvider().getId(item)))
+                .collect(Collectors.toList());
+        // A single item is checked when needed
+        if (uncachedItems.size() > 1) {
+            getDataProvider().hasChildrenForItems(uncachedItems)
+                    .forEach((item, hasChildren) -> hasChildrenCache
+                            .put(getDataProvider().getId(item), hasChildren));
+        }
     }
 
     /* Fetch methods. These are used to calculate what to request. */
@@ -349,7 +518,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return the stream of items
      */
     public Stream<T> fetchItems(Range range) {
-        return getHierarchy(null).skip(range.getStart()).limit(range.length());
+        return fetchRows(getRootNode(), range);
     }
 
     /**
@@ -363,8 +532,43 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return the stream of items
      */
     public Stream<T> fetchItems(T parent, Range range) {
-        return getHierarchy(parent, false).skip(range.getStart())
-                .limit(range.length());
+        if (parent == null) {
+            return fetchItems(range);
+        }
+        getRootNode();
+        ExpandedNode node = getChildNode(parent);
+        return node == null ? Stream.empty() : fetchRows(node, range);
+    }
+
+    private Stream<T> fetchRows(ExpandedNode node, Range range) {
+        List<T> rows = new ArrayList<>(
+                Math.min(range.length(), node.rows.getTotal()));
+        collectRows(node, range.getStart(), range.length(), rows);
+        return rows.stream();
+    }
+
+    /**
+     * Adds the rows of the subtree of a node to the list, starting from the
+     * given offset, until the list has the given number of rows.
+     */
+    private void collectRows(ExpandedNode node, int offset, int limit,
+            List<T> rows) {
+        int position = node.rows.find(offset);
+        int offsetInChild = position < node.children.size()
+                ? offset - node.rows.prefixSum(position)
+                : 0;
+        for (; position < node.children.size()
+                && rows.size() < limit; position++) {
+            if (offsetInChild == 0) {
+                rows.add(node.children.get(position));
+            }
+            ExpandedNode childNode = node.childNodes.get(position);
+            if (childNode != null && rows.size() < limit) {
+                collectRows(childNode, Math.max(0, offsetInChild - 1), limit,
+                        rows);
+            }
+            offsetInChild = 0;
+        }
     }
 
     /* Methods for providing information on the hierarchy. */
@@ -387,6 +591,11 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
     }
 
     private int getDepth(T item) {
+        ExpandedNode node = rootNode == null ? null
+                : nodesByItemId.get(getDataProvider().getId(item));
+        if (node != null) {
+            return node.depth;
+        }
         int depth = -1;
         while (item != null) {
             item = getParentOfItem(item);
@@ -419,27 +628,20 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      */
     protected void removeChildren(Object id) {
         // Clean up removed nodes from child map
-        Iterator<Entry<T, Set<T>>> iterator = childMap.entrySet().iterator();
-        Set<T> invalidatedChildren = new HashSet<>();
-        while (iterator.hasNext()) {
-            Entry<T, Set<T>> entry = iterator.next();
-            T key = entry.getKey();
-            if (key != null && getDataProvider().getId(key).equals(id)) {
-                invalidatedChildren.addAll(entry.getValue());
-                iterator.remove();
-            }
-        }
+        Set<T> invalidatedChildren = id == null ? null : childMap.remove(id);
         expandedItemIds.remove(id);
-        invalidatedChildren.stream().map(getDataProvider()::getId)
-                .forEach(x -> {
-                    removeChildren(x);
-                    parentIdMap.remove(x);
-                });
+        if (invalidatedChildren != null) {
+            invalidatedChildren.stream().map(getDataProvider()::getId)
+                    .forEach(x -> {
+                        removeChildren(x);
+                        parentIdMap.remove(x);
+                    });
+        }
     }
 
     /**
-     * Finds the current index of given object. This is based on a search in
-     * flattened version of the hierarchy.
+     * Finds the current index of given object. This is based on the cached
+     * sizes of the subtrees of the expanded items.
      *
      * @param target
      *            the target object to find
@@ -450,89 +652,191 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
             return Optional.empty();
         }
 
-        final List<Object> collect = getHierarchy(null).map(provider::getId)
-                .collect(Collectors.toList());
-        int index = collect.indexOf(getDataProvider().getId(target));
-        return Optional.ofNullable(index < 0 ? null : index);
+        getRootNode();
+        ExpandedNode node = nodesByItemId.get(getDataProvider().getId(target));
+        if (node == null) {
+            return Optional.empty();
+        }
+        int index = node.rows.prefixSum(
+                node.positions.get(getDataProvider().getId(target)));
+        for (; node.parent != null; node = node.parent) {
+            index += 1 + node.parent.rows.prefixSum(node.position);
+        }
+        return Optional.of(index);
     }
 
     /**
-     * Gets the full hierarchy tree starting from given node.
+     * Gets the cached root node, building the expanded hierarchy if needed.
      *
-     * @param parent
-     *            the parent node to start from
-     * @return the flattened hierarchy as a stream
+     * @return the root node
      */
-    private Stream<T> getHierarchy(T parent) {
-        return getHierarchy(parent, true);
+    private ExpandedNode getRootNode() {
+        if (rootNode == null) {
+            rootNode = createNode(null, null, 0);
+        }
+        return rootNode;
     }
 
     /**
-     * Getst hte full hierarchy tree starting from given node. The starting node
-     * can be omitted.
+     * Gets the cached node of the children of an expanded item.
      *
-     * @param parent
-     *            the parent node to start from
-     * @param includeParent
-     *            {@code true} to include the parent; {@code false} if not
-     * @return the flattened hierarchy as a stream
+     * @param item
+     *            the item
+     * @return the node, or {@code null} if the item is not visible or not
+     *         expanded
      */
-    private Stream<T> getHierarchy(T parent, boolean includeParent) {
-        return Stream.of(parent)
-                .flatMap(node -> getChildrenStream(node, includeParent));
+    private ExpandedNode getChildNode(T item) {
+        Object id = getDataProvider().getId(item);
+        ExpandedNode node = nodesByItemId.get(id);
+        return node == null ? null
+                : node.childNodes.get(node.positions.get(id));
     }
 
     /**
-     * Gets the stream of direct children for given node.
+     * Fetches the children of an expanded item and recursively of the
+     * expanded children. An expanded item without children is collapsed.
      *
+     * @param item
+     *            the expanded item, or {@code null} for the root
      * @param parent
-     *            the parent node
-     * @return the stream of direct children
+     *            the node containing the item, or {@code null} for the root
+     * @param position
+     *            the position of the item in the parent node
+     * @return the new node, or {@code null} if there are no children
      */
-    private Stream<T> getDirectChildren(T parent) {
-        return doFetchDirectChildren(parent, Range.between(0, getDataProvider()
-                .getChildCount(new HierarchicalQuery<>(filter, parent))));
+    private ExpandedNode createNode(T item, ExpandedNode parent,
+            int position) {
+        List<T> children = getDirectChildren(item)
+                .collect(Collectors.toList());
+        if (children.isEmpty()) {
+            removeChildren(item == null ? null : getDataProvider().getId(item));
+            if (item != null) {
+                return null;
+            }
+        } else {
+            registerChildren(item, children);
+        }
+
+        ExpandedNode node = new ExpandedNode(parent, position, children);
+        int[] rows = new int[children.size()];
+        for (int i = 0; i < children.size(); i++) {
+            T child = children.get(i);
+            Object id = getDataProvider().getId(child);
+            node.positions.put(id, i);
+            nodesByItemId.put(id, node);
+            ExpandedNode childNode = isExpanded(child)
+                    ? createNode(child, node, i)
+                    : null;
+            node.childNodes.add(childNode);
+            rows[i] = 1 + (childNode == null ? 0 : childNode.rows.getTotal());
+        }
+        node.rows = new FenwickTree(rows);
+        return node;
+    }
+
+    /**
+     * Adds the children of a visible item that has been expanded to the cached
+     * hierarchy.
+     *
+     * @return the number of added rows
+     */
+    private int attachChildNode(T item) {
+        Object id = getDataProvider().getId(item);
+        ExpandedNode parent = nodesByItemId.get(id);
+        if (parent == null) {
+            return 0;
+        }
+        int position = parent.positions.get(id);
+        ExpandedNode node = createNode(item, parent, position);
+        if (node == null) {
+            return 0;
+        }
+        parent.childNodes.set(position, node);
+        addRows(parent, position, node.rows.getTotal());
+        return node.rows.getTotal();
+    }
+
+    /**
+     * Removes the children of a visible item that is being collapsed from the
+     * cached hierarchy.
+     *
+     * @return the number of removed rows
+     */
+    private int detachChildNode(T item) {
+        Object id = getDataProvider().getId(item);
+        ExpandedNode parent = nodesByItemId.get(id);
+        if (parent == null) {
+            return 0;
+        }
+        int position = parent.positions.get(id);
+        ExpandedNode node = parent.childNodes.get(position);
+        if (node == null) {
+            return 0;
+        }
+        parent.childNodes.set(position, null);
+        addRows(parent, position, -node.rows.getTotal());
+        forgetNode(node);
+        return node.rows.getTotal();
+    }
+
+    private void forgetNode(ExpandedNode node) {
+        forEachDescendantId(node, nodesByItemId::remove);
     }
 
     /**
-     * The method to recursively fetch the children of given parent. Used with
-     * {@link Stream#flatMap} to expand a stream of parent nodes into a
-     * flattened hierarchy.
+     * Calls the action with the id of every item in the subtree of a node.
+     */
+    private void forEachDescendantId(ExpandedNode node,
+            Consumer<Object> action) {
+        for (int i = 0; i < node.children.size(); i++) {
+            action.accept(getDataProvider().getId(node.children.get(i)));
+            if (node.childNodes.get(i) != null) {
+                forEachDescendantId(node.childNodes.get(i), action);
+            }
+        }
+    }
+
+    /**
+     * Updates the row counts of a node and all its ancestors.
+     */
+    private void addRows(ExpandedNode node, int position, int delta) {
+        while (node != null) {
+            node.rows.add(position, delta);
+            position = node.position;
+            node = node.parent;
+        }
+    }
+
+    /**
+     * Gets the stream of direct children for given node.
      *
      * @param parent
      *            the parent node
-     * @return the stream of all children under the parent, includes the parent
+     * @return the stream of direct children
      */
-    private Stream<T> getChildrenStream(T parent) {
-        return getChildrenStream(parent, true);
+    private Stream<T> getDirectChildren(T parent) {
+        return doFetchDirectChildren(parent,
+                Range.between(0, getChildCount(parent)));
     }
 
     /**
-     * The method to recursively fetch the children of given parent. Used with
-     * {@link Stream#flatMap} to expand a stream of parent nodes into a
-     * flattened hierarchy.
+     * Gets the number of direct children of the given node with the current
+     * filter. The count is cached until the filter changes or the children of
+     * the node are refreshed.
      *
      * @param parent
-     *            the parent node
-     * @param includeParent
-     *            {@code true} to include the parent in the stream;
-     *            {@code false} if not
-     * @return the stream of all children under the parent
-     */
-    private Stream<T> getChildrenStream(T parent, boolean includeParent) {
-        List<T> childList = Collections.emptyList();
-        if (isExpanded(parent)) {
-            childList = getDirectChildren(parent).collect(Collectors.toList());
-            if (childList.isEmpty()) {
-                removeChildren(parent == null ? null
-                        : getDataProvider().getId(parent));
-            } else {
-                registerChildren(parent, childList);
-            }
+     *            the parent node, or {@code null} for the root
+     * @return the number of children
+     */
+    private int getChildCount(T parent) {
+        Object id = parent == null ? null : getDataProvider().getId(parent);
+        Integer count = childCountCache.get(id);
+        if (count == null) {
+            count = getDataProvider()
+                    .getChildCount(new HierarchicalQuery<>(filter, parent));
+            childCountCache.put(id, count);
         }
-        return combineParentAndChildStreams(parent,
-                childList.stream().flatMap(this::getChildrenStream),
-                includeParent);
+        return count;
     }
 
     /**
@@ -545,36 +849,16 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      *            list of parents children to be registered.
      */
     protected void registerChildren(T parent, List<T> childList) {
-        childMap.put(parent, new HashSet<>(childList));
+        childMap.put(parent == null ? null : getDataProvider().getId(parent),
+                new HashSet<>(childList));
         childList.forEach(
                 x -> parentIdMap.put(getDataProvider().getId(x), parent));
     }
 
-    /**
-     * Helper method for combining parent and a stream of children into one
-     * stream. {@code null} item is never included, and parent can be skipped by
-     * providing the correct value for {@code includeParent}.
-     *
-     * @param parent
-     *            the parent node
-     * @param children
-     *            the stream of children
-     * @param includeParent
-     *            {@code true} to include the parent in the stream;
-     *            {@code false} if not
-     * @return the combined stream of parent and its children
-     */
-    private Stream<T> combineParentAndChildStreams(T parent, Stream<T> children,
-            boolean includeParent) {
-        boolean parentIncluded = includeParent && parent != null;
-        Stream<T> parentStream = parentIncluded ? Stream.of(parent)
-                : Stream.empty();
-        return Stream.concat(parentStream, children);
-    }
-
     @Override
     public void destroyAllData() {
         childMap.clear();
         parentIdMap.clear();
+        refreshAll();
     }
 }
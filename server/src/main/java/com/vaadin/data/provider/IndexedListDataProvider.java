@@ -0,0 +1,366 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.vaadin.server.SerializablePredicate;
+
+/**
+ * {@link ListDataProvider} that caches the filtered and sorted view of the
+ * items for each combination of query filter and query sorting. Fetching a
+ * page and getting the size are then proportional to the size of the page
+ * instead of requiring a full scan and sort of the backing collection for
+ * every query.
+ * <p>
+ * Views are only cached for query filters that implement
+ * {@link Object#equals(Object)}. Other filters, such as lambdas, are usually
+ * created for each query, so the view is built for the query only.
+ * <p>
+ * When only the first pages of a sorted view are requested, they are selected
+ * from the filtered items without sorting the whole view. The complete view
+ * is sorted once a page further away from the start is requested.
+ * <p>
+ * Unlike with {@link ListDataProvider}, changes to the backing collection are
+ * only visible after {@link #refreshAll()} has been called. Changes to a
+ * single item are applied to the cached views incrementally by
+ * {@link #refreshItem(Object)}. An item that moves within a sorted view is
+ * placed after the items it compares equal to.
+ *
+ * @param <T>
+ *            data type
+ * @since 8.13
+ */
+public class IndexedListDataProvider<T> extends ListDataProvider<T> {
+
+    /**
+     * The maximum number of views kept in memory.
+     */
+    private static final int MAX_CACHED_VIEWS = 4;
+
+    /**
+     * Pages ending within this fraction of the view size are selected without
+     * sorting the whole view.
+     */
+    private static final int PARTIAL_SELECTION_RATIO = 8;
+
+    private static class ViewKey implements Serializable {
+        private final Object filter;
+        private final Comparator<?> sorting;
+
+        private ViewKey(Object filter, Comparator<?> sorting) {
+            this.filter = filter;
+            this.sorting = sorting;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ViewKey)) {
+                return false;
+            }
+            ViewKey other = (ViewKey) obj;
+            return Objects.equals(filter, other.filter)
+                    && Objects.equals(sorting, other.sorting);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(filter, sorting);
+        }
+    }
+
+    private class View implements Serializable {
+        private final SerializablePredicate<T> queryFilter;
+        private final Comparator<T> comparator;
+        private final List<T> items;
+        private boolean sorted;
+        /**
+         * The index of each item in {@link #items} by item id, built when
+         * first needed and discarded when items are added, removed or moved.
+         */
+        private Map<Object, Integer> indexes;
+
+        private View(SerializablePredicate<T> queryFilter,
+                Comparator<T> comparator) {
+            this.queryFilter = queryFilter;
+            this.comparator = comparator;
+
+            SerializablePredicate<T> filter = getFilter();
+            if (isParallel()) {
+                items = ParallelDataProcessing.filter(getItems(),
+                        item -> (filter == null || filter.test(item))
+                                && (queryFilter == null
+                                        || queryFilter.test(item)));
+            } else {
+                Stream<T> stream = getItems().stream();
+                if (filter != null) {
+                    stream = stream.filter(filter);
+                }
+                if (queryFilter != null) {
+                    stream = stream.filter(queryFilter);
+                }
+                items = stream
+                        .collect(Collectors.toCollection(ArrayList::new));
+            }
+            sorted = comparator == null;
+        }
+
+        private List<T> getPage(int offset, int limit) {
+            int size = items.size();
+            int from = Math.min(offset, size);
+            int to = (int) Math.min((long) offset + limit, size);
+            if (!sorted) {
+                if ((long) to * PARTIAL_SELECTION_RATIO <= size) {
+                    return selectFirst(to).subList(from, to);
+                }
+                // Stable, keeps the order of equal items like Stream.sorted
+                if (isParallel()) {
+                    ParallelDataProcessing.sort(items, comparator);
+                } else {
+                    items.sort(comparator);
+                }
+                sorted = true;
+                indexes = null;
+            }
+            return new ArrayList<>(items.subList(from, to));
+        }
+
+        /**
+         * Selects the given number of first items in sort order using a
+         * bounded heap. Ties are broken by the position in the unsorted items
+         * to give the same order as a stable sort.
+         */
+        private List<T> selectFirst(int count) {
+            if (count == 0) {
+                return Collections.emptyList();
+            }
+            Comparator<Integer> order = (a, b) -> {
+                int result = comparator.compare(items.get(a), items.get(b));
+                return result != 0 ? result : Integer.compare(a, b);
+            };
+            PriorityQueue<Integer> heap = new PriorityQueue<>(count,
+                    order.reversed());
+            for (int i = 0; i < items.size(); i++) {
+                if (heap.size() < count) {
+                    heap.add(i);
+                } else if (order.compare(i, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(i);
+                }
+            }
+            List<Integer> indexes = new ArrayList<>(heap);
+            indexes.sort(order);
+            List<T> first = new ArrayList<>(count);
+            for (Integer index : indexes) {
+                first.add(items.get(index));
+            }
+            return first;
+        }
+
+        /**
+         * Updates the view for a changed item.
+         *
+         * @return <code>false</code> if the view could not be updated and
+         *         must be discarded
+         */
+        private boolean refresh(T item) {
+            int index = indexOf(getId(item));
+            SerializablePredicate<T> filter = getFilter();
+            boolean included = (filter == null || filter.test(item))
+                    && (queryFilter == null || queryFilter.test(item));
+
+            if (comparator != null && sorted) {
+                if (included && index >= 0 && isInPlace(index, item)) {
+                    // Keeps the order of equal items
+                    items.set(index, item);
+                    return true;
+                }
+                if (index >= 0) {
+                    items.remove(index);
+                }
+                if (included) {
+                    insertSorted(item);
+                }
+                indexes = null;
+                return true;
+            } else if (index >= 0) {
+                // Items are in the order of the backing collection
+                if (included) {
+                    items.set(index, item);
+                } else {
+                    items.remove(index);
+                    indexes = null;
+                }
+                return true;
+            }
+            // Position in the backing collection not known
+            return !included;
+        }
+
+        private int indexOf(Object id) {
+            if (indexes == null) {
+                indexes = new HashMap<>();
+                for (int i = 0; i < items.size(); i++) {
+                    indexes.putIfAbsent(getId(items.get(i)), i);
+                }
+            }
+            Integer index = indexes.get(id);
+            return index == null ? -1 : index;
+        }
+
+        private boolean isInPlace(int index, T item) {
+            return (index == 0
+                    || comparator.compare(items.get(index - 1), item) <= 0)
+                    && (index == items.size() - 1 || comparator
+                            .compare(item, items.get(index + 1)) <= 0);
+        }
+
+        private void insertSorted(T item) {
+            int index = Collections.binarySearch(items, item, comparator);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            // Insert after equal items
+            while (index < items.size()
+                    && comparator.compare(items.get(index), item) == 0) {
+                index++;
+            }
+            items.add(index, item);
+        }
+    }
+
+    private static class ViewCache<K, V> extends LinkedHashMap<K, V> {
+        private ViewCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > MAX_CACHED_VIEWS;
+        }
+    }
+
+    private transient volatile Map<ViewKey, View> views;
+
+    /**
+     * Constructs a new IndexedListDataProvider.
+     * <p>
+     * No protective copy is made of the list. Changes in the provided backing
+     * Collection will be visible via this data provider after calling
+     * {@link #refreshAll()}. The caller should copy the list if necessary.
+     *
+     * @param items
+     *            the initial data, not null
+     */
+    public IndexedListDataProvider(Collection<T> items) {
+        super(items);
+    }
+
+    @Override
+    public Stream<T> fetch(Query<T, SerializablePredicate<T>> query) {
+        synchronized (getViews()) {
+            return getView(query)
+                    .getPage(query.getOffset(), query.getLimit()).stream();
+        }
+    }
+
+    @Override
+    public int size(Query<T, SerializablePredicate<T>> query) {
+        synchronized (getViews()) {
+            return getView(query).items.size();
+        }
+    }
+
+    @Override
+    public void refreshAll() {
+        // Also called when the filter or sort order of this provider changes
+        synchronized (getViews()) {
+            getViews().clear();
+        }
+        super.refreshAll();
+    }
+
+    @Override
+    public void refreshItem(T item) {
+        synchronized (getViews()) {
+            getViews().values().removeIf(view -> !view.refresh(item));
+        }
+        super.refreshItem(item);
+    }
+
+    private View getView(Query<T, SerializablePredicate<T>> query) {
+        SerializablePredicate<T> queryFilter = query.getFilter().orElse(null);
+        boolean cacheable = isComparedByValue(queryFilter);
+        ViewKey key = new ViewKey(queryFilter, query.getInMemorySorting());
+        View view = cacheable ? getViews().get(key) : null;
+        if (view == null) {
+            Comparator<T> comparator = Stream
+                    .of(query.getInMemorySorting(), getSortComparator())
+                    .filter(c -> c != null)
+                    .reduce((c1, c2) -> c1.thenComparing(c2)).orElse(null);
+            view = new View(queryFilter, comparator);
+            if (cacheable) {
+                getViews().put(key, view);
+            }
+        }
+        return view;
+    }
+
+    /**
+     * Checks whether a query filter can be used to find a cached view. Filters
+     * that are compared by identity, such as lambdas, are typically created
+     * anew for each query, e.g. by {@link #withConvertedFilter}, so caching a
+     * view for them would only evict the views that can be reused.
+     */
+    private static boolean isComparedByValue(Object filter) {
+        if (filter == null) {
+            return true;
+        }
+        for (Class<?> type = filter.getClass(); type != Object.class;
+                type = type.getSuperclass()) {
+            try {
+                type.getDeclaredMethod("equals", Object.class);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // Not overridden in this class
+            }
+        }
+        return false;
+    }
+
+    private Map<ViewKey, View> getViews() {
+        if (views == null) {
+            synchronized (this) {
+                if (views == null) {
+                    views = new ViewCache<>();
+                }
+            }
+        }
+        return views;
+    }
+}
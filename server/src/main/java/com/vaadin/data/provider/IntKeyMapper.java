@@ -0,0 +1,417 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.ObjIntConsumer;
+
+import com.vaadin.data.ValueProvider;
+
+/**
+ * {@link DataKeyMapper} that assigns consecutive integer keys to objects. The
+ * mappings are kept in open addressing hash tables of primitive keys instead
+ * of maps of strings, and the keys are sent to the client side in base 36 to
+ * keep them short.
+ * <p>
+ * A removed object gets a new key when it is mapped again. Keys are not
+ * reused until all positive integers have been assigned, after which the
+ * assignment starts over from the smallest key, skipping the keys that are
+ * still in use.
+ *
+ * @param <V>
+ *            the type of mapped objects
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+public class IntKeyMapper<V> implements DataKeyMapper<V> {
+
+    private static final int RADIX = Character.MAX_RADIX;
+
+    /**
+     * The integer that encodes to the key used for <code>null</code>, never
+     * assigned to an object.
+     */
+    private static final int NULL_KEY = decodeKey("null");
+
+    /**
+     * Hash table from non-negative int keys to objects, with linear probing.
+     */
+    private static class IntObjectTable<V> implements Serializable {
+        private static final int EMPTY = -1;
+
+        private int[] keys;
+        private Object[] values;
+        private int size = 0;
+
+        private IntObjectTable() {
+            allocate(16);
+        }
+
+        private int indexOf(int key) {
+            int mask = keys.length - 1;
+            int index = IntKeySet.mix(key) & mask;
+            while (keys[index] != EMPTY) {
+                if (keys[index] == key) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1 - index;
+        }
+
+        private boolean containsKey(int key) {
+            return indexOf(key) >= 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private V get(int key) {
+            int index = indexOf(key);
+            return index < 0 ? null : (V) values[index];
+        }
+
+        private void put(int key, V value) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                values[index] = value;
+                return;
+            }
+            if (IntKeySet.isFull(size + 1, keys.length)) {
+                resize(keys.length * 2);
+                index = indexOf(key);
+            }
+            keys[-1 - index] = key;
+            values[-1 - index] = value;
+            size++;
+        }
+
+        private void remove(int key) {
+            int index = indexOf(key);
+            if (index < 0) {
+                return;
+            }
+            int mask = keys.length - 1;
+            // Shift back the following entries of the same probe sequence
+            int next = index;
+            while (true) {
+                next = (next + 1) & mask;
+                if (keys[next] == EMPTY) {
+                    break;
+                }
+                int home = IntKeySet.mix(keys[next]) & mask;
+                if (!IntKeySet.isCyclicallyBetween(home, index, next)) {
+                    keys[index] = keys[next];
+                    values[index] = values[next];
+                    index = next;
+                }
+            }
+            keys[index] = EMPTY;
+            values[index] = null;
+            size--;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void forEach(ObjIntConsumer<V> action) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY) {
+                    action.accept((V) values[i], keys[i]);
+                }
+            }
+        }
+
+        private void clear() {
+            allocate(16);
+            size = 0;
+        }
+
+        private void allocate(int capacity) {
+            keys = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            values = new Object[capacity];
+        }
+
+        @SuppressWarnings("unchecked")
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            Object[] oldValues = values;
+            allocate(capacity);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    put(oldKeys[i], (V) oldValues[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hash table from non-null objects to int values, with linear probing.
+     */
+    private static class ObjectIntTable implements Serializable {
+        private Object[] keys = new Object[16];
+        private int[] values = new int[16];
+        private int size = 0;
+
+        private int indexOf(Object key) {
+            int mask = keys.length - 1;
+            int index = IntKeySet.mix(key.hashCode()) & mask;
+            while (keys[index] != null) {
+                if (keys[index].equals(key)) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1 - index;
+        }
+
+        /** Returns the value for the key, or -1 if not found. */
+        private int get(Object key) {
+            int index = indexOf(key);
+            return index < 0 ? -1 : values[index];
+        }
+
+        private void put(Object key, int value) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                values[index] = value;
+                return;
+            }
+            if (IntKeySet.isFull(size + 1, keys.length)) {
+                resize(keys.length * 2);
+                index = indexOf(key);
+            }
+            keys[-1 - index] = key;
+            values[-1 - index] = value;
+            size++;
+        }
+
+        /** Removes the key and returns its value, or -1 if not found. */
+        private int remove(Object key) {
+            int index = indexOf(key);
+            if (index < 0) {
+                return -1;
+            }
+            int value = values[index];
+            int mask = keys.length - 1;
+            // Shift back the following entries of the same probe sequence
+            int next = index;
+            while (true) {
+                next = (next + 1) & mask;
+                if (keys[next] == null) {
+                    break;
+                }
+                int home = IntKeySet.mix(keys[next].hashCode()) & mask;
+                if (!IntKeySet.isCyclicallyBetween(home, index, next)) {
+                    keys[index] = keys[next];
+                    values[index] = values[next];
+                    index = next;
+                }
+            }
+            keys[index] = null;
+            size--;
+            return value;
+        }
+
+        private void clear() {
+            keys = new Object[16];
+            values = new int[16];
+            size = 0;
+        }
+
+        private void resize(int capacity) {
+            Object[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new Object[capacity];
+            values = new int[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+
+    private int lastKey = 0;
+
+    private final ObjectIntTable idKeyTable = new ObjectIntTable();
+
+    private final IntObjectTable<V> keyObjectTable = new IntObjectTable<>();
+
+    private ValueProvider<V, Object> identifierGetter;
+
+    /**
+     * Constructs a new mapper.
+     *
+     * @param identifierGetter
+     *            has to return a unique key for every bean, and the returned
+     *            key has to follow general {@code hashCode()} and
+     *            {@code equals()} contract, see {@link Object#hashCode()} for
+     *            details.
+     */
+    public IntKeyMapper(ValueProvider<V, Object> identifierGetter) {
+        this.identifierGetter = identifierGetter;
+    }
+
+    /**
+     * Constructs a new mapper with trivial {@code identifierGetter}.
+     */
+    public IntKeyMapper() {
+        this(v -> v);
+    }
+
+    @Override
+    public String key(V dataObject) {
+        if (dataObject == null) {
+            return "null";
+        }
+        return encodeKey(intKey(dataObject));
+    }
+
+    /**
+     * Gets the integer key for an object, mapping the object if it is not yet
+     * mapped.
+     *
+     * @param dataObject
+     *            the object, not <code>null</code>
+     * @return the key of the object, a positive integer
+     */
+    public int intKey(V dataObject) {
+        Object id = identifierGetter.apply(dataObject);
+        int key = idKeyTable.get(id);
+        if (key < 0) {
+            key = nextKey();
+            idKeyTable.put(id, key);
+            keyObjectTable.put(key, dataObject);
+        }
+        return key;
+    }
+
+    private int nextKey() {
+        do {
+            // Wrap around instead of overflowing to the negative keys
+            lastKey = lastKey == Integer.MAX_VALUE ? 1 : lastKey + 1;
+        } while (lastKey == NULL_KEY || keyObjectTable.containsKey(lastKey));
+        return lastKey;
+    }
+
+    @Override
+    public boolean has(V dataObject) {
+        return idKeyTable.get(identifierGetter.apply(dataObject)) >= 0;
+    }
+
+    @Override
+    public V get(String key) {
+        int intKey = decodeKey(key);
+        return intKey < 0 ? null : get(intKey);
+    }
+
+    /**
+     * Gets the object mapped to an integer key.
+     *
+     * @param key
+     *            the key
+     * @return the object, or <code>null</code> if no object is mapped to the
+     *         key
+     */
+    public V get(int key) {
+        return keyObjectTable.get(key);
+    }
+
+    @Override
+    public void remove(V dataObject) {
+        int key = idKeyTable.remove(identifierGetter.apply(dataObject));
+        if (key >= 0) {
+            keyObjectTable.remove(key);
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        idKeyTable.clear();
+        keyObjectTable.clear();
+    }
+
+    @Override
+    public void refresh(V dataObject) {
+        int key = idKeyTable.get(identifierGetter.apply(dataObject));
+        if (key >= 0) {
+            keyObjectTable.put(key, dataObject);
+        }
+    }
+
+    @Override
+    public void setIdentifierGetter(ValueProvider<V, Object> identifierGetter) {
+        if (this.identifierGetter != identifierGetter) {
+            this.identifierGetter = identifierGetter;
+            idKeyTable.clear();
+            keyObjectTable.forEach((dataObject, key) -> idKeyTable
+                    .put(identifierGetter.apply(dataObject), key));
+        }
+    }
+
+    /**
+     * Gets the number of mapped objects.
+     *
+     * @return the number of mapped objects
+     */
+    public int size() {
+        return keyObjectTable.size;
+    }
+
+    /**
+     * Encodes an integer key as the string sent to the client side.
+     *
+     * @param key
+     *            the key, not negative
+     * @return the key string
+     */
+    public static String encodeKey(int key) {
+        return Integer.toString(key, RADIX);
+    }
+
+    /**
+     * Decodes a key string created by {@link #encodeKey(int)}.
+     *
+     * @param key
+     *            the key string
+     * @return the integer key, or -1 if the string is not an encoded key
+     */
+    public static int decodeKey(String key) {
+        Objects.requireNonNull(key, "Key cannot be null");
+        int length = key.length();
+        // No leading zeros, so that each key has exactly one string
+        if (length == 0 || length > 6 || length > 1 && key.charAt(0) == '0') {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = key.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'a' && c <= 'z') {
+                digit = c - 'a' + 10;
+            } else {
+                return -1;
+            }
+            value = value * RADIX + digit;
+        }
+        return value > Integer.MAX_VALUE ? -1 : (int) value;
+    }
+}
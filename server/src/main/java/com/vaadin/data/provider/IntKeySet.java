@@ -0,0 +1,208 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set of key strings that stores the keys created by {@link IntKeyMapper} as
+ * primitive integers in an open addressing hash table. Other keys are kept in
+ * a regular set, so any key strings can be added.
+ * <p>
+ * Iterating creates a snapshot of the keys.
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+class IntKeySet extends AbstractSet<String> implements Serializable {
+
+    private static final int EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] table = createTable(INITIAL_CAPACITY);
+    private int intSize = 0;
+    private final Set<String> otherKeys = new HashSet<>();
+
+    @Override
+    public boolean add(String key) {
+        int intKey = IntKeyMapper.decodeKey(key);
+        if (intKey < 0) {
+            return otherKeys.add(key);
+        }
+        int index = indexOf(intKey);
+        if (index >= 0) {
+            return false;
+        }
+        if (isFull(intSize + 1, table.length)) {
+            resize(table.length * 2);
+            index = indexOf(intKey);
+        }
+        table[-1 - index] = intKey;
+        intSize++;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        if (!(key instanceof String)) {
+            return false;
+        }
+        int intKey = IntKeyMapper.decodeKey((String) key);
+        return intKey < 0 ? otherKeys.contains(key) : indexOf(intKey) >= 0;
+    }
+
+    @Override
+    public boolean remove(Object key) {
+        if (!(key instanceof String)) {
+            return false;
+        }
+        int intKey = IntKeyMapper.decodeKey((String) key);
+        if (intKey < 0) {
+            return otherKeys.remove(key);
+        }
+        int index = indexOf(intKey);
+        if (index < 0) {
+            return false;
+        }
+        int mask = table.length - 1;
+        // Shift back the following keys of the same probe sequence
+        int next = index;
+        while (true) {
+            next = (next + 1) & mask;
+            if (table[next] == EMPTY) {
+                break;
+            }
+            if (!isCyclicallyBetween(mix(table[next]) & mask, index, next)) {
+                table[index] = table[next];
+                index = next;
+            }
+        }
+        table[index] = EMPTY;
+        intSize--;
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return intSize + otherKeys.size();
+    }
+
+    @Override
+    public void clear() {
+        table = createTable(INITIAL_CAPACITY);
+        intSize = 0;
+        otherKeys.clear();
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        List<String> keys = new ArrayList<>(size());
+        for (int intKey : table) {
+            if (intKey != EMPTY) {
+                keys.add(IntKeyMapper.encodeKey(intKey));
+            }
+        }
+        keys.addAll(otherKeys);
+        Iterator<String> iterator = keys.iterator();
+        return new Iterator<String>() {
+            private String current;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public String next() {
+                current = iterator.next();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                if (current == null) {
+                    throw new IllegalStateException();
+                }
+                IntKeySet.this.remove(current);
+                current = null;
+            }
+        };
+    }
+
+    private int indexOf(int intKey) {
+        int mask = table.length - 1;
+        int index = mix(intKey) & mask;
+        while (table[index] != EMPTY) {
+            if (table[index] == intKey) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1 - index;
+    }
+
+    private void resize(int capacity) {
+        int[] oldTable = table;
+        table = createTable(capacity);
+        for (int intKey : oldTable) {
+            if (intKey != EMPTY) {
+                table[-1 - indexOf(intKey)] = intKey;
+            }
+        }
+    }
+
+    private static int[] createTable(int capacity) {
+        int[] table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    /**
+     * Spreads the bits of a hash code so that consecutive values do not end up
+     * in consecutive slots of a linear probing table.
+     */
+    static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Checks whether a table with the given capacity is over its load factor
+     * of 3/4 with the given number of entries.
+     */
+    static boolean isFull(int size, int capacity) {
+        return size * 4L > capacity * 3L;
+    }
+
+    /**
+     * Checks whether the index is cyclically in the range (from, to] of a
+     * linear probing table. An entry at the to index whose home slot is not in
+     * this range can be moved back to the from index when deleting.
+     */
+    static boolean isCyclicallyBetween(int index, int from, int to) {
+        if (from <= to) {
+            return from < index && index <= to;
+        }
+        return from < index || index <= to;
+    }
+}
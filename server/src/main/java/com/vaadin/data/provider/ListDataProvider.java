@@ -17,8 +17,10 @@ package com.vaadin.data.provider;
 
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 import com.vaadin.server.SerializableComparator;
@@ -41,6 +43,8 @@ public class ListDataProvider<T>
 
     private final Collection<T> backend;
 
+    private int parallelThreshold = -1;
+
     /**
      * Constructs a new ListDataProvider.
      * <p>
@@ -66,15 +70,56 @@ public class ListDataProvider<T>
         return backend;
     }
 
+    /**
+     * Sets the number of items from which filtering and sorting are split
+     * between several threads. Use a negative value to always filter and sort
+     * in the calling thread, which is the default.
+     * <p>
+     * Filtering keeps the order of the items and sorting is stable, so the
+     * results are the same as without parallel processing. The threads are
+     * taken from a pool shared by all data providers, not from the common
+     * fork join pool. The filters and comparators must be safe to use from
+     * several threads at the same time, but they can use the current UI and
+     * session of the calling thread.
+     *
+     * @param parallelThreshold
+     *            the smallest number of items to process in parallel, or a
+     *            negative value to disable parallel processing
+     * @since 8.13
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Gets the number of items from which filtering and sorting are split
+     * between several threads.
+     *
+     * @return the smallest number of items to process in parallel, or a
+     *         negative value if parallel processing is disabled
+     * @since 8.13
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
     @Override
     public Stream<T> fetch(Query<T, SerializablePredicate<T>> query) {
-        Stream<T> stream = getFilteredStream(query);
-
         Optional<Comparator<T>> comparing = Stream
                 .of(query.getInMemorySorting(), sortOrder)
                 .filter(c -> c != null)
                 .reduce((c1, c2) -> c1.thenComparing(c2));
 
+        if (isParallel()) {
+            List<T> items = ParallelDataProcessing.filter(backend,
+                    getCombinedFilter(query));
+            comparing.ifPresent(c -> ParallelDataProcessing.sort(items, c));
+            return items.stream().skip(query.getOffset())
+                    .limit(query.getLimit());
+        }
+
+        Stream<T> stream = getFilteredStream(query);
+
         if (comparing.isPresent()) {
             stream = stream.sorted(comparing.get());
         }
@@ -84,9 +129,28 @@ public class ListDataProvider<T>
 
     @Override
     public int size(Query<T, SerializablePredicate<T>> query) {
+        if (isParallel()) {
+            return ParallelDataProcessing
+                    .filter(backend, getCombinedFilter(query)).size();
+        }
         return (int) getFilteredStream(query).count();
     }
 
+    /**
+     * Checks whether the items should be filtered and sorted in parallel.
+     */
+    boolean isParallel() {
+        return parallelThreshold >= 0 && backend.size() >= parallelThreshold;
+    }
+
+    private Predicate<T> getCombinedFilter(
+            Query<T, SerializablePredicate<T>> query) {
+        // Same order as in getFilteredStream
+        SerializablePredicate<T> queryFilter = query.getFilter().orElse(null);
+        return item -> (filter == null || filter.test(item))
+                && (queryFilter == null || queryFilter.test(item));
+    }
+
     private Stream<T> getFilteredStream(
             Query<T, SerializablePredicate<T>> query) {
         Stream<T> stream = backend.stream();
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+
+import com.vaadin.util.CurrentInstance;
+
+/**
+ * Filters and sorts in-memory items using several threads of a dedicated
+ * {@link ForkJoinPool}. The results are the same as when filtering and sorting
+ * sequentially: filtering keeps the order of the items and sorting is stable.
+ * <p>
+ * The current instances of the calling thread, such as the current UI, are
+ * available to the filters and comparators also when they are run by the pool
+ * threads.
+ * <p>
+ * The number of threads defaults to the number of available processors and
+ * can be changed with the <code>vaadin.dataProviderParallelism</code> system
+ * property.
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+final class ParallelDataProcessing {
+
+    /**
+     * The smallest number of items processed by a single task.
+     */
+    private static final int MIN_CHUNK_SIZE = 1024;
+
+    /**
+     * The number of tasks per thread, for balancing the load when filtering
+     * is faster for some items than for others.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final int PARALLELISM = Math.max(1,
+            Integer.getInteger("vaadin.dataProviderParallelism",
+                    Runtime.getRuntime().availableProcessors()));
+
+    private static volatile ForkJoinPool pool;
+
+    private ParallelDataProcessing() {
+        // Only static methods
+    }
+
+    /**
+     * Returns the items that pass the given filter, in the iteration order of
+     * the collection.
+     *
+     * @param items
+     *            the items to filter, not <code>null</code>
+     * @param filter
+     *            the filter to apply, not <code>null</code>
+     * @return a new list of the items passing the filter
+     */
+    static <T> ArrayList<T> filter(Collection<T> items,
+            Predicate<? super T> filter) {
+        Object[] array = items.toArray();
+        int chunkSize = getChunkSize(array.length);
+        int chunks = (array.length + chunkSize - 1) / chunkSize;
+        Object[][] results = new Object[chunks][];
+        int[] counts = new int[chunks];
+
+        getPool().invoke(new FilterTask(CurrentInstance.getInstances(), array,
+                chunkSize, 0, chunks, results, counts, filter));
+
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        Object[] filtered = new Object[total];
+        int position = 0;
+        for (int i = 0; i < chunks; i++) {
+            System.arraycopy(results[i], 0, filtered, position, counts[i]);
+            position += counts[i];
+        }
+        @SuppressWarnings("unchecked")
+        List<T> list = (List<T>) Arrays.asList(filtered);
+        return new ArrayList<>(list);
+    }
+
+    /**
+     * Sorts the given list in place. The sort is stable.
+     *
+     * @param items
+     *            the items to sort, not <code>null</code>
+     * @param comparator
+     *            the comparator to use, not <code>null</code>
+     */
+    @SuppressWarnings("unchecked")
+    static <T> void sort(List<T> items, Comparator<? super T> comparator) {
+        Object[] array = items.toArray();
+        getPool().invoke(new SortTask(CurrentInstance.getInstances(), array,
+                new Object[array.length], 0, array.length,
+                getChunkSize(array.length), (Comparator<Object>) comparator));
+
+        ListIterator<T> iterator = items.listIterator();
+        for (Object item : array) {
+            iterator.next();
+            iterator.set((T) item);
+        }
+    }
+
+    private static int getChunkSize(int size) {
+        return Math.max(MIN_CHUNK_SIZE,
+                size / (PARALLELISM * CHUNKS_PER_THREAD) + 1);
+    }
+
+    private static ForkJoinPool getPool() {
+        if (pool == null) {
+            synchronized (ParallelDataProcessing.class) {
+                if (pool == null) {
+                    pool = new ForkJoinPool(PARALLELISM, forkJoinPool -> {
+                        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+                                .newThread(forkJoinPool);
+                        thread.setName("vaadin-data-provider-"
+                                + thread.getPoolIndex());
+                        return thread;
+                    }, null, false);
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Base class for tasks running user provided filters and comparators with
+     * the current instances of the thread that started the processing.
+     */
+    private abstract static class CurrentInstanceTask extends RecursiveAction {
+        private final Map<Class<?>, CurrentInstance> instances;
+
+        private CurrentInstanceTask(Map<Class<?>, CurrentInstance> instances) {
+            this.instances = instances;
+        }
+
+        @Override
+        protected final void compute() {
+            Map<Class<?>, CurrentInstance> old = CurrentInstance
+                    .getInstances();
+            CurrentInstance.clearAll();
+            CurrentInstance.restoreInstances(instances);
+            try {
+                run(instances);
+            } finally {
+                CurrentInstance.clearAll();
+                CurrentInstance.restoreInstances(old);
+            }
+        }
+
+        protected abstract void run(Map<Class<?>, CurrentInstance> instances);
+    }
+
+    private static class FilterTask extends CurrentInstanceTask {
+        private final Object[] items;
+        private final int chunkSize;
+        private final int fromChunk;
+        private final int toChunk;
+        private final Object[][] results;
+        private final int[] counts;
+        private final Predicate<Object> filter;
+
+        @SuppressWarnings("unchecked")
+        private FilterTask(Map<Class<?>, CurrentInstance> instances,
+                Object[] items, int chunkSize, int fromChunk, int toChunk,
+                Object[][] results, int[] counts,
+                Predicate<?> filter) {
+            super(instances);
+            this.items = items;
+            this.chunkSize = chunkSize;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+            this.results = results;
+            this.counts = counts;
+            this.filter = (Predicate<Object>) filter;
+        }
+
+        @Override
+        protected void run(Map<Class<?>, CurrentInstance> instances) {
+            if (toChunk - fromChunk > 1) {
+                int middle = (fromChunk + toChunk) >>> 1;
+                invokeAll(
+                        new FilterTask(instances, items, chunkSize, fromChunk,
+                                middle, results, counts, filter),
+                        new FilterTask(instances, items, chunkSize, middle,
+                                toChunk, results, counts, filter));
+            } else if (toChunk > fromChunk) {
+                int from = fromChunk * chunkSize;
+                int to = Math.min(from + chunkSize, items.length);
+                Object[] result = new Object[to - from];
+                int count = 0;
+                for (int i = from; i < to; i++) {
+                    if (filter.test(items[i])) {
+                        result[count++] = items[i];
+                    }
+                }
+                results[fromChunk] = result;
+                counts[fromChunk] = count;
+            }
+        }
+    }
+
+    private static class SortTask extends CurrentInstanceTask {
+        private final Object[] items;
+        private final Object[] buffer;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final Comparator<Object> comparator;
+
+        private SortTask(Map<Class<?>, CurrentInstance> instances,
+                Object[] items, Object[] buffer, int from, int to,
+                int chunkSize, Comparator<Object> comparator) {
+            super(instances);
+            this.items = items;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void run(Map<Class<?>, CurrentInstance> instances) {
+            if (to - from <= chunkSize) {
+                // Stable
+                Arrays.sort(items, from, to, comparator);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                    new SortTask(instances, items, buffer, from, middle,
+                            chunkSize, comparator),
+                    new SortTask(instances, items, buffer, middle, to,
+                            chunkSize, comparator));
+            if (comparator.compare(items[middle - 1], items[middle]) <= 0) {
+                // Already in order
+                return;
+            }
+            // Stable merge, taking from the left half on ties
+            System.arraycopy(items, from, buffer, from, to - from);
+            int left = from;
+            int right = middle;
+            for (int i = from; i < to; i++) {
+                if (right >= to || left < middle && comparator
+                        .compare(buffer[left], buffer[right]) <= 0) {
+                    items[i] = buffer[left++];
+                } else {
+                    items[i] = buffer[right++];
+                }
+            }
+        }
+    }
+}
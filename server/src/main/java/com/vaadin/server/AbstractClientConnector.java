@@ -676,7 +676,7 @@ public abstract class AbstractClientConnector
         String key = parts[0];
 
         VaadinSession session = getSession();
-        session.lock();
+        session.lockShared();
         try {
             Resource resource = getResource(key);
             if (resource == null) {
@@ -691,7 +691,7 @@ public abstract class AbstractClientConnector
             }
             stream = ((ConnectorResource) resource).getStream();
         } finally {
-            session.unlock();
+            session.unlockShared();
         }
         stream.writeResponse(request, response);
         return true;
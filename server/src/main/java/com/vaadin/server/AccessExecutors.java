@@ -0,0 +1,106 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory methods for executors that can be used as the
+ * {@link VaadinService#setAccessExecutor(java.util.concurrent.Executor) access
+ * executor} of a service. The caller is responsible for shutting down the
+ * created executors.
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+public final class AccessExecutors {
+
+    private AccessExecutors() {
+        // Only static methods
+    }
+
+    /**
+     * Creates an executor with a fixed number of daemon threads. At most the
+     * given number of sessions have their access queues purged at the same
+     * time, and the remaining sessions wait for a free thread.
+     *
+     * @param threads
+     *            the number of threads, at least 1
+     * @return the executor
+     */
+    public static ExecutorService newBoundedExecutor(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException(
+                    "The number of threads must be at least 1");
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable,
+                    "Vaadin access " + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Checks whether the Java runtime supports virtual threads, which are
+     * needed by {@link #newVirtualThreadPerTaskExecutor()}.
+     *
+     * @return <code>true</code> if virtual threads are available,
+     *         <code>false</code> otherwise
+     */
+    public static boolean isVirtualThreadExecutorAvailable() {
+        return getVirtualThreadFactoryMethod() != null;
+    }
+
+    /**
+     * Creates an executor that runs each task in a new virtual thread. Virtual
+     * threads are only available in Java 21 and newer, and the executor is
+     * looked up at run time since the framework itself is compiled for older
+     * Java versions.
+     *
+     * @return the executor
+     * @throws IllegalStateException
+     *             if the Java runtime does not support virtual threads
+     * @see #isVirtualThreadExecutorAvailable()
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        Method factoryMethod = getVirtualThreadFactoryMethod();
+        if (factoryMethod == null) {
+            throw new IllegalStateException(
+                    "Virtual threads are not supported by this Java runtime");
+        }
+        try {
+            return (ExecutorService) factoryMethod.invoke(null);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(
+                    "Could not create a virtual thread executor", e);
+        }
+    }
+
+    private static Method getVirtualThreadFactoryMethod() {
+        try {
+            return Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
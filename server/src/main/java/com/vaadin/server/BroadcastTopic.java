@@ -0,0 +1,319 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vaadin.shared.Registration;
+import com.vaadin.ui.UI;
+
+/**
+ * A named topic for broadcasting messages to many UIs, e.g. to update all UIs
+ * that show the same data. Topics are shared by all sessions of a service and
+ * are retrieved using {@link VaadinService#getBroadcastTopic(String)}.
+ * <p>
+ * When a message is published, the subscribers are grouped by session and
+ * each session is locked only once to deliver the message to all of its
+ * subscribed UIs. The sessions are processed in parallel by a bounded number
+ * of tasks run by the {@link #setExecutor(Executor) executor}. The changes
+ * are pushed to the client when the session is unlocked, like for any other
+ * {@link UI#access(Runnable)} task. A listener can use a
+ * {@link SharedClientRpc} created before publishing, to only encode the
+ * parameters of a client RPC call once for all UIs.
+ * <p>
+ * Subscriptions are not serialized with the topic. A UI that is deserialized
+ * with its session must subscribe again to receive messages.
+ *
+ * @param <T>
+ *            the message type
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+public class BroadcastTopic<T> implements Serializable {
+
+    private static class Subscription<T> implements Serializable {
+        private final UI ui;
+        private final SerializableConsumer<T> listener;
+        private Registration detachRegistration;
+
+        private Subscription(UI ui, SerializableConsumer<T> listener) {
+            this.ui = ui;
+            this.listener = listener;
+        }
+    }
+
+    private static volatile ExecutorService defaultExecutor;
+
+    private final String name;
+    private transient Set<Subscription<T>> subscriptions = ConcurrentHashMap
+            .newKeySet();
+    private transient Executor executor;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates a new topic.
+     *
+     * @param name
+     *            the name of the topic, not <code>null</code>
+     */
+    protected BroadcastTopic(String name) {
+        this.name = Objects.requireNonNull(name, "Name cannot be null");
+    }
+
+    /**
+     * Gets the name of this topic.
+     *
+     * @return the name of this topic
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Subscribes a UI to the messages of this topic. The listener is run with
+     * the session of the UI locked, and {@link UI#getCurrent()} returning the
+     * UI. The subscription is removed automatically when the UI is detached.
+     *
+     * @param ui
+     *            the UI to deliver the messages to, not <code>null</code>
+     * @param listener
+     *            the listener to run for each message, not <code>null</code>
+     * @return a registration for removing the subscription
+     */
+    public Registration subscribe(UI ui, SerializableConsumer<T> listener) {
+        Objects.requireNonNull(ui, "UI cannot be null");
+        Objects.requireNonNull(listener, "Listener cannot be null");
+        Subscription<T> subscription = new Subscription<>(ui, listener);
+        // The listener and the registration are stored in the session, so
+        // they refer to the topic by name instead of capturing it
+        String topicName = name;
+        subscription.detachRegistration = ui.addDetachListener(
+                event -> unsubscribe(topicName, subscription));
+        subscriptions.add(subscription);
+        return () -> {
+            unsubscribe(topicName, subscription);
+            subscription.detachRegistration.remove();
+        };
+    }
+
+    private static void unsubscribe(String name,
+            Subscription<?> subscription) {
+        VaadinService service = VaadinService.getCurrent();
+        if (service == null) {
+            VaadinSession session = subscription.ui.getSession();
+            if (session == null) {
+                return;
+            }
+            service = session.getService();
+        }
+        service.getBroadcastTopic(name).subscriptions.remove(subscription);
+    }
+
+    /**
+     * Gets the number of subscriptions to this topic.
+     *
+     * @return the number of subscriptions
+     */
+    public int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Publishes a message to all UIs subscribed to this topic. The message is
+     * delivered asynchronously using the executor of this topic.
+     * <p>
+     * The method must not be called while holding the lock of a session.
+     * Exceptions thrown by the listeners are passed to the error handler of
+     * the UI.
+     *
+     * @param message
+     *            the message to publish
+     * @return a future that is completed when the message has been delivered
+     *         to all subscribed UIs
+     */
+    public CompletableFuture<Void> publish(T message) {
+        Map<VaadinSession, List<Subscription<T>>> bySession = new LinkedHashMap<>();
+        for (Subscription<T> subscription : subscriptions) {
+            VaadinSession session = subscription.ui.getSession();
+            if (session != null) {
+                bySession.computeIfAbsent(session, key -> new ArrayList<>())
+                        .add(subscription);
+            }
+        }
+        if (bySession.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        List<Map.Entry<VaadinSession, List<Subscription<T>>>> sessions = new ArrayList<>(
+                bySession.entrySet());
+        AtomicInteger nextSession = new AtomicInteger();
+        int taskCount = Math.max(1, Math.min(parallelism, sessions.size()));
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[taskCount];
+        for (int i = 0; i < taskCount; i++) {
+            // Each task takes the next undelivered session until none is left
+            tasks[i] = CompletableFuture.runAsync(() -> {
+                int index;
+                while ((index = nextSession.getAndIncrement()) < sessions
+                        .size()) {
+                    Map.Entry<VaadinSession, List<Subscription<T>>> entry = sessions
+                            .get(index);
+                    deliver(entry.getKey(), entry.getValue(), message);
+                }
+            }, getExecutor());
+        }
+        return CompletableFuture.allOf(tasks);
+    }
+
+    private void deliver(VaadinSession session,
+            List<Subscription<T>> sessionSubscriptions, T message) {
+        try {
+            session.accessSynchronously(() -> {
+                for (Subscription<T> subscription : sessionSubscriptions) {
+                    UI ui = subscription.ui;
+                    if (ui.getSession() != session) {
+                        continue;
+                    }
+                    try {
+                        ui.accessSynchronously(
+                                () -> subscription.listener.accept(message));
+                    } catch (Exception e) {
+                        handleError(ui, e);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            getLogger().log(Level.SEVERE,
+                    "Could not deliver a message of topic " + name, e);
+        }
+    }
+
+    private static void handleError(UI ui, Exception exception) {
+        ErrorHandler errorHandler = ErrorEvent.findErrorHandler(ui);
+        if (errorHandler == null) {
+            errorHandler = new DefaultErrorHandler();
+        }
+        errorHandler.error(new ErrorEvent(exception));
+    }
+
+    /**
+     * Sets the executor used for delivering the published messages. The tasks
+     * block while waiting for the session locks, so the executor should not
+     * be shared with tasks that must not be delayed, such as those of the
+     * common fork join pool. By default, a pool of daemon threads shared by
+     * all topics is used.
+     *
+     * @param executor
+     *            the executor to use, or <code>null</code> to use the default
+     *            executor
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Gets the executor used for delivering the published messages.
+     *
+     * @return the executor, not <code>null</code>
+     */
+    public Executor getExecutor() {
+        return executor != null ? executor : getDefaultExecutor();
+    }
+
+    /**
+     * Gets the executor used for delivering messages when no other executor
+     * has been set. It uses a fixed number of daemon threads.
+     *
+     * @return the default executor
+     */
+    static ExecutorService getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            synchronized (BroadcastTopic.class) {
+                if (defaultExecutor == null) {
+                    int threads = Math.max(2,
+                            Runtime.getRuntime().availableProcessors());
+                    AtomicInteger count = new AtomicInteger();
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                            threads, threads, 60, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(), runnable -> {
+                                Thread thread = new Thread(runnable,
+                                        "vaadin-broadcast-"
+                                                + count.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+                    executor.allowCoreThreadTimeOut(true);
+                    defaultExecutor = executor;
+                }
+            }
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Sets the maximum number of sessions that a published message is
+     * delivered to in parallel. The default is the number of available
+     * processors.
+     *
+     * @param parallelism
+     *            the maximum number of parallel tasks, at least 1
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(
+                    "Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Gets the maximum number of sessions that a published message is
+     * delivered to in parallel.
+     *
+     * @return the maximum number of parallel tasks
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        subscriptions = ConcurrentHashMap.newKeySet();
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(BroadcastTopic.class.getName());
+    }
+}
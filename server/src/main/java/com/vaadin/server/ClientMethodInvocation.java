@@ -107,7 +107,11 @@ public class ClientMethodInvocation
         // writing/parsing the object's content as string.
         for (int i = 0; i < parameterTypes.length; i++) {
             Type type = parameterTypes[i];
-            if (type instanceof Class<?>) {
+            if (parameters[i] instanceof EncodedJson) {
+                // Already encoded for the client and Serializable, whatever
+                // the declared type is
+                serializedParameters[i] = parameters[i];
+            } else if (type instanceof Class<?>) {
                 Class<?> clazz = (Class<?>) type;
                 if (JsonArray.class.isAssignableFrom(clazz)) {
                     serializedParameters[i] = JsonUtil
@@ -131,7 +135,8 @@ public class ClientMethodInvocation
             Type type = parameterTypes[i];
             if (type instanceof Class<?>) {
                 Class<?> clazz = (Class<?>) type;
-                if (JsonArray.class.isAssignableFrom(clazz)) {
+                if (JsonArray.class.isAssignableFrom(clazz)
+                        && parameters[i] instanceof String) {
                     try {
                         parameters[i] = JsonUtil
                                 .<JsonArray> parse((String) parameters[i]);
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+/**
+ * A diff state store that keeps the diff states in a compact binary form
+ * instead of as {@link JsonObject} trees, which considerably reduces the
+ * memory retained by UIs with a large number of connectors.
+ * <p>
+ * Property names are interned into a table shared by all states in the store
+ * and values are encoded into a byte array per connector. A state is decoded
+ * back into a {@link JsonObject} when it is accessed and kept in that form
+ * until the response has been written, after which it is encoded again.
+ * Trading memory for some CPU time this way is most beneficial when only a
+ * small part of the connectors are dirty in each round trip.
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+public class CompactDiffStateStore implements DiffStateStore {
+
+    /**
+     * The maximum number of distinct property names to intern. Names of e.g.
+     * map keys beyond this limit are stored inline in each state.
+     */
+    private static final int MAX_INTERNED_KEYS = 2048;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_TRUE = 1;
+    private static final byte TYPE_FALSE = 2;
+    private static final byte TYPE_INT = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_STRING = 5;
+    private static final byte TYPE_ARRAY = 6;
+    private static final byte TYPE_OBJECT = 7;
+
+    private final Map<ClientConnector, byte[]> encodedStates = new HashMap<>();
+
+    private final List<String> keys = new ArrayList<>();
+    private final Map<String, Integer> keyIndexes = new HashMap<>();
+
+    /**
+     * States that have been accessed since the last time the response was
+     * written and might thus have been modified.
+     */
+    private transient Map<ClientConnector, JsonObject> decodedStates = new HashMap<>();
+
+    private transient Output output;
+
+    @Override
+    public JsonObject get(ClientConnector connector) {
+        JsonObject state = decodedStates.get(connector);
+        if (state == null) {
+            byte[] encoded = encodedStates.get(connector);
+            if (encoded != null) {
+                state = (JsonObject) new Input(encoded).readValue();
+                decodedStates.put(connector, state);
+            }
+        }
+        return state;
+    }
+
+    @Override
+    public void put(ClientConnector connector, JsonObject diffState) {
+        encodedStates.remove(connector);
+        decodedStates.put(connector, diffState);
+    }
+
+    @Override
+    public void remove(ClientConnector connector) {
+        encodedStates.remove(connector);
+        decodedStates.remove(connector);
+    }
+
+    @Override
+    public void clear() {
+        encodedStates.clear();
+        decodedStates.clear();
+        keys.clear();
+        keyIndexes.clear();
+    }
+
+    @Override
+    public void responseWritten() {
+        if (decodedStates.isEmpty()) {
+            return;
+        }
+        if (output == null) {
+            output = new Output();
+        }
+        for (Entry<ClientConnector, JsonObject> entry : decodedStates
+                .entrySet()) {
+            output.reset();
+            output.writeValue(entry.getValue());
+            encodedStates.put(entry.getKey(), output.toByteArray());
+        }
+        decodedStates.clear();
+    }
+
+    /**
+     * Gets the total number of bytes used by the encoded states, not
+     * including states that are currently decoded. Mainly intended for
+     * measuring the effect of this store.
+     *
+     * @return the number of bytes in encoded states
+     */
+    public long getEncodedSize() {
+        long size = 0;
+        for (byte[] encoded : encodedStates.values()) {
+            size += encoded.length;
+        }
+        return size;
+    }
+
+    private int getKeyIndex(String key) {
+        Integer index = keyIndexes.get(key);
+        if (index == null) {
+            if (keys.size() >= MAX_INTERNED_KEYS) {
+                return -1;
+            }
+            index = keys.size();
+            keys.add(key);
+            keyIndexes.put(key, index);
+        }
+        return index;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        responseWritten();
+        out.defaultWriteObject();
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        decodedStates = new HashMap<>();
+    }
+
+    /**
+     * Encodes JSON values into a growable byte buffer.
+     */
+    private class Output {
+        private byte[] buffer = new byte[256];
+        private int length = 0;
+
+        private void reset() {
+            length = 0;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, length);
+        }
+
+        private void writeValue(JsonValue value) {
+            if (value == null) {
+                writeByte(TYPE_NULL);
+                return;
+            }
+            switch (value.getType()) {
+            case NULL:
+                writeByte(TYPE_NULL);
+                break;
+            case BOOLEAN:
+                writeByte(value.asBoolean() ? TYPE_TRUE : TYPE_FALSE);
+                break;
+            case NUMBER:
+                double number = value.asNumber();
+                int intValue = (int) number;
+                if (intValue == number && (intValue != 0
+                        || Double.doubleToRawLongBits(number) == 0L)) {
+                    writeByte(TYPE_INT);
+                    // zigzag encoding to keep small negative values short
+                    writeVarInt((intValue << 1) ^ (intValue >> 31));
+                } else {
+                    writeByte(TYPE_DOUBLE);
+                    long bits = Double.doubleToRawLongBits(number);
+                    for (int shift = 56; shift >= 0; shift -= 8) {
+                        writeByte((byte) (bits >>> shift));
+                    }
+                }
+                break;
+            case STRING:
+                writeByte(TYPE_STRING);
+                writeString(value.asString());
+                break;
+            case ARRAY:
+                JsonArray array = (JsonArray) value;
+                writeByte(TYPE_ARRAY);
+                writeVarInt(array.length());
+                for (int i = 0; i < array.length(); i++) {
+                    writeValue(array.get(i));
+                }
+                break;
+            case OBJECT:
+                JsonObject object = (JsonObject) value;
+                String[] objectKeys = object.keys();
+                writeByte(TYPE_OBJECT);
+                writeVarInt(objectKeys.length);
+                for (String key : objectKeys) {
+                    int index = getKeyIndex(key);
+                    // 0 means that the key is written inline
+                    writeVarInt(index + 1);
+                    if (index == -1) {
+                        writeString(key);
+                    }
+                    writeValue(object.get(key));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "Unsupported JSON type " + value.getType());
+            }
+        }
+
+        private void writeString(String string) {
+            byte[] bytes = string.getBytes(UTF_8);
+            writeVarInt(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((byte) value);
+        }
+
+        private void writeByte(byte value) {
+            ensureCapacity(1);
+            buffer[length++] = value;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer,
+                        Math.max(buffer.length * 2, length + extra));
+            }
+        }
+    }
+
+    /**
+     * Decodes JSON values from a byte array produced by {@link Output}.
+     */
+    private class Input {
+        private final byte[] data;
+        private int position = 0;
+
+        private Input(byte[] data) {
+            this.data = data;
+        }
+
+        private JsonValue readValue() {
+            byte type = data[position++];
+            switch (type) {
+            case TYPE_NULL:
+                return Json.createNull();
+            case TYPE_TRUE:
+                return Json.create(true);
+            case TYPE_FALSE:
+                return Json.create(false);
+            case TYPE_INT:
+                int zigzag = readVarInt();
+                return Json.create((zigzag >>> 1) ^ -(zigzag & 1));
+            case TYPE_DOUBLE:
+                long bits = 0;
+                for (int i = 0; i < 8; i++) {
+                    bits = (bits << 8) | (data[position++] & 0xFF);
+                }
+                return Json.create(Double.longBitsToDouble(bits));
+            case TYPE_STRING:
+                return Json.create(readString());
+            case TYPE_ARRAY:
+                int arrayLength = readVarInt();
+                JsonArray array = Json.createArray();
+                for (int i = 0; i < arrayLength; i++) {
+                    array.set(i, readValue());
+                }
+                return array;
+            case TYPE_OBJECT:
+                int size = readVarInt();
+                JsonObject object = Json.createObject();
+                for (int i = 0; i < size; i++) {
+                    int index = readVarInt() - 1;
+                    String key = index == -1 ? readString() : keys.get(index);
+                    object.put(key, readValue());
+                }
+                return object;
+            default:
+                throw new IllegalStateException(
+                        "Corrupted diff state, unknown type " + type);
+            }
+        }
+
+        private String readString() {
+            int byteLength = readVarInt();
+            String string = new String(data, position, byteLength, UTF_8);
+            position += byteLength;
+            return string;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+}
@@ -62,7 +62,7 @@ public class ConnectorResourceHandler implements RequestHandler {
         String cid = matcher.group(2);
         String key = matcher.group(3);
 
-        session.lock();
+        session.lockShared();
         UI ui;
         ClientConnector connector;
         try {
@@ -81,7 +81,7 @@ public class ConnectorResourceHandler implements RequestHandler {
             }
 
         } finally {
-            session.unlock();
+            session.unlockShared();
         }
 
         Map<Class<?>, CurrentInstance> oldInstances = CurrentInstance
@@ -126,11 +126,86 @@ public interface Constants {
      */
     static final String SERVLET_PARAMETER_LEGACY_DESIGN_PREFIX = "legacyDesignPrefix";
 
+    /**
+     * Name of system or context property for enabling streaming of UIDL
+     * responses directly to the response output stream instead of first
+     * buffering the whole response in memory. The default value is
+     * <code>false</code>.
+     *
+     * @see com.vaadin.server.communication.StreamingJsonResponseWriter
+     * @since 8.13
+     */
+    static final String SERVLET_PARAMETER_STREAMING_UIDL_RESPONSE = "streamingUidlResponse";
+
+    /**
+     * Name of system or context property for the number of characters that
+     * are buffered before a streamed UIDL response is committed. The default
+     * value is {@link #DEFAULT_BUFFER_SIZE}.
+     *
+     * @since 8.13
+     */
+    static final String SERVLET_PARAMETER_UIDL_RESPONSE_BUFFER_SIZE = "uidlResponseBufferSize";
+
+    /**
+     * Name of system or context property for storing the last sent state of
+     * each connector in a compact binary form instead of as JSON objects. The
+     * default value is <code>false</code>.
+     *
+     * @see CompactDiffStateStore
+     * @since 8.13
+     */
+    static final String SERVLET_PARAMETER_COMPACT_DIFF_STATES = "compactDiffStates";
+
+    /**
+     * Name of system or context property for compressing UIDL responses using
+     * gzip or deflate when accepted by the browser. The default value is
+     * <code>false</code>.
+     *
+     * @see com.vaadin.server.communication.ResponseCompression
+     * @since 8.13
+     */
+    static final String SERVLET_PARAMETER_UIDL_COMPRESSION = "uidlCompression";
+
+    /**
+     * Name of system or context property for the minimum size in bytes of a
+     * UIDL response to compress when compression is enabled. The default
+     * value is {@link #DEFAULT_UIDL_COMPRESSION_THRESHOLD}.
+     *
+     * @since 8.13
+     */
+    static final String SERVLET_PARAMETER_UIDL_COMPRESSION_THRESHOLD = "uidlCompressionThreshold";
+
+    /**
+     * Name of system or context property for the comma separated list of
+     * filename extensions of static resources for which a precompressed
+     * Brotli ({@code .br}) or gzip ({@code .gz}) variant is served when
+     * available. The default value is
+     * {@link #DEFAULT_PRECOMPRESSED_RESOURCE_EXTENSIONS}.
+     *
+     * @since 8.13
+     */
+    static final String SERVLET_PARAMETER_PRECOMPRESSED_RESOURCE_EXTENSIONS = "precompressedResourceExtensions";
+
     // Configurable parameter names
     static final String PARAMETER_VAADIN_RESOURCES = "Resources";
 
     static final int DEFAULT_BUFFER_SIZE = 32 * 1024;
 
+    /**
+     * The default minimum size in bytes of a compressed UIDL response.
+     *
+     * @since 8.13
+     */
+    static final int DEFAULT_UIDL_COMPRESSION_THRESHOLD = 1024;
+
+    /**
+     * The default filename extensions of static resources for which a
+     * precompressed variant is served.
+     *
+     * @since 8.13
+     */
+    static final String DEFAULT_PRECOMPRESSED_RESOURCE_EXTENSIONS = ".js,.css,.html,.svg,.json,.map";
+
     static final int MAX_BUFFER_SIZE = 64 * 1024;
 
     final String THEME_DIR_PATH = "VAADIN/themes";
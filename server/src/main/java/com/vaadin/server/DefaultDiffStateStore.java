@@ -0,0 +1,94 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import elemental.json.Json;
+import elemental.json.JsonException;
+import elemental.json.JsonObject;
+
+/**
+ * The default diff state store, keeping the diff state of each connector as a
+ * {@link JsonObject}.
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+public class DefaultDiffStateStore implements DiffStateStore {
+
+    private transient Map<ClientConnector, JsonObject> diffStates = new HashMap<>();
+
+    @Override
+    public JsonObject get(ClientConnector connector) {
+        return diffStates.get(connector);
+    }
+
+    @Override
+    public void put(ClientConnector connector, JsonObject diffState) {
+        diffStates.put(connector, diffState);
+    }
+
+    @Override
+    public void remove(ClientConnector connector) {
+        diffStates.remove(connector);
+    }
+
+    @Override
+    public void clear() {
+        diffStates.clear();
+    }
+
+    /* Special serialization to JsonObjects which are not serializable */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        // Convert JsonObjects in diff state to String representation as
+        // JsonObject is not serializable
+        Map<ClientConnector, String> stringDiffStates = new HashMap<>(
+                diffStates.size() * 2);
+        for (Entry<ClientConnector, JsonObject> entry : diffStates
+                .entrySet()) {
+            stringDiffStates.put(entry.getKey(), entry.getValue().toJson());
+        }
+        out.writeObject(stringDiffStates);
+    }
+
+    /* Special serialization to JsonObjects which are not serializable */
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        // Read String versions of JsonObjects and parse into JsonObjects as
+        // JsonObject is not serializable
+        @SuppressWarnings("unchecked")
+        Map<ClientConnector, String> stringDiffStates = (HashMap<ClientConnector, String>) in
+                .readObject();
+        diffStates = new HashMap<>(stringDiffStates.size() * 2);
+        for (Entry<ClientConnector, String> entry : stringDiffStates
+                .entrySet()) {
+            try {
+                diffStates.put(entry.getKey(), Json.parse(entry.getValue()));
+            } catch (JsonException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+
+import com.vaadin.ui.ConnectorTracker;
+
+import elemental.json.JsonObject;
+
+/**
+ * Storage for the last shared state sent to the client for each connector of
+ * a UI. The diff state is used as the reference when encoding the state of a
+ * dirty connector so that only changed properties are sent to the client.
+ * <p>
+ * The object returned by {@link #get(ClientConnector)} may be modified by the
+ * caller, e.g. to reflect a value that has been changed on the client side.
+ * Such modifications must be visible to subsequent calls to {@link #get} until
+ * the state is replaced or removed.
+ * <p>
+ * A store is used by a single {@link ConnectorTracker} and is only accessed
+ * while the session is locked.
+ *
+ * @see ConnectorTracker#setDiffStateStore(DiffStateStore)
+ * @see DefaultDiffStateStore
+ * @see CompactDiffStateStore
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+public interface DiffStateStore extends Serializable {
+
+    /**
+     * Gets the diff state of the given connector.
+     *
+     * @param connector
+     *            the connector, not <code>null</code>
+     * @return the diff state, or <code>null</code> if no state has been stored
+     *         for the connector
+     */
+    public JsonObject get(ClientConnector connector);
+
+    /**
+     * Stores the diff state of the given connector, replacing any previous
+     * state.
+     *
+     * @param connector
+     *            the connector, not <code>null</code>
+     * @param diffState
+     *            the diff state to store, not <code>null</code>
+     */
+    public void put(ClientConnector connector, JsonObject diffState);
+
+    /**
+     * Removes the diff state of the given connector if there is one.
+     *
+     * @param connector
+     *            the connector, not <code>null</code>
+     */
+    public void remove(ClientConnector connector);
+
+    /**
+     * Removes all stored diff states.
+     */
+    public void clear();
+
+    /**
+     * Called by the connector tracker when a response has been written to the
+     * client. Stores that keep the diff states in some other form than as
+     * {@link JsonObject} instances can use this to convert the states that
+     * have been accessed during the request. The default implementation does
+     * nothing.
+     */
+    public default void responseWritten() {
+        // NOP
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+/**
+ * A JSON value that has already been encoded as a string. It can be queued as
+ * the parameter of a client RPC method instead of an elemental
+ * {@link JsonValue}, in which case the string is written to the response as
+ * is. This avoids building a tree of JSON objects for large amounts of data
+ * that can be written directly as text.
+ * <p>
+ * For internal use only. May be renamed or removed in a future release.
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+public final class EncodedJson implements Serializable {
+
+    private final String json;
+
+    /**
+     * Creates a new encoded JSON value.
+     *
+     * @param json
+     *            the JSON string, not <code>null</code>
+     */
+    public EncodedJson(String json) {
+        this.json = Objects.requireNonNull(json, "JSON cannot be null");
+    }
+
+    /**
+     * Gets the JSON string.
+     *
+     * @return the JSON string
+     */
+    public String getJson() {
+        return json;
+    }
+
+    /**
+     * Parses the JSON string into an elemental JSON value.
+     *
+     * @param <T>
+     *            the JSON value type
+     * @return the parsed value
+     */
+    public <T extends JsonValue> T parse() {
+        return JsonUtil.parse(json);
+    }
+
+    @Override
+    public String toString() {
+        return json;
+    }
+}
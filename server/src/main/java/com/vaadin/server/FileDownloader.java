@@ -156,7 +156,7 @@ public class FileDownloader extends AbstractExtension {
         }
         VaadinSession session = getSession();
 
-        session.lock();
+        session.lockShared();
         DownloadStream stream;
 
         try {
@@ -182,7 +182,7 @@ public class FileDownloader extends AbstractExtension {
                 stream.setContentType("application/octet-stream;charset=UTF-8");
             }
         } finally {
-            session.unlock();
+            session.unlockShared();
         }
         stream.writeResponse(request, response);
         return true;
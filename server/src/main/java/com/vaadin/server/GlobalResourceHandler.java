@@ -42,7 +42,7 @@ import com.vaadin.util.CurrentInstance;
 public class GlobalResourceHandler implements RequestHandler {
     private static final String LEGACY_TYPE = "legacy";
 
-    private static final String RESOURCE_REQUEST_PATH = "global/";
+    static final String RESOURCE_REQUEST_PATH = "global/";
 
     /**
      * Used to detect when a resource is no longer used by any connector.
@@ -84,7 +84,7 @@ public class GlobalResourceHandler implements RequestHandler {
             return error(request, response,
                     pathInfo + " is not a valid global resource path");
         }
-        session.lock();
+        session.lockShared();
         Map<Class<?>, CurrentInstance> oldInstances = null;
         DownloadStream stream = null;
         try {
@@ -112,7 +112,7 @@ public class GlobalResourceHandler implements RequestHandler {
                         "Resource " + resource + " didn't produce any stream.");
             }
         } finally {
-            session.unlock();
+            session.unlockShared();
             if (oldInstances != null) {
                 CurrentInstance.restoreInstances(oldInstances);
             }
@@ -20,6 +20,9 @@ import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.GenericArrayType;
@@ -208,6 +211,13 @@ public class JsonCodec implements Serializable {
      */
     private static final ConcurrentMap<Class<?>, Collection<BeanProperty>> TYPE_PROPERTY_CACHE = new ConcurrentHashMap<>();
 
+    /**
+     * Cache of the precompiled property encoders used for encoding beans of a
+     * given type. Accessed concurrently in the same way as
+     * {@link #TYPE_PROPERTY_CACHE}.
+     */
+    private static final ConcurrentMap<Class<?>, List<PropertyEncoder>> TYPE_ENCODER_CACHE = new ConcurrentHashMap<>();
+
     private static final Map<Class<?>, String> TYPE_TO_TRANSPORT_TYPE = new HashMap<>();
 
     /**
@@ -774,45 +784,236 @@ public class JsonCodec implements Serializable {
         JsonObject diff = Json.createObject();
 
         try {
-            for (BeanProperty property : getProperties(valueType)) {
-                String fieldName = property.getName();
-                // We can't use PropertyDescriptor.getPropertyType() as it does
-                // not support generics
-                Type fieldType = property.getType();
-                Object fieldValue = property.getValue(value);
-
-                if (encoded.hasKey(fieldName)) {
-                    throw new RuntimeException("Can't encode "
-                            + valueType.getName()
-                            + " as it has multiple properties with the name "
-                            + fieldName.toLowerCase(Locale.ROOT)
-                            + ". This can happen if there are getters and setters for a public field (the framework can't know which to ignore) or if there are properties with only casing distinguishing between the names (e.g. getFoo() and getFOO())");
-                }
+            for (PropertyEncoder property : getEncoder(valueType)) {
+                property.encode(value, encoded, referenceValue, diff,
+                        connectorTracker);
+            }
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // TODO: Should exceptions be handled in a different way?
+            throw new RuntimeException(e);
+        }
+        return new EncodeResult(encoded, diff);
+    }
 
-                JsonValue fieldReference;
-                if (referenceValue != null) {
-                    fieldReference = referenceValue.get(fieldName);
-                    if (fieldReference instanceof JsonNull) {
-                        fieldReference = null;
-                    }
+    private static List<PropertyEncoder> getEncoder(Class<?> type)
+            throws IntrospectionException {
+        List<PropertyEncoder> cachedEncoder = TYPE_ENCODER_CACHE.get(type);
+        if (cachedEncoder != null) {
+            return cachedEncoder;
+        }
+        Collection<BeanProperty> properties = getProperties(type);
+        List<PropertyEncoder> encoder = new ArrayList<>(properties.size());
+        Set<String> names = new HashSet<>();
+        for (BeanProperty property : properties) {
+            String fieldName = property.getName();
+            if (!names.add(fieldName)) {
+                throw new RuntimeException("Can't encode " + type.getName()
+                        + " as it has multiple properties with the name "
+                        + fieldName.toLowerCase(Locale.ROOT)
+                        + ". This can happen if there are getters and setters for a public field (the framework can't know which to ignore) or if there are properties with only casing distinguishing between the names (e.g. getFoo() and getFOO())");
+            }
+            encoder.add(PropertyEncoder.create(property));
+        }
+
+        // Same as for TYPE_PROPERTY_CACHE, no need for putIfAbsent
+        TYPE_ENCODER_CACHE.put(type, encoder);
+        return encoder;
+    }
+
+    private static JsonValue getFieldReference(JsonObject referenceValue,
+            String fieldName) {
+        if (referenceValue == null) {
+            return null;
+        }
+        JsonValue fieldReference = referenceValue.get(fieldName);
+        if (fieldReference instanceof JsonNull) {
+            return null;
+        }
+        return fieldReference;
+    }
+
+    /**
+     * Encodes one property of a bean and compares it with the corresponding
+     * property of the reference value. The getter is resolved into a method
+     * handle once per bean type, and primitive and string properties are
+     * compared with the reference without boxing or deep equality checks.
+     */
+    private abstract static class PropertyEncoder {
+        private static final MethodHandles.Lookup LOOKUP = MethodHandles
+                .lookup();
+
+        protected final String name;
+
+        protected PropertyEncoder(String name) {
+            this.name = name;
+        }
+
+        public abstract void encode(Object bean, JsonObject encoded,
+                JsonObject referenceValue, JsonObject diff,
+                ConnectorTracker connectorTracker) throws Throwable;
+
+        public static PropertyEncoder create(BeanProperty property) {
+            MethodHandle getter;
+            try {
+                if (property instanceof FieldProperty) {
+                    getter = LOOKUP
+                            .unreflectGetter(((FieldProperty) property).field);
+                } else if (property instanceof MethodProperty) {
+                    getter = LOOKUP.unreflect(
+                            ((MethodProperty) property).pd.getReadMethod());
                 } else {
-                    fieldReference = null;
+                    return new GenericPropertyEncoder(property, null);
                 }
+            } catch (IllegalAccessException e) {
+                // Let reflection report the problem when actually encoding
+                return new GenericPropertyEncoder(property, null);
+            }
+
+            Class<?> type = getter.type().returnType();
+            if (type == boolean.class) {
+                return new BooleanPropertyEncoder(property.getName(), getter
+                        .asType(MethodType.methodType(boolean.class,
+                                Object.class)));
+            } else if (type.isPrimitive() && type != char.class) {
+                // All other primitives except char are encoded as numbers
+                return new NumberPropertyEncoder(property.getName(), getter
+                        .asType(MethodType.methodType(double.class,
+                                Object.class)));
+            } else if (type == String.class) {
+                return new StringPropertyEncoder(property.getName(), getter
+                        .asType(MethodType.methodType(String.class,
+                                Object.class)));
+            } else {
+                return new GenericPropertyEncoder(property, getter.asType(
+                        MethodType.methodType(Object.class, Object.class)));
+            }
+        }
+    }
+
+    private static class GenericPropertyEncoder extends PropertyEncoder {
+        private final BeanProperty property;
+        private final Type type;
+        private final MethodHandle getter;
+
+        public GenericPropertyEncoder(BeanProperty property,
+                MethodHandle getter) {
+            super(property.getName());
+            this.property = property;
+            // We can't use PropertyDescriptor.getPropertyType() as it does
+            // not support generics
+            type = property.getType();
+            this.getter = getter;
+        }
+
+        @Override
+        public void encode(Object bean, JsonObject encoded,
+                JsonObject referenceValue, JsonObject diff,
+                ConnectorTracker connectorTracker) throws Throwable {
+            Object fieldValue;
+            if (getter != null) {
+                fieldValue = (Object) getter.invokeExact(bean);
+            } else {
+                fieldValue = property.getValue(bean);
+            }
+            JsonValue fieldReference = getFieldReference(referenceValue,
+                    name);
+
+            EncodeResult encodeResult = JsonCodec.encode(fieldValue,
+                    fieldReference, type, connectorTracker);
+            encoded.put(name, encodeResult.getEncodedValue());
 
-                EncodeResult encodeResult = encode(fieldValue, fieldReference,
-                        fieldType, connectorTracker);
-                encoded.put(fieldName, encodeResult.getEncodedValue());
+            if (valueChanged(encodeResult.getEncodedValue(), fieldReference)) {
+                diff.put(name, encodeResult.getDiffOrValue());
+            }
+        }
+    }
+
+    private static class BooleanPropertyEncoder extends PropertyEncoder {
+        private final MethodHandle getter;
+
+        public BooleanPropertyEncoder(String name, MethodHandle getter) {
+            super(name);
+            this.getter = getter;
+        }
+
+        @Override
+        public void encode(Object bean, JsonObject encoded,
+                JsonObject referenceValue, JsonObject diff,
+                ConnectorTracker connectorTracker) throws Throwable {
+            boolean fieldValue = (boolean) getter.invokeExact(bean);
+            JsonValue encodedValue = Json.create(fieldValue);
+            encoded.put(name, encodedValue);
+
+            JsonValue fieldReference = getFieldReference(referenceValue,
+                    name);
+            if (fieldReference == null
+                    || fieldReference.getType() != JsonType.BOOLEAN
+                    || fieldReference.asBoolean() != fieldValue) {
+                diff.put(name, encodedValue);
+            }
+        }
+    }
 
-                if (valueChanged(encodeResult.getEncodedValue(),
-                        fieldReference)) {
-                    diff.put(fieldName, encodeResult.getDiffOrValue());
+    private static class NumberPropertyEncoder extends PropertyEncoder {
+        private final MethodHandle getter;
+
+        public NumberPropertyEncoder(String name, MethodHandle getter) {
+            super(name);
+            this.getter = getter;
+        }
+
+        @Override
+        public void encode(Object bean, JsonObject encoded,
+                JsonObject referenceValue, JsonObject diff,
+                ConnectorTracker connectorTracker) throws Throwable {
+            double fieldValue = (double) getter.invokeExact(bean);
+            JsonValue encodedValue = Json.create(fieldValue);
+            encoded.put(name, encodedValue);
+
+            JsonValue fieldReference = getFieldReference(referenceValue,
+                    name);
+            if (fieldReference == null
+                    || fieldReference.getType() != JsonType.NUMBER
+                    || fieldReference.asNumber() != fieldValue) {
+                diff.put(name, encodedValue);
+            }
+        }
+    }
+
+    private static class StringPropertyEncoder extends PropertyEncoder {
+        private final MethodHandle getter;
+
+        public StringPropertyEncoder(String name, MethodHandle getter) {
+            super(name);
+            this.getter = getter;
+        }
+
+        @Override
+        public void encode(Object bean, JsonObject encoded,
+                JsonObject referenceValue, JsonObject diff,
+                ConnectorTracker connectorTracker) throws Throwable {
+            String fieldValue = (String) getter.invokeExact(bean);
+            JsonValue fieldReference = getFieldReference(referenceValue,
+                    name);
+
+            if (fieldValue == null) {
+                encoded.put(name, ENCODE_RESULT_NULL.getEncodedValue());
+                if (fieldReference != null) {
+                    diff.put(name, ENCODE_RESULT_NULL.getEncodedValue());
                 }
+                return;
+            }
+
+            JsonValue encodedValue = Json.create(fieldValue);
+            encoded.put(name, encodedValue);
+            if (fieldReference == null
+                    || fieldReference.getType() != JsonType.STRING
+                    || !fieldValue.equals(fieldReference.asString())) {
+                diff.put(name, encodedValue);
             }
-        } catch (Exception e) {
-            // TODO: Should exceptions be handled in a different way?
-            throw new RuntimeException(e);
         }
-        return new EncodeResult(encoded, diff);
     }
 
     /**
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of the times spent waiting for or holding a session lock. The
+ * times are counted in fixed buckets whose upper bounds are given by
+ * {@link #getBucketUpperBounds()}, with an additional last bucket for all
+ * longer times. Recording a time does not block, so a histogram can be
+ * updated from any number of threads at the same time.
+ *
+ * @see SessionLockMonitor
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+public class LockTimeHistogram implements Serializable {
+
+    private static final long[] BUCKET_UPPER_BOUNDS = { 1, 2, 5, 10, 20, 50,
+            100, 200, 500, 1000, 2000, 5000, 10000 };
+
+    private static final long[] BUCKET_UPPER_BOUNDS_NANOS = new long[BUCKET_UPPER_BOUNDS.length];
+
+    static {
+        for (int i = 0; i < BUCKET_UPPER_BOUNDS.length; i++) {
+            BUCKET_UPPER_BOUNDS_NANOS[i] = TimeUnit.MILLISECONDS
+                    .toNanos(BUCKET_UPPER_BOUNDS[i]);
+        }
+    }
+
+    private final AtomicLongArray buckets = new AtomicLongArray(
+            BUCKET_UPPER_BOUNDS.length + 1);
+    private final AtomicLong totalTime = new AtomicLong();
+    private final AtomicLong maxTime = new AtomicLong();
+
+    /**
+     * Records a time in this histogram.
+     *
+     * @param nanos
+     *            the time in nanoseconds
+     */
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BUCKET_UPPER_BOUNDS_NANOS.length
+                && nanos > BUCKET_UPPER_BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+        totalTime.addAndGet(nanos);
+        // Avoid writing the shared max value unless it actually changes
+        long max = maxTime.get();
+        while (nanos > max && !maxTime.compareAndSet(max, nanos)) {
+            max = maxTime.get();
+        }
+    }
+
+    /**
+     * Gets the number of recorded times.
+     *
+     * @return the number of recorded times
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Gets the sum of all recorded times.
+     *
+     * @return the total time in nanoseconds
+     */
+    public long getTotalTime() {
+        return totalTime.get();
+    }
+
+    /**
+     * Gets the longest recorded time.
+     *
+     * @return the longest time in nanoseconds, or 0 if nothing has been
+     *         recorded
+     */
+    public long getMaxTime() {
+        return maxTime.get();
+    }
+
+    /**
+     * Gets the number of recorded times in each bucket. The item at index
+     * <code>i</code> counts the times that are longer than the upper bound of
+     * the previous bucket and at most {@link #getBucketUpperBounds()
+     * getBucketUpperBounds()[i]}. The last item counts the times longer than
+     * all the upper bounds.
+     *
+     * @return a new array with the count of each bucket
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Gets the upper bounds of the buckets of the histograms.
+     *
+     * @return a new array with the upper bounds in milliseconds
+     */
+    public static long[] getBucketUpperBounds() {
+        return BUCKET_UPPER_BOUNDS.clone();
+    }
+
+    /**
+     * Clears all the recorded times. Times recorded concurrently with the reset
+     * may be partially cleared.
+     */
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        totalTime.set(0);
+        maxTime.set(0);
+    }
+}
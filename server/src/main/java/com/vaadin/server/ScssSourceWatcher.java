@@ -0,0 +1,230 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches the source files of on the fly compiled SCSS themes and notifies
+ * listeners when any of them changes. This replaces checking the timestamps
+ * of all source files for every request.
+ * <p>
+ * Each listener is notified at most once, after which it is unregistered from
+ * all files. Changes to other files in the same directories, such as the
+ * persisted cache of the compiled theme, are ignored. A directory is no longer
+ * watched once no listener is interested in any of its files.
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+class ScssSourceWatcher {
+
+    private final WatchService watchService;
+    private final Map<Path, WatchKey> keys = new HashMap<>();
+    /**
+     * The listeners of each watched directory, grouped by the name of the file
+     * in the directory they are interested in.
+     */
+    private final Map<Path, Map<Path, Set<Runnable>>> listeners = new HashMap<>();
+
+    private ScssSourceWatcher(WatchService watchService) {
+        this.watchService = watchService;
+        Thread thread = new Thread(this::processEvents,
+                "Vaadin SCSS source watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Creates a new watcher for the default file system.
+     *
+     * @return the watcher, or <code>null</code> if watching is not supported
+     */
+    static ScssSourceWatcher create() {
+        try {
+            return new ScssSourceWatcher(
+                    FileSystems.getDefault().newWatchService());
+        } catch (IOException | UnsupportedOperationException e) {
+            getLogger().log(Level.FINE,
+                    "Watching SCSS sources not supported, checking timestamps instead",
+                    e);
+            return null;
+        }
+    }
+
+    /**
+     * Registers a listener to be notified when any of the given files is
+     * created, modified or deleted.
+     *
+     * @param files
+     *            the files to watch, not <code>null</code>
+     * @param listener
+     *            the listener to notify, not <code>null</code>
+     * @return <code>true</code> if all the directories are watched,
+     *         <code>false</code> if some directory could not be watched in
+     *         which case the listener is not registered
+     */
+    boolean watch(Collection<File> files, Runnable listener) {
+        Map<Path, Set<Path>> fileNames = new HashMap<>();
+        for (File file : files) {
+            File directory = file.getAbsoluteFile().getParentFile();
+            if (directory == null) {
+                return false;
+            }
+            fileNames.computeIfAbsent(directory.toPath(), d -> new HashSet<>())
+                    .add(file.toPath().getFileName());
+        }
+        synchronized (listeners) {
+            try {
+                for (Path directory : fileNames.keySet()) {
+                    if (!keys.containsKey(directory)) {
+                        keys.put(directory, directory.register(watchService,
+                                StandardWatchEventKinds.ENTRY_CREATE,
+                                StandardWatchEventKinds.ENTRY_MODIFY,
+                                StandardWatchEventKinds.ENTRY_DELETE));
+                    }
+                }
+            } catch (IOException | ClosedWatchServiceException e) {
+                getLogger().log(Level.FINE,
+                        "Could not watch SCSS source directories", e);
+                return false;
+            }
+            fileNames.forEach((directory, names) -> {
+                Map<Path, Set<Runnable>> directoryListeners = listeners
+                        .computeIfAbsent(directory, d -> new HashMap<>());
+                for (Path name : names) {
+                    directoryListeners
+                            .computeIfAbsent(name, n -> new HashSet<>())
+                            .add(listener);
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Unregisters a listener from all files, e.g. when the compiled theme it
+     * belongs to has been discarded without any of the files changing.
+     *
+     * @param listener
+     *            the listener to unregister, not <code>null</code>
+     */
+    void unwatch(Runnable listener) {
+        synchronized (listeners) {
+            removeListeners(Collections.singleton(listener));
+        }
+    }
+
+    /**
+     * Stops watching and terminates the event processing thread.
+     */
+    void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            getLogger().log(Level.FINE, "Error closing SCSS source watcher",
+                    e);
+        }
+    }
+
+    private void processEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            List<WatchEvent<?>> events = key.pollEvents();
+            Path directory = (Path) key.watchable();
+
+            Set<Runnable> notify = new HashSet<>();
+            synchronized (listeners) {
+                Map<Path, Set<Runnable>> directoryListeners = listeners
+                        .get(directory);
+                if (directoryListeners != null) {
+                    for (WatchEvent<?> event : events) {
+                        if (event
+                                .kind() == StandardWatchEventKinds.OVERFLOW) {
+                            // Events have been lost, any file may have changed
+                            directoryListeners.values()
+                                    .forEach(notify::addAll);
+                        } else {
+                            Set<Runnable> fileListeners = directoryListeners
+                                    .get(event.context());
+                            if (fileListeners != null) {
+                                notify.addAll(fileListeners);
+                            }
+                        }
+                    }
+                }
+                if (!notify.isEmpty()) {
+                    removeListeners(notify);
+                }
+                if (!key.reset()) {
+                    // The directory may have been registered again since
+                    keys.remove(directory, key);
+                }
+            }
+            for (Runnable listener : notify) {
+                listener.run();
+            }
+        }
+    }
+
+    private void removeListeners(Set<Runnable> removed) {
+        Iterator<Map.Entry<Path, Map<Path, Set<Runnable>>>> directories = listeners
+                .entrySet().iterator();
+        while (directories.hasNext()) {
+            Map.Entry<Path, Map<Path, Set<Runnable>>> entry = directories
+                    .next();
+            Map<Path, Set<Runnable>> directoryListeners = entry.getValue();
+            directoryListeners.values().removeIf(fileListeners -> {
+                fileListeners.removeAll(removed);
+                return fileListeners.isEmpty();
+            });
+            if (directoryListeners.isEmpty()) {
+                directories.remove();
+                WatchKey key = keys.remove(entry.getKey());
+                if (key != null) {
+                    key.cancel();
+                }
+            }
+        }
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(ScssSourceWatcher.class.getName());
+    }
+}
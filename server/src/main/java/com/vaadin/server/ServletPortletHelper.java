@@ -149,6 +149,34 @@ public class ServletPortletHelper implements Serializable {
                 ApplicationConstants.HEARTBEAT_PATH + '/');
     }
 
+    /**
+     * Checks whether the request is for a resource of a connector.
+     *
+     * @since 8.13
+     * @param request
+     *            the request to check
+     * @return <code>true</code> if the request is for a connector resource,
+     *         otherwise <code>false</code>
+     */
+    public static boolean isConnectorResourceRequest(VaadinRequest request) {
+        return hasPathPrefix(request, ApplicationConstants.APP_PATH + '/'
+                + ConnectorResource.CONNECTOR_PATH + '/');
+    }
+
+    /**
+     * Checks whether the request is for a global resource.
+     *
+     * @since 8.13
+     * @param request
+     *            the request to check
+     * @return <code>true</code> if the request is for a global resource,
+     *         otherwise <code>false</code>
+     */
+    public static boolean isGlobalResourceRequest(VaadinRequest request) {
+        return hasPathPrefix(request, ApplicationConstants.APP_PATH + '/'
+                + GlobalResourceHandler.RESOURCE_REQUEST_PATH);
+    }
+
     public static boolean isPushRequest(VaadinRequest request) {
         return isPathInfo(request, ApplicationConstants.PUSH_PATH);
     }
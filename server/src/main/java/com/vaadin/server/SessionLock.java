@@ -0,0 +1,308 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The lock used for a {@link VaadinSession}. Used as a regular
+ * {@link ReentrantLock}, it gives a thread exclusive access to the session.
+ * In addition, it can be held in shared mode by any number of threads at the
+ * same time, for handling requests that only read the state of the session,
+ * see {@link VaadinSession#lockShared()}.
+ * <p>
+ * The exclusive lock is not granted while any thread holds the shared lock,
+ * and the shared lock is not granted while a thread holds or is waiting for
+ * the exclusive lock. A thread holding the exclusive lock can also acquire the
+ * shared lock, but a thread holding only the shared lock cannot acquire the
+ * exclusive lock.
+ * <p>
+ * While the {@link SessionLockMonitor} of the service is enabled, the times
+ * spent waiting for and holding the lock are recorded in the
+ * {@link SessionLockStatistics} of the session.
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+public class SessionLock extends ReentrantLock {
+
+    /**
+     * The shared lock holds of a thread.
+     */
+    private static final class SharedHold implements Serializable {
+        private int count = 0;
+        private SessionLockStatistics.Hold timing;
+    }
+
+    private transient Condition sharedReleased = newCondition();
+    private transient Condition exclusiveReleased = newCondition();
+    private transient ThreadLocal<SharedHold> sharedHold = createSharedHold();
+
+    private transient volatile SessionLockStatistics statistics;
+    // Only accessed by the thread holding the exclusive lock
+    private transient SessionLockStatistics.Hold exclusiveHold;
+
+    // Only modified while holding the underlying reentrant lock
+    private transient volatile int sharedHolders = 0;
+    private transient int exclusiveWaiters = 0;
+
+    @Override
+    public void lock() {
+        checkNoSharedHold();
+        SessionLockStatistics stats = getEnabledStatistics();
+        long start = stats == null ? 0 : System.nanoTime();
+        super.lock();
+        if (getHoldCount() == 1 && sharedHolders > 0) {
+            exclusiveWaiters++;
+            while (sharedHolders > 0) {
+                sharedReleased.awaitUninterruptibly();
+            }
+            exclusiveWaiters--;
+        }
+        exclusiveAcquired(stats, start);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        checkNoSharedHold();
+        SessionLockStatistics stats = getEnabledStatistics();
+        long start = stats == null ? 0 : System.nanoTime();
+        super.lockInterruptibly();
+        if (getHoldCount() == 1 && sharedHolders > 0) {
+            exclusiveWaiters++;
+            try {
+                while (sharedHolders > 0) {
+                    sharedReleased.await();
+                }
+            } catch (InterruptedException e) {
+                exclusiveWaiters--;
+                unlock();
+                throw e;
+            }
+            exclusiveWaiters--;
+        }
+        exclusiveAcquired(stats, start);
+    }
+
+    @Override
+    public boolean tryLock() {
+        checkNoSharedHold();
+        SessionLockStatistics stats = getEnabledStatistics();
+        long start = stats == null ? 0 : System.nanoTime();
+        if (!super.tryLock()) {
+            return false;
+        }
+        if (getHoldCount() == 1 && sharedHolders > 0) {
+            unlock();
+            return false;
+        }
+        exclusiveAcquired(stats, start);
+        return true;
+    }
+
+    @Override
+    public boolean tryLock(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        checkNoSharedHold();
+        SessionLockStatistics stats = getEnabledStatistics();
+        long start = System.nanoTime();
+        long deadline = start + unit.toNanos(timeout);
+        if (!super.tryLock(timeout, unit)) {
+            return false;
+        }
+        if (getHoldCount() == 1 && sharedHolders > 0) {
+            exclusiveWaiters++;
+            try {
+                while (sharedHolders > 0) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        exclusiveWaiters--;
+                        unlock();
+                        return false;
+                    }
+                    sharedReleased.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                exclusiveWaiters--;
+                unlock();
+                throw e;
+            }
+            exclusiveWaiters--;
+        }
+        exclusiveAcquired(stats, start);
+        return true;
+    }
+
+    @Override
+    public void unlock() {
+        SessionLockStatistics.Hold hold = null;
+        long releasedAt = 0;
+        if (getHoldCount() == 1) {
+            hold = exclusiveHold;
+            if (hold != null) {
+                exclusiveHold = null;
+                hold.releasing();
+                releasedAt = System.nanoTime();
+            }
+            // Let waiting shared lock requests check whether they may proceed
+            exclusiveReleased.signalAll();
+        }
+        super.unlock();
+        if (hold != null) {
+            hold.released(releasedAt);
+        }
+    }
+
+    /**
+     * Acquires the lock in shared mode, blocking until no other thread holds
+     * or is waiting for the exclusive lock. The shared lock is reentrant.
+     */
+    public void lockShared() {
+        SharedHold hold = sharedHold.get();
+        // Shared holds within an exclusive hold are not timed separately
+        SessionLockStatistics stats = hold.count == 0
+                && !isHeldByCurrentThread() ? getEnabledStatistics() : null;
+        long start = stats == null ? 0 : System.nanoTime();
+        super.lock();
+        try {
+            // Reentrant and exclusive holders must not wait to avoid deadlocks
+            if (hold.count == 0 && getHoldCount() == 1) {
+                while (exclusiveWaiters > 0) {
+                    exclusiveReleased.awaitUninterruptibly();
+                }
+            }
+            sharedHolders++;
+            hold.count++;
+        } finally {
+            super.unlock();
+        }
+        if (stats != null) {
+            hold.timing = stats.acquired(start, true);
+        }
+    }
+
+    /**
+     * Releases the lock held in shared mode by the current thread.
+     *
+     * @throws IllegalMonitorStateException
+     *             if the current thread does not hold the shared lock
+     */
+    public void unlockShared() {
+        SharedHold hold = sharedHold.get();
+        if (hold.count == 0) {
+            throw new IllegalMonitorStateException(
+                    "The shared lock is not held by the current thread");
+        }
+        SessionLockStatistics.Hold timing = null;
+        long releasedAt = 0;
+        if (hold.count == 1 && hold.timing != null) {
+            timing = hold.timing;
+            hold.timing = null;
+            releasedAt = System.nanoTime();
+        }
+        super.lock();
+        try {
+            hold.count--;
+            sharedHolders--;
+            if (sharedHolders == 0) {
+                sharedReleased.signalAll();
+            }
+        } finally {
+            super.unlock();
+        }
+        if (timing != null) {
+            timing.released(releasedAt);
+        }
+    }
+
+    /**
+     * Checks whether the current thread holds the lock in shared mode.
+     *
+     * @return <code>true</code> if the current thread holds the shared lock,
+     *         otherwise <code>false</code>
+     */
+    public boolean isSharedHeldByCurrentThread() {
+        return sharedHold.get().count > 0;
+    }
+
+    /**
+     * Gets the number of threads currently holding the lock in shared mode.
+     * This is meant for monitoring purposes, and the value may change at any
+     * time.
+     *
+     * @return the number of shared lock holders
+     */
+    public int getSharedHolderCount() {
+        return sharedHolders;
+    }
+
+    /**
+     * Gets the statistics collected for this lock.
+     *
+     * @return the statistics, or <code>null</code> if the lock is not used by
+     *         a session yet
+     */
+    SessionLockStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Starts collecting statistics for the given session in the given
+     * monitor, unless already done.
+     */
+    synchronized void attachStatistics(SessionLockMonitor monitor,
+            VaadinSession session) {
+        SessionLockStatistics current = statistics;
+        if (current == null || current.getSession() != session) {
+            statistics = monitor.createStatistics(session);
+        }
+    }
+
+    private SessionLockStatistics getEnabledStatistics() {
+        SessionLockStatistics stats = statistics;
+        return stats != null && stats.isEnabled() ? stats : null;
+    }
+
+    private void exclusiveAcquired(SessionLockStatistics stats, long start) {
+        if (stats != null && getHoldCount() == 1) {
+            exclusiveHold = stats.acquired(start, false);
+        }
+    }
+
+    private void checkNoSharedHold() {
+        if (sharedHold.get().count > 0 && !isHeldByCurrentThread()) {
+            throw new IllegalStateException(
+                    "Cannot acquire the exclusive lock while holding only the shared lock");
+        }
+    }
+
+    private static ThreadLocal<SharedHold> createSharedHold() {
+        return ThreadLocal.withInitial(SharedHold::new);
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        sharedReleased = newCondition();
+        exclusiveReleased = newCondition();
+        sharedHold = createSharedHold();
+    }
+}
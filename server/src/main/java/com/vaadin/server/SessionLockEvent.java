@@ -0,0 +1,130 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.EventObject;
+
+/**
+ * Event fired when the lock of a session has been released, with the time
+ * spent waiting for the lock and the time it was held.
+ *
+ * @see SessionLockListener#sessionLockReleased(SessionLockEvent)
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+public class SessionLockEvent extends EventObject {
+
+    private final VaadinSession session;
+    private final String requestType;
+    private final boolean shared;
+    private final long waitTime;
+    private final long holdTime;
+
+    /**
+     * Creates a new event.
+     *
+     * @param service
+     *            the Vaadin service from which the event originates
+     * @param session
+     *            the Vaadin service session whose lock was released
+     * @param requestType
+     *            the type of the request that held the lock
+     * @param shared
+     *            <code>true</code> if the lock was held in shared mode,
+     *            <code>false</code> if it was held exclusively
+     * @param waitTime
+     *            the time spent waiting for the lock in nanoseconds
+     * @param holdTime
+     *            the time the lock was held in nanoseconds
+     */
+    public SessionLockEvent(VaadinService service, VaadinSession session,
+            String requestType, boolean shared, long waitTime,
+            long holdTime) {
+        super(service);
+        this.session = session;
+        this.requestType = requestType;
+        this.shared = shared;
+        this.waitTime = waitTime;
+        this.holdTime = holdTime;
+    }
+
+    @Override
+    public VaadinService getSource() {
+        return (VaadinService) super.getSource();
+    }
+
+    /**
+     * Gets the Vaadin service from which this event originates.
+     *
+     * @return the Vaadin service instance
+     */
+    public VaadinService getService() {
+        return getSource();
+    }
+
+    /**
+     * Gets the Vaadin service session whose lock was released.
+     *
+     * @return the Vaadin service session
+     */
+    public VaadinSession getSession() {
+        return session;
+    }
+
+    /**
+     * Gets the type of the request that held the lock, e.g.
+     * <code>"uidl"</code>, <code>"heartbeat"</code> or <code>"push"</code>.
+     * Locks taken outside of a request, e.g. by
+     * {@link VaadinSession#access(Command)} from a background thread, have the
+     * type <code>"background"</code>.
+     *
+     * @return the request type, not <code>null</code>
+     */
+    public String getRequestType() {
+        return requestType;
+    }
+
+    /**
+     * Checks whether the lock was held in shared mode.
+     *
+     * @see VaadinSession#lockShared()
+     *
+     * @return <code>true</code> if the lock was held in shared mode,
+     *         <code>false</code> if it was held exclusively
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Gets the time spent waiting for the lock before it was acquired.
+     *
+     * @return the wait time in nanoseconds
+     */
+    public long getWaitTime() {
+        return waitTime;
+    }
+
+    /**
+     * Gets the time the lock was held.
+     *
+     * @return the hold time in nanoseconds
+     */
+    public long getHoldTime() {
+        return holdTime;
+    }
+}
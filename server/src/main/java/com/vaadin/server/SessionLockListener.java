@@ -0,0 +1,40 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+
+/**
+ * Event listener that can be registered to a {@link VaadinService} to get an
+ * event each time the lock of a session of that service is released while
+ * {@link SessionLockMonitor lock monitoring} is enabled.
+ *
+ * @see VaadinService#addSessionLockListener(SessionLockListener)
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+@FunctionalInterface
+public interface SessionLockListener extends Serializable {
+    /**
+     * Invoked after a session lock has been released. The listener is called
+     * in the thread that released the lock, so it should return quickly.
+     *
+     * @param event
+     *            the lock event
+     */
+    public void sessionLockReleased(SessionLockEvent event);
+}
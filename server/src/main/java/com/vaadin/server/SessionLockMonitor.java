@@ -0,0 +1,421 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.vaadin.shared.Registration;
+
+/**
+ * Collects the times spent waiting for and holding the locks of the sessions
+ * of a {@link VaadinService}. Monitoring is disabled by default, and while it
+ * is disabled, locking a session only checks whether it is enabled.
+ * <p>
+ * While enabled, the monitor keeps histograms of the wait and hold times of
+ * all sessions, and {@link VaadinSession#getLockStatistics()} gives the
+ * corresponding histograms for a single session. The monitor also tracks the
+ * threads currently holding a session lock exclusively, notifies the
+ * {@link VaadinService#addSessionLockListener(SessionLockListener) session
+ * lock listeners} whenever a lock is released and logs a warning if a lock
+ * has been held longer than the {@link #setSlowHoldThreshold(long) slow hold
+ * threshold}.
+ * <p>
+ * The monitor can be published as a JMX MBean using {@link #registerMBean()}.
+ *
+ * @see VaadinService#getSessionLockMonitor()
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+public class SessionLockMonitor implements SessionLockMonitorMBean,
+        Serializable {
+
+    /**
+     * The request type used for locks taken outside of a request.
+     */
+    public static final String BACKGROUND_REQUEST_TYPE = "background";
+
+    private final VaadinService service;
+
+    private volatile boolean enabled = false;
+    private volatile long slowHoldThreshold = 1000;
+
+    private final LockTimeHistogram waitTimes = new LockTimeHistogram();
+    private final LockTimeHistogram holdTimes = new LockTimeHistogram();
+
+    private final List<SessionLockListener> listeners = new CopyOnWriteArrayList<>();
+
+    /*
+     * All the statistics created by this monitor, for finding the current
+     * holders without having to track them on each lock acquisition. Weak to
+     * let the statistics be collected with their locks.
+     */
+    private transient Map<SessionLockStatistics, Boolean> statistics = createStatisticsMap();
+
+    private transient ObjectName objectName;
+
+    /**
+     * Creates a new monitor for the sessions of the given service.
+     *
+     * @param service
+     *            the Vaadin service, not <code>null</code>
+     */
+    public SessionLockMonitor(VaadinService service) {
+        this.service = service;
+    }
+
+    /**
+     * Gets the service whose sessions this monitor follows.
+     *
+     * @return the Vaadin service
+     */
+    public VaadinService getService() {
+        return service;
+    }
+
+    /**
+     * Enables or disables monitoring. Locks acquired while monitoring is
+     * disabled are not included in the statistics, even if they are released
+     * after enabling it.
+     *
+     * @param enabled
+     *            <code>true</code> to enable monitoring, <code>false</code> to
+     *            disable it
+     */
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setSlowHoldThreshold(long slowHoldThreshold) {
+        if (slowHoldThreshold < 0) {
+            throw new IllegalArgumentException(
+                    "The slow hold threshold cannot be negative");
+        }
+        this.slowHoldThreshold = slowHoldThreshold;
+    }
+
+    @Override
+    public long getSlowHoldThreshold() {
+        return slowHoldThreshold;
+    }
+
+    /**
+     * Gets the histogram of the times spent waiting for the lock of any
+     * session.
+     *
+     * @return the wait time histogram, not <code>null</code>
+     */
+    public LockTimeHistogram getWaitTimes() {
+        return waitTimes;
+    }
+
+    /**
+     * Gets the histogram of the times the lock of any session has been held.
+     *
+     * @return the hold time histogram, not <code>null</code>
+     */
+    public LockTimeHistogram getHoldTimes() {
+        return holdTimes;
+    }
+
+    /**
+     * Adds a listener that gets notified each time a session lock is released
+     * while monitoring is enabled.
+     *
+     * @see VaadinService#addSessionLockListener(SessionLockListener)
+     *
+     * @param listener
+     *            the listener to add, not <code>null</code>
+     * @return a registration object for removing the listener
+     */
+    public Registration addListener(SessionLockListener listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    /**
+     * Registers this monitor as an MBean in the platform MBean server. The
+     * object name is <code>com.vaadin:type=SessionLockMonitor,name=</code>
+     * followed by the quoted name of the service.
+     *
+     * @return the object name of the registered MBean
+     * @throws IllegalStateException
+     *             if the MBean could not be registered, e.g. because another
+     *             MBean with the same name is already registered
+     */
+    public ObjectName registerMBean() {
+        try {
+            return registerMBean(new ObjectName(
+                    "com.vaadin:type=SessionLockMonitor,name="
+                            + ObjectName.quote(service.getServiceName())));
+        } catch (JMException e) {
+            throw new IllegalStateException(
+                    "Could not create the session lock monitor MBean name", e);
+        }
+    }
+
+    /**
+     * Registers this monitor as an MBean with the given name in the platform
+     * MBean server. Any earlier registration of this monitor is removed.
+     *
+     * @param name
+     *            the object name to use, not <code>null</code>
+     * @return the object name of the registered MBean
+     * @throws IllegalStateException
+     *             if the MBean could not be registered, e.g. because another
+     *             MBean with the same name is already registered
+     */
+    public synchronized ObjectName registerMBean(ObjectName name) {
+        unregisterMBean();
+        try {
+            objectName = ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(this, name).getObjectName();
+        } catch (JMException e) {
+            throw new IllegalStateException(
+                    "Could not register the session lock monitor MBean", e);
+        }
+        return objectName;
+    }
+
+    /**
+     * Removes this monitor from the platform MBean server if it has been
+     * registered. The service calls this when it is destroyed.
+     */
+    public synchronized void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            getLogger().log(Level.WARNING,
+                    "Could not unregister the session lock monitor MBean", e);
+        }
+        objectName = null;
+    }
+
+    /**
+     * Gets the type of the given request for describing the holder of a
+     * session lock.
+     */
+    String getRequestType(VaadinRequest request) {
+        if (request == null) {
+            return BACKGROUND_REQUEST_TYPE;
+        } else if (ServletPortletHelper.isUIDLRequest(request)) {
+            return "uidl";
+        } else if (ServletPortletHelper.isHeartbeatRequest(request)) {
+            return "heartbeat";
+        } else if (ServletPortletHelper.isPushRequest(request)) {
+            return "push";
+        } else if (ServletPortletHelper.isFileUploadRequest(request)) {
+            return "upload";
+        } else if (ServletPortletHelper.isConnectorResourceRequest(request)) {
+            return "connector resource";
+        } else if (ServletPortletHelper.isGlobalResourceRequest(request)) {
+            return "global resource";
+        } else if (ServletPortletHelper.isPublishedFileRequest(request)) {
+            return "published file";
+        } else {
+            return "other";
+        }
+    }
+
+    /**
+     * Creates the statistics object for the lock of the given session.
+     */
+    SessionLockStatistics createStatistics(VaadinSession session) {
+        SessionLockStatistics sessionStatistics = new SessionLockStatistics(
+                this, session);
+        statistics.put(sessionStatistics, Boolean.TRUE);
+        return sessionStatistics;
+    }
+
+    void lockReleased(VaadinSession session, String requestType,
+            boolean shared, long waitTime, long holdTime) {
+        waitTimes.record(waitTime);
+        holdTimes.record(holdTime);
+
+        long threshold = slowHoldThreshold;
+        if (threshold > 0
+                && holdTime > TimeUnit.MILLISECONDS.toNanos(threshold)) {
+            getLogger().log(Level.WARNING,
+                    "The {0} lock of session {1} was held for {2} ms in thread {3} (request type: {4})",
+                    new Object[] { shared ? "shared" : "exclusive",
+                            getSessionDescription(session),
+                            toMillis(holdTime),
+                            Thread.currentThread().getName(), requestType });
+        }
+
+        if (!listeners.isEmpty()) {
+            SessionLockEvent event = new SessionLockEvent(service, session,
+                    requestType, shared, waitTime, holdTime);
+            for (SessionLockListener listener : listeners) {
+                try {
+                    listener.sessionLockReleased(event);
+                } catch (Exception e) {
+                    getLogger().log(Level.WARNING,
+                            "Session lock listener threw an exception", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public long getLockCount() {
+        return holdTimes.getCount();
+    }
+
+    @Override
+    public double getAverageWaitTime() {
+        return getAverage(waitTimes);
+    }
+
+    @Override
+    public double getMaxWaitTime() {
+        return toMillis(waitTimes.getMaxTime());
+    }
+
+    @Override
+    public double getAverageHoldTime() {
+        return getAverage(holdTimes);
+    }
+
+    @Override
+    public double getMaxHoldTime() {
+        return toMillis(holdTimes.getMaxTime());
+    }
+
+    @Override
+    public long[] getHistogramBucketUpperBounds() {
+        return LockTimeHistogram.getBucketUpperBounds();
+    }
+
+    @Override
+    public long[] getWaitTimeHistogram() {
+        return waitTimes.getBucketCounts();
+    }
+
+    @Override
+    public long[] getHoldTimeHistogram() {
+        return holdTimes.getBucketCounts();
+    }
+
+    @Override
+    public int getExclusiveHolderCount() {
+        return getExclusiveHolders().size();
+    }
+
+    @Override
+    public String[] dumpExclusiveHolders() {
+        return getExclusiveHolders().stream().map(this::describeHolder)
+                .filter(description -> description != null)
+                .toArray(String[]::new);
+    }
+
+    private List<SessionLockStatistics> getExclusiveHolders() {
+        List<SessionLockStatistics> holders = new ArrayList<>();
+        synchronized (statistics) {
+            for (SessionLockStatistics sessionStatistics : statistics
+                    .keySet()) {
+                if (sessionStatistics.getHolderThread() != null) {
+                    holders.add(sessionStatistics);
+                }
+            }
+        }
+        return holders;
+    }
+
+    @Override
+    public void resetStatistics() {
+        waitTimes.reset();
+        holdTimes.reset();
+    }
+
+    private String describeHolder(SessionLockStatistics statistics) {
+        Thread thread = statistics.getHolderThread();
+        long holdTime = statistics.getCurrentHoldTime();
+        StackTraceElement[] stackTrace = statistics.getHolderStackTrace();
+        if (thread == null) {
+            // Released while describing
+            return null;
+        }
+        StringBuilder description = new StringBuilder();
+        description.append("Session ")
+                .append(getSessionDescription(statistics.getSession()))
+                .append(" held for ").append(toMillis(holdTime))
+                .append(" ms in thread ").append(thread.getName())
+                .append(" (request type: ")
+                .append(statistics.getHolderRequestType()).append(')');
+        for (StackTraceElement element : stackTrace) {
+            description.append("\n\tat ").append(element);
+        }
+        return description.toString();
+    }
+
+    private static String getSessionDescription(VaadinSession session) {
+        // Not using the session id to avoid exposing it in logs
+        return Integer.toHexString(System.identityHashCode(session));
+    }
+
+    private static double getAverage(LockTimeHistogram histogram) {
+        long count = histogram.getCount();
+        return count == 0 ? 0 : toMillis(histogram.getTotalTime()) / count;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        statistics = createStatisticsMap();
+    }
+
+    private static Map<SessionLockStatistics, Boolean> createStatisticsMap() {
+        return Collections.synchronizedMap(new WeakHashMap<>());
+    }
+
+    private static final Logger getLogger() {
+        return Logger.getLogger(SessionLockMonitor.class.getName());
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+/**
+ * The JMX management interface of a {@link SessionLockMonitor}. All times are
+ * in milliseconds.
+ *
+ * @see SessionLockMonitor#registerMBean()
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+public interface SessionLockMonitorMBean {
+
+    /**
+     * Checks whether session lock monitoring is enabled.
+     *
+     * @return <code>true</code> if monitoring is enabled, otherwise
+     *         <code>false</code>
+     */
+    public boolean isEnabled();
+
+    /**
+     * Enables or disables session lock monitoring.
+     *
+     * @param enabled
+     *            <code>true</code> to enable monitoring, <code>false</code> to
+     *            disable it
+     */
+    public void setEnabled(boolean enabled);
+
+    /**
+     * Gets the hold time above which a warning is logged when a session lock
+     * is released.
+     *
+     * @return the threshold in milliseconds, or 0 if no warnings are logged
+     */
+    public long getSlowHoldThreshold();
+
+    /**
+     * Sets the hold time above which a warning is logged when a session lock
+     * is released.
+     *
+     * @param slowHoldThreshold
+     *            the threshold in milliseconds, or 0 to not log any warnings
+     */
+    public void setSlowHoldThreshold(long slowHoldThreshold);
+
+    /**
+     * Gets the number of session lock acquisitions that have been released.
+     *
+     * @return the number of lock acquisitions
+     */
+    public long getLockCount();
+
+    /**
+     * Gets the average time spent waiting for a session lock.
+     *
+     * @return the average wait time in milliseconds
+     */
+    public double getAverageWaitTime();
+
+    /**
+     * Gets the longest time spent waiting for a session lock.
+     *
+     * @return the longest wait time in milliseconds
+     */
+    public double getMaxWaitTime();
+
+    /**
+     * Gets the average time a session lock has been held.
+     *
+     * @return the average hold time in milliseconds
+     */
+    public double getAverageHoldTime();
+
+    /**
+     * Gets the longest time a session lock has been held.
+     *
+     * @return the longest hold time in milliseconds
+     */
+    public double getMaxHoldTime();
+
+    /**
+     * Gets the upper bounds of the histogram buckets.
+     *
+     * @return the upper bounds in milliseconds
+     */
+    public long[] getHistogramBucketUpperBounds();
+
+    /**
+     * Gets the counts of the wait time histogram buckets. The last item counts
+     * the wait times longer than the last bucket upper bound.
+     *
+     * @return the bucket counts
+     */
+    public long[] getWaitTimeHistogram();
+
+    /**
+     * Gets the counts of the hold time histogram buckets. The last item counts
+     * the hold times longer than the last bucket upper bound.
+     *
+     * @return the bucket counts
+     */
+    public long[] getHoldTimeHistogram();
+
+    /**
+     * Gets the number of sessions whose lock is currently held exclusively.
+     *
+     * @return the number of sessions
+     */
+    public int getExclusiveHolderCount();
+
+    /**
+     * Describes the threads currently holding a session lock exclusively,
+     * including the type of the request being handled, the hold time so far
+     * and the stack trace of the thread.
+     *
+     * @return a description of each holder
+     */
+    public String[] dumpExclusiveHolders();
+
+    /**
+     * Clears the collected histograms.
+     */
+    public void resetStatistics();
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+
+/**
+ * Statistics about the locking of a single {@link VaadinSession}, collected
+ * while the {@link SessionLockMonitor} of its service is enabled. Only the
+ * lock acquisitions made while monitoring is enabled are included.
+ *
+ * @see VaadinSession#getLockStatistics()
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+public class SessionLockStatistics implements Serializable {
+
+    /**
+     * A single acquisition of the lock, from the moment the lock was
+     * requested until it is released.
+     */
+    static final class Hold implements Serializable {
+        private final SessionLockStatistics statistics;
+        private final String requestType;
+        private final boolean shared;
+        private final long waitTime;
+        private final long acquiredAt;
+        private final transient Thread thread;
+
+        private Hold(SessionLockStatistics statistics, String requestType,
+                boolean shared, long waitTime, long acquiredAt) {
+            this.statistics = statistics;
+            this.requestType = requestType;
+            this.shared = shared;
+            this.waitTime = waitTime;
+            this.acquiredAt = acquiredAt;
+            thread = Thread.currentThread();
+        }
+
+        /**
+         * Clears this hold as the current holder. Must be called before
+         * releasing the lock.
+         */
+        void releasing() {
+            statistics.releasing(this);
+        }
+
+        /**
+         * Records this hold as ended. Should be called after the lock has
+         * been released so that listeners do not run while holding it.
+         */
+        void released(long releasedAt) {
+            statistics.released(this, releasedAt - acquiredAt);
+        }
+    }
+
+    private final SessionLockMonitor monitor;
+    private final VaadinSession session;
+
+    private final LockTimeHistogram waitTimes = new LockTimeHistogram();
+    private final LockTimeHistogram holdTimes = new LockTimeHistogram();
+
+    private volatile Hold exclusiveHold;
+
+    SessionLockStatistics(SessionLockMonitor monitor, VaadinSession session) {
+        this.monitor = monitor;
+        this.session = session;
+    }
+
+    /**
+     * Checks whether the lock acquisitions should currently be timed.
+     */
+    boolean isEnabled() {
+        return monitor.isEnabled();
+    }
+
+    /**
+     * Records that the current thread has acquired the lock after starting to
+     * wait for it at the given time.
+     */
+    Hold acquired(long waitStartedAt, boolean shared) {
+        long now = System.nanoTime();
+        Hold hold = new Hold(this,
+                monitor.getRequestType(VaadinService.getCurrentRequest()),
+                shared, now - waitStartedAt, now);
+        if (!shared) {
+            exclusiveHold = hold;
+        }
+        return hold;
+    }
+
+    /**
+     * Clears the current exclusive holder. Must be called by the holder
+     * before releasing the lock, so that the information of the next holder
+     * is not overwritten.
+     */
+    private void releasing(Hold hold) {
+        if (exclusiveHold == hold) {
+            exclusiveHold = null;
+        }
+    }
+
+    private void released(Hold hold, long holdTime) {
+        waitTimes.record(hold.waitTime);
+        holdTimes.record(holdTime);
+        monitor.lockReleased(session, hold.requestType, hold.shared,
+                hold.waitTime, holdTime);
+    }
+
+    /**
+     * Gets the session these statistics are collected for.
+     *
+     * @return the session, not <code>null</code>
+     */
+    public VaadinSession getSession() {
+        return session;
+    }
+
+    /**
+     * Gets the histogram of the times spent waiting for the lock of the
+     * session.
+     *
+     * @return the wait time histogram, not <code>null</code>
+     */
+    public LockTimeHistogram getWaitTimes() {
+        return waitTimes;
+    }
+
+    /**
+     * Gets the histogram of the times the lock of the session has been held.
+     *
+     * @return the hold time histogram, not <code>null</code>
+     */
+    public LockTimeHistogram getHoldTimes() {
+        return holdTimes;
+    }
+
+    /**
+     * Gets the thread currently holding the exclusive lock of the session.
+     * This is meant for monitoring purposes, and the holder may change at any
+     * time.
+     *
+     * @return the holder thread, or <code>null</code> if the lock is not held
+     *         exclusively or the holder is not known
+     */
+    public Thread getHolderThread() {
+        Hold hold = exclusiveHold;
+        return hold == null ? null : hold.thread;
+    }
+
+    /**
+     * Gets the type of the request being handled by the thread currently
+     * holding the exclusive lock of the session.
+     *
+     * @see SessionLockEvent#getRequestType()
+     *
+     * @return the request type, or <code>null</code> if the lock is not held
+     *         exclusively or the holder is not known
+     */
+    public String getHolderRequestType() {
+        Hold hold = exclusiveHold;
+        return hold == null ? null : hold.requestType;
+    }
+
+    /**
+     * Gets how long the current holder has held the exclusive lock of the
+     * session.
+     *
+     * @return the hold time so far in nanoseconds, or 0 if the lock is not
+     *         held exclusively or the holder is not known
+     */
+    public long getCurrentHoldTime() {
+        Hold hold = exclusiveHold;
+        return hold == null ? 0 : System.nanoTime() - hold.acquiredAt;
+    }
+
+    /**
+     * Gets the stack trace of the thread currently holding the exclusive lock
+     * of the session, showing what the holder is doing while holding the
+     * lock.
+     *
+     * @return the stack trace of the holder, or an empty array if the lock is
+     *         not held exclusively or the holder is not known
+     */
+    public StackTraceElement[] getHolderStackTrace() {
+        Thread holder = getHolderThread();
+        return holder == null ? new StackTraceElement[0]
+                : holder.getStackTrace();
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Objects;
+
+import com.vaadin.shared.communication.ClientRpc;
+import com.vaadin.util.ReflectTools;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.impl.JsonUtil;
+
+/**
+ * A client RPC call whose parameters are encoded to JSON once, so that the
+ * same call can be sent to many connectors without encoding the parameters
+ * for each of them. This is useful e.g. when broadcasting the same data to
+ * many UIs using a {@link BroadcastTopic}.
+ * <p>
+ * The parameters are encoded without a connector tracker, so they cannot
+ * contain references to connectors.
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+public final class SharedClientRpc implements Serializable {
+
+    private final Class<? extends ClientRpc> rpcInterface;
+    private final String methodName;
+    private final Class<?>[] parameterTypes;
+    private final EncodedJson[] encodedParameters;
+    private transient Method method;
+
+    private SharedClientRpc(Class<? extends ClientRpc> rpcInterface,
+            Method method, EncodedJson[] encodedParameters) {
+        this.rpcInterface = rpcInterface;
+        this.method = method;
+        methodName = method.getName();
+        parameterTypes = method.getParameterTypes();
+        this.encodedParameters = encodedParameters;
+    }
+
+    /**
+     * Creates a shared call of a client RPC method and encodes its
+     * parameters. The method is selected by its name and the types of the
+     * given parameters.
+     *
+     * @param rpcInterface
+     *            the client RPC interface, not <code>null</code>
+     * @param methodName
+     *            the name of the RPC method, not <code>null</code>
+     * @param parameters
+     *            the parameters of the call
+     * @return the shared call
+     * @throws IllegalArgumentException
+     *             if the interface has no method with the given name that
+     *             accepts the parameters, or if there are several such
+     *             methods
+     */
+    public static SharedClientRpc create(
+            Class<? extends ClientRpc> rpcInterface, String methodName,
+            Object... parameters) {
+        Objects.requireNonNull(rpcInterface, "RPC interface cannot be null");
+        return create(rpcInterface,
+                findMethod(rpcInterface, methodName, parameters), parameters);
+    }
+
+    /**
+     * Creates a shared call of the given client RPC method and encodes its
+     * parameters.
+     *
+     * @param rpcInterface
+     *            the client RPC interface, not <code>null</code>
+     * @param method
+     *            the RPC method of the interface, not <code>null</code>
+     * @param parameters
+     *            the parameters of the call
+     * @return the shared call
+     * @throws IllegalArgumentException
+     *             if the method is not a method of the interface, or if the
+     *             number of parameters does not match
+     */
+    public static SharedClientRpc create(
+            Class<? extends ClientRpc> rpcInterface, Method method,
+            Object... parameters) {
+        Objects.requireNonNull(rpcInterface, "RPC interface cannot be null");
+        Objects.requireNonNull(method, "Method cannot be null");
+        if (!method.getDeclaringClass().isAssignableFrom(rpcInterface)) {
+            throw new IllegalArgumentException(
+                    method + " is not a method of " + rpcInterface.getName());
+        }
+        Type[] types = method.getGenericParameterTypes();
+        if (types.length != parameters.length) {
+            throw new IllegalArgumentException(
+                    "Wrong number of parameters for " + method);
+        }
+        EncodedJson[] encodedParameters = new EncodedJson[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            // Stringified as a single item array to support any value
+            JsonArray wrapper = Json.createArray();
+            wrapper.set(0, JsonCodec.encode(parameters[i], null, types[i], null)
+                    .getEncodedValue());
+            String json = JsonUtil.stringify(wrapper);
+            encodedParameters[i] = new EncodedJson(
+                    json.substring(1, json.length() - 1));
+        }
+        return new SharedClientRpc(rpcInterface, method, encodedParameters);
+    }
+
+    /**
+     * Queues this call to be sent to the client side of the given connector.
+     * The session of the connector must be locked.
+     *
+     * @param connector
+     *            the connector to send the call to, not <code>null</code>
+     */
+    public void sendTo(AbstractClientConnector connector) {
+        if (method == null) {
+            try {
+                method = rpcInterface.getMethod(methodName, parameterTypes);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        connector.addMethodInvocationToQueue(rpcInterface.getName(), method,
+                encodedParameters.clone());
+    }
+
+    private static Method findMethod(Class<? extends ClientRpc> rpcInterface,
+            String methodName, Object[] parameters) {
+        Method found = null;
+        for (Method method : rpcInterface.getMethods()) {
+            if (method.getName().equals(methodName)
+                    && acceptsParameters(method, parameters)) {
+                if (found != null) {
+                    throw new IllegalArgumentException("Several methods "
+                            + methodName + " in " + rpcInterface.getName()
+                            + " accept the parameters");
+                }
+                found = method;
+            }
+        }
+        if (found == null) {
+            throw new IllegalArgumentException("No method " + methodName
+                    + " accepting the parameters found in "
+                    + rpcInterface.getName());
+        }
+        return found;
+    }
+
+    private static boolean acceptsParameters(Method method,
+            Object[] parameters) {
+        Class<?>[] types = method.getParameterTypes();
+        if (types.length != parameters.length) {
+            return false;
+        }
+        for (int i = 0; i < types.length; i++) {
+            if (parameters[i] == null) {
+                if (types[i].isPrimitive()) {
+                    return false;
+                }
+            } else if (!ReflectTools.convertPrimitiveType(types[i])
+                    .isInstance(parameters[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
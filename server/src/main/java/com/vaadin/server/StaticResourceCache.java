@@ -0,0 +1,543 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bounded cache of the static resources served by {@link VaadinServlet}. For
+ * each resource URL, the length, the modification timestamp, a hash of the
+ * content used as the ETag and the precompressed variants are resolved once
+ * instead of for every request.
+ * <p>
+ * Resources backed by a file are checked for modifications on each lookup, so
+ * changes made to e.g. theme files during development are picked up. Other
+ * resources, typically entries in a JAR, are assumed not to change while the
+ * servlet is running.
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+class StaticResourceCache implements Serializable {
+
+    /**
+     * The default maximum number of cached entries.
+     */
+    static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    /**
+     * Value returned by {@link #parseRange(String, long)} for a range that
+     * cannot be satisfied.
+     */
+    static final long[] UNSATISFIABLE_RANGE = new long[0];
+
+    /**
+     * The encodings of the precompressed variants that are looked up for a
+     * resource, in order of preference when accepted equally by the browser.
+     */
+    enum PrecompressedEncoding {
+        /**
+         * Brotli, stored with the {@code .br} suffix.
+         */
+        BROTLI("br", ".br"),
+        /**
+         * Gzip, stored with the {@code .gz} suffix.
+         */
+        GZIP("gzip", ".gz");
+
+        private final String headerValue;
+        private final String suffix;
+
+        private PrecompressedEncoding(String headerValue, String suffix) {
+            this.headerValue = headerValue;
+            this.suffix = suffix;
+        }
+
+        /**
+         * Gets the value to use in the {@code Content-Encoding} header.
+         *
+         * @return the header value, not <code>null</code>
+         */
+        public String getHeaderValue() {
+            return headerValue;
+        }
+
+        /**
+         * Gets the suffix appended to the URL of the uncompressed resource to
+         * find the precompressed variant.
+         *
+         * @return the suffix, not <code>null</code>
+         */
+        public String getSuffix() {
+            return suffix;
+        }
+    }
+
+    /**
+     * Information about a single static resource.
+     */
+    static class Resource implements Serializable {
+        private final URL url;
+        private final File file;
+        private final long length;
+        private final long lastModified;
+        private final String eTag;
+
+        /*
+         * Precompressed variants that have been looked up, with the resource
+         * itself as a marker for a missing variant. Guarded by the map.
+         */
+        private final Map<PrecompressedEncoding, Resource> precompressed = new EnumMap<>(
+                PrecompressedEncoding.class);
+
+        private Resource(URL url, File file, long length, long lastModified,
+                String hash) {
+            this.url = url;
+            this.file = file;
+            this.length = length;
+            this.lastModified = lastModified;
+            eTag = '"' + hash + '"';
+        }
+
+        /**
+         * Gets the URL of the resource.
+         *
+         * @return the URL, not <code>null</code>
+         */
+        public URL getUrl() {
+            return url;
+        }
+
+        /**
+         * Gets the length of the resource in bytes.
+         *
+         * @return the length in bytes
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * Gets the modification timestamp of the resource.
+         *
+         * @return the timestamp in milliseconds, or 0 if not known
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Gets the quoted entity tag derived from the content of the
+         * resource.
+         *
+         * @return the entity tag, not <code>null</code>
+         */
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * Opens a stream for reading the content of the resource starting from
+         * the given offset. Resources backed by a file are positioned directly
+         * instead of skipping the preceding bytes.
+         *
+         * @param offset
+         *            the offset of the first byte to read
+         * @return an input stream, not <code>null</code>
+         * @throws IOException
+         *             if the resource cannot be read
+         */
+        public InputStream openStream(long offset) throws IOException {
+            if (file != null) {
+                FileChannel channel = FileChannel.open(file.toPath(),
+                        StandardOpenOption.READ);
+                channel.position(offset);
+                return Channels.newInputStream(channel);
+            }
+            InputStream is = url.openStream();
+            long remaining = offset;
+            while (remaining > 0) {
+                long skipped = is.skip(remaining);
+                if (skipped <= 0) {
+                    if (is.read() < 0) {
+                        break;
+                    }
+                    skipped = 1;
+                }
+                remaining -= skipped;
+            }
+            return is;
+        }
+
+        private boolean isStale() {
+            return file != null && (file.lastModified() != lastModified
+                    || file.length() != length);
+        }
+    }
+
+    private final Map<String, URL> resolvedUrls;
+    private final Map<String, Resource> resources;
+
+    /**
+     * Creates a new cache holding at most the given number of resolved URLs
+     * and resources.
+     *
+     * @param maxEntries
+     *            the maximum number of entries
+     */
+    StaticResourceCache(int maxEntries) {
+        resolvedUrls = new LruMap<>(maxEntries);
+        resources = new LruMap<>(maxEntries);
+    }
+
+    /**
+     * Gets the cached URL to which the given filename has been resolved.
+     *
+     * @param filename
+     *            the requested filename
+     * @return the URL, or <code>null</code> if not cached
+     */
+    URL getResolvedUrl(String filename) {
+        synchronized (resolvedUrls) {
+            return resolvedUrls.get(filename);
+        }
+    }
+
+    /**
+     * Caches the URL to which the given filename has been resolved.
+     *
+     * @param filename
+     *            the requested filename
+     * @param url
+     *            the resolved URL, not <code>null</code>
+     */
+    void putResolvedUrl(String filename, URL url) {
+        synchronized (resolvedUrls) {
+            resolvedUrls.put(filename, url);
+        }
+    }
+
+    /**
+     * Gets the resource for the given URL, reading it if it is not cached or
+     * if the cached file has been modified.
+     *
+     * @param url
+     *            the resource URL, not <code>null</code>
+     * @return the resource, or <code>null</code> if it does not exist
+     * @throws IOException
+     *             if reading the resource fails
+     */
+    Resource getResource(URL url) throws IOException {
+        String key = url.toExternalForm();
+        Resource resource;
+        synchronized (resources) {
+            resource = resources.get(key);
+        }
+        if (resource != null && !resource.isStale()) {
+            return resource;
+        }
+        // Read outside the lock, concurrent readers of the same resource
+        // just compute the same result
+        resource = load(url);
+        synchronized (resources) {
+            if (resource == null) {
+                resources.remove(key);
+            } else {
+                resources.put(key, resource);
+            }
+        }
+        return resource;
+    }
+
+    /**
+     * Gets the precompressed variant of the given resource, i.e. the resource
+     * with the suffix of the encoding appended to its URL. The existence of
+     * the variant is only checked once for each cached resource.
+     *
+     * @param resource
+     *            the uncompressed resource, not <code>null</code>
+     * @param encoding
+     *            the encoding of the variant, not <code>null</code>
+     * @return the compressed resource, or <code>null</code> if there is none
+     * @throws IOException
+     *             if reading the resource fails
+     */
+    Resource getPrecompressed(Resource resource,
+            PrecompressedEncoding encoding) throws IOException {
+        Resource precompressed;
+        synchronized (resource.precompressed) {
+            precompressed = resource.precompressed.get(encoding);
+        }
+        if (precompressed == resource) {
+            return null;
+        } else if (precompressed != null && !precompressed.isStale()) {
+            return precompressed;
+        }
+        try {
+            precompressed = load(new URL(
+                    resource.url.toExternalForm() + encoding.getSuffix()));
+        } catch (MalformedURLException e) {
+            precompressed = null;
+        }
+        synchronized (resource.precompressed) {
+            resource.precompressed.put(encoding,
+                    precompressed == null ? resource : precompressed);
+        }
+        return precompressed;
+    }
+
+    /**
+     * Gets the precompressed encodings accepted according to the value of an
+     * {@code Accept-Encoding} header, ordered by preference. Encodings with a
+     * lower quality value than the uncompressed content are not included.
+     *
+     * @param acceptEncoding
+     *            the header value, may be <code>null</code>
+     * @return the accepted encodings, most preferred first, not
+     *         <code>null</code>
+     */
+    static List<PrecompressedEncoding> negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return Collections.emptyList();
+        }
+        Map<String, Double> qualities = new HashMap<>();
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            if ("x-gzip".equals(coding)) {
+                coding = "gzip";
+            }
+            qualities.put(coding, getQuality(params));
+        }
+        Double any = qualities.get("*");
+        double identity = qualities.containsKey("identity")
+                ? qualities.get("identity")
+                : any != null ? any : 1;
+
+        List<PrecompressedEncoding> encodings = new ArrayList<>();
+        Map<PrecompressedEncoding, Double> accepted = new EnumMap<>(
+                PrecompressedEncoding.class);
+        for (PrecompressedEncoding encoding : PrecompressedEncoding.values()) {
+            Double quality = qualities.get(encoding.getHeaderValue());
+            if (quality == null) {
+                quality = any != null ? any : 0;
+            }
+            if (quality > 0 && quality >= identity) {
+                encodings.add(encoding);
+                accepted.put(encoding, quality);
+            }
+        }
+        // Stable sort keeps the server preference for equal quality values
+        encodings.sort((a, b) -> Double.compare(accepted.get(b),
+                accepted.get(a)));
+        return encodings;
+    }
+
+    private static double getQuality(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Parses the value of a {@code Range} header. Only a single byte range is
+     * supported; for multiple ranges <code>null</code> is returned so that the
+     * full content is sent.
+     *
+     * @param range
+     *            the header value, not <code>null</code>
+     * @param length
+     *            the length of the content
+     * @return the first and last byte positions (inclusive),
+     *         {@link #UNSATISFIABLE_RANGE} if the range cannot be satisfied or
+     *         <code>null</code> if the header should be ignored
+     */
+    static long[] parseRange(String range, long length) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // Suffix range: the last N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || length == 0) {
+                    return UNSATISFIABLE_RANGE;
+                }
+                return new long[] { Math.max(0, length - suffix), length - 1 };
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return null;
+            }
+            if (start >= length) {
+                return UNSATISFIABLE_RANGE;
+            }
+            return new long[] { start, Math.min(end, length - 1) };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether the value of an {@code If-None-Match} or {@code If-Range}
+     * header matches the given entity tag.
+     *
+     * @param header
+     *            the header value, may be <code>null</code>
+     * @param eTag
+     *            the quoted entity tag of the resource
+     * @return <code>true</code> if the header matches the entity tag
+     */
+    static boolean matchesETag(String header, String eTag) {
+        if (header == null) {
+            return false;
+        }
+        for (String candidate : header.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if ("*".equals(candidate) || eTag.equals(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Resource load(URL url) throws IOException {
+        File file = toFile(url);
+        if (file != null) {
+            if (!file.isFile()) {
+                return null;
+            }
+            long lastModified = file.lastModified();
+            long length = file.length();
+            try (InputStream is = new FileInputStream(file)) {
+                MessageDigest digest = createDigest();
+                update(digest, is);
+                return new Resource(url, file, length, lastModified,
+                        encode(digest));
+            }
+        }
+
+        URLConnection connection = url.openConnection();
+        InputStream is;
+        try {
+            is = connection.getInputStream();
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        try {
+            long lastModified = connection.getLastModified();
+            MessageDigest digest = createDigest();
+            long length = update(digest, is);
+            return new Resource(url, null, length, lastModified,
+                    encode(digest));
+        } finally {
+            is.close();
+        }
+    }
+
+    private static File toFile(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java implementation is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long update(MessageDigest digest, InputStream is)
+            throws IOException {
+        byte[] buffer = new byte[Constants.DEFAULT_BUFFER_SIZE];
+        long length = 0;
+        int bytes;
+        while ((bytes = is.read(buffer)) >= 0) {
+            digest.update(buffer, 0, bytes);
+            length += bytes;
+        }
+        return length;
+    }
+
+    private static String encode(MessageDigest digest) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(digest.digest());
+    }
+
+    private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+        private final int maxEntries;
+
+        private LruMap(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxEntries;
+        }
+    }
+}
@@ -35,6 +35,15 @@ public abstract class SynchronizedRequestHandler implements RequestHandler {
             return false;
         }
 
+        if (canHandleRequestWithSharedLock(request)) {
+            session.lockShared();
+            try {
+                return synchronizedHandleRequest(session, request, response);
+            } finally {
+                session.unlockShared();
+            }
+        }
+
         session.lock();
         try {
             return synchronizedHandleRequest(session, request, response);
@@ -86,4 +95,22 @@ public abstract class SynchronizedRequestHandler implements RequestHandler {
         return true;
     }
 
+    /**
+     * Checks whether a request only reads the state of the session, so that
+     * it can be handled while holding the session lock in shared mode, see
+     * {@link VaadinSession#lockShared()}. The session is locked exclusively if
+     * shared locking is not enabled for the service. The default
+     * implementation returns <code>false</code>.
+     *
+     * @since 8.13
+     * @param request
+     *            the request to handle
+     * @return <code>true</code> if the request can be handled with the
+     *         session locked in shared mode, <code>false</code> if it must be
+     *         locked exclusively
+     */
+    protected boolean canHandleRequestWithSharedLock(VaadinRequest request) {
+        return false;
+    }
+
 }
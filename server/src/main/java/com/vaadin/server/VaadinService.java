@@ -43,7 +43,10 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -138,6 +141,21 @@ public abstract class VaadinService implements Serializable {
 
     private final List<SessionDestroyListener> sessionDestroyListeners = new CopyOnWriteArrayList<>();
 
+    private final Map<String, BroadcastTopic<?>> broadcastTopics = new ConcurrentHashMap<>();
+
+    private transient Executor accessExecutor;
+
+    private boolean sharedSessionLockEnabled = false;
+
+    private final SessionLockMonitor sessionLockMonitor = new SessionLockMonitor(
+            this);
+
+    /**
+     * The access queue purges scheduled in the access executor and not yet
+     * started, at most one for each session.
+     */
+    private final Map<VaadinSession, AccessQueuePurge> scheduledAccessQueuePurges = new ConcurrentHashMap<>();
+
     private SystemMessagesProvider systemMessagesProvider = DefaultSystemMessagesProvider
             .get();
 
@@ -519,6 +537,33 @@ public abstract class VaadinService implements Serializable {
         return () -> sessionDestroyListeners.remove(listener);
     }
 
+    /**
+     * Adds a listener that gets notified each time the lock of a session of
+     * this service is released while the {@link #getSessionLockMonitor()
+     * session lock monitor} is enabled.
+     *
+     * @see SessionLockListener
+     *
+     * @since 8.13
+     * @param listener
+     *            the session lock listener
+     * @return a registration object for removing the listener
+     */
+    public Registration addSessionLockListener(SessionLockListener listener) {
+        return sessionLockMonitor.addListener(listener);
+    }
+
+    /**
+     * Gets the monitor that collects statistics of the wait and hold times of
+     * the session locks of this service. The monitor is disabled by default.
+     *
+     * @since 8.13
+     * @return the session lock monitor, not <code>null</code>
+     */
+    public SessionLockMonitor getSessionLockMonitor() {
+        return sessionLockMonitor;
+    }
+
     /**
      * Handles destruction of the given session. Internally ensures proper
      * locking is done.
@@ -697,7 +742,7 @@ public abstract class VaadinService implements Serializable {
             synchronized (VaadinService.class) {
                 lock = getSessionLock(wrappedSession);
                 if (lock == null) {
-                    lock = new ReentrantLock();
+                    lock = new SessionLock();
                     setSessionLock(wrappedSession, lock);
                 }
             }
@@ -737,6 +782,15 @@ public abstract class VaadinService implements Serializable {
         WrappedSession wrappedSession = getWrappedSession(request,
                 requestCanCreateSession);
 
+        if (!requestCanCreateSession && isSharedSessionLockRequest(request)) {
+            VaadinSession session = findExistingSessionShared(request,
+                    wrappedSession);
+            if (session != null) {
+                return session;
+            }
+            // Let the exclusive path handle all other cases
+        }
+
         try {
             lockSession(wrappedSession);
         } catch (IllegalStateException e) {
@@ -752,6 +806,59 @@ public abstract class VaadinService implements Serializable {
 
     }
 
+    /**
+     * Finds an existing session while holding the session lock in shared
+     * mode. Returns <code>null</code> if the session could not be found this
+     * way, e.g. if the request asks to close or restart the session.
+     */
+    private VaadinSession findExistingSessionShared(VaadinRequest request,
+            WrappedSession wrappedSession) throws SessionExpiredException {
+        Lock lock = getSessionLock(wrappedSession);
+        if (!(lock instanceof SessionLock)
+                || hasParameter(request, URL_PARAMETER_RESTART_APPLICATION)
+                || hasParameter(request, URL_PARAMETER_CLOSE_APPLICATION)) {
+            return null;
+        }
+        SessionLock sessionLock = (SessionLock) lock;
+        sessionLock.lockShared();
+        try {
+            // Fails if the session has been invalidated
+            wrappedSession.getAttribute(getLockAttributeName());
+            return getExistingSession(request, false);
+        } catch (IllegalStateException e) {
+            throw new SessionExpiredException();
+        } finally {
+            sessionLock.unlockShared();
+        }
+    }
+
+    /**
+     * Checks whether the given request only reads the state of its session,
+     * so that the session can be locked in shared mode while handling it.
+     * The default implementation returns <code>true</code> for heartbeat,
+     * connector resource and global resource requests if
+     * {@link #isSharedSessionLockEnabled() shared locking} is enabled.
+     * <p>
+     * For these requests, the session is looked up while holding the shared
+     * lock, and the session is only cleaned up after the request if it is not
+     * locked by another thread at that time. The request handlers still decide
+     * themselves how they lock the session.
+     *
+     * @since 8.13
+     * @param request
+     *            the request to check
+     * @return <code>true</code> if the session of the request can be locked in
+     *         shared mode, otherwise <code>false</code>
+     */
+    protected boolean isSharedSessionLockRequest(VaadinRequest request) {
+        return isSharedSessionLockEnabled()
+                && (ServletPortletHelper.isHeartbeatRequest(request)
+                        || ServletPortletHelper
+                                .isConnectorResourceRequest(request)
+                        || ServletPortletHelper
+                                .isGlobalResourceRequest(request));
+    }
+
     /**
      * Finds or creates a Vaadin session. Assumes necessary synchronization has
      * been done by the caller to ensure this is not called simultaneously by
@@ -1452,14 +1559,27 @@ public abstract class VaadinService implements Serializable {
             VaadinSession session) {
         if (session != null) {
             assert VaadinSession.getCurrent() == session;
-            session.lock();
-            try {
-                cleanupSession(session);
-                final long duration = (System.nanoTime() - (Long) request
-                        .getAttribute(REQUEST_START_TIME_ATTRIBUTE)) / 1000000;
-                session.setLastRequestDuration(duration);
-            } finally {
-                session.unlock();
+            boolean locked;
+            if (isSharedSessionLockRequest(request)) {
+                /*
+                 * Don't wait for exclusive access only to clean up, the thread
+                 * currently holding the lock will do it
+                 */
+                locked = session.getLockInstance().tryLock();
+            } else {
+                session.lock();
+                locked = true;
+            }
+            if (locked) {
+                try {
+                    cleanupSession(session);
+                    final long duration = (System.nanoTime() - (Long) request
+                            .getAttribute(REQUEST_START_TIME_ATTRIBUTE))
+                            / 1000000;
+                    session.setLastRequestDuration(duration);
+                } finally {
+                    session.unlock();
+                }
             }
         }
         CurrentInstance.clearAll();
@@ -2005,12 +2125,73 @@ public abstract class VaadinService implements Serializable {
      * thread, the queue will be purged when the session is unlocked. If the
      * lock is not held by any thread, it is acquired and the queue is purged
      * right away.
+     * <p>
+     * If an {@link #setAccessExecutor(Executor) access executor} has been
+     * set, the lock is acquired and the queue purged by a task run by the
+     * executor instead of the current thread. Only one such task is scheduled
+     * for a session at a time. If the executor rejects the task or has been
+     * shut down, in which case a scheduled task might never run, the queue is
+     * purged in the current thread instead.
      *
      * @since 7.1.2
      * @param session
      *            the session for which the access queue should be purged
      */
     public void ensureAccessQueuePurged(VaadinSession session) {
+        Executor executor = getAccessExecutor();
+        if (executor == null) {
+            purgeAccessQueue(session);
+            return;
+        }
+        AccessQueuePurge purge = new AccessQueuePurge(session);
+        AccessQueuePurge scheduled = scheduledAccessQueuePurges
+                .putIfAbsent(session, purge);
+        if (scheduled != null) {
+            if (isShutdown(executor)) {
+                // The scheduled task may have been dropped, e.g. by
+                // shutdownNow(), so it cannot be relied on
+                scheduledAccessQueuePurges.remove(session, scheduled);
+                purgeAccessQueue(session);
+            }
+            return;
+        }
+        try {
+            executor.execute(purge);
+        } catch (RejectedExecutionException e) {
+            scheduledAccessQueuePurges.remove(session, purge);
+            getLogger().log(Level.WARNING,
+                    "Access executor rejected the task, purging the access queue in the current thread",
+                    e);
+            purgeAccessQueue(session);
+        }
+    }
+
+    private static boolean isShutdown(Executor executor) {
+        return executor instanceof ExecutorService
+                && ((ExecutorService) executor).isShutdown();
+    }
+
+    /**
+     * Task that purges the access queue of a session in a thread of the access
+     * executor.
+     */
+    private class AccessQueuePurge implements Runnable, Serializable {
+        private final VaadinSession session;
+
+        private AccessQueuePurge(VaadinSession session) {
+            this.session = session;
+        }
+
+        @Override
+        public void run() {
+            // Removed before purging, so that tasks submitted while the queue
+            // is being purged schedule a new purge
+            scheduledAccessQueuePurges.remove(session, this);
+            purgeAccessQueue(session);
+        }
+    }
+
+    private void purgeAccessQueue(VaadinSession session) {
         /*
          * If no thread is currently holding the lock, pending changes for UIs
          * with automatic push would not be processed and pushed until the next
@@ -2035,6 +2216,75 @@ public abstract class VaadinService implements Serializable {
         }
     }
 
+    /**
+     * Sets the executor that runs the tasks which acquire the session lock
+     * and purge the pending access queue after a task has been submitted
+     * using {@link VaadinSession#access(Runnable)}. By default, no executor is
+     * used and the queue is purged by the thread that submits the task if the
+     * session is not locked, which means that a background thread may end up
+     * running tasks submitted by other threads.
+     * <p>
+     * {@link AccessExecutors} provides executors suitable for this purpose.
+     * The service does not shut down the executor when it is destroyed.
+     *
+     * @since 8.13
+     * @param accessExecutor
+     *            the executor to use, or <code>null</code> to purge the queue
+     *            in the submitting thread
+     */
+    public void setAccessExecutor(Executor accessExecutor) {
+        this.accessExecutor = accessExecutor;
+        // Purges scheduled in the previous executor may never run
+        scheduledAccessQueuePurges.clear();
+    }
+
+    /**
+     * Sets whether requests that only read the state of a session may lock it
+     * in shared mode using {@link VaadinSession#lockShared()}, so that they
+     * can be handled concurrently with each other. This applies to e.g.
+     * heartbeat requests and requests for connector and global resources.
+     * The UIDL requests and any other requests that modify the session always
+     * lock it exclusively, so their ordering is not affected.
+     * <p>
+     * Shared locking is disabled by default. When enabled, resources such as
+     * {@link StreamResource StreamResources} must not modify the state of the
+     * session when creating the stream, since that is done while holding only
+     * the shared lock.
+     *
+     * @since 8.13
+     * @param sharedSessionLockEnabled
+     *            <code>true</code> to enable shared locking, otherwise
+     *            <code>false</code>
+     */
+    public void setSharedSessionLockEnabled(boolean sharedSessionLockEnabled) {
+        this.sharedSessionLockEnabled = sharedSessionLockEnabled;
+    }
+
+    /**
+     * Checks whether requests that only read the state of a session may lock
+     * it in shared mode.
+     *
+     * @since 8.13
+     * @return <code>true</code> if shared locking is enabled, otherwise
+     *         <code>false</code>
+     * @see #setSharedSessionLockEnabled(boolean)
+     */
+    public boolean isSharedSessionLockEnabled() {
+        return sharedSessionLockEnabled;
+    }
+
+    /**
+     * Gets the executor that runs the tasks which purge the pending access
+     * queues of the sessions.
+     *
+     * @since 8.13
+     * @return the access executor, or <code>null</code> if the queue is
+     *         purged in the submitting thread
+     */
+    public Executor getAccessExecutor() {
+        return accessExecutor;
+    }
+
     /**
      * Purges the queue of pending access invocations enqueued with
      * {@link VaadinSession#access(Runnable)}.
@@ -2063,6 +2313,7 @@ public abstract class VaadinService implements Serializable {
             while ((pendingAccess = session.getPendingAccessQueue()
                     .poll()) != null) {
                 if (!pendingAccess.isCancelled()) {
+                    session.recordAccessTask(pendingAccess.getWaitTime());
                     pendingAccess.run();
 
                     try {
@@ -2138,6 +2389,26 @@ public abstract class VaadinService implements Serializable {
         ServiceDestroyEvent event = new ServiceDestroyEvent(this);
         serviceDestroyListeners
                 .forEach(listener -> listener.serviceDestroy(event));
+        sessionLockMonitor.unregisterMBean();
+    }
+
+    /**
+     * Gets the broadcast topic with the given name, creating it if it does
+     * not exist yet. The same topic instance is returned for the same name to
+     * all sessions of this service.
+     *
+     * @param <T>
+     *            the message type of the topic
+     * @param name
+     *            the name of the topic, not <code>null</code>
+     * @return the broadcast topic, not <code>null</code>
+     *
+     * @since 8.13
+     */
+    @SuppressWarnings("unchecked")
+    public <T> BroadcastTopic<T> getBroadcastTopic(String name) {
+        return (BroadcastTopic<T>) broadcastTopics.computeIfAbsent(name,
+                key -> new BroadcastTopic<>(key));
     }
 
     /**
@@ -2207,7 +2478,7 @@ public abstract class VaadinService implements Serializable {
      * @return the VaadinSession in the HTTP session or null if not found
      */
     protected VaadinSession loadSession(WrappedSession wrappedSession) {
-        assert VaadinSession.hasLock(this, wrappedSession);
+        assert VaadinSession.hasReadAccess(this, wrappedSession);
 
         VaadinSession vaadinSession = readFromHttpSession(wrappedSession);
         if (vaadinSession == null) {
@@ -20,10 +20,10 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
@@ -33,7 +33,6 @@ import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.net.URLConnection;
 import java.net.URLDecoder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -41,11 +40,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -81,6 +82,15 @@ public class VaadinServlet extends HttpServlet implements Constants {
         private final long timestamp;
         private final String scssFileName;
 
+        /*
+         * Set when the source files are watched for changes instead of
+         * checking their timestamps.
+         */
+        private volatile boolean watched = false;
+        private volatile boolean invalidated = false;
+        private transient ScssSourceWatcher watcher;
+        private transient Runnable watchListener;
+
         public ScssCacheEntry(String scssFileName, String css,
                 List<String> sourceUris) {
             this.scssFileName = scssFileName;
@@ -124,6 +134,61 @@ public class VaadinServlet extends HttpServlet implements Constants {
             return css;
         }
 
+        /**
+         * Gets the files in the file system that the compiled css depends
+         * on. Sources inside JAR files are not included as they cannot
+         * change while the application is running.
+         *
+         * @return the source files, or <code>null</code> if some source could
+         *         not be found
+         */
+        private List<File> getSourceFiles() {
+            List<File> files = new ArrayList<>();
+            for (String uri : sourceUris) {
+                File file = new File(uri);
+                if (file.exists()) {
+                    files.add(file);
+                    continue;
+                }
+                URL resource = getService().getClassLoader().getResource(uri);
+                if (resource == null) {
+                    return null;
+                } else if (resource.getProtocol().equals("file")) {
+                    try {
+                        files.add(new File(resource.toURI()));
+                    } catch (URISyntaxException e) {
+                        return null;
+                    }
+                }
+            }
+            return files;
+        }
+
+        private void watch(ScssSourceWatcher watcher) {
+            if (timestamp == -1) {
+                return;
+            }
+            List<File> files = getSourceFiles();
+            Runnable listener = this::invalidate;
+            if (files != null && watcher.watch(files, listener)) {
+                this.watcher = watcher;
+                watchListener = listener;
+                watched = true;
+                // Catch changes made before the watch was registered
+                if (timestamp != getLastModified()) {
+                    invalidate();
+                }
+            }
+        }
+
+        private void invalidate() {
+            invalidated = true;
+            // Recompiled on the next request, stop watching for this entry
+            if (watcher != null) {
+                watcher.unwatch(watchListener);
+            }
+        }
+
         private long getLastModified() {
             long newest = 0;
             for (String uri : sourceUris) {
@@ -163,7 +228,9 @@ public class VaadinServlet extends HttpServlet implements Constants {
         }
 
         public boolean isStillValid() {
-            if (timestamp == -1) {
+            if (watched) {
+                return !invalidated;
+            } else if (timestamp == -1) {
                 /*
                  * Don't ever bother checking anything if files used during the
                  * compilation were gone before the cache entry was created.
@@ -743,23 +810,35 @@ public class VaadinServlet extends HttpServlet implements Constants {
      * Mutex for preventing to scss compilations to take place simultaneously.
      * This is a workaround needed as the scss compiler currently is not thread
      * safe (#10292).
-     * <p>
-     * In addition, this is also used to protect the cached compilation results.
      */
     private static final Object SCSS_MUTEX = new Object();
 
     /**
-     * Global cache of scss compilation results. This map is protected from
-     * concurrent access by {@link #SCSS_MUTEX}.
+     * Cache of scss compilation results. Concurrent requests for the same
+     * file wait for the same task, while reading persisted results, checking
+     * their validity and writing responses for different files happen in
+     * parallel.
+     */
+    private final ConcurrentMap<String, FutureTask<ScssCacheEntry>> scssCache = new ConcurrentHashMap<>();
+
+    /**
+     * Watches the sources of the compiled scss files for changes. Created on
+     * first use, guarded by {@link #scssCache}.
+     */
+    private ScssSourceWatcher scssSourceWatcher;
+
+    /**
+     * Cache of resolved static resource URLs and of the length, modification
+     * time, ETag and precompressed variant of each served resource.
      */
-    private final Map<String, ScssCacheEntry> scssCache = new HashMap<>();
+    private final StaticResourceCache staticResourceCache = new StaticResourceCache(
+            StaticResourceCache.DEFAULT_MAX_ENTRIES);
 
     /**
      * Keeps track of whether a warning about not being able to persist cache
-     * files has already been printed. The flag is protected from concurrent
-     * access by {@link #SCSS_MUTEX}.
+     * files has already been printed.
      */
-    private static boolean scssCompileWarWarningEmitted = false;
+    private static volatile boolean scssCompileWarWarningEmitted = false;
 
     /**
      * Pattern for matching request paths that start with /VAADIN/, multiple
@@ -823,7 +902,18 @@ public class VaadinServlet extends HttpServlet implements Constants {
             throws IOException, ServletException {
 
         final ServletContext sc = getServletContext();
-        URL resourceUrl = findResourceURL(filename);
+        // The location of a resource can only change during development
+        boolean productionMode = getService().getDeploymentConfiguration()
+                .isProductionMode();
+        URL resourceUrl = productionMode
+                ? staticResourceCache.getResolvedUrl(filename)
+                : null;
+        if (resourceUrl == null) {
+            resourceUrl = findResourceURL(filename);
+            if (resourceUrl != null && productionMode) {
+                staticResourceCache.putResolvedUrl(filename, resourceUrl);
+            }
+        }
 
         if (resourceUrl == null) {
             // File not found, if this was a css request we still look for a
@@ -861,41 +951,30 @@ public class VaadinServlet extends HttpServlet implements Constants {
                 System.currentTimeMillis() + resourceCacheTime * 1000);
 
         // Find the modification timestamp
-        long lastModifiedTime = 0;
-        URLConnection connection = null;
         try {
-            connection = resourceUrl.openConnection();
-            lastModifiedTime = connection.getLastModified();
-            // Remove milliseconds to avoid comparison problems (milliseconds
-            // are not returned by the browser in the "If-Modified-Since"
-            // header).
-            lastModifiedTime -= lastModifiedTime % 1000;
-            response.setDateHeader("Last-Modified", lastModifiedTime);
-
-            if (browserHasNewestVersion(request, lastModifiedTime)) {
-                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
-                return;
+            StaticResourceCache.Resource resource = staticResourceCache
+                    .getResource(resourceUrl);
+            if (resource != null) {
+                long lastModifiedTime = resource.getLastModified();
+                // Remove milliseconds to avoid comparison problems
+                // (milliseconds are not returned by the browser in the
+                // "If-Modified-Since" header).
+                lastModifiedTime -= lastModifiedTime % 1000;
+                response.setDateHeader("Last-Modified", lastModifiedTime);
+
+                // If-None-Match takes precedence and is checked when writing
+                // the response
+                if (request.getHeader("If-None-Match") == null
+                        && browserHasNewestVersion(request, lastModifiedTime)) {
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return;
+                }
             }
         } catch (Exception e) {
             // Failed to find out last modified timestamp. Continue without it.
             getLogger().log(Level.FINEST,
                     "Failed to find out last modified timestamp. Continuing without it.",
                     e);
-        } finally {
-            try {
-                // Explicitly close the input stream to prevent it
-                // from remaining hanging
-                // http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=4257700
-                InputStream is = connection.getInputStream();
-                if (is != null) {
-                    is.close();
-                }
-            } catch (FileNotFoundException e) {
-                // Not logging when the file does not exist.
-            } catch (IOException e) {
-                getLogger().log(Level.INFO,
-                        "Error closing URLConnection input stream", e);
-            }
         }
 
         // Set type mime type if we can determine it based on the filename
@@ -943,6 +1022,11 @@ public class VaadinServlet extends HttpServlet implements Constants {
     /**
      * Writes the contents of the given resourceUrl in the response. Can be
      * overridden to add/modify response headers and similar.
+     * <p>
+     * The response includes an ETag derived from the content of the resource.
+     * Requests with a matching {@code If-None-Match} header are answered with
+     * 304 Not Modified, and a single byte range requested using the
+     * {@code Range} header is answered with 206 Partial Content.
      *
      * @param request
      *            The request for the resource
@@ -955,67 +1039,100 @@ public class VaadinServlet extends HttpServlet implements Constants {
     protected void writeStaticResourceResponse(HttpServletRequest request,
             HttpServletResponse response, URL resourceUrl) throws IOException {
 
-        URLConnection connection = null;
-        InputStream is = null;
+        StaticResourceCache.Resource resource = staticResourceCache
+                .getResource(resourceUrl);
+        if (resource == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
         String urlStr = resourceUrl.toExternalForm();
 
         if (allowServePrecompressedResource(request, urlStr)) {
-            // try to serve a precompressed version if available
-            try {
-                connection = new URL(urlStr + ".gz").openConnection();
-                is = connection.getInputStream();
-                // set gzip headers
-                response.setHeader("Content-Encoding", "gzip");
-            } catch (IOException e) {
-                // NOP: will be still tried with non gzipped version
-            } catch (Exception e) {
-                getLogger().log(Level.FINE,
-                        "Unexpected exception looking for gzipped version of resource "
-                                + urlStr,
-                        e);
+            // try to serve the most preferred precompressed version available
+            response.setHeader("Vary", "Accept-Encoding");
+            for (StaticResourceCache.PrecompressedEncoding encoding : StaticResourceCache
+                    .negotiate(request.getHeader("Accept-Encoding"))) {
+                try {
+                    StaticResourceCache.Resource precompressed = staticResourceCache
+                            .getPrecompressed(resource, encoding);
+                    if (precompressed != null) {
+                        resource = precompressed;
+                        response.setHeader("Content-Encoding",
+                                encoding.getHeaderValue());
+                        break;
+                    }
+                } catch (Exception e) {
+                    getLogger().log(Level.FINE,
+                            "Unexpected exception looking for "
+                                    + encoding.getHeaderValue()
+                                    + " version of resource " + urlStr,
+                            e);
+                }
             }
         }
-        if (is == null) {
-            // precompressed resource not available, get non compressed
-            connection = resourceUrl.openConnection();
-            try {
-                is = connection.getInputStream();
-            } catch (FileNotFoundException e) {
-                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+
+        String eTag = resource.getETag();
+        response.setHeader("ETag", eTag);
+        response.setHeader("Accept-Ranges", "bytes");
+        if (StaticResourceCache.matchesETag(request.getHeader("If-None-Match"),
+                eTag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long length = resource.getLength();
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader("Range");
+        String ifRange = request.getHeader("If-Range");
+        if (range != null && (ifRange == null
+                || StaticResourceCache.matchesETag(ifRange, eTag))) {
+            long[] bytes = StaticResourceCache.parseRange(range, length);
+            if (bytes == StaticResourceCache.UNSATISFIABLE_RANGE) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.setStatus(
+                        HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
                 return;
+            } else if (bytes != null) {
+                start = bytes[0];
+                end = bytes[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range",
+                        "bytes " + start + "-" + end + "/" + length);
             }
         }
 
-        try {
-            int length = connection.getContentLength();
-            if (length >= 0) {
-                response.setContentLength(length);
-            }
-        } catch (Throwable e) {
-            // This can be ignored, content length header is not required.
-            // Need to close the input stream because of
-            // http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=4257700 to
-            // prevent it from hanging, but that is done below.
+        long count = end - start + 1;
+        if (count <= Integer.MAX_VALUE) {
+            response.setContentLength((int) count);
+        } else {
+            response.setHeader("Content-Length", String.valueOf(count));
+        }
+        if (count == 0) {
+            return;
         }
 
-        try {
-            streamContent(response, is);
-        } finally {
-            is.close();
+        try (InputStream is = resource.openStream(start)) {
+            streamContent(response, is, count);
         }
     }
 
     /**
      * Returns whether this servlet should attempt to serve a precompressed
      * version of the given static resource. If this method returns true, the
-     * suffix {@code .gz} is appended to the URL and the corresponding resource
-     * is served if it exists. It is assumed that the compression method used is
-     * gzip. If this method returns false or a compressed version is not found,
-     * the original URL is used.
+     * encodings accepted by the client are tried in order of preference
+     * according to the {@code Accept-Encoding} header: the suffix {@code .br}
+     * (Brotli) or {@code .gz} (gzip) is appended to the URL and the
+     * corresponding resource is served if it exists. If this method returns
+     * false or no accepted compressed version is found, the original URL is
+     * used.
      *
      * The base implementation of this method returns true if and only if the
-     * request indicates that the client accepts gzip compressed responses and
-     * the filename extension of the requested resource is .js, .css, or .html.
+     * request indicates that the client accepts Brotli or gzip compressed
+     * responses and the filename extension of the requested resource is one
+     * of those configured using
+     * {@value Constants#SERVLET_PARAMETER_PRECOMPRESSED_RESOURCE_EXTENSIONS},
+     * by default .js, .css, .html, .svg, .json and .map.
      *
      * @since 7.5.0
      *
@@ -1028,18 +1145,33 @@ public class VaadinServlet extends HttpServlet implements Constants {
      */
     protected boolean allowServePrecompressedResource(
             HttpServletRequest request, String url) {
-        String accept = request.getHeader("Accept-Encoding");
-        return accept != null && accept.contains("gzip") && (url.endsWith(".js")
-                || url.endsWith(".css") || url.endsWith(".html"));
+        if (StaticResourceCache.negotiate(request.getHeader("Accept-Encoding"))
+                .isEmpty()) {
+            return false;
+        }
+        String extensions = getService().getDeploymentConfiguration()
+                .getApplicationOrSystemProperty(
+                        SERVLET_PARAMETER_PRECOMPRESSED_RESOURCE_EXTENSIONS,
+                        DEFAULT_PRECOMPRESSED_RESOURCE_EXTENSIONS);
+        for (String extension : extensions.split(",")) {
+            extension = extension.trim();
+            if (!extension.isEmpty() && url.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private void streamContent(HttpServletResponse response, InputStream is)
-            throws IOException {
+    private void streamContent(HttpServletResponse response, InputStream is,
+            long count) throws IOException {
         final OutputStream os = response.getOutputStream();
         final byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+        long remaining = count;
         int bytes;
-        while ((bytes = is.read(buffer)) >= 0) {
+        while (remaining > 0 && (bytes = is.read(buffer, 0,
+                (int) Math.min(buffer.length, remaining))) >= 0) {
             os.write(buffer, 0, bytes);
+            remaining -= bytes;
         }
     }
 
@@ -1104,37 +1236,95 @@ public class VaadinServlet extends HttpServlet implements Constants {
             return true;
         }
 
-        synchronized (SCSS_MUTEX) {
-            ScssCacheEntry cacheEntry = scssCache.get(scssFilename);
+        ScssCacheEntry cacheEntry = getCompiledScss(filename, scssFilename,
+                sc);
+        if (cacheEntry == null) {
+            // compilation did not produce any result, but logged a message
+            return false;
+        }
 
-            if (cacheEntry == null) {
-                try {
-                    cacheEntry = loadPersistedScssCache(scssFilename, sc);
-                } catch (Exception e) {
-                    getLogger().log(Level.WARNING,
-                            "Could not read persisted scss cache", e);
+        // This is for development mode only so instruct the browser to
+        // never cache it
+        response.setHeader("Cache-Control", "no-cache");
+        final String mimetype = getService().getMimeType(filename);
+        writeResponse(response, mimetype, cacheEntry.getCss());
+
+        return true;
+    }
+
+    private ScssCacheEntry getCompiledScss(String filename,
+            String scssFilename, ServletContext sc) throws IOException {
+        while (true) {
+            FutureTask<ScssCacheEntry> task = scssCache.get(scssFilename);
+            boolean created = false;
+            if (task == null) {
+                FutureTask<ScssCacheEntry> newTask = new FutureTask<>(
+                        () -> loadOrCompileScss(filename, scssFilename, sc));
+                task = scssCache.putIfAbsent(scssFilename, newTask);
+                if (task == null) {
+                    task = newTask;
+                    created = true;
+                    task.run();
                 }
             }
 
-            if (cacheEntry == null || !cacheEntry.isStillValid()) {
-                cacheEntry = compileScssOnTheFly(filename, scssFilename, sc);
-                persistCacheEntry(cacheEntry);
+            ScssCacheEntry cacheEntry;
+            try {
+                cacheEntry = task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(
+                        "Interrupted while waiting for scss compilation");
+            } catch (ExecutionException e) {
+                scssCache.remove(scssFilename, task);
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Scss compilation failed", e.getCause());
             }
-            scssCache.put(scssFilename, cacheEntry);
 
-            if (cacheEntry == null) {
-                // compilation did not produce any result, but logged a message
-                return false;
+            if (cacheEntry != null && cacheEntry.isStillValid()) {
+                return cacheEntry;
             }
+            // Failed or outdated, compile again on the next request
+            scssCache.remove(scssFilename, task);
+            if (created || cacheEntry == null) {
+                return cacheEntry;
+            }
+        }
+    }
+
+    private ScssCacheEntry loadOrCompileScss(String filename,
+            String scssFilename, ServletContext sc) throws IOException {
+        ScssCacheEntry cacheEntry = null;
+        try {
+            cacheEntry = loadPersistedScssCache(scssFilename, sc);
+        } catch (Exception e) {
+            getLogger().log(Level.WARNING, "Could not read persisted scss cache",
+                    e);
+        }
 
-            // This is for development mode only so instruct the browser to
-            // never cache it
-            response.setHeader("Cache-Control", "no-cache");
-            final String mimetype = getService().getMimeType(filename);
-            writeResponse(response, mimetype, cacheEntry.getCss());
+        if (cacheEntry == null || !cacheEntry.isStillValid()) {
+            synchronized (SCSS_MUTEX) {
+                cacheEntry = compileScssOnTheFly(filename, scssFilename, sc);
+            }
+            if (cacheEntry == null) {
+                return null;
+            }
+            persistCacheEntry(cacheEntry);
+        }
 
-            return true;
+        ScssSourceWatcher watcher;
+        synchronized (scssCache) {
+            if (scssSourceWatcher == null) {
+                scssSourceWatcher = ScssSourceWatcher.create();
+            }
+            watcher = scssSourceWatcher;
         }
+        if (watcher != null) {
+            cacheEntry.watch(watcher);
+        }
+        return cacheEntry;
     }
 
     private ScssCacheEntry loadPersistedScssCache(String scssFilename,
@@ -1477,6 +1667,12 @@ public class VaadinServlet extends HttpServlet implements Constants {
         if (getService() != null) {
             getService().destroy();
         }
+        synchronized (scssCache) {
+            if (scssSourceWatcher != null) {
+                scssSourceWatcher.close();
+                scssSourceWatcher = null;
+            }
+        }
     }
 
     private static void persistCacheEntry(ScssCacheEntry cacheEntry) {
@@ -81,6 +81,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
     public static class FutureAccess extends FutureTask<Void> {
         private final VaadinSession session;
         private final Runnable runnable;
+        private final long creationTime = System.nanoTime();
 
         /**
          * Creates an instance for the given runnable.
@@ -114,6 +115,16 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
             return super.get();
         }
 
+        /**
+         * Gets the time this task has been waiting in the pending access
+         * queue since it was created.
+         *
+         * @return the wait time in nanoseconds
+         */
+        long getWaitTime() {
+            return System.nanoTime() - creationTime;
+        }
+
         /**
          * Handles exceptions thrown during the execution of this task.
          *
@@ -250,6 +261,13 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     private transient ConcurrentLinkedQueue<FutureAccess> pendingAccessQueue = new ConcurrentLinkedQueue<>();
 
+    /*
+     * Access task metrics, only updated while holding the session lock.
+     */
+    private transient volatile long accessTaskCount;
+    private transient volatile long totalAccessWaitTime;
+    private transient volatile long maxAccessWaitTime;
+
     /**
      * Creates a new VaadinSession tied to a VaadinService.
      *
@@ -497,8 +515,12 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
     private void refreshLock() {
         assert lock == null || lock == service.getSessionLock(
                 session) : "Cannot change the lock from one instance to another";
-        assert hasLock(service, session);
+        assert hasReadAccess(service, session);
         lock = service.getSessionLock(session);
+        if (lock instanceof SessionLock) {
+            ((SessionLock) lock).attachStatistics(
+                    service.getSessionLockMonitor(), this);
+        }
     }
 
     public void setCommunicationManager(
@@ -791,7 +813,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @return The UI with the given id or null if not found
      */
     public UI getUIById(int uiId) {
-        assert hasLock();
+        assert hasReadAccess();
         return uIs.get(uiId);
     }
 
@@ -819,6 +841,21 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         return l.isHeldByCurrentThread();
     }
 
+    /**
+     * Checks if the current thread holds the lock of the given WrappedSession
+     * either exclusively or for reading.
+     *
+     * @return true if this thread has read access, false otherwise
+     * @since 8.13
+     */
+    protected static boolean hasReadAccess(VaadinService service,
+            WrappedSession session) {
+        Lock l = service.getSessionLock(session);
+        return ((ReentrantLock) l).isHeldByCurrentThread()
+                || l instanceof SessionLock
+                        && ((SessionLock) l).isSharedHeldByCurrentThread();
+    }
+
     /**
      * Adds a listener that will be invoked when the bootstrap HTML is about to
      * be generated. This can be used to modify the contents of the HTML that
@@ -1059,6 +1096,92 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         }
     }
 
+    /**
+     * Locks this session for reading. Several threads can hold the lock for
+     * reading at the same time, but not while another thread holds the lock
+     * acquired with {@link #lock()}. This is meant for handling requests that
+     * only read the state of the session, e.g. to find a resource to serve,
+     * so that they do not need to wait for each other.
+     * <p>
+     * The session is locked for reading only if
+     * {@link VaadinService#isSharedSessionLockEnabled() shared locking} is
+     * enabled for the service and the lock of the session is a
+     * {@link SessionLock}. Otherwise, this method is the same as
+     * {@link #lock()}. The session must be unlocked using
+     * {@link #unlockShared()}.
+     * <p>
+     * While holding only the shared lock, the state of the session and its
+     * UIs must not be modified, and {@link #lock()} cannot be called.
+     *
+     * @since 8.13
+     * @see #unlockShared()
+     * @see #hasReadAccess()
+     */
+    public void lockShared() {
+        SessionLock sessionLock = getSharedLock();
+        if (sessionLock == null) {
+            lock();
+        } else {
+            sessionLock.lockShared();
+        }
+    }
+
+    /**
+     * Unlocks this session after it has been locked using
+     * {@link #lockShared()}.
+     *
+     * @since 8.13
+     * @see #lockShared()
+     */
+    public void unlockShared() {
+        /*
+         * Decided by how the lock is held instead of the service setting,
+         * which may have changed after the lock was acquired.
+         */
+        Lock l = getLockInstance();
+        if (!(l instanceof SessionLock)
+                || !((SessionLock) l).isSharedHeldByCurrentThread()) {
+            unlock();
+            return;
+        }
+        SessionLock sessionLock = (SessionLock) l;
+        sessionLock.unlockShared();
+        /*
+         * Access tasks cannot be run while the shared lock is held, so make
+         * sure they are run if they were enqueued in the meantime.
+         */
+        if (!sessionLock.isHeldByCurrentThread()
+                && !sessionLock.isSharedHeldByCurrentThread()
+                && !getPendingAccessQueue().isEmpty()) {
+            getService().ensureAccessQueuePurged(this);
+        }
+    }
+
+    /**
+     * Checks if the current thread can read the state of this VaadinSession,
+     * i.e. if it holds the lock either exclusively or for reading.
+     *
+     * @return true if the thread has read access, false otherwise
+     * @since 8.13
+     * @see #lockShared()
+     */
+    public boolean hasReadAccess() {
+        Lock l = getLockInstance();
+        return ((ReentrantLock) l).isHeldByCurrentThread()
+                || l instanceof SessionLock
+                        && ((SessionLock) l).isSharedHeldByCurrentThread();
+    }
+
+    private SessionLock getSharedLock() {
+        Lock l = getLockInstance();
+        VaadinService vaadinService = getService();
+        if (l instanceof SessionLock && vaadinService != null
+                && vaadinService.isSharedSessionLockEnabled()) {
+            return (SessionLock) l;
+        }
+        return null;
+    }
+
     /**
      * Stores a value in this service session. This can be used to associate
      * data with the current user so that it can be retrieved at a later point
@@ -1434,6 +1557,85 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         return pendingAccessQueue;
     }
 
+    /**
+     * Gets the number of tasks currently waiting in the
+     * {@link #getPendingAccessQueue() pending access queue}.
+     *
+     * @since 8.13
+     * @return the number of pending access tasks
+     */
+    public int getPendingAccessTaskCount() {
+        return pendingAccessQueue.size();
+    }
+
+    /**
+     * Gets the number of tasks submitted using {@link #access(Runnable)} that
+     * have been run since this session was created or deserialized.
+     *
+     * @since 8.13
+     * @return the number of run access tasks
+     */
+    public long getAccessTaskCount() {
+        return accessTaskCount;
+    }
+
+    /**
+     * Gets the total time that the tasks counted by
+     * {@link #getAccessTaskCount()} waited in the pending access queue before
+     * they were run.
+     *
+     * @since 8.13
+     * @return the total wait time in nanoseconds
+     */
+    public long getTotalAccessWaitTime() {
+        return totalAccessWaitTime;
+    }
+
+    /**
+     * Gets the longest time that a task counted by
+     * {@link #getAccessTaskCount()} waited in the pending access queue before
+     * it was run.
+     *
+     * @since 8.13
+     * @return the maximum wait time in nanoseconds
+     */
+    public long getMaxAccessWaitTime() {
+        return maxAccessWaitTime;
+    }
+
+    /**
+     * Gets the statistics of the wait and hold times of the lock of this
+     * session. The times are only recorded while the
+     * {@link VaadinService#getSessionLockMonitor() session lock monitor} is
+     * enabled.
+     *
+     * @since 8.13
+     * @return the lock statistics, or <code>null</code> if the session does
+     *         not use a {@link SessionLock}
+     */
+    public SessionLockStatistics getLockStatistics() {
+        Lock l = getLockInstance();
+        if (l instanceof SessionLock) {
+            return ((SessionLock) l).getStatistics();
+        }
+        return null;
+    }
+
+    /**
+     * Records that an access task is run after waiting the given time in the
+     * pending access queue. Must be called while holding the session lock.
+     *
+     * @param waitTime
+     *            the wait time in nanoseconds
+     */
+    void recordAccessTask(long waitTime) {
+        accessTaskCount++;
+        totalAccessWaitTime += waitTime;
+        if (waitTime > maxAccessWaitTime) {
+            maxAccessWaitTime = waitTime;
+        }
+    }
+
     /**
      * Gets the CSRF token (aka double submit cookie) that is used to protect
      * against Cross Site Request Forgery attacks.
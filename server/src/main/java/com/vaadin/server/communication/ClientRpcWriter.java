@@ -27,6 +27,7 @@ import java.util.List;
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.ClientMethodInvocation;
 import com.vaadin.server.EncodeResult;
+import com.vaadin.server.EncodedJson;
 import com.vaadin.server.JsonCodec;
 import com.vaadin.server.PaintException;
 import com.vaadin.shared.communication.ClientRpc;
@@ -62,10 +63,21 @@ public class ClientRpcWriter implements Serializable {
         Collection<ClientMethodInvocation> pendingInvocations = collectPendingRpcCalls(
                 ui.getConnectorTracker().getDirtyVisibleConnectors());
 
-        JsonArray rpcCalls = Json.createArray();
+        // Write the invocations one at a time instead of stringifying one array
+        // containing all invocations to avoid a huge intermediate string
+        writer.write('[');
+        boolean first = true;
         for (ClientMethodInvocation invocation : pendingInvocations) {
             // add invocation to rpcCalls
             try {
+                if (hasEncodedParameters(invocation)) {
+                    if (!first) {
+                        writer.write(',');
+                    }
+                    writeEncodedInvocation(invocation, ui, writer);
+                    first = false;
+                    continue;
+                }
                 JsonArray invocationJson = Json.createArray();
                 invocationJson.set(0,
                         invocation.getConnector().getConnectorId());
@@ -92,7 +104,11 @@ public class ClientRpcWriter implements Serializable {
                     paramJson.set(i, encodeResult.getEncodedValue());
                 }
                 invocationJson.set(3, paramJson);
-                rpcCalls.set(rpcCalls.length(), invocationJson);
+                if (!first) {
+                    writer.write(',');
+                }
+                writer.write(JsonUtil.stringify(invocationJson));
+                first = false;
             } catch (JsonException e) {
                 throw new PaintException(
                         "Failed to serialize RPC method call parameters for connector "
@@ -103,7 +119,51 @@ public class ClientRpcWriter implements Serializable {
                         e);
             }
         }
-        writer.write(JsonUtil.stringify(rpcCalls));
+        writer.write(']');
+    }
+
+    private static boolean hasEncodedParameters(
+            ClientMethodInvocation invocation) {
+        for (Object parameter : invocation.getParameters()) {
+            if (parameter instanceof EncodedJson) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes an invocation with parameters that have already been encoded as
+     * JSON strings, without parsing them into JSON values.
+     */
+    private void writeEncodedInvocation(ClientMethodInvocation invocation,
+            UI ui, Writer writer) throws IOException {
+        writer.write('[');
+        writer.write(
+                JsonUtil.quote(invocation.getConnector().getConnectorId()));
+        writer.write(',');
+        writer.write(JsonUtil.quote(invocation.getInterfaceName()));
+        writer.write(',');
+        writer.write(JsonUtil.quote(invocation.getMethodName()));
+        writer.write(",[");
+        Object[] parameters = invocation.getParameters();
+        for (int i = 0; i < parameters.length; ++i) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (parameters[i] instanceof EncodedJson) {
+                writer.write(((EncodedJson) parameters[i]).getJson());
+            } else {
+                // Stringified as a single item array to support any value
+                JsonArray wrapper = Json.createArray();
+                wrapper.set(0, JsonCodec.encode(parameters[i], null,
+                        invocation.getParameterTypes()[i],
+                        ui.getConnectorTracker()).getEncodedValue());
+                String json = JsonUtil.stringify(wrapper);
+                writer.write(json, 1, json.length() - 2);
+            }
+        }
+        writer.write("]]");
     }
 
     /**
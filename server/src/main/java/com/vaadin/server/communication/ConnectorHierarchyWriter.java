@@ -19,7 +19,9 @@ package com.vaadin.server.communication;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 import com.vaadin.server.AbstractClientConnector;
@@ -28,6 +30,7 @@ import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.PaintException;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
+import com.vaadin.ui.ConnectorTracker;
 import com.vaadin.ui.UI;
 
 import elemental.json.Json;
@@ -46,7 +49,9 @@ public class ConnectorHierarchyWriter implements Serializable {
 
     /**
      * Writes a JSON object containing the connector hierarchy (parent-child
-     * mappings) of the dirty connectors in the given UI.
+     * mappings) of the dirty connectors in the given UI. Connectors whose
+     * children have not changed since the hierarchy was last sent to the
+     * client are omitted.
      *
      * @param ui
      *            The {@link UI} whose hierarchy to write.
@@ -60,27 +65,61 @@ public class ConnectorHierarchyWriter implements Serializable {
     public void write(UI ui, Writer writer, Set<String> stateUpdateConnectors)
             throws IOException {
 
-        Collection<ClientConnector> dirtyVisibleConnectors = ui
-                .getConnectorTracker().getDirtyVisibleConnectors();
+        ConnectorTracker connectorTracker = ui.getConnectorTracker();
+        Collection<ClientConnector> dirtyVisibleConnectors = connectorTracker
+                .getDirtyVisibleConnectors();
 
-        JsonObject hierarchyInfo = Json.createObject();
+        // The hierarchy is only collected for the assertion at the end
+        boolean assertionsEnabled = false;
+        assert assertionsEnabled = true;
+        JsonObject hierarchyInfo = assertionsEnabled ? Json.createObject()
+                : null;
+        // Write the hierarchy one connector at a time instead of stringifying
+        // the whole object to avoid a huge intermediate string
+        writer.write('{');
+        boolean first = true;
         for (ClientConnector connector : dirtyVisibleConnectors) {
             String connectorId = connector.getConnectorId();
-            JsonArray children = Json.createArray();
+            List<String> childIds = new ArrayList<>();
 
             for (ClientConnector child : AbstractClientConnector
                     .getAllChildrenIterable(connector)) {
                 if (LegacyCommunicationManager
                         .isConnectorVisibleToClient(child)) {
-                    children.set(children.length(), child.getConnectorId());
+                    childIds.add(child.getConnectorId());
                 }
             }
 
-            // Omit for leaf nodes with state changes
-            if (children.length() > 0
-                    || !stateUpdateConnectors.contains(connectorId)) {
+            boolean hasStateUpdate = stateUpdateConnectors
+                    .contains(connectorId);
+            boolean writeHierarchy;
+            if (hasStateUpdate) {
+                // Omit for leaf nodes with state changes. The client assumes
+                // an empty hierarchy for connectors with state changes, so
+                // any children must always be sent.
+                writeHierarchy = !childIds.isEmpty();
+            } else {
+                // Omit if the client already has the same children
+                writeHierarchy = connectorTracker.isHierarchyChanged(connector,
+                        childIds);
+            }
+
+            if (writeHierarchy) {
+                JsonArray children = Json.createArray();
+                for (String childId : childIds) {
+                    children.set(children.length(), childId);
+                }
                 try {
-                    hierarchyInfo.put(connectorId, children);
+                    if (hierarchyInfo != null) {
+                        hierarchyInfo.put(connectorId, children);
+                    }
+                    if (!first) {
+                        writer.write(',');
+                    }
+                    writer.write(JsonUtil.quote(connectorId));
+                    writer.write(':');
+                    writer.write(JsonUtil.stringify(children));
+                    first = false;
                 } catch (JsonException e) {
                     throw new PaintException(
                             "Failed to send hierarchy information about "
@@ -89,12 +128,14 @@ public class ConnectorHierarchyWriter implements Serializable {
                             e);
                 }
             }
+            if (writeHierarchy || hasStateUpdate) {
+                connectorTracker.setSentHierarchy(connector, childIds);
+            }
         }
+        writer.write('}');
         // Dummy assert just for conditionally storing away data that will be
         // used by the real assert later on
         assert storeSentHierarchy(hierarchyInfo, stateUpdateConnectors);
-
-        writer.write(JsonUtil.stringify(hierarchyInfo));
     }
 
     private boolean storeSentHierarchy(JsonObject hierarchyInfo,
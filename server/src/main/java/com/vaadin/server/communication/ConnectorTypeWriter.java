@@ -24,6 +24,7 @@ import java.util.Collection;
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.PaintException;
 import com.vaadin.server.PaintTarget;
+import com.vaadin.ui.ConnectorTracker;
 import com.vaadin.ui.UI;
 
 import elemental.json.Json;
@@ -41,7 +42,8 @@ public class ConnectorTypeWriter implements Serializable {
 
     /**
      * Writes a JSON object containing connector-ID-to-type-ID mappings for each
-     * dirty Connector in the given UI.
+     * dirty Connector in the given UI that has not yet been initialized on the
+     * client side.
      *
      * @param ui
      *            The {@link UI} containing dirty connectors
@@ -55,11 +57,17 @@ public class ConnectorTypeWriter implements Serializable {
     public void write(UI ui, Writer writer, PaintTarget target)
             throws IOException {
 
-        Collection<ClientConnector> dirtyVisibleConnectors = ui
-                .getConnectorTracker().getDirtyVisibleConnectors();
+        ConnectorTracker connectorTracker = ui.getConnectorTracker();
+        Collection<ClientConnector> dirtyVisibleConnectors = connectorTracker
+                .getDirtyVisibleConnectors();
 
         JsonObject connectorTypes = Json.createObject();
         for (ClientConnector connector : dirtyVisibleConnectors) {
+            if (connectorTracker.isClientSideInitialized(connector)) {
+                // The client already has a connector with this id, so the
+                // type would be ignored
+                continue;
+            }
             String connectorType = target.getTag(connector);
             try {
                 connectorTypes.put(connector.getConnectorId(), connectorType);
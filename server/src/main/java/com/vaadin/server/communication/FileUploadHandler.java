@@ -25,6 +25,7 @@ import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.util.Arrays;
 
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.NoInputStreamException;
@@ -57,151 +58,161 @@ public class FileUploadHandler implements RequestHandler {
     /**
      * Stream that extracts content from another stream until the boundary
      * string is encountered.
+     * <p>
+     * The underlying stream is read in blocks into an internal buffer that is
+     * scanned for the boundary using the Boyer-Moore-Horspool algorithm, so
+     * that bulk reads do not need to inspect every byte separately.
      *
      * Public only for unit tests, should be considered private for all other
      * purposes.
      */
     public static class SimpleMultiPartInputStream extends InputStream {
 
-        /**
-         * Counter of how many characters have been matched to boundary string
-         * from the stream
-         */
-        int matchedCount = -1;
+        private final byte[] boundary;
 
         /**
-         * Used as pointer when returning bytes after partly matched boundary
-         * string.
+         * How far the search window can be moved based on the last byte in the
+         * window.
          */
-        int curBoundaryIndex = 0;
+        private final int[] shifts = new int[256];
+
+        private final InputStream realInputStream;
+
+        private final byte[] buffer;
+        private int position = 0;
+        private int limit = 0;
+
         /**
-         * The byte found after a "promising start for boundary"
+         * Index of the first byte in the buffer that may be the start of the
+         * boundary. Bytes before it can be returned.
          */
-        private int bufferedByte = -1;
-        private boolean atTheEnd = false;
-
-        private final char[] boundary;
+        private int scanned = 0;
 
-        private final InputStream realInputStream;
+        private boolean atTheEnd = false;
+        private boolean realStreamEnded = false;
 
         public SimpleMultiPartInputStream(InputStream realInputStream,
                 String boundaryString) {
-            boundary = (CRLF + DASHDASH + boundaryString).toCharArray();
+            this(realInputStream, boundaryString, DEFAULT_UPLOAD_BUFFER_SIZE);
+        }
+
+        /**
+         * Creates a new stream using the given size for the internal buffer.
+         *
+         * @param realInputStream
+         *            the stream to read from
+         * @param boundaryString
+         *            the boundary string that ends the content
+         * @param bufferSize
+         *            the size of the buffer for reading from the underlying
+         *            stream
+         * @since 8.13
+         */
+        public SimpleMultiPartInputStream(InputStream realInputStream,
+                String boundaryString, int bufferSize) {
+            boundary = (CRLF + DASHDASH + boundaryString)
+                    .getBytes(StandardCharsets.ISO_8859_1);
             this.realInputStream = realInputStream;
+            buffer = new byte[Math.max(bufferSize, 2 * boundary.length)];
+
+            Arrays.fill(shifts, boundary.length);
+            for (int i = 0; i < boundary.length - 1; i++) {
+                shifts[boundary[i] & 0xff] = boundary.length - 1 - i;
+            }
         }
 
         @Override
         public int read() throws IOException {
-            if (atTheEnd) {
-                // End boundary reached, nothing more to read
-                return -1;
-            } else if (bufferedByte >= 0) {
-                /* Purge partially matched boundary if there was such */
-                return getBuffered();
-            } else if (matchedCount != -1) {
-                /*
-                 * Special case where last "failed" matching ended with first
-                 * character from boundary string
-                 */
-                return matchForBoundary();
-            } else {
-                int fromActualStream = realInputStream.read();
-                if (fromActualStream == -1) {
-                    // unexpected end of stream
-                    throw new IOException(
-                            "The multipart stream ended unexpectedly");
+            if (scanned > position) {
+                return buffer[position++] & 0xff;
+            }
+            byte[] b = new byte[1];
+            int read = read(b, 0, 1);
+            return read == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (!atTheEnd) {
+                if (scanned > position) {
+                    int count = Math.min(len, scanned - position);
+                    System.arraycopy(buffer, position, b, off, count);
+                    position += count;
+                    return count;
                 }
-                if (boundary[0] == fromActualStream) {
-                    /*
-                     * If matches the first character in boundary string, start
-                     * checking if the boundary is fetched.
-                     */
-                    return matchForBoundary();
+                if (limit - position >= boundary.length
+                        && matchesBoundary(position)) {
+                    // End boundary reached, nothing more to read
+                    atTheEnd = true;
+                } else if (realStreamEnded) {
+                    if (position == limit) {
+                        // unexpected end of stream
+                        throw new IOException(
+                                "The multipart stream ended unexpectedly");
+                    }
+                    // No boundary can fit, return what is left
+                    scanned = limit;
+                } else {
+                    fill();
+                    scan();
                 }
-                return fromActualStream;
             }
+            return -1;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return atTheEnd ? 0 : scanned - position;
         }
 
         /**
-         * Reads the input to expect a boundary string. Expects that the first
-         * character has already been matched.
-         *
-         * @return -1 if the boundary was matched, else returns the first byte
-         *         from boundary
-         * @throws IOException
+         * Reads more data from the underlying stream, keeping the bytes that
+         * have not been returned yet.
          */
-        private int matchForBoundary() throws IOException {
-            matchedCount = 0;
-            /*
-             * Going to "buffered mode". Read until full boundary match or a
-             * different character.
-             */
-            while (true) {
-                matchedCount++;
-                if (matchedCount == boundary.length) {
-                    /*
-                     * The whole boundary matched so we have reached the end of
-                     * file
-                     */
-                    atTheEnd = true;
-                    return -1;
-                }
-                int fromActualStream = realInputStream.read();
-                if (fromActualStream != boundary[matchedCount]) {
-                    /*
-                     * Did not find full boundary, cache the mismatching byte
-                     * and start returning the partially matched boundary.
-                     */
-                    bufferedByte = fromActualStream;
-                    return getBuffered();
-                }
+        private void fill() throws IOException {
+            if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0,
+                        limit - position);
+                limit -= position;
+                scanned -= position;
+                position = 0;
+            }
+            int read = realInputStream.read(buffer, limit,
+                    buffer.length - limit);
+            if (read == -1) {
+                realStreamEnded = true;
+            } else {
+                limit += read;
             }
         }
 
         /**
-         * Returns the partly matched boundary string and the byte following
-         * that.
-         *
-         * @return
-         * @throws IOException
+         * Moves {@link #scanned} forward over the bytes that cannot be the
+         * start of the boundary, stopping at a full match or at a position
+         * too close to the end of the buffer to tell.
          */
-        private int getBuffered() throws IOException {
-            int b;
-            if (matchedCount == 0) {
-                // The boundary has been returned, return the buffered byte.
-                b = bufferedByte;
-                bufferedByte = -1;
-                matchedCount = -1;
-            } else {
-                b = boundary[curBoundaryIndex++];
-                if (curBoundaryIndex == matchedCount) {
-                    // The full boundary has been returned, remaining is the
-                    // char that did not match the boundary.
-
-                    curBoundaryIndex = 0;
-                    if (bufferedByte != boundary[0]) {
-                        /*
-                         * next call for getBuffered will return the
-                         * bufferedByte that came after the partial boundary
-                         * match
-                         */
-                        matchedCount = 0;
-                    } else {
-                        /*
-                         * Special case where buffered byte again matches the
-                         * boundaryString. This could be the start of the real
-                         * end boundary.
-                         */
-                        matchedCount = 0;
-                        bufferedByte = -1;
-                    }
+        private void scan() {
+            int last = boundary.length - 1;
+            int start = scanned;
+            while (start + last < limit) {
+                if (matchesBoundary(start)) {
+                    break;
                 }
+                start += shifts[buffer[start + last] & 0xff];
             }
-            if (b == -1) {
-                throw new IOException(
-                        "The multipart stream ended unexpectedly");
+            scanned = Math.min(start, limit);
+        }
+
+        private boolean matchesBoundary(int start) {
+            for (int i = boundary.length - 1; i >= 0; i--) {
+                if (buffer[start + i] != boundary[i]) {
+                    return false;
+                }
             }
-            return b;
+            return true;
         }
     }
 
@@ -232,10 +243,13 @@ public class FileUploadHandler implements RequestHandler {
 
     private static final String DASHDASH = "--";
 
-    /*
-     * Same as in apache commons file upload library that was previously used.
+    /**
+     * The default size of the buffers used for reading the uploaded content
+     * and writing it to the receiver.
+     *
+     * @since 8.13
      */
-    private static final int MAX_UPLOAD_BUFFER_SIZE = 4 * 1024;
+    public static final int DEFAULT_UPLOAD_BUFFER_SIZE = 64 * 1024;
 
     /* Minimum interval which will be used for streaming progress events. */
     public static final int DEFAULT_STREAMING_PROGRESS_EVENT_INTERVAL_MS = 500;
@@ -397,20 +411,14 @@ public class FileUploadHandler implements RequestHandler {
                 + 2 * DASHDASH.length() + CRLF.length());
 
         /*
-         * Reads bytes from the underlying stream. Compares the read bytes to
-         * the boundary string and returns -1 if met.
-         *
-         * The matching happens so that if the read byte equals to the first
-         * char of boundary string, the stream goes to "buffering mode". In
-         * buffering mode bytes are read until the character does not match the
-         * corresponding from boundary string or the full boundary string is
-         * found.
+         * Reads bytes from the underlying stream. Scans the read bytes for the
+         * boundary string and returns -1 when it is met.
          *
          * Note, if this is someday needed elsewhere, don't shoot yourself to
          * foot and split to a top level helper class.
          */
         InputStream simpleMultiPartReader = new SimpleMultiPartInputStream(
-                inputStream, boundary);
+                inputStream, boundary, getUploadBufferSize());
 
         /*
          * Should report only the filename even if the browser sends the path
@@ -573,7 +581,7 @@ public class FileUploadHandler implements RequestHandler {
                 throw new NoInputStreamException();
             }
 
-            final byte[] buffer = new byte[MAX_UPLOAD_BUFFER_SIZE];
+            final byte[] buffer = new byte[getUploadBufferSize()];
             long lastStreamingEvent = 0;
             int bytesReadToBuffer = 0;
             do {
@@ -658,6 +666,21 @@ public class FileUploadHandler implements RequestHandler {
         return DEFAULT_STREAMING_PROGRESS_EVENT_INTERVAL_MS;
     }
 
+    /**
+     * The size in bytes of the buffers used for reading uploaded content and
+     * copying it to the receiver. Larger buffers reduce the per read overhead
+     * for large uploads at the cost of memory for each ongoing upload. To
+     * adjust this value override the method, and register your own handler in
+     * VaadinService.createRequestHandlers(). The default is
+     * {@value #DEFAULT_UPLOAD_BUFFER_SIZE}.
+     *
+     * @return the buffer size in bytes
+     * @since 8.13
+     */
+    protected int getUploadBufferSize() {
+        return DEFAULT_UPLOAD_BUFFER_SIZE;
+    }
+
     static void tryToCloseStream(OutputStream out) {
         try {
             // try to close output stream (e.g. file handle)
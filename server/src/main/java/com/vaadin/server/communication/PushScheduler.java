@@ -0,0 +1,77 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.vaadin.ui.PushConfiguration;
+
+/**
+ * Shared timer for the delayed pushes of UIs that limit their push frequency
+ * using {@link PushConfiguration#setMaxPushFrequency(int)}. A single daemon
+ * thread is used for all UIs, so the scheduled tasks should only hand over
+ * the actual work to the session of the UI, e.g. using
+ * {@link com.vaadin.server.VaadinSession#access(Runnable)}. The thread is
+ * stopped when it has been idle for a while, so that it does not keep the
+ * web application alive after it has been undeployed.
+ * <p>
+ * For internal use only. May be renamed or removed in a future release.
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+public final class PushScheduler {
+
+    private static ScheduledExecutorService executor;
+
+    private PushScheduler() {
+        // Only static methods
+    }
+
+    /**
+     * Schedules a task to be run by the shared timer after the given delay.
+     *
+     * @param task
+     *            the task to run, not <code>null</code>
+     * @param delay
+     *            the delay in milliseconds
+     * @return a future that can be used to cancel the task
+     */
+    public static ScheduledFuture<?> schedule(Runnable task, long delay) {
+        return getExecutor().schedule(task, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private static synchronized ScheduledExecutorService getExecutor() {
+        if (executor == null) {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(
+                    1, runnable -> {
+                        Thread thread = new Thread(runnable,
+                                "Vaadin push scheduler");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            // Cancelled pushes should not keep the thread from timing out
+            scheduler.setRemoveOnCancelPolicy(true);
+            scheduler.setKeepAliveTime(60, TimeUnit.SECONDS);
+            scheduler.allowCoreThreadTimeOut(true);
+            executor = scheduler;
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.vaadin.server.Constants;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.VaadinSession;
+
+/**
+ * Helpers for compressing UIDL responses using the content encoding
+ * negotiated through the {@code Accept-Encoding} request header.
+ * <p>
+ * Compression is enabled using the
+ * {@value Constants#SERVLET_PARAMETER_UIDL_COMPRESSION} deployment property.
+ * Responses smaller than
+ * {@value Constants#SERVLET_PARAMETER_UIDL_COMPRESSION_THRESHOLD} bytes are
+ * sent uncompressed. The {@link Deflater} instances used for compression are
+ * shared through a pool to avoid allocating native resources for every
+ * response.
+ * <p>
+ * Messages sent through push are not compressed by the framework. For
+ * websockets, compression is negotiated by the browser and the servlet
+ * container using the permessage-deflate extension.
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+public class ResponseCompression implements Serializable {
+
+    /**
+     * The content encodings supported for compressing responses.
+     */
+    public enum Encoding {
+        /**
+         * The gzip format, RFC 1952.
+         */
+        GZIP("gzip", true),
+        /**
+         * The zlib format, RFC 1950, which is what HTTP calls deflate.
+         */
+        DEFLATE("deflate", false);
+
+        private final String headerValue;
+        private final boolean nowrap;
+        private final BlockingQueue<Deflater> pool = new ArrayBlockingQueue<>(
+                MAX_POOLED_DEFLATERS);
+
+        private Encoding(String headerValue, boolean nowrap) {
+            this.headerValue = headerValue;
+            this.nowrap = nowrap;
+        }
+
+        /**
+         * Gets the value to use in the {@code Content-Encoding} header for
+         * this encoding.
+         *
+         * @return the header value, not <code>null</code>
+         */
+        public String getHeaderValue() {
+            return headerValue;
+        }
+
+        private Deflater borrowDeflater() {
+            Deflater deflater = pool.poll();
+            if (deflater == null) {
+                deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap);
+            }
+            return deflater;
+        }
+
+        private void releaseDeflater(Deflater deflater) {
+            deflater.reset();
+            if (!pool.offer(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * The maximum number of idle deflaters kept in the pool of each encoding.
+     */
+    private static final int MAX_POOLED_DEFLATERS = 32;
+
+    private ResponseCompression() {
+        // Only static helpers
+    }
+
+    /**
+     * Gets the encoding to use for compressing the response to the given
+     * request. Compression must be enabled for the session and the client
+     * must accept gzip or deflate encoded responses.
+     *
+     * @param session
+     *            the session for which the response is written
+     * @param request
+     *            the request to respond to
+     * @return the encoding to use, or <code>null</code> if the response should
+     *         not be compressed
+     */
+    public static Encoding getEncoding(VaadinSession session,
+            VaadinRequest request) {
+        if (!Boolean.parseBoolean(session.getService()
+                .getDeploymentConfiguration().getApplicationOrSystemProperty(
+                        Constants.SERVLET_PARAMETER_UIDL_COMPRESSION,
+                        "false"))) {
+            return null;
+        }
+        return negotiate(request.getHeader("Accept-Encoding"));
+    }
+
+    /**
+     * Gets the minimum size in bytes of a response to compress for the given
+     * session.
+     *
+     * @param session
+     *            the session for which the response is written
+     * @return the threshold in bytes
+     */
+    public static int getThreshold(VaadinSession session) {
+        String value = session.getService().getDeploymentConfiguration()
+                .getApplicationOrSystemProperty(
+                        Constants.SERVLET_PARAMETER_UIDL_COMPRESSION_THRESHOLD,
+                        null);
+        if (value != null) {
+            try {
+                int threshold = Integer.parseInt(value);
+                if (threshold >= 0) {
+                    return threshold;
+                }
+            } catch (NumberFormatException e) {
+                // Use the default
+            }
+        }
+        return Constants.DEFAULT_UIDL_COMPRESSION_THRESHOLD;
+    }
+
+    /**
+     * Selects the encoding to use based on the value of an
+     * {@code Accept-Encoding} header. The accepted encoding with the highest
+     * quality value is selected, preferring gzip if both are equally
+     * acceptable. The quality value of {@code *} applies to the encodings
+     * that are not listed in the header.
+     *
+     * @param acceptEncoding
+     *            the header value, may be <code>null</code>
+     * @return the encoding to use, or <code>null</code> if no supported
+     *         encoding is accepted
+     */
+    public static Encoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        // Quality values of the listed codings, -1 if not listed
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double quality = getQuality(params);
+            if ("gzip".equals(coding) || "x-gzip".equals(coding)) {
+                gzip = Math.max(gzip, quality);
+            } else if ("deflate".equals(coding)) {
+                deflate = Math.max(deflate, quality);
+            } else if ("*".equals(coding)) {
+                any = Math.max(any, quality);
+            }
+        }
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return Encoding.GZIP;
+        } else if (deflate > 0) {
+            return Encoding.DEFLATE;
+        }
+        return null;
+    }
+
+    private static double getQuality(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Sets the headers needed for sending a response compressed with the
+     * given encoding.
+     *
+     * @param response
+     *            the response to send, not <code>null</code>
+     * @param encoding
+     *            the encoding to use, not <code>null</code>
+     */
+    public static void setHeaders(VaadinResponse response, Encoding encoding) {
+        response.setHeader("Content-Encoding", encoding.getHeaderValue());
+        response.setHeader("Vary", "Accept-Encoding");
+    }
+
+    /**
+     * Creates a stream that compresses everything written to it into the
+     * given stream. The stream must be closed or {@link
+     * CompressingOutputStream#finish() finished} to complete the compressed
+     * data and return the deflater to the pool.
+     *
+     * @param out
+     *            the stream to write the compressed data to, not
+     *            <code>null</code>
+     * @param encoding
+     *            the encoding to use, not <code>null</code>
+     * @return a compressing output stream
+     */
+    public static CompressingOutputStream compress(OutputStream out,
+            Encoding encoding) {
+        return new CompressingOutputStream(out, encoding);
+    }
+
+    /**
+     * An output stream that compresses data using a pooled {@link Deflater}.
+     * Closing the stream finishes the compressed data but does not close the
+     * underlying stream.
+     */
+    public static class CompressingOutputStream extends OutputStream {
+        private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b,
+                Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+        private final OutputStream out;
+        private final Encoding encoding;
+        private final byte[] buffer = new byte[8192];
+        private final byte[] singleByte = new byte[1];
+        private final CRC32 crc;
+        private Deflater deflater;
+        private boolean headerWritten = false;
+
+        private CompressingOutputStream(OutputStream out, Encoding encoding) {
+            this.out = out;
+            this.encoding = encoding;
+            deflater = encoding.borrowDeflater();
+            crc = encoding == Encoding.GZIP ? new CRC32() : null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            singleByte[0] = (byte) b;
+            write(singleByte, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            if (len == 0) {
+                return;
+            }
+            writeHeaderIfNeeded();
+            if (crc != null) {
+                crc.update(b, off, len);
+            }
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                deflate(Deflater.NO_FLUSH);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (deflater != null) {
+                writeHeaderIfNeeded();
+                deflate(Deflater.SYNC_FLUSH);
+            }
+            out.flush();
+        }
+
+        /**
+         * Writes the remaining compressed data and the trailer to the
+         * underlying stream and returns the deflater to the pool. Does nothing
+         * if the stream has already been finished.
+         *
+         * @throws IOException
+         *             if writing to the underlying stream fails
+         */
+        public void finish() throws IOException {
+            if (deflater == null) {
+                return;
+            }
+            try {
+                writeHeaderIfNeeded();
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflate(Deflater.NO_FLUSH);
+                }
+                if (crc != null) {
+                    writeIntLE((int) crc.getValue());
+                    writeIntLE(deflater.getTotalIn());
+                }
+            } finally {
+                release();
+            }
+        }
+
+        /**
+         * Returns the deflater to the pool without writing any remaining
+         * data, e.g. when the response is being abandoned because of an
+         * error.
+         */
+        public void release() {
+            if (deflater != null) {
+                encoding.releaseDeflater(deflater);
+                deflater = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            out.flush();
+        }
+
+        private void writeHeaderIfNeeded() throws IOException {
+            if (crc != null && !headerWritten) {
+                out.write(GZIP_HEADER);
+                headerWritten = true;
+            }
+        }
+
+        private void deflate(int flush) throws IOException {
+            int count;
+            do {
+                count = deflater.deflate(buffer, 0, buffer.length, flush);
+                if (count > 0) {
+                    out.write(buffer, 0, count);
+                }
+            } while (count == buffer.length);
+        }
+
+        private void writeIntLE(int value) throws IOException {
+            out.write(value & 0xff);
+            out.write((value >> 8) & 0xff);
+            out.write((value >> 16) & 0xff);
+            out.write((value >> 24) & 0xff);
+        }
+
+        private void ensureOpen() throws IOException {
+            if (deflater == null) {
+                throw new IOException("Stream has been finished");
+            }
+        }
+    }
+}
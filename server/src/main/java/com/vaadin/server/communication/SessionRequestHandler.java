@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.vaadin.server.RequestHandler;
+import com.vaadin.server.ServletPortletHelper;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinResponse;
 import com.vaadin.server.VaadinSession;
@@ -52,12 +53,27 @@ public class SessionRequestHandler implements RequestHandler {
     public boolean handleRequest(VaadinSession session, VaadinRequest request,
             VaadinResponse response) throws IOException {
         // Use a copy to avoid ConcurrentModificationException
-        session.lock();
         List<RequestHandler> requestHandlers;
-        try {
-            requestHandlers = new ArrayList<>(session.getRequestHandlers());
-        } finally {
-            session.unlock();
+        if (ServletPortletHelper.isGlobalResourceRequest(request)) {
+            /*
+             * Global resource requests only read the session, don't make them
+             * wait for each other just to copy the handlers
+             */
+            session.lockShared();
+            try {
+                requestHandlers = new ArrayList<>(
+                        session.getRequestHandlers());
+            } finally {
+                session.unlockShared();
+            }
+        } else {
+            session.lock();
+            try {
+                requestHandlers = new ArrayList<>(
+                        session.getRequestHandlers());
+            } finally {
+                session.unlock();
+            }
         }
         for (RequestHandler handler : requestHandlers) {
             if (handler.handleRequest(session, request, response)) {
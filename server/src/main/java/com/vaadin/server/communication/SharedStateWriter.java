@@ -28,7 +28,6 @@ import com.vaadin.server.PaintException;
 import com.vaadin.shared.communication.SharedState;
 import com.vaadin.ui.UI;
 
-import elemental.json.Json;
 import elemental.json.JsonException;
 import elemental.json.JsonObject;
 import elemental.json.impl.JsonUtil;
@@ -59,7 +58,9 @@ public class SharedStateWriter implements Serializable {
                 .getConnectorTracker().getDirtyVisibleConnectors();
 
         Set<String> writtenConnectors = new HashSet<>();
-        JsonObject sharedStates = Json.createObject();
+        // Write the states one connector at a time instead of stringifying one
+        // object containing all states to avoid a huge intermediate string
+        writer.write('{');
         for (ClientConnector connector : dirtyVisibleConnectors) {
             // encode and send shared state
             String connectorId = connector.getConnectorId();
@@ -67,7 +68,12 @@ public class SharedStateWriter implements Serializable {
                 JsonObject stateJson = connector.encodeState();
 
                 if (stateJson != null && stateJson.keys().length != 0) {
-                    sharedStates.put(connectorId, stateJson);
+                    if (!writtenConnectors.isEmpty()) {
+                        writer.write(',');
+                    }
+                    writer.write(JsonUtil.quote(connectorId));
+                    writer.write(':');
+                    writer.write(JsonUtil.stringify(stateJson));
                     writtenConnectors.add(connectorId);
                 }
             } catch (JsonException e) {
@@ -78,7 +84,7 @@ public class SharedStateWriter implements Serializable {
                         e);
             }
         }
-        writer.write(JsonUtil.stringify(sharedStates));
+        writer.write('}');
 
         return writtenConnectors;
     }
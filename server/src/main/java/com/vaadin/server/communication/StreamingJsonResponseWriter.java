@@ -0,0 +1,378 @@
+/*
+ * Copyright 2000-2021 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server.communication;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.communication.ResponseCompression.CompressingOutputStream;
+import com.vaadin.server.communication.ResponseCompression.Encoding;
+import com.vaadin.shared.JsonConstants;
+
+/**
+ * A writer that encodes a JSON response as UTF-8 directly into the output
+ * stream of a {@link VaadinResponse} instead of first collecting the whole
+ * response into a string.
+ * <p>
+ * Characters are collected into a buffer borrowed from a shared pool. Nothing
+ * is sent to the client until the buffer fills up for the first time, so if
+ * the response generation fails before that, {@link #discard()} can be used to
+ * drop the partial response and write e.g. a critical notification instead.
+ * If the whole response fits in the buffer, it is written with a
+ * {@code Content-Length} header when the writer is closed, exactly like a
+ * buffered response would be.
+ * <p>
+ * Instances are not thread safe and should only be used for writing a single
+ * response.
+ *
+ * @author Vaadin Ltd
+ * @since 8.13
+ */
+public class StreamingJsonResponseWriter extends Writer {
+
+    /**
+     * The maximum number of idle buffers kept in the shared pool.
+     */
+    private static final int MAX_POOLED_BUFFERS = 32;
+
+    private static final BlockingQueue<CharBuffer> CHAR_BUFFER_POOL = new ArrayBlockingQueue<>(
+            MAX_POOLED_BUFFERS);
+
+    private static final BlockingQueue<ByteBuffer> BYTE_BUFFER_POOL = new ArrayBlockingQueue<>(
+            MAX_POOLED_BUFFERS);
+
+    private final VaadinResponse response;
+    private final CharsetEncoder encoder = UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private CharBuffer chars;
+    private ByteBuffer bytes;
+    private OutputStream outputStream;
+    private boolean closed = false;
+
+    private Encoding compression;
+    private int compressionThreshold;
+    private CompressingOutputStream compressingStream;
+
+    /**
+     * Creates a new writer for the given response using the given buffer
+     * size.
+     *
+     * @param response
+     *            the response to write to, not <code>null</code>
+     * @param bufferSize
+     *            the number of characters to buffer before the response is
+     *            committed, must be positive
+     */
+    public StreamingJsonResponseWriter(VaadinResponse response,
+            int bufferSize) {
+        if (response == null) {
+            throw new IllegalArgumentException("Response cannot be null");
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException(
+                    "Buffer size must be positive, was " + bufferSize);
+        }
+        this.response = response;
+        // Room for at least one surrogate pair and one encoded code point
+        int charCapacity = Math.max(bufferSize, 2);
+        int byteCapacity = Math.max(bufferSize, 4);
+        chars = borrow(CHAR_BUFFER_POOL, charCapacity);
+        if (chars == null) {
+            chars = CharBuffer.allocate(charCapacity);
+        }
+        bytes = borrow(BYTE_BUFFER_POOL, byteCapacity);
+        if (bytes == null) {
+            bytes = ByteBuffer.allocate(byteCapacity);
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        ensureOpen();
+        if (!chars.hasRemaining()) {
+            drainBuffer(false);
+        }
+        chars.put((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (!chars.hasRemaining()) {
+                drainBuffer(false);
+            }
+            int count = Math.min(len, chars.remaining());
+            chars.put(cbuf, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (!chars.hasRemaining()) {
+                drainBuffer(false);
+            }
+            int count = Math.min(len, chars.remaining());
+            chars.put(str, off, off + count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * Sets the encoding to use for compressing the response. A response that
+     * is committed before the writer is closed is always compressed, whereas
+     * a response that fits in the buffer is only compressed if its size is at
+     * least the given threshold. Compressed responses are sent without a
+     * {@code Content-Length} header.
+     *
+     * @param encoding
+     *            the encoding to use, or <code>null</code> to not compress the
+     *            response
+     * @param threshold
+     *            the minimum size in bytes of a buffered response to compress
+     * @throws IllegalStateException
+     *             if the response has already been committed
+     */
+    public void setCompression(Encoding encoding, int threshold) {
+        if (isCommitted()) {
+            throw new IllegalStateException(
+                    "The response has already been committed");
+        }
+        compression = encoding;
+        compressionThreshold = threshold;
+    }
+
+    /**
+     * Returns whether any part of the response has already been sent to the
+     * client. Once the response has been committed, it can no longer be
+     * replaced using {@link #discard()}.
+     *
+     * @return <code>true</code> if the response has been committed,
+     *         <code>false</code> if everything written so far is still
+     *         buffered
+     */
+    public boolean isCommitted() {
+        return outputStream != null;
+    }
+
+    /**
+     * Drops everything written so far without sending it and returns the
+     * buffers to the pool. This can only be done as long as the response has
+     * not been committed.
+     *
+     * @throws IllegalStateException
+     *             if the response has already been committed
+     */
+    public void discard() {
+        if (isCommitted()) {
+            throw new IllegalStateException(
+                    "The response has already been committed");
+        }
+        release();
+    }
+
+    /**
+     * Stops writing without sending any remaining content and returns the
+     * buffers and the deflater to their pools. Unlike {@link #discard()}, this
+     * can also be used after the response has been committed, e.g. when
+     * writing the response fails. Does nothing if the writer has already
+     * been closed.
+     */
+    public void release() {
+        closed = true;
+        releaseBuffers();
+    }
+
+    /**
+     * Sends all buffered content to the client, committing the response if it
+     * has not already been committed.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        drainBuffer(false);
+        outputStream.flush();
+    }
+
+    /**
+     * Writes any remaining buffered content to the response and returns the
+     * buffers to the pool. If the response has not been committed yet, the
+     * content length of the response is also set.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (!isCommitted()) {
+                chars.flip();
+                int length = utf8Length(chars);
+                chars.position(chars.limit());
+                chars.limit(chars.capacity());
+                if (compression != null && length >= compressionThreshold) {
+                    commit(true);
+                } else {
+                    response.setContentLength(length);
+                    commit(false);
+                }
+            }
+            drainBuffer(true);
+            if (compressingStream != null) {
+                // Also returns the deflater, after which only the response
+                // stream itself can be flushed
+                compressingStream.finish();
+                outputStream = response.getOutputStream();
+            }
+            // NOTE GateIn requires the buffers to be flushed to work
+            outputStream.flush();
+        } finally {
+            closed = true;
+            releaseBuffers();
+        }
+    }
+
+    /**
+     * Encodes the buffered characters and writes them to the output stream,
+     * committing the response first if needed.
+     */
+    private void drainBuffer(boolean endOfInput) throws IOException {
+        if (!isCommitted()) {
+            commit(compression != null);
+        }
+        chars.flip();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isOverflow()) {
+                writeBytes();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+        if (endOfInput) {
+            while (encoder.flush(bytes).isOverflow()) {
+                writeBytes();
+            }
+        }
+        writeBytes();
+        // Keep any trailing high surrogate for the next round
+        chars.compact();
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        if (bytes.hasRemaining()) {
+            outputStream.write(bytes.array(),
+                    bytes.arrayOffset() + bytes.position(), bytes.remaining());
+        }
+        bytes.clear();
+    }
+
+    private void commit(boolean compress) throws IOException {
+        response.setContentType(JsonConstants.JSON_CONTENT_TYPE);
+
+        // Response might contain sensitive information, so prevent all forms of
+        // caching
+        response.setNoCacheHeaders();
+
+        if (compress) {
+            ResponseCompression.setHeaders(response, compression);
+            compressingStream = ResponseCompression
+                    .compress(response.getOutputStream(), compression);
+            outputStream = compressingStream;
+        } else {
+            outputStream = response.getOutputStream();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Writer has been closed");
+        }
+    }
+
+    private void releaseBuffers() {
+        if (compressingStream != null) {
+            compressingStream.release();
+        }
+        if (chars != null) {
+            chars.clear();
+            CHAR_BUFFER_POOL.offer(chars);
+            chars = null;
+        }
+        if (bytes != null) {
+            bytes.clear();
+            BYTE_BUFFER_POOL.offer(bytes);
+            bytes = null;
+        }
+    }
+
+    private static <B extends Buffer> B borrow(BlockingQueue<B> pool,
+            int capacity) {
+        B buffer = pool.poll();
+        if (buffer != null && buffer.capacity() != capacity) {
+            // Configured buffer size has changed, let the old one be collected
+            return null;
+        }
+        return buffer;
+    }
+
+    /**
+     * Counts the number of bytes needed for encoding the remaining characters
+     * of the given buffer as UTF-8 without changing its position.
+     */
+    private static int utf8Length(CharBuffer buffer) {
+        int length = 0;
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            char c = buffer.get(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < buffer.limit()
+                    && Character.isLowSurrogate(buffer.get(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                // Also covers unpaired surrogates, encoded as '?'
+                length += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return length;
+    }
+}
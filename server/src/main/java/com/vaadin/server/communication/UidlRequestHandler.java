@@ -16,12 +16,17 @@
 
 package com.vaadin.server.communication;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.vaadin.server.Constants;
 import com.vaadin.server.LegacyCommunicationManager.InvalidUIDLSecurityKeyException;
 import com.vaadin.server.ServletPortletHelper;
 import com.vaadin.server.SessionExpiredHandler;
@@ -31,6 +36,8 @@ import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinResponse;
 import com.vaadin.server.VaadinService;
 import com.vaadin.server.VaadinSession;
+import com.vaadin.server.communication.ResponseCompression.CompressingOutputStream;
+import com.vaadin.server.communication.ResponseCompression.Encoding;
 import com.vaadin.shared.JsonConstants;
 import com.vaadin.ui.UI;
 
@@ -84,12 +91,8 @@ public class UidlRequestHandler extends SynchronizedRequestHandler
             return true;
         }
 
-        StringWriter stringWriter = new StringWriter();
-
         try {
             rpcHandler.handleRpc(uI, request.getReader(), request);
-
-            writeUidl(request, response, uI, stringWriter);
         } catch (JsonException e) {
             getLogger().log(Level.SEVERE, "Error writing JSON to response", e);
             // Refresh on client side
@@ -102,14 +105,139 @@ public class UidlRequestHandler extends SynchronizedRequestHandler
             // Refresh on client side
             writeRefresh(request, response);
             return true;
+        }
+
+        if (isStreamingResponse(session)) {
+            return writeStreamingUidl(session, request, response, uI);
+        }
+
+        StringWriter stringWriter = new StringWriter();
+
+        try {
+            writeUidl(request, response, uI, stringWriter);
+        } catch (JsonException e) {
+            getLogger().log(Level.SEVERE, "Error writing JSON to response", e);
+            // Refresh on client side
+            writeRefresh(request, response);
+            return true;
         } finally {
             stringWriter.close();
         }
 
-        return UIInitHandler.commitJsonResponse(request, response,
+        return commitUidlResponse(session, request, response,
                 stringWriter.toString());
     }
 
+    /**
+     * Writes a buffered UIDL response, compressing it if compression is
+     * enabled, accepted by the client and the response is large enough.
+     */
+    private static boolean commitUidlResponse(VaadinSession session,
+            VaadinRequest request, VaadinResponse response, String json)
+            throws IOException {
+        Encoding encoding = ResponseCompression.getEncoding(session, request);
+        if (encoding == null) {
+            return UIInitHandler.commitJsonResponse(request, response, json);
+        }
+        byte[] bytes = json.getBytes(UTF_8);
+        if (bytes.length < ResponseCompression.getThreshold(session)) {
+            return UIInitHandler.commitJsonResponse(request, response, json);
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(
+                bytes.length / 4);
+        try (CompressingOutputStream out = ResponseCompression
+                .compress(compressed, encoding)) {
+            out.write(bytes);
+        }
+
+        response.setContentType(JsonConstants.JSON_CONTENT_TYPE);
+        // Response might contain sensitive information, so prevent all forms of
+        // caching
+        response.setNoCacheHeaders();
+        ResponseCompression.setHeaders(response, encoding);
+        response.setContentLength(compressed.size());
+
+        OutputStream outputStream = response.getOutputStream();
+        compressed.writeTo(outputStream);
+        outputStream.flush();
+        return true;
+    }
+
+    /**
+     * Writes the UIDL response directly to the response output stream. The
+     * response is buffered until the buffer fills up for the first time, so
+     * that a failure early in the response generation can still be reported
+     * to the client as a refresh notification.
+     */
+    private boolean writeStreamingUidl(VaadinSession session,
+            VaadinRequest request, VaadinResponse response, UI ui)
+            throws IOException {
+        StreamingJsonResponseWriter writer = new StreamingJsonResponseWriter(
+                response, getResponseBufferSize(session));
+        writer.setCompression(ResponseCompression.getEncoding(session, request),
+                ResponseCompression.getThreshold(session));
+        try {
+            writeUidl(request, response, ui, writer);
+            writer.close();
+        } catch (JsonException e) {
+            getLogger().log(Level.SEVERE, "Error writing JSON to response", e);
+            if (writer.isCommitted()) {
+                // Part of the response has already been sent, the client will
+                // treat the truncated message as a communication error
+                writer.close();
+            } else {
+                writer.discard();
+                // Refresh on client side
+                writeRefresh(request, response);
+            }
+        } finally {
+            // Return the pooled buffers and deflater also if writing failed
+            writer.release();
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether UIDL responses for the given session should be streamed
+     * directly to the client instead of being buffered in memory.
+     *
+     * @param session
+     *            the session for which the response is written
+     * @return <code>true</code> to stream the response, <code>false</code> to
+     *         buffer it
+     * @since 8.13
+     */
+    protected boolean isStreamingResponse(VaadinSession session) {
+        return Boolean.parseBoolean(session.getService()
+                .getDeploymentConfiguration().getApplicationOrSystemProperty(
+                        Constants.SERVLET_PARAMETER_STREAMING_UIDL_RESPONSE,
+                        "false"));
+    }
+
+    private static int getResponseBufferSize(VaadinSession session) {
+        String value = session.getService().getDeploymentConfiguration()
+                .getApplicationOrSystemProperty(
+                        Constants.SERVLET_PARAMETER_UIDL_RESPONSE_BUFFER_SIZE,
+                        null);
+        if (value != null) {
+            try {
+                int size = Integer.parseInt(value);
+                if (size > 0) {
+                    return size;
+                }
+            } catch (NumberFormatException e) {
+                // Fall through to the default
+            }
+            getLogger().log(Level.WARNING,
+                    "Ignoring invalid value {0} for {1}, using {2}",
+                    new Object[] { value,
+                            Constants.SERVLET_PARAMETER_UIDL_RESPONSE_BUFFER_SIZE,
+                            Constants.DEFAULT_BUFFER_SIZE });
+        }
+        return Constants.DEFAULT_BUFFER_SIZE;
+    }
+
     private void writeRefresh(VaadinRequest request, VaadinResponse response)
             throws IOException {
         String json = VaadinService.createCriticalNotificationJSON(null, null,
@@ -89,31 +89,15 @@ public class UidlWriter implements Serializable {
         getLogger().log(Level.FINE, "* Creating response to client");
 
         while (true) {
-            List<ClientConnector> connectorsToProcess = new ArrayList<>();
-            for (ClientConnector c : uiConnectorTracker
-                    .getDirtyVisibleConnectors()) {
-                if (!processedConnectors.contains(c)) {
-                    connectorsToProcess.add(c);
-                }
-            }
+            // getDirtyVisibleConnectors orders parents before children
+            List<ClientConnector> connectorsToProcess = uiConnectorTracker
+                    .getDirtyVisibleConnectors();
+            connectorsToProcess.removeIf(processedConnectors::contains);
 
             if (connectorsToProcess.isEmpty()) {
                 break;
             }
 
-            // process parents before children
-            Collections.sort(connectorsToProcess,
-                    Comparator.comparingInt(conn -> {
-                        int depth = 0;
-                        ClientConnector connector = conn;
-                        // this is a very fast operation, even for 100+ levels
-                        while (connector.getParent() != null) {
-                            ++depth;
-                            connector = connector.getParent();
-                        }
-                        return depth;
-                    }));
-
             for (ClientConnector connector : connectorsToProcess) {
                 // call isDirty() to find out if ConnectorTracker knows the
                 // connector
@@ -176,21 +160,17 @@ public class UidlWriter implements Serializable {
                     .write(ui, writer);
             writer.write(", "); // close states
 
-            // TODO This should be optimized. The type only needs to be
-            // sent once for each connector id + on refresh. Use the same cache
-            // as
-            // widget mapping
+            // The type is only sent for connectors that are not yet
+            // initialized on the client side
 
             writer.write("\"types\":");
             new ConnectorTypeWriter().write(ui, writer, paintTarget);
             writer.write(", "); // close states
 
-            // Send update hierarchy information to the client.
-
-            // This could be optimized aswell to send only info if hierarchy has
-            // actually changed. Much like with the shared state. Note though
-            // that an empty hierarchy is information aswell (e.g. change from 1
-            // child to 0 children)
+            // Send update hierarchy information to the client, only for
+            // connectors whose children have changed. Note that an empty
+            // hierarchy is information as well (e.g. change from 1 child to 0
+            // children)
 
             writer.write("\"hierarchy\":");
             new ConnectorHierarchyWriter().write(ui, writer,
@@ -105,9 +105,9 @@ public abstract class AbstractMedia extends AbstractComponent {
         DownloadStream stream;
 
         VaadinSession session = getSession();
-        session.lock();
+        session.lockShared();
         try {
-            List<URLReference> sources = getState().sources;
+            List<URLReference> sources = getState(false).sources;
 
             int sourceIndex = Integer.parseInt(matcher.group(1));
 
@@ -123,7 +123,7 @@ public abstract class AbstractMedia extends AbstractComponent {
                     .getResource(reference);
             stream = resource.getStream();
         } finally {
-            session.unlock();
+            session.unlockShared();
         }
 
         stream.writeResponse(request, response);
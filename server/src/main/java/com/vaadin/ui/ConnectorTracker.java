@@ -15,12 +15,11 @@
  */
 package com.vaadin.ui;
 
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -36,17 +35,20 @@ import com.vaadin.event.MarkedAsDirtyConnectorEvent;
 import com.vaadin.event.MarkedAsDirtyListener;
 import com.vaadin.server.AbstractClientConnector;
 import com.vaadin.server.ClientConnector;
+import com.vaadin.server.CompactDiffStateStore;
+import com.vaadin.server.Constants;
+import com.vaadin.server.DefaultDiffStateStore;
+import com.vaadin.server.DiffStateStore;
 import com.vaadin.server.DragAndDropService;
 import com.vaadin.server.GlobalResourceHandler;
 import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.StreamVariable;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinSession;
 import com.vaadin.server.communication.ConnectorHierarchyWriter;
 import com.vaadin.shared.Registration;
 
-import elemental.json.Json;
-import elemental.json.JsonException;
 import elemental.json.JsonObject;
 
 /**
@@ -81,7 +83,21 @@ public class ConnectorTracker implements Serializable {
             .isLoggable(Level.FINE);
 
     private final Map<String, ClientConnector> connectorIdToConnector = new HashMap<>();
-    private final Set<ClientConnector> dirtyConnectors = new HashSet<>();
+    /**
+     * The dirty connectors, mapped to the depth at which they are stored in
+     * {@link #dirtyConnectorsByDepth}.
+     */
+    private final Map<ClientConnector, Integer> dirtyConnectors = new HashMap<>();
+    /**
+     * The dirty connectors grouped by their depth in the connector hierarchy,
+     * so that they can be processed parents first without sorting.
+     */
+    private final List<Set<ClientConnector>> dirtyConnectorsByDepth = new ArrayList<>();
+    /**
+     * The depth in the connector hierarchy of each registered connector,
+     * updated when connectors are attached and detached.
+     */
+    private final Map<ClientConnector, Integer> connectorDepths = new HashMap<>();
     private final Set<ClientConnector> uninitializedConnectors = new HashSet<>();
 
     private List<MarkedAsDirtyListener> markedDirtyListeners = new ArrayList<>(
@@ -97,7 +113,16 @@ public class ConnectorTracker implements Serializable {
     private boolean writingResponse = false;
 
     private final UI uI;
-    private transient Map<ClientConnector, JsonObject> diffStates = new HashMap<>();
+    private DiffStateStore diffStateStore;
+
+    /**
+     * The ids of the child connectors last sent to the client for each
+     * connector. Not serialized, so the hierarchy of each connector is resent
+     * once after deserialization.
+     */
+    private transient Map<ClientConnector, String[]> sentHierarchies;
+
+    private static final String[] NO_CHILDREN = new String[0];
 
     /** Maps connectorIds to a map of named StreamVariables */
     private Map<String, Map<String, StreamVariable>> pidToNameToStreamVariable;
@@ -161,7 +186,15 @@ public class ConnectorTracker implements Serializable {
                     new Object[] { connector.getClass().getSimpleName(),
                             connectorId });
         }
-        dirtyConnectors.add(connector);
+        int depth = computeDepth(connector);
+        connectorDepths.put(connector, depth);
+        Integer dirtyDepth = dirtyConnectors.get(connector);
+        if (dirtyDepth != null && dirtyDepth != depth) {
+            // Marked as dirty before being registered at its new position,
+            // e.g. when a client side initialized connector is moved
+            removeDirtyConnector(connector);
+        }
+        addDirtyConnector(connector);
     }
 
     /**
@@ -190,7 +223,7 @@ public class ConnectorTracker implements Serializable {
                     + " is not the one that was registered for that id");
         }
 
-        dirtyConnectors.remove(connector);
+        removeDirtyConnector(connector);
 
         if (!isClientSideInitialized(connector)) {
             // Client side has never known about this connector so there is no
@@ -252,7 +285,10 @@ public class ConnectorTracker implements Serializable {
      */
     public void markAllClientSidesUninitialized() {
         uninitializedConnectors.addAll(connectorIdToConnector.values());
-        diffStates.clear();
+        getDiffStateStore().clear();
+        if (sentHierarchies != null) {
+            sentHierarchies.clear();
+        }
     }
 
     /**
@@ -334,7 +370,9 @@ public class ConnectorTracker implements Serializable {
                     globalResourceHandler.unregisterConnector(connector);
                 }
                 uninitializedConnectors.remove(connector);
-                diffStates.remove(connector);
+                getDiffStateStore().remove(connector);
+                removeSentHierarchy(connector);
+                connectorDepths.remove(connector);
                 iterator.remove();
             } else if (!uninitializedConnectors.contains(connector)
                     && !LegacyCommunicationManager
@@ -344,7 +382,8 @@ public class ConnectorTracker implements Serializable {
                 // it's no longer shown) -> make sure that the full state is
                 // sent again when/if made visible
                 uninitializedConnectors.add(connector);
-                diffStates.remove(connector);
+                getDiffStateStore().remove(connector);
+                removeSentHierarchy(connector);
                 assert isRemovalSentToClient(connector) : "Connector "
                         + connector + " (id = " + connector.getConnectorId()
                         + ") is no longer visible to the client, but no corresponding hierarchy change was sent.";
@@ -468,7 +507,9 @@ public class ConnectorTracker implements Serializable {
             globalResourceHandler.unregisterConnector(connector);
         }
         uninitializedConnectors.remove(connector);
-        diffStates.remove(connector);
+        getDiffStateStore().remove(connector);
+        removeSentHierarchy(connector);
+        connectorDepths.remove(connector);
     }
 
     /**
@@ -542,7 +583,7 @@ public class ConnectorTracker implements Serializable {
             notifyMarkedAsDirtyListeners(connector);
         }
 
-        dirtyConnectors.add(connector);
+        addDirtyConnector(connector);
     }
 
     /**
@@ -552,12 +593,52 @@ public class ConnectorTracker implements Serializable {
      *            The connector that should be marked clean.
      */
     public void markClean(ClientConnector connector) {
-        if (fineLogging && dirtyConnectors.contains(connector)) {
+        if (fineLogging && dirtyConnectors.containsKey(connector)) {
             getLogger().log(Level.FINE, "{0} is no longer dirty",
                     getConnectorAndParentInfo(connector));
         }
 
-        dirtyConnectors.remove(connector);
+        removeDirtyConnector(connector);
+    }
+
+    private void addDirtyConnector(ClientConnector connector) {
+        if (dirtyConnectors.containsKey(connector)) {
+            return;
+        }
+        Integer depth = connectorDepths.get(connector);
+        if (depth == null) {
+            depth = computeDepth(connector);
+        }
+        while (dirtyConnectorsByDepth.size() <= depth) {
+            dirtyConnectorsByDepth.add(new HashSet<>());
+        }
+        dirtyConnectorsByDepth.get(depth).add(connector);
+        dirtyConnectors.put(connector, depth);
+    }
+
+    private void removeDirtyConnector(ClientConnector connector) {
+        Integer depth = dirtyConnectors.remove(connector);
+        if (depth != null) {
+            dirtyConnectorsByDepth.get(depth).remove(connector);
+        }
+    }
+
+    /**
+     * Computes the depth of the connector in the connector hierarchy, using the
+     * cached depth of the closest registered ancestor.
+     */
+    private int computeDepth(ClientConnector connector) {
+        int depth = 0;
+        ClientConnector parent = connector.getParent();
+        while (parent != null) {
+            ++depth;
+            Integer parentDepth = connectorDepths.get(parent);
+            if (parentDepth != null) {
+                return depth + parentDepth;
+            }
+            parent = parent.getParent();
+        }
+        return depth;
     }
 
     /**
@@ -616,6 +697,9 @@ public class ConnectorTracker implements Serializable {
      */
     public void markAllConnectorsClean() {
         dirtyConnectors.clear();
+        for (Set<ClientConnector> connectors : dirtyConnectorsByDepth) {
+            connectors.clear();
+        }
         if (fineLogging) {
             getLogger().fine("All connectors are now clean");
         }
@@ -645,12 +729,18 @@ public class ConnectorTracker implements Serializable {
      * The state and pending RPC calls for dirty connectors are sent to the
      * client in the following request.
      * </p>
+     * <p>
+     * Since 8.13, this returns an unmodifiable view that reflects later
+     * changes. Use {@link #markDirty(ClientConnector)} and
+     * {@link #markClean(ClientConnector)} to change which connectors are
+     * dirty.
+     * </p>
      *
-     * @return A collection of all dirty connectors for this uI. This list may
-     *         contain invisible connectors.
+     * @return An unmodifiable collection of all dirty connectors for this uI.
+     *         This list may contain invisible connectors.
      */
     public Collection<ClientConnector> getDirtyConnectors() {
-        return dirtyConnectors;
+        return Collections.unmodifiableSet(dirtyConnectors.keySet());
     }
 
     /**
@@ -664,17 +754,20 @@ public class ConnectorTracker implements Serializable {
 
     /**
      * Returns a collection of those {@link #getDirtyConnectors() dirty
-     * connectors} that are actually visible to the client.
+     * connectors} that are actually visible to the client. Since 8.13, the
+     * connectors are ordered by their depth in the connector hierarchy so that
+     * parents come before their children.
      *
      * @return A list of dirty and visible connectors.
      */
     public ArrayList<ClientConnector> getDirtyVisibleConnectors() {
-        Collection<ClientConnector> dirtyConnectors = getDirtyConnectors();
         ArrayList<ClientConnector> dirtyVisibleConnectors = new ArrayList<>(
                 dirtyConnectors.size());
-        for (ClientConnector c : dirtyConnectors) {
-            if (LegacyCommunicationManager.isConnectorVisibleToClient(c)) {
-                dirtyVisibleConnectors.add(c);
+        for (Set<ClientConnector> connectors : dirtyConnectorsByDepth) {
+            for (ClientConnector c : connectors) {
+                if (LegacyCommunicationManager.isConnectorVisibleToClient(c)) {
+                    dirtyVisibleConnectors.add(c);
+                }
             }
         }
         return dirtyVisibleConnectors;
@@ -682,16 +775,122 @@ public class ConnectorTracker implements Serializable {
 
     public JsonObject getDiffState(ClientConnector connector) {
         assert getConnector(connector.getConnectorId()) == connector;
-        return diffStates.get(connector);
+        return getDiffStateStore().get(connector);
     }
 
     public void setDiffState(ClientConnector connector, JsonObject diffState) {
         assert getConnector(connector.getConnectorId()) == connector;
-        diffStates.put(connector, diffState);
+        getDiffStateStore().put(connector, diffState);
+    }
+
+    /**
+     * Checks whether the given child connector ids differ from the ones last
+     * sent to the client for the given connector using
+     * {@link #setSentHierarchy(ClientConnector, List)}. The hierarchy is
+     * always considered changed if nothing has been sent for the connector
+     * since it was last initialized on the client side.
+     *
+     * @param connector
+     *            the connector to check, not <code>null</code>
+     * @param childConnectorIds
+     *            the ids of the children of the connector that are visible to
+     *            the client, not <code>null</code>
+     * @return <code>true</code> if the hierarchy information needs to be sent
+     *         to the client, <code>false</code> if the client already has it
+     * @since 8.13
+     */
+    public boolean isHierarchyChanged(ClientConnector connector,
+            List<String> childConnectorIds) {
+        String[] sent = sentHierarchies == null ? null
+                : sentHierarchies.get(connector);
+        return sent == null
+                || !Arrays.asList(sent).equals(childConnectorIds);
+    }
+
+    /**
+     * Records the child connector ids that have been sent to the client for
+     * the given connector.
+     *
+     * @param connector
+     *            the connector, not <code>null</code>
+     * @param childConnectorIds
+     *            the ids of the children sent to the client, not
+     *            <code>null</code>
+     * @since 8.13
+     */
+    public void setSentHierarchy(ClientConnector connector,
+            List<String> childConnectorIds) {
+        if (sentHierarchies == null) {
+            sentHierarchies = new HashMap<>();
+        }
+        sentHierarchies.put(connector, childConnectorIds.isEmpty() ? NO_CHILDREN
+                : childConnectorIds.toArray(new String[0]));
+    }
+
+    private void removeSentHierarchy(ClientConnector connector) {
+        if (sentHierarchies != null) {
+            sentHierarchies.remove(connector);
+        }
+    }
+
+    /**
+     * Gets the store used for keeping track of the last state sent to the
+     * client for each connector. Unless a store has been set using
+     * {@link #setDiffStateStore(DiffStateStore)}, a
+     * {@link CompactDiffStateStore} is used if the
+     * {@value Constants#SERVLET_PARAMETER_COMPACT_DIFF_STATES} deployment
+     * property is set to <code>true</code> and a {@link DefaultDiffStateStore}
+     * otherwise.
+     *
+     * @return the diff state store, not <code>null</code>
+     * @since 8.13
+     */
+    public DiffStateStore getDiffStateStore() {
+        if (diffStateStore == null) {
+            diffStateStore = createDefaultDiffStateStore();
+        }
+        return diffStateStore;
+    }
+
+    /**
+     * Sets the store to use for keeping track of the last state sent to the
+     * client for each connector. States stored in the previous store are
+     * discarded, which means that the next update of each connector will
+     * contain all its state properties that differ from the default values.
+     * The store should thus preferably be set before the UI is sent to the
+     * client for the first time.
+     *
+     * @param diffStateStore
+     *            the diff state store to use, not <code>null</code>
+     * @since 8.13
+     */
+    public void setDiffStateStore(DiffStateStore diffStateStore) {
+        if (diffStateStore == null) {
+            throw new IllegalArgumentException(
+                    "Diff state store cannot be null");
+        }
+        if (this.diffStateStore != null) {
+            this.diffStateStore.clear();
+        }
+        this.diffStateStore = diffStateStore;
+    }
+
+    private DiffStateStore createDefaultDiffStateStore() {
+        VaadinSession session = uI.getSession();
+        if (session != null && session.getService() != null
+                && session.getService().getDeploymentConfiguration() != null
+                && Boolean.parseBoolean(session.getService()
+                        .getDeploymentConfiguration()
+                        .getApplicationOrSystemProperty(
+                                Constants.SERVLET_PARAMETER_COMPACT_DIFF_STATES,
+                                "false"))) {
+            return new CompactDiffStateStore();
+        }
+        return new DefaultDiffStateStore();
     }
 
     public boolean isDirty(ClientConnector connector) {
-        return dirtyConnectors.contains(connector);
+        return dirtyConnectors.containsKey(connector);
     }
 
     /**
@@ -743,45 +942,11 @@ public class ConnectorTracker implements Serializable {
             // Bump sync id when done writing - the client is not expected to
             // know about anything happening after this moment.
             currentSyncId++;
+            getDiffStateStore().responseWritten();
         }
         this.writingResponse = writingResponse;
     }
 
-    /* Special serialization to JsonObjects which are not serializable */
-    private void writeObject(ObjectOutputStream out) throws IOException {
-        out.defaultWriteObject();
-        // Convert JsonObjects in diff state to String representation as
-        // JsonObject is not serializable
-        Map<ClientConnector, String> stringDiffStates = new HashMap<>(
-                diffStates.size() * 2);
-        for (ClientConnector key : diffStates.keySet()) {
-            stringDiffStates.put(key, diffStates.get(key).toString());
-        }
-        out.writeObject(stringDiffStates);
-    }
-
-    /* Special serialization to JsonObjects which are not serializable */
-    private void readObject(ObjectInputStream in)
-            throws IOException, ClassNotFoundException {
-        in.defaultReadObject();
-
-        // Read String versions of JsonObjects and parse into JsonObjects as
-        // JsonObject is not serializable
-        diffStates = new HashMap<>();
-        @SuppressWarnings("unchecked")
-        Map<ClientConnector, String> stringDiffStates = (HashMap<ClientConnector, String>) in
-                .readObject();
-        diffStates = new HashMap<>(stringDiffStates.size() * 2);
-        for (ClientConnector key : stringDiffStates.keySet()) {
-            try {
-                diffStates.put(key, Json.parse(stringDiffStates.get(key)));
-            } catch (JsonException e) {
-                throw new IOException(e);
-            }
-        }
-
-    }
-
     /**
      * Checks if the indicated connector has a StreamVariable of the given name
      * and returns the variable if one is found.
@@ -54,6 +54,7 @@ import com.vaadin.data.ValueProvider;
 import com.vaadin.data.provider.CallbackDataProvider;
 import com.vaadin.data.provider.DataCommunicator;
 import com.vaadin.data.provider.DataGenerator;
+import com.vaadin.data.provider.DataObjectWriter;
 import com.vaadin.data.provider.DataProvider;
 import com.vaadin.data.provider.GridSortOrder;
 import com.vaadin.data.provider.GridSortOrderBuilder;
@@ -914,6 +915,33 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
                 }
             }
 
+            @Override
+            public void generateData(T item, DataObjectWriter writer) {
+                ColumnState state = getState(false);
+
+                String communicationId = getConnectorId();
+
+                assert communicationId != null : "No communication ID set for column "
+                        + state.caption;
+
+                writer.put(DataCommunicatorConstants.DATA, communicationId,
+                        generateRendererValue(item, presentationProvider,
+                                state.renderer));
+
+                String style = styleGenerator.apply(item);
+                if (style != null && !style.isEmpty()) {
+                    writer.put(GridState.JSONKEY_CELLSTYLES, communicationId,
+                            style);
+                }
+                if (descriptionGenerator != null) {
+                    String description = descriptionGenerator.apply(item);
+                    if (description != null && !description.isEmpty()) {
+                        writer.put(GridState.JSONKEY_CELLDESCRIPTION,
+                                communicationId, description);
+                    }
+                }
+            }
+
             @Override
             public void destroyData(T item) {
                 removeComponent(getGrid().getDataProvider().getId(item));
@@ -162,10 +162,66 @@ public interface PushConfiguration extends Serializable {
      */
     public String getPushUrl();
 
+    /**
+     * Sets the maximum number of pushes per second for the UI. When the UI
+     * has been pushed less than one interval ago, the changes are not pushed
+     * immediately. Instead, one push is scheduled at the end of the interval,
+     * and it contains all the changes made until then, e.g. by several
+     * {@link UI#access(Runnable)} tasks. The delayed pushes of all UIs are
+     * scheduled from a single shared timer.
+     * <p>
+     * The default value is 0, which means that every push is sent immediately.
+     *
+     * @since 8.13
+     * @param maxPushFrequency
+     *            the maximum number of pushes per second, or 0 to not limit
+     *            the push frequency
+     * @see #setMaxPushLatency(int)
+     */
+    public void setMaxPushFrequency(int maxPushFrequency);
+
+    /**
+     * Returns the maximum number of pushes per second for the UI.
+     *
+     * @since 8.13
+     * @return the maximum number of pushes per second, or 0 if the push
+     *         frequency is not limited
+     */
+    public int getMaxPushFrequency();
+
+    /**
+     * Sets the maximum time that changes may be delayed when the push
+     * frequency is limited using {@link #setMaxPushFrequency(int)}. The
+     * latency is counted from the first change that could not be pushed
+     * immediately. If the max latency is shorter than the interval given by
+     * the max push frequency, the latency takes precedence.
+     * <p>
+     * The default value is 0, which means that the changes are only delayed
+     * by the push frequency limit.
+     *
+     * @since 8.13
+     * @param maxPushLatency
+     *            the maximum latency in milliseconds, or 0 to not limit the
+     *            latency
+     */
+    public void setMaxPushLatency(int maxPushLatency);
+
+    /**
+     * Returns the maximum time that changes may be delayed when the push
+     * frequency is limited.
+     *
+     * @since 8.13
+     * @return the maximum latency in milliseconds, or 0 if the latency is not
+     *         limited
+     */
+    public int getMaxPushLatency();
+
 }
 
 class PushConfigurationImpl implements PushConfiguration {
     private final UI ui;
+    private int maxPushFrequency = 0;
+    private int maxPushLatency = 0;
 
     public PushConfigurationImpl(UI ui) {
         this.ui = ui;
@@ -232,6 +288,34 @@ class PushConfigurationImpl implements PushConfiguration {
         return getState(false).pushUrl;
     }
 
+    @Override
+    public void setMaxPushFrequency(int maxPushFrequency) {
+        if (maxPushFrequency < 0) {
+            throw new IllegalArgumentException(
+                    "Max push frequency cannot be negative");
+        }
+        this.maxPushFrequency = maxPushFrequency;
+    }
+
+    @Override
+    public int getMaxPushFrequency() {
+        return maxPushFrequency;
+    }
+
+    @Override
+    public void setMaxPushLatency(int maxPushLatency) {
+        if (maxPushLatency < 0) {
+            throw new IllegalArgumentException(
+                    "Max push latency cannot be negative");
+        }
+        this.maxPushLatency = maxPushLatency;
+    }
+
+    @Override
+    public int getMaxPushLatency() {
+        return maxPushLatency;
+    }
+
     /*
      * (non-Javadoc)
      *
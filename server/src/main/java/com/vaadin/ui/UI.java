@@ -33,6 +33,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -65,6 +66,7 @@ import com.vaadin.server.VaadinServlet;
 import com.vaadin.server.VaadinSession;
 import com.vaadin.server.VaadinSession.State;
 import com.vaadin.server.communication.PushConnection;
+import com.vaadin.server.communication.PushScheduler;
 import com.vaadin.shared.ApplicationConstants;
 import com.vaadin.shared.Connector;
 import com.vaadin.shared.EventId;
@@ -275,7 +277,7 @@ public abstract class UI extends AbstractSingleComponentContainer
      * current time whenever the application receives a heartbeat or UIDL
      * request from the client for this UI.
      */
-    private long lastHeartbeatTimestamp = System.currentTimeMillis();
+    private volatile long lastHeartbeatTimestamp = System.currentTimeMillis();
 
     private boolean closing = false;
 
@@ -649,6 +651,19 @@ public abstract class UI extends AbstractSingleComponentContainer
 
     private PushConnection pushConnection = null;
 
+    /**
+     * Timestamp of the last push, used when the push frequency is limited.
+     */
+    private long lastPushTimestamp = 0;
+
+    /**
+     * Timestamp of the first change that has not been pushed because of the
+     * push frequency limit, or -1 if there is no such change.
+     */
+    private long pendingPushTimestamp = -1;
+
+    private transient ScheduledFuture<?> scheduledPush;
+
     private LocaleService localeService = new LocaleService(this,
             getState(false).localeServiceState);
 
@@ -1423,6 +1438,10 @@ public abstract class UI extends AbstractSingleComponentContainer
      */
     @Override
     public void detach() {
+        if (scheduledPush != null) {
+            scheduledPush.cancel(false);
+            scheduledPush = null;
+        }
         super.detach();
     }
 
@@ -1702,12 +1721,66 @@ public abstract class UI extends AbstractSingleComponentContainer
 
         if (!getConnectorTracker().hasDirtyConnectors()) {
             // Do not push if there is nothing to push
+            pendingPushTimestamp = -1;
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long pushDelay = getPushDelay(now);
+        if (pushDelay > 0) {
+            // Changes made before the scheduled push are sent with it
+            if (scheduledPush == null) {
+                schedulePush(session, pushDelay);
+            }
             return;
         }
 
+        if (scheduledPush != null) {
+            scheduledPush.cancel(false);
+            scheduledPush = null;
+        }
+        lastPushTimestamp = now;
+        pendingPushTimestamp = -1;
         pushConnection.push();
     }
 
+    /**
+     * Gets the time to wait before the pending changes may be pushed
+     * according to the max push frequency and latency of the push
+     * configuration.
+     *
+     * @param now
+     *            the current time in milliseconds
+     * @return the delay in milliseconds, or 0 to push immediately
+     */
+    private long getPushDelay(long now) {
+        PushConfiguration configuration = getPushConfiguration();
+        int maxPushFrequency = configuration.getMaxPushFrequency();
+        if (maxPushFrequency <= 0) {
+            return 0;
+        }
+        if (pendingPushTimestamp < 0) {
+            pendingPushTimestamp = now;
+        }
+        long pushTime = lastPushTimestamp + 1000 / maxPushFrequency;
+        int maxPushLatency = configuration.getMaxPushLatency();
+        if (maxPushLatency > 0) {
+            pushTime = Math.min(pushTime,
+                    pendingPushTimestamp + maxPushLatency);
+        }
+        return Math.max(0, pushTime - now);
+    }
+
+    private void schedulePush(VaadinSession session, long delay) {
+        scheduledPush = PushScheduler.schedule(() -> session.access(() -> {
+            scheduledPush = null;
+            if (getSession() == session
+                    && getPushConfiguration().getPushMode().isEnabled()) {
+                push();
+            }
+        }), delay);
+    }
+
     /**
      * Returns the internal push connection object used by this UI. This method
      * should only be called by the framework.
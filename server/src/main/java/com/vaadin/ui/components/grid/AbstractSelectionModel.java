@@ -15,12 +15,14 @@
  */
 package com.vaadin.ui.components.grid;
 
+import com.vaadin.data.provider.DataObjectWriter;
 import com.vaadin.shared.data.DataCommunicatorConstants;
 import com.vaadin.shared.ui.grid.AbstractSelectionModelState;
 import com.vaadin.ui.AbstractListing;
 import com.vaadin.ui.Grid;
 import com.vaadin.ui.Grid.AbstractGridExtension;
 
+import elemental.json.Json;
 import elemental.json.JsonObject;
 
 /**
@@ -36,6 +38,12 @@ import elemental.json.JsonObject;
 public abstract class AbstractSelectionModel<T> extends AbstractGridExtension<T>
         implements GridSelectionModel<T> {
 
+    /**
+     * Whether a subclass overrides {@link #generateData(Object, JsonObject)},
+     * in which case the data must also be written through that method.
+     */
+    private final boolean jsonObjectGeneratorOverridden = isJsonObjectGeneratorOverridden();
+
     @Override
     public void generateData(T item, JsonObject jsonObject) {
         if (isSelected(item)) {
@@ -46,6 +54,34 @@ public abstract class AbstractSelectionModel<T> extends AbstractGridExtension<T>
         }
     }
 
+    @Override
+    public void generateData(T item, DataObjectWriter writer) {
+        if (jsonObjectGeneratorOverridden) {
+            JsonObject jsonObject = Json.createObject();
+            generateData(item, jsonObject);
+            writer.putAll(jsonObject);
+        } else if (isSelected(item)) {
+            // Pre-emptive update in case used a stale element in selection.
+            refreshData(item);
+
+            writer.put(DataCommunicatorConstants.SELECTED, true);
+        }
+    }
+
+    private boolean isJsonObjectGeneratorOverridden() {
+        for (Class<?> type = getClass(); type != AbstractSelectionModel.class;
+                type = type.getSuperclass()) {
+            try {
+                type.getDeclaredMethod("generateData", Object.class,
+                        JsonObject.class);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // Not overridden in this class
+            }
+        }
+        return false;
+    }
+
     @Override
     public void destroyAllData() {
         deselectAll();
@@ -0,0 +1,104 @@
+package com.vaadin.benchmarks;
+
+import java.util.function.Supplier;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.CompactDiffStateStore;
+import com.vaadin.server.DefaultDiffStateStore;
+import com.vaadin.server.DiffStateStore;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.CheckBox;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.HorizontalLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+/*
+ * Compares the heap retained by the diff states of a UI with a large number of
+ * connectors when using DefaultDiffStateStore and CompactDiffStateStore, as
+ * well as the time it takes to encode the state of all connectors.
+ *
+ * The retained size is measured as the difference in used heap before and
+ * after clearing the store, so run with a fixed heap size, e.g. -Xms1g -Xmx1g,
+ * to get stable numbers.
+ */
+public class DiffStateStoreMemoryBenchmark {
+
+    private static final int ROWS = 5000;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) throws InterruptedException {
+        UI ui = new MockUI();
+        VerticalLayout layout = new VerticalLayout();
+        for (int i = 0; i < ROWS; i++) {
+            Label label = new Label("Label " + i);
+            label.setDescription("Description for row " + i);
+            TextField field = new TextField("Field " + i, "value " + i);
+            field.setPlaceholder("Type something");
+            Button button = new Button("Button " + i);
+            button.addStyleName("row-button");
+            CheckBox checkBox = new CheckBox("Check " + i, i % 2 == 0);
+            HorizontalLayout row = new HorizontalLayout(label, field, button,
+                    checkBox);
+            row.setWidth("100%");
+            layout.addComponent(row);
+        }
+        ui.setContent(layout);
+
+        // warmup
+        measure(ui, DefaultDiffStateStore::new, false);
+        measure(ui, CompactDiffStateStore::new, false);
+
+        measure(ui, DefaultDiffStateStore::new, true);
+        measure(ui, CompactDiffStateStore::new, true);
+    }
+
+    private static void measure(UI ui, Supplier<DiffStateStore> storeFactory,
+            boolean print) throws InterruptedException {
+        ConnectorTracker tracker = ui.getConnectorTracker();
+        DiffStateStore store = storeFactory.get();
+        tracker.setDiffStateStore(store);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            // Initial round stores the full state, the following ones diff
+            // against the stored state
+            encodeAll(ui);
+        }
+        long time = (System.nanoTime() - start) / ROUNDS;
+
+        long withStates = usedMemory();
+        store.clear();
+        long withoutStates = usedMemory();
+
+        if (print) {
+            System.out.println(String.format(
+                    "%s: %d connectors, %d KB retained, %.2f ms to encode all states",
+                    store.getClass().getSimpleName(),
+                    tracker.getDirtyConnectors().size(),
+                    (withStates - withoutStates) / 1024, time / 1000000.0));
+        }
+    }
+
+    private static void encodeAll(UI ui) {
+        ConnectorTracker tracker = ui.getConnectorTracker();
+        tracker.markAllConnectorsDirty();
+        tracker.setWritingResponse(true);
+        for (ClientConnector connector : tracker.getDirtyConnectors()) {
+            connector.encodeState();
+        }
+        tracker.setWritingResponse(false);
+    }
+
+    private static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,89 @@
+package com.vaadin.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+/*
+ * Compares getting the dirty visible connectors of a UI with deeply nested
+ * layouts in hierarchy order from the depth buckets in ConnectorTracker with
+ * sorting them by walking the parent chain of each connector, which is what
+ * UidlWriter used to do in each round of calling beforeClientResponse.
+ */
+public class DirtyConnectorOrderingBenchmark {
+
+    private static final int DEPTH = 50;
+    private static final int BRANCHES = 40;
+    private static final int ROUNDS = 500;
+
+    private static int sink = 0;
+
+    public static void main(String[] args) {
+        UI ui = new MockUI();
+        VerticalLayout root = new VerticalLayout();
+        for (int branch = 0; branch < BRANCHES; branch++) {
+            VerticalLayout layout = new VerticalLayout();
+            root.addComponent(layout);
+            for (int depth = 0; depth < DEPTH; depth++) {
+                VerticalLayout child = new VerticalLayout(
+                        new Label("Label " + depth));
+                layout.addComponent(child);
+                layout = child;
+            }
+        }
+        ui.setContent(root);
+        ConnectorTracker tracker = ui.getConnectorTracker();
+        tracker.markAllConnectorsDirty();
+
+        // warmup
+        for (int i = 0; i < ROUNDS; i++) {
+            sortByWalkingParents(tracker);
+            sink += tracker.getDirtyVisibleConnectors().size();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sortByWalkingParents(tracker);
+        }
+        long sortTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += tracker.getDirtyVisibleConnectors().size();
+        }
+        long bucketTime = System.nanoTime() - start;
+
+        System.out.println(String.format(
+                "%d dirty connectors: sorting %.3f ms, depth buckets %.3f ms (%d)",
+                tracker.getDirtyConnectors().size(),
+                sortTime / ROUNDS / 1000000.0, bucketTime / ROUNDS / 1000000.0,
+                sink));
+    }
+
+    private static void sortByWalkingParents(ConnectorTracker tracker) {
+        List<ClientConnector> connectors = new ArrayList<>();
+        for (ClientConnector c : tracker.getDirtyConnectors()) {
+            if (LegacyCommunicationManager.isConnectorVisibleToClient(c)) {
+                connectors.add(c);
+            }
+        }
+        connectors.sort(Comparator.comparingInt(conn -> {
+            int depth = 0;
+            ClientConnector connector = conn;
+            while (connector.getParent() != null) {
+                ++depth;
+                connector = connector.getParent();
+            }
+            return depth;
+        }));
+        sink += connectors.size();
+    }
+}
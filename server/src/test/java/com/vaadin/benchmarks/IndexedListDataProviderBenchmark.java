@@ -0,0 +1,96 @@
+package com.vaadin.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import com.vaadin.data.provider.IndexedListDataProvider;
+import com.vaadin.data.provider.ListDataProvider;
+import com.vaadin.data.provider.Query;
+import com.vaadin.server.SerializablePredicate;
+
+/*
+ * Compares ListDataProvider and IndexedListDataProvider when scrolling through
+ * a filtered and sorted collection of 10k, 100k and 1M items the way a Grid
+ * does: a size query followed by page fetches, first from the start and then
+ * from random positions.
+ */
+public class IndexedListDataProviderBenchmark {
+
+    private static final int PAGE_SIZE = 40;
+    private static final int PAGES = 50;
+
+    private static long sink = 0;
+
+    public static void main(String[] args) {
+        // warmup
+        for (int i = 0; i < 3; i++) {
+            run(false, 10000, false);
+            run(false, 10000, true);
+        }
+
+        for (int size : new int[] { 10000, 100000, 1000000 }) {
+            run(true, size, false);
+            run(true, size, true);
+        }
+        System.out.println("(" + sink + ")");
+    }
+
+    private static void run(boolean print, int size, boolean indexed) {
+        List<Item> items = new ArrayList<>(size);
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            items.add(new Item(random.nextInt(size), random.nextInt(10)));
+        }
+        ListDataProvider<Item> dataProvider = indexed
+                ? new IndexedListDataProvider<>(items)
+                : new ListDataProvider<>(items);
+        SerializablePredicate<Item> filter = item -> item.category != 0;
+        Comparator<Item> comparator = Comparator.comparing(Item::getValue);
+
+        long start = System.nanoTime();
+        int count = dataProvider.size(new Query<>(0, Integer.MAX_VALUE, null,
+                comparator, filter));
+        for (int page = 0; page < PAGES; page++) {
+            sink += fetch(dataProvider, page * PAGE_SIZE, comparator, filter);
+        }
+        long firstPages = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int page = 0; page < PAGES; page++) {
+            sink += fetch(dataProvider, random.nextInt(count - PAGE_SIZE),
+                    comparator, filter);
+        }
+        long randomPages = System.nanoTime() - start;
+
+        if (print) {
+            System.out.println(String.format(
+                    "%s, %d items: size and first %d pages %.1f ms, %d random pages %.1f ms",
+                    indexed ? "IndexedListDataProvider" : "ListDataProvider",
+                    size, PAGES, firstPages / 1000000.0, PAGES,
+                    randomPages / 1000000.0));
+        }
+    }
+
+    private static int fetch(ListDataProvider<Item> dataProvider, int offset,
+            Comparator<Item> comparator, SerializablePredicate<Item> filter) {
+        return dataProvider.fetch(
+                new Query<>(offset, PAGE_SIZE, null, comparator, filter))
+                .mapToInt(Item::getValue).sum();
+    }
+
+    private static class Item {
+        private final int value;
+        private final int category;
+
+        private Item(int value, int category) {
+            this.value = value;
+            this.category = category;
+        }
+
+        private int getValue() {
+            return value;
+        }
+    }
+}
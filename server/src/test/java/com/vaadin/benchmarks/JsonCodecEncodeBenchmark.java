@@ -0,0 +1,129 @@
+package com.vaadin.benchmarks;
+
+import com.vaadin.server.JsonCodec;
+import com.vaadin.server.JsonCodec.BeanProperty;
+import com.vaadin.shared.communication.SharedState;
+import com.vaadin.shared.ui.grid.GridState;
+import com.vaadin.shared.ui.label.LabelState;
+import com.vaadin.shared.ui.orderedlayout.VerticalLayoutState;
+
+import elemental.json.Json;
+import elemental.json.JsonNull;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+/*
+ * Compares encoding shared states using the precompiled property encoders in
+ * JsonCodec with encoding them by reading each property reflectively through
+ * JsonCodec.getProperties(), which is how JsonCodec used to encode beans.
+ *
+ * Both a full encoding (no diff state) and a diff against an unchanged diff
+ * state, which is the most common case for dirty connectors, are measured.
+ */
+public class JsonCodecEncodeBenchmark {
+
+    private static final int WARMUP_ROUNDS = 200000;
+    private static final int ROUNDS = 1000000;
+
+    private static int sink = 0;
+
+    public static void main(String[] args) throws Exception {
+        LabelState labelState = new LabelState();
+        labelState.caption = "Caption";
+        labelState.description = "Description";
+        labelState.text = "Label text";
+        labelState.width = "100%";
+
+        GridState gridState = new GridState();
+        gridState.caption = "Grid";
+        gridState.frozenColumnCount = 1;
+        gridState.columnOrder.add("first");
+        gridState.columnOrder.add("second");
+
+        VerticalLayoutState layoutState = new VerticalLayoutState();
+        layoutState.spacing = true;
+        layoutState.marginsBitmask = 15;
+        layoutState.width = "100%";
+
+        for (SharedState state : new SharedState[] { labelState, gridState,
+                layoutState }) {
+            run(state, false);
+        }
+        for (SharedState state : new SharedState[] { labelState, gridState,
+                layoutState }) {
+            run(state, true);
+        }
+        System.out.println("(" + sink + ")");
+    }
+
+    private static void run(SharedState state, boolean print)
+            throws Exception {
+        int rounds = print ? ROUNDS : WARMUP_ROUNDS;
+        JsonObject reference = (JsonObject) JsonCodec
+                .encode(state, null, state.getClass(), null).getEncodedValue();
+
+        long reflectiveFull = time(state, null, rounds, true);
+        long precompiledFull = time(state, null, rounds, false);
+        long reflectiveDiff = time(state, reference, rounds, true);
+        long precompiledDiff = time(state, reference, rounds, false);
+
+        if (print) {
+            System.out.println(String.format(
+                    "%s: full %d ns -> %d ns, diff %d ns -> %d ns",
+                    state.getClass().getSimpleName(), reflectiveFull / rounds,
+                    precompiledFull / rounds, reflectiveDiff / rounds,
+                    precompiledDiff / rounds));
+        }
+    }
+
+    private static long time(SharedState state, JsonObject reference,
+            int rounds, boolean reflective) throws Exception {
+        Class<?> type = state.getClass();
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            JsonObject diff;
+            if (reflective) {
+                diff = encodeReflectively(state, type, reference);
+            } else {
+                diff = (JsonObject) JsonCodec
+                        .encode(state, reference, type, null).getDiff();
+            }
+            sink += diff.keys().length;
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static JsonObject encodeReflectively(Object value, Class<?> type,
+            JsonObject reference) throws Exception {
+        JsonObject encoded = Json.createObject();
+        JsonObject diff = Json.createObject();
+        for (BeanProperty property : JsonCodec.getProperties(type)) {
+            String fieldName = property.getName();
+            Object fieldValue = property.getValue(value);
+
+            JsonValue fieldReference = null;
+            if (reference != null) {
+                fieldReference = reference.get(fieldName);
+                if (fieldReference instanceof JsonNull) {
+                    fieldReference = null;
+                }
+            }
+
+            JsonValue encodedValue = JsonCodec.encode(fieldValue,
+                    fieldReference, property.getType(), null)
+                    .getEncodedValue();
+            encoded.put(fieldName, encodedValue);
+            boolean changed;
+            if (encodedValue instanceof JsonNull) {
+                changed = fieldReference != null;
+            } else {
+                changed = fieldReference == null
+                        || !JsonCodec.jsonEquals(encodedValue, fieldReference);
+            }
+            if (changed) {
+                diff.put(fieldName, encodedValue);
+            }
+        }
+        return diff;
+    }
+}
@@ -0,0 +1,132 @@
+package com.vaadin.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+
+import com.vaadin.server.communication.FileUploadHandler;
+import com.vaadin.server.communication.FileUploadHandler.SimpleMultiPartInputStream;
+
+/*
+ * Measures the throughput and CPU time of extracting the content of a
+ * synthetic multipart upload (1GB by default, the size in megabytes can be
+ * given as the first argument) using SimpleMultiPartInputStream.
+ *
+ * The "byte at a time" case reads through InputStream.read(), which is how
+ * the stream was consumed when it only supported single byte reads. The other
+ * cases read in blocks of the given size like
+ * FileUploadHandler.streamToReceiver does. The content contains CSV like rows
+ * with line breaks, so partial boundary matches ("\r\n") are common.
+ */
+public class MultipartUploadBenchmark {
+
+    private static final String BOUNDARY = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+
+    private static long sink = 0;
+
+    public static void main(String[] args) throws IOException {
+        long size = (args.length > 0 ? Long.parseLong(args[0]) : 1024) * 1024
+                * 1024;
+
+        // warmup
+        run("warmup", size / 16, 0);
+        run("warmup", size / 16, FileUploadHandler.DEFAULT_UPLOAD_BUFFER_SIZE);
+
+        run("byte at a time", size, 0);
+        run("4KB reads", size, 4 * 1024);
+        run("64KB reads", size, FileUploadHandler.DEFAULT_UPLOAD_BUFFER_SIZE);
+        run("1MB reads", size, 1024 * 1024);
+        System.out.println("(" + sink + ")");
+    }
+
+    private static void run(String name, long size, int bufferSize)
+            throws IOException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        InputStream in = new SimpleMultiPartInputStream(
+                new SyntheticUploadStream(size), BOUNDARY,
+                Math.max(bufferSize,
+                        FileUploadHandler.DEFAULT_UPLOAD_BUFFER_SIZE));
+
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        long start = System.nanoTime();
+        long total = 0;
+        if (bufferSize == 0) {
+            while (in.read() != -1) {
+                total++;
+            }
+        } else {
+            byte[] buffer = new byte[bufferSize];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                total += count;
+                sink += buffer[0];
+            }
+        }
+        long time = System.nanoTime() - start;
+        long cpuTime = threads.getCurrentThreadCpuTime() - cpuStart;
+
+        if (total != size) {
+            throw new IllegalStateException(
+                    "Read " + total + " bytes, expected " + size);
+        }
+        if (!name.equals("warmup")) {
+            System.out.println(String.format(
+                    "%s: %d MB in %.0f ms, %.0f MB/s, CPU %.0f ms",
+                    name, size / 1024 / 1024, time / 1000000.0,
+                    size / 1024.0 / 1024.0 / (time / 1000000000.0),
+                    cpuTime / 1000000.0));
+        }
+    }
+
+    /**
+     * Generates the content of a file part of the given size followed by the
+     * closing boundary without keeping it in memory.
+     */
+    private static class SyntheticUploadStream extends InputStream {
+        private final byte[] row = "12345,Some product name,42.50,2021-03-01\r\n"
+                .getBytes(StandardCharsets.US_ASCII);
+        private final byte[] end = ("\r\n--" + BOUNDARY + "--\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        private final long size;
+        private long position = 0;
+
+        private SyntheticUploadStream(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long remaining = size + end.length - position;
+            if (remaining <= 0) {
+                return -1;
+            }
+            int count = (int) Math.min(len, remaining);
+            int copied = 0;
+            while (copied < count) {
+                int chunk;
+                if (position < size) {
+                    int rowOffset = (int) (position % row.length);
+                    chunk = (int) Math.min(
+                            Math.min(row.length - rowOffset, size - position),
+                            count - copied);
+                    System.arraycopy(row, rowOffset, b, off + copied, chunk);
+                } else {
+                    int endOffset = (int) (position - size);
+                    chunk = Math.min(end.length - endOffset, count - copied);
+                    System.arraycopy(end, endOffset, b, off + copied, chunk);
+                }
+                copied += chunk;
+                position += chunk;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.vaadin.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import com.vaadin.data.provider.ListDataProvider;
+import com.vaadin.data.provider.Query;
+import com.vaadin.server.SerializablePredicate;
+
+/*
+ * Compares sequential and parallel filtering and sorting of ListDataProvider
+ * for collections of different sizes to find the point from which parallel
+ * processing pays off on the current machine. Each round runs a size query
+ * and fetches the first page of the filtered and sorted items, which is what
+ * a Grid does after the filter changes.
+ *
+ * The number of threads can be changed with the
+ * -Dvaadin.dataProviderParallelism system property.
+ */
+public class ParallelListDataProviderBenchmark {
+
+    private static final int ROUNDS = 20;
+
+    private static long sink = 0;
+
+    public static void main(String[] args) {
+        // warmup
+        for (int i = 0; i < 5; i++) {
+            run(false, 100000, false);
+            run(false, 100000, true);
+        }
+
+        for (int size : new int[] { 1000, 5000, 10000, 50000, 100000, 500000,
+                1000000 }) {
+            double sequential = run(true, size, false);
+            double parallel = run(true, size, true);
+            System.out.println(String.format("%d items: speedup %.2f", size,
+                    sequential / parallel));
+        }
+        System.out.println("(" + sink + ")");
+    }
+
+    private static double run(boolean print, int size, boolean parallel) {
+        List<String> items = new ArrayList<>(size);
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            items.add("Item " + random.nextInt(size));
+        }
+        ListDataProvider<String> dataProvider = new ListDataProvider<>(items);
+        dataProvider.setParallelThreshold(parallel ? 0 : -1);
+        SerializablePredicate<String> filter = item -> item
+                .toLowerCase().contains("1");
+        Comparator<String> comparator = Comparator.naturalOrder();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += dataProvider.size(new Query<>(0, Integer.MAX_VALUE, null,
+                    comparator, filter));
+            sink += dataProvider
+                    .fetch(new Query<>(0, 50, null, comparator, filter))
+                    .count();
+        }
+        double time = (System.nanoTime() - start) / 1000000.0 / ROUNDS;
+
+        if (print) {
+            System.out.println(String.format("%s, %d items: %.2f ms",
+                    parallel ? "parallel" : "sequential", size, time));
+        }
+        return time;
+    }
+}
@@ -0,0 +1,125 @@
+package com.vaadin.benchmarks;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.mockito.Mockito;
+
+import com.vaadin.server.MockVaadinServletService;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.SessionLock;
+import com.vaadin.server.SessionLockMonitor;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.server.WrappedSession;
+
+/*
+ * Measures the cost of locking and unlocking a session lock with the session
+ * lock monitor disabled and enabled, compared to a session lock that is not
+ * connected to a monitor at all and to a plain ReentrantLock. The lock is
+ * taken both by a single thread and by several threads competing for it,
+ * which is what happens when a UIDL request, a heartbeat and a background
+ * thread using UI.access() arrive at the same time.
+ *
+ * With the monitor disabled, the overhead compared to the unmonitored session
+ * lock should be within the measurement noise, since locking only checks a
+ * volatile flag.
+ */
+public class SessionLockMonitorBenchmark {
+
+    private static final int ROUNDS = 5000000;
+    private static final int THREADS = 4;
+
+    private static long sink = 0;
+
+    public static void main(String[] args) throws Exception {
+        VaadinService service = new MockVaadinServletService();
+        SessionLockMonitor monitor = service.getSessionLockMonitor();
+        // Only measuring, don't log slow holds caused by the benchmark itself
+        monitor.setSlowHoldThreshold(0);
+        Lock plainLock = new ReentrantLock();
+        Lock unmonitoredLock = new SessionLock();
+        Lock sessionLock = createMonitoredLock(service);
+
+        // warmup
+        for (int i = 0; i < 3; i++) {
+            run(false, "", plainLock, 1);
+            run(false, "", unmonitoredLock, 1);
+            monitor.setEnabled(false);
+            run(false, "", sessionLock, 1);
+            monitor.setEnabled(true);
+            run(false, "", sessionLock, 1);
+        }
+
+        for (int threads : new int[] { 1, THREADS }) {
+            run(true, "ReentrantLock", plainLock, threads);
+            double unmonitored = run(true, "SessionLock, not monitored",
+                    unmonitoredLock, threads);
+            monitor.setEnabled(false);
+            double disabled = run(true, "SessionLock, monitor disabled",
+                    sessionLock, threads);
+            monitor.setEnabled(true);
+            double enabled = run(true, "SessionLock, monitor enabled",
+                    sessionLock, threads);
+            System.out.println(String.format(
+                    "%d threads: disabled overhead %.1f%%, enabled overhead %.1f%%",
+                    threads, (disabled / unmonitored - 1) * 100,
+                    (enabled / unmonitored - 1) * 100));
+        }
+        System.out.println("(" + sink + ", " + monitor.getLockCount()
+                + " monitored locks)");
+    }
+
+    private static Lock createMonitoredLock(VaadinService service) {
+        SessionLock lock = new SessionLock();
+        WrappedSession wrappedSession = Mockito.mock(WrappedSession.class);
+        Mockito.when(wrappedSession.getAttribute(Mockito.anyString()))
+                .thenReturn(lock);
+        VaadinSession session = new MockVaadinSession(service);
+        lock.lock();
+        try {
+            // Connects the lock to the session and its lock monitor
+            session.refreshTransients(wrappedSession, service);
+        } finally {
+            lock.unlock();
+        }
+        return lock;
+    }
+
+    private static double run(boolean print, String name, Lock lock,
+            int threads) throws InterruptedException {
+        int rounds = ROUNDS / threads;
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                long local = 0;
+                for (int j = 0; j < rounds; j++) {
+                    lock.lock();
+                    try {
+                        local++;
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                synchronized (SessionLockMonitorBenchmark.class) {
+                    sink += local;
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double time = (double) (System.nanoTime() - start) / ROUNDS;
+
+        if (print) {
+            System.out.println(String.format("%s, %d threads: %.1f ns/lock",
+                    name, threads, time));
+        }
+        return time;
+    }
+}
@@ -0,0 +1,140 @@
+package com.vaadin.benchmarks;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.function.Consumer;
+
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.communication.ServletUIInitHandlerTest.CommunicationMock;
+import com.vaadin.server.communication.UidlWriter;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.HorizontalLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.Panel;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+/*
+ * Measures the UIDL payload size for typical round trips in the layouts used
+ * by the uitest BasicPerformanceTest UI ("40 panels" and "40 layouts"). For
+ * each scenario, the size of the "types" and "hierarchy" sections is reported
+ * together with the number of dirty connectors, which is how many entries both
+ * sections contained before unchanged types and hierarchies were omitted.
+ */
+public class UidlPayloadSizeBenchmark {
+
+    private static final int CHILD_COUNT = 40;
+
+    public static void main(String[] args) throws Exception {
+        for (boolean wrapInPanel : new boolean[] { true, false }) {
+            String name = CHILD_COUNT + (wrapInPanel ? " panels" : " layouts");
+
+            run(name, "initial render", wrapInPanel, content -> {
+            });
+            run(name, "update one label", wrapInPanel,
+                    content -> findLabel(content, 0).setValue("New value"));
+            run(name, "update all labels", wrapInPanel,
+                    content -> forEachLabel(content,
+                            label -> label.setValue("New value")));
+            run(name, "mark all dirty", wrapInPanel,
+                    Component::markAsDirtyRecursive);
+            run(name, "add one label", wrapInPanel,
+                    content -> ((VerticalLayout) findLabel(content, 0)
+                            .getParent()).addComponent(new Label("Added")));
+        }
+    }
+
+    private static void run(String name, String scenario, boolean wrapInPanel,
+            Consumer<VerticalLayout> change) throws Exception {
+        UI ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        CommunicationMock mock = new CommunicationMock(ui);
+        ui.setSession(mock.session);
+        VerticalLayout content = new VerticalLayout();
+        populateContent(content, wrapInPanel);
+        ui.setContent(content);
+
+        if (!"initial render".equals(scenario)) {
+            write(ui);
+            change.accept(content);
+        }
+        int dirtyConnectors = ui.getConnectorTracker()
+                .getDirtyVisibleConnectors().size();
+        String response = write(ui);
+        JsonObject json = Json.parse("{" + response + "}");
+
+        System.out.println(String.format(
+                "%s, %s: %d bytes, %d dirty connectors, types %d entries (%d bytes), hierarchy %d entries (%d bytes)",
+                name, scenario, response.length(), dirtyConnectors,
+                json.getObject("types").keys().length,
+                json.getObject("types").toJson().length(),
+                json.getObject("hierarchy").keys().length,
+                json.getObject("hierarchy").toJson().length()));
+    }
+
+    private static String write(UI ui) throws IOException {
+        StringWriter writer = new StringWriter();
+        new UidlWriter().write(ui, writer, false);
+        return writer.toString();
+    }
+
+    private static Label findLabel(VerticalLayout content, int index) {
+        Label[] found = new Label[1];
+        int[] count = new int[1];
+        forEachLabel(content, label -> {
+            if (count[0]++ == index) {
+                found[0] = label;
+            }
+        });
+        return found[0];
+    }
+
+    private static void forEachLabel(Component component,
+            Consumer<Label> consumer) {
+        if (component instanceof Label) {
+            consumer.accept((Label) component);
+        } else if (component instanceof Iterable) {
+            for (Object child : (Iterable<?>) component) {
+                forEachLabel((Component) child, consumer);
+            }
+        }
+    }
+
+    // Same structure as BasicPerformanceTest.populateContent
+    private static void populateContent(VerticalLayout contentLayout,
+            boolean wrapInPanel) {
+        for (int i = 0; i < CHILD_COUNT; i++) {
+            VerticalLayout left = new VerticalLayout();
+            left.addComponent(new Label("Label 1"));
+            left.addComponent(new Label("Label 2"));
+            left.addComponent(new Label("Label 3"));
+
+            VerticalLayout right = new VerticalLayout();
+            right.addComponent(new Label("Label 4"));
+            right.addComponent(new Label("Label 5"));
+            right.addComponent(new Label("Label 6"));
+
+            HorizontalLayout columns = new HorizontalLayout();
+            columns.addComponent(left);
+            columns.addComponent(right);
+            columns.setHeight(null);
+            columns.setWidth("100%");
+
+            if (wrapInPanel) {
+                Panel panel = new Panel("Data " + i, columns);
+                panel.setWidth("100%");
+                panel.setHeight(null);
+
+                contentLayout.addComponent(panel);
+            } else {
+                contentLayout.addComponent(columns);
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.vaadin.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.mockito.Mockito;
+
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.VaadinServletResponse;
+import com.vaadin.server.communication.ServletUIInitHandlerTest.CommunicationMock;
+import com.vaadin.server.communication.StreamingJsonResponseWriter;
+import com.vaadin.server.communication.UidlWriter;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+/*
+ * Compares the heap allocated per UIDL response when the response is first
+ * buffered into a String (the default) and when it is streamed through
+ * StreamingJsonResponseWriter. Every round resends the full state of a UI with
+ * a large number of components, which corresponds to a repaintAll resync.
+ *
+ * Allocation is measured using com.sun.management.ThreadMXBean, so this
+ * requires a HotSpot based JVM. Run e.g. with -Xmx512m.
+ */
+public class UidlResponseAllocationBenchmark {
+
+    private static final int COMPONENTS = 5000;
+    private static final int ROUNDS = 200;
+
+    private static long writtenBytes = 0;
+
+    public static void main(String[] args) throws Exception {
+        UI ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        CommunicationMock mock = new CommunicationMock(ui);
+        ui.setSession(mock.session);
+
+        VerticalLayout layout = new VerticalLayout();
+        for (int i = 0; i < COMPONENTS; i++) {
+            layout.addComponent(new Label("Label number " + i
+                    + " with a reasonably long text to make the state larger"));
+        }
+        ui.setContent(layout);
+
+        VaadinResponse response = new VaadinServletResponse(
+                Mockito.mock(HttpServletResponse.class), mock.service) {
+            @Override
+            public ServletOutputStream getOutputStream() throws IOException {
+                return new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        writtenBytes++;
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len)
+                            throws IOException {
+                        writtenBytes += len;
+                    }
+                };
+            }
+        };
+
+        // warmup
+        for (int i = 0; i < ROUNDS; i++) {
+            writeBuffered(ui, response);
+            writeStreaming(ui, response);
+        }
+        System.gc();
+
+        report("buffered", ui, response, false);
+        report("streaming", ui, response, true);
+    }
+
+    private static void report(String name, UI ui, VaadinResponse response,
+            boolean streaming) throws IOException {
+        writtenBytes = 0;
+        long allocatedBefore = getAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            if (streaming) {
+                writeStreaming(ui, response);
+            } else {
+                writeBuffered(ui, response);
+            }
+        }
+        long time = System.nanoTime() - start;
+        long allocated = getAllocatedBytes() - allocatedBefore;
+        System.out.println(String.format(
+                "%s: %d bytes response, %d KB allocated per request, %.2f ms per request",
+                name, writtenBytes / ROUNDS, allocated / ROUNDS / 1024,
+                time / ROUNDS / 1000000.0));
+    }
+
+    private static void writeBuffered(UI ui, VaadinResponse response)
+            throws IOException {
+        StringWriter writer = new StringWriter();
+        writeUidl(ui, writer);
+        response.getOutputStream().write(writer.toString().getBytes(UTF_8));
+    }
+
+    private static void writeStreaming(UI ui, VaadinResponse response)
+            throws IOException {
+        StreamingJsonResponseWriter writer = new StreamingJsonResponseWriter(
+                response, 32 * 1024);
+        writeUidl(ui, writer);
+        writer.close();
+    }
+
+    private static void writeUidl(UI ui, Writer writer) throws IOException {
+        ConnectorTracker tracker = ui.getConnectorTracker();
+        tracker.markAllConnectorsDirty();
+        tracker.markAllClientSidesUninitialized();
+
+        writer.write("for(;;);[{");
+        new UidlWriter().write(ui, writer, false);
+        writer.write("}]");
+    }
+
+    private static long getAllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean())
+                        .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
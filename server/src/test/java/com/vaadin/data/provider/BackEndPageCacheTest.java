@@ -0,0 +1,137 @@
+package com.vaadin.data.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import com.vaadin.shared.Range;
+
+public class BackEndPageCacheTest {
+
+    private final List<Range> queries = new ArrayList<>();
+
+    private List<Integer> fetch(Range range) {
+        queries.add(range);
+        return IntStream.range(range.getStart(), Math.min(range.getEnd(), 95))
+                .boxed().collect(Collectors.toList());
+    }
+
+    private static List<Integer> items(int from, int to) {
+        return IntStream.range(from, to).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    public void get_missingPagesFetchedOnce() {
+        BackEndPageCache<Integer> cache = new BackEndPageCache<>(10, 0, 10);
+
+        assertEquals(items(5, 25), cache.get(5, 20, this::fetch));
+        assertEquals(Arrays.asList(Range.between(0, 30)), queries);
+
+        assertEquals(items(12, 18), cache.get(12, 6, this::fetch));
+        assertEquals(items(20, 35), cache.get(20, 15, this::fetch));
+        assertEquals(Arrays.asList(Range.between(0, 30), Range.between(30, 40)),
+                queries);
+    }
+
+    @Test
+    public void get_endOfData_notFetchedAgain() {
+        BackEndPageCache<Integer> cache = new BackEndPageCache<>(10, 0, 20);
+
+        assertEquals(items(80, 95), cache.get(80, 40, this::fetch));
+        assertEquals(1, queries.size());
+        assertEquals(items(90, 95), cache.get(90, 40, this::fetch));
+        assertEquals(1, queries.size());
+    }
+
+    @Test
+    public void get_leastRecentlyUsedPagesEvicted() {
+        BackEndPageCache<Integer> cache = new BackEndPageCache<>(10, 0, 2);
+        cache.get(0, 10, this::fetch);
+        cache.get(10, 10, this::fetch);
+        cache.get(0, 10, this::fetch);
+        cache.get(20, 10, this::fetch);
+        assertEquals(3, queries.size());
+
+        cache.get(0, 10, this::fetch);
+        assertEquals(3, queries.size());
+        cache.get(10, 10, this::fetch);
+        assertEquals(Range.between(10, 20), queries.get(3));
+    }
+
+    @Test
+    public void getReadAheadRange_inScrollingDirection() {
+        BackEndPageCache<Integer> cache = new BackEndPageCache<>(10, 2, 20);
+
+        cache.get(40, 15, this::fetch);
+        assertEquals(Range.between(60, 80), cache.getReadAheadRange(40, 15));
+        // Already pending
+        assertTrue(cache.getReadAheadRange(45, 15).isEmpty());
+
+        cache.get(20, 15, this::fetch);
+        assertEquals(Range.between(0, 20), cache.getReadAheadRange(20, 15));
+    }
+
+    @Test
+    public void putReadAhead_servedFromCache() {
+        BackEndPageCache<Integer> cache = new BackEndPageCache<>(10, 2, 20);
+        cache.get(0, 10, this::fetch);
+        Range range = cache.getReadAheadRange(0, 10);
+        cache.putReadAhead(cache.getGeneration(), range,
+                items(range.getStart(), range.getEnd()));
+
+        assertEquals(items(5, 30), cache.get(5, 25, this::fetch));
+        assertEquals(1, queries.size());
+    }
+
+    @Test
+    public void putReadAhead_afterClear_ignored() {
+        BackEndPageCache<Integer> cache = new BackEndPageCache<>(10, 2, 20);
+        cache.get(0, 10, this::fetch);
+        int generation = cache.getGeneration();
+        Range range = cache.getReadAheadRange(0, 10);
+
+        cache.clear();
+        cache.putReadAhead(generation, range, Arrays.asList(new Integer[20]));
+
+        assertEquals(items(10, 20), cache.get(10, 10, this::fetch));
+        assertEquals(2, queries.size());
+    }
+
+    @Test
+    public void defaultExecutor_full_readAheadRejected() throws Exception {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) BackEndPageCache
+                .getDefaultExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocked = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        int capacity = executor.getMaximumPoolSize()
+                + executor.getQueue().remainingCapacity();
+        try {
+            for (int i = 0; i < capacity; i++) {
+                executor.execute(blocked);
+            }
+            executor.execute(blocked);
+            fail("Read ahead should have been rejected");
+        } catch (RejectedExecutionException e) {
+            // Expected
+        } finally {
+            release.countDown();
+        }
+    }
+}
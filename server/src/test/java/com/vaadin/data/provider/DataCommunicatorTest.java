@@ -5,13 +5,24 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 import org.mockito.Mockito;
 
 import com.vaadin.data.provider.DataCommunicator.ActiveDataHandler;
+import com.vaadin.data.provider.DataCommunicator.SizeStrategy;
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.EncodedJson;
 import com.vaadin.server.MockVaadinSession;
 import com.vaadin.server.SerializableConsumer;
 import com.vaadin.server.SerializablePredicate;
@@ -20,6 +31,8 @@ import com.vaadin.server.VaadinService;
 import com.vaadin.server.VaadinSession;
 import com.vaadin.shared.Range;
 import com.vaadin.shared.Registration;
+import com.vaadin.shared.data.DataCommunicatorConstants;
+import com.vaadin.shared.data.sort.SortDirection;
 import com.vaadin.ui.UI;
 
 import elemental.json.Json;
@@ -314,4 +327,304 @@ public class DataCommunicatorTest {
         assertTrue("DataCommunicator should be marked as dirty",
                 ui.getConnectorTracker().isDirty(communicator));
     }
+
+    @Test
+    public void cachedSizeStrategy_sizeQueriedAgainAfterDataChange() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+
+        AtomicInteger sizeQueries = new AtomicInteger();
+        ListDataProvider<Object> dataProvider = new ListDataProvider<Object>(
+                new ArrayList<>(Arrays.asList("one", "two", "three"))) {
+            @Override
+            public int size(
+                    Query<Object, SerializablePredicate<Object>> query) {
+                sizeQueries.incrementAndGet();
+                return super.size(query);
+            }
+        };
+        communicator.setSizeStrategy(SizeStrategy.CACHED);
+        SerializableConsumer<SerializablePredicate<Object>> filterSlot = communicator
+                .setDataProvider(dataProvider, null);
+        communicator.beforeClientResponse(true);
+        assertEquals(1, sizeQueries.get());
+
+        communicator.reset();
+        communicator.beforeClientResponse(false);
+        assertEquals("Size should be cached", 1, sizeQueries.get());
+        assertEquals(Arrays.asList("reset(3)", "reset(3)"),
+                getSizeCalls(communicator));
+
+        dataProvider.getItems().add("four");
+        dataProvider.refreshAll();
+        communicator.beforeClientResponse(false);
+        assertEquals(2, sizeQueries.get());
+
+        filterSlot.accept(item -> !"one".equals(item));
+        communicator.beforeClientResponse(false);
+        assertEquals(3, sizeQueries.get());
+        assertEquals(Arrays.asList("reset(4)", "reset(3)"),
+                getSizeCalls(communicator));
+    }
+
+    @Test
+    public void estimatedSizeStrategy_sizeGrowsUntilEndFound() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+
+        AtomicInteger sizeQueries = new AtomicInteger();
+        ListDataProvider<Object> dataProvider = new ListDataProvider<Object>(
+                IntStream.range(0, 100).boxed()
+                        .collect(Collectors.toList())) {
+            @Override
+            public int size(
+                    Query<Object, SerializablePredicate<Object>> query) {
+                sizeQueries.incrementAndGet();
+                return super.size(query);
+            }
+        };
+        communicator.setSizeStrategy(SizeStrategy.ESTIMATED);
+        communicator.setDataProvider(dataProvider, null);
+        communicator.beforeClientResponse(true);
+        // Full first page of 40 rows
+        assertEquals(Arrays.asList("reset(50)", "updateSize(90)"),
+                getSizeCalls(communicator));
+
+        communicator.onRequestRows(60, 30, 0, 40);
+        communicator.beforeClientResponse(false);
+        assertEquals(Arrays.asList("updateSize(140)"),
+                getSizeCalls(communicator));
+
+        // Only 20 rows found, the exact size is now known
+        communicator.onRequestRows(80, 60, 0, 90);
+        communicator.beforeClientResponse(false);
+        assertEquals(Arrays.asList("updateSize(100)"),
+                getSizeCalls(communicator));
+
+        communicator.onRequestRows(40, 60, 0, 100);
+        communicator.beforeClientResponse(false);
+        assertEquals(Collections.emptyList(), getSizeCalls(communicator));
+
+        assertEquals(0, sizeQueries.get());
+    }
+
+    @Test
+    public void backEndPageCache_readAheadServesNextRequest() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+
+        List<Query<Object, Void>> queries = new ArrayList<>();
+        CallbackDataProvider<Object, Void> dataProvider = new CallbackDataProvider<>(
+                query -> {
+                    queries.add(query);
+                    return IntStream
+                            .range(query.getOffset(),
+                                    Math.min(query.getOffset()
+                                            + query.getLimit(), 1000))
+                            .boxed().map(Object.class::cast);
+                }, query -> 1000);
+        communicator.setBackEndPageCache(20, 2, 100);
+        communicator.setReadAheadExecutor(Runnable::run);
+        communicator.setDataProvider(dataProvider, null);
+
+        assertEquals(40, communicator.fetchItemsWithRange(0, 40).size());
+        // Requested pages and two pages read ahead
+        assertEquals(2, queries.size());
+        assertEquals(40, queries.get(1).getOffset());
+        assertEquals(40, queries.get(1).getLimit());
+
+        assertEquals(IntStream.range(50, 80).boxed()
+                .collect(Collectors.toList()),
+                communicator.fetchItemsWithRange(50, 30));
+        assertEquals(3, queries.size());
+        assertEquals(80, queries.get(2).getOffset());
+
+        dataProvider.refreshAll();
+        communicator.fetchItemsWithRange(50, 30);
+        assertEquals(5, queries.size());
+    }
+
+    @Test
+    public void fetchAsynchronously_rowsPushedWhenFetchCompletes() {
+        session.lock();
+        UI ui = new TestUI(session);
+        ui.setPollInterval(1000);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+
+        List<CompletableFuture<List<Object>>> fetches = new ArrayList<>();
+        AbstractBackEndDataProvider<Object, Void> dataProvider = new AbstractBackEndDataProvider<Object, Void>() {
+            @Override
+            protected Stream<Object> fetchFromBackEnd(Query<Object, Void> query) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            protected CompletionStage<List<Object>> fetchFromBackEndAsync(
+                    Query<Object, Void> query) {
+                CompletableFuture<List<Object>> fetch = new CompletableFuture<>();
+                fetches.add(fetch);
+                return fetch;
+            }
+
+            @Override
+            protected int sizeInBackEnd(Query<Object, Void> query) {
+                return 100;
+            }
+        };
+        communicator.setFetchAsynchronously(true);
+        communicator.setDataProvider(dataProvider, null);
+        communicator.beforeClientResponse(true);
+        assertEquals(1, fetches.size());
+        assertEquals(Collections.emptyList(), getSetDataCalls(communicator));
+
+        fetches.get(0).complete(IntStream.range(0, 40).boxed()
+                .map(Object.class::cast).collect(Collectors.toList()));
+        assertEquals(Arrays.asList("setData(0, 40)"),
+                getSetDataCalls(communicator));
+
+        // Sorting changes before the fetch completes, the rows are stale
+        communicator.onRequestRows(40, 40, 0, 40);
+        communicator.beforeClientResponse(false);
+        communicator.setBackEndSorting(
+                Collections.singletonList(new QuerySortOrder("name",
+                        SortDirection.DESCENDING)));
+        fetches.get(1).complete(IntStream.range(40, 80).boxed()
+                .map(Object.class::cast).collect(Collectors.toList()));
+        assertEquals(Collections.emptyList(), getSetDataCalls(communicator));
+    }
+
+    @Test
+    public void fetchAsynchronously_noPushOrPolling_waitsForFetch() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+
+        CompletableFuture<List<Object>> fetch = new CompletableFuture<>();
+        CallbackDataProvider<Object, Void> dataProvider = new CallbackDataProvider<Object, Void>(
+                query -> Stream.empty(), query -> 3) {
+            @Override
+            public CompletionStage<List<Object>> fetchAsync(
+                    Query<Object, Void> query) {
+                return fetch;
+            }
+        };
+        communicator.setFetchAsynchronously(true);
+        communicator.setDataProvider(dataProvider, null);
+        new Thread(() -> fetch.complete(Arrays.asList("one", "two", "three")))
+                .start();
+        communicator.beforeClientResponse(true);
+        assertEquals(Arrays.asList("setData(0, 3)"),
+                getSetDataCalls(communicator));
+    }
+
+    @Test
+    public void requestRows_nearbyRangesFetchedWithSingleQuery() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+
+        List<Query<Object, Void>> queries = new ArrayList<>();
+        CallbackDataProvider<Object, Void> dataProvider = new CallbackDataProvider<>(
+                query -> {
+                    queries.add(query);
+                    return IntStream
+                            .range(query.getOffset(),
+                                    Math.min(query.getOffset()
+                                            + query.getLimit(), 1000))
+                            .boxed().map(Object.class::cast);
+                }, query -> 1000);
+        communicator.setDataProvider(dataProvider, null);
+        communicator.beforeClientResponse(true);
+        // Size and first rows
+        assertEquals(2, communicator.getLastResponseQueryCount());
+        queries.clear();
+        communicator.retrievePendingRpcCalls();
+
+        communicator.onRequestRows(100, 20, 0, 0);
+        communicator.onRequestRows(110, 20, 0, 0);
+        communicator.onRequestRows(150, 10, 0, 0);
+        communicator.onRequestRows(500, 10, 0, 0);
+        communicator.beforeClientResponse(false);
+
+        assertEquals(2, communicator.getLastResponseQueryCount());
+        assertEquals(2, queries.size());
+        assertEquals(100, queries.get(0).getOffset());
+        assertEquals(60, queries.get(0).getLimit());
+        assertEquals(500, queries.get(1).getOffset());
+        assertEquals(Arrays.asList("setData(100, 30)", "setData(150, 10)",
+                "setData(500, 10)"), getSetDataCalls(communicator));
+    }
+
+    @Test
+    public void pushData_dataWrittenAsText_matchesDataObjects() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+        communicator.addDataGenerator((item, jsonObject) -> {
+            JsonObject data = Json.createObject();
+            data.put("name", "\"Item\"\n" + item);
+            data.put("index", 2);
+            jsonObject.put(DataCommunicatorConstants.DATA, data);
+            jsonObject.put("number", 1.5);
+        });
+        communicator.addDataGenerator(new DataGenerator<Object>() {
+            @Override
+            public void generateData(Object item, JsonObject jsonObject) {
+                jsonObject.put("selected", true);
+            }
+
+            @Override
+            public void generateData(Object item, DataObjectWriter writer) {
+                writer.put("selected", true);
+            }
+        });
+        communicator.setDataProvider(
+                new ListDataProvider<>(Arrays.<Object> asList("a", "b")), null);
+        communicator.beforeClientResponse(true);
+
+        JsonArray data = communicator.retrievePendingRpcCalls().stream()
+                .filter(call -> call.getMethodName().equals("setData"))
+                .map(call -> getDataArray(call.getParameters()[1]))
+                .findFirst().get();
+        assertEquals(2, data.length());
+        assertTrue(communicator.getDataObject("a")
+                .jsonEquals(data.getObject(0)));
+        assertTrue(communicator.getDataObject("b")
+                .jsonEquals(data.getObject(1)));
+    }
+
+    private static List<String> getSetDataCalls(ClientConnector connector) {
+        return connector.retrievePendingRpcCalls().stream()
+                .filter(call -> call.getMethodName().equals("setData"))
+                .map(call -> "setData(" + call.getParameters()[0] + ", "
+                        + getDataArray(call.getParameters()[1]).length()
+                        + ")")
+                .collect(Collectors.toList());
+    }
+
+    private static JsonArray getDataArray(Object parameter) {
+        if (parameter instanceof EncodedJson) {
+            return ((EncodedJson) parameter).parse();
+        }
+        return (JsonArray) parameter;
+    }
+
+    private static List<String> getSizeCalls(ClientConnector connector) {
+        return connector.retrievePendingRpcCalls().stream()
+                .filter(call -> call.getMethodName().equals("reset")
+                        || call.getMethodName().equals("updateSize"))
+                .map(call -> call.getMethodName() + "("
+                        + call.getParameters()[0] + ")")
+                .collect(Collectors.toList());
+    }
 }
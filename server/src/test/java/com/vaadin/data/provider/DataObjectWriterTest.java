@@ -0,0 +1,83 @@
+package com.vaadin.data.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+import elemental.json.impl.JsonUtil;
+
+public class DataObjectWriterTest {
+
+    private final DataObjectWriter writer = new DataObjectWriter();
+
+    private String write() {
+        StringBuilder builder = new StringBuilder();
+        writer.writeTo(builder);
+        return builder.toString();
+    }
+
+    @Test
+    public void put_valuesWrittenAsJson() {
+        writer.put("s", "a\"b\\c\n\u0001 ");
+        writer.put("i", 42);
+        writer.put("d", 1.5);
+        writer.put("nan", Double.NaN);
+        writer.put("b", false);
+        writer.put("n", (String) null);
+
+        assertEquals("{\"s\":\"a\\\"b\\\\c\\n\\u0001\\u2028\",\"i\":42,"
+                + "\"d\":1.5,\"nan\":null,\"b\":false,\"n\":null}", write());
+    }
+
+    @Test
+    public void put_nestedObjectsCombined() {
+        writer.put("d", "1", "one");
+        writer.put("k", "key");
+        writer.put("style", "1", "bold");
+        writer.put("d", "2", Json.create(2));
+
+        assertEquals(
+                "{\"k\":\"key\",\"d\":{\"1\":\"one\",\"2\":2},"
+                        + "\"style\":{\"1\":\"bold\"}}",
+                write());
+    }
+
+    @Test
+    public void writeTo_writerReset() {
+        writer.put("d", "1", "one");
+        writer.put("k", "key");
+        write();
+
+        assertEquals("{}", write());
+        writer.put("style", "1", "bold");
+        assertEquals("{\"style\":{\"1\":\"bold\"}}", write());
+    }
+
+    @Test
+    public void clear_partialMembersDiscarded() {
+        writer.put("d", "1", "one");
+        writer.put("k", "key");
+        writer.clear();
+
+        writer.put("i", 1);
+        assertEquals("{\"i\":1}", write());
+    }
+
+    @Test
+    public void putAll_sameAsJsonObject() {
+        JsonObject nested = Json.createObject();
+        nested.put("1", "one");
+        nested.put("2", Json.createArray());
+        JsonObject jsonObject = Json.createObject();
+        jsonObject.put("k", "key");
+        jsonObject.put("d", nested);
+        jsonObject.put("x", Json.createNull());
+
+        writer.putAll(jsonObject);
+
+        assertTrue(jsonObject.jsonEquals(JsonUtil.parse(write())));
+    }
+}
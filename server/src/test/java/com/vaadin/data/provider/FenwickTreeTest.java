@@ -0,0 +1,48 @@
+package com.vaadin.data.provider;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class FenwickTreeTest {
+
+    @Test
+    public void prefixSum_matchesInitialValues() {
+        int[] values = { 3, 1, 4, 1, 5, 9, 2 };
+        FenwickTree tree = new FenwickTree(values);
+
+        int sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(sum, tree.prefixSum(i));
+            assertEquals(values[i], tree.get(i));
+            sum += values[i];
+        }
+        assertEquals(sum, tree.prefixSum(values.length));
+        assertEquals(sum, tree.getTotal());
+    }
+
+    @Test
+    public void add_updatesSums() {
+        FenwickTree tree = new FenwickTree(new int[] { 1, 1, 1, 1, 1 });
+        tree.add(2, 4);
+        tree.add(0, -1);
+
+        assertEquals(0, tree.prefixSum(1));
+        assertEquals(1, tree.prefixSum(2));
+        assertEquals(6, tree.prefixSum(3));
+        assertEquals(8, tree.getTotal());
+    }
+
+    @Test
+    public void find_returnsPositionCoveringOffset() {
+        FenwickTree tree = new FenwickTree(new int[] { 2, 0, 3, 1 });
+
+        assertEquals(0, tree.find(0));
+        assertEquals(0, tree.find(1));
+        assertEquals(2, tree.find(2));
+        assertEquals(2, tree.find(4));
+        assertEquals(3, tree.find(5));
+        assertEquals(4, tree.find(6));
+        assertEquals(0, new FenwickTree(new int[0]).find(0));
+    }
+}
@@ -0,0 +1,138 @@
+package com.vaadin.data.provider;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.vaadin.server.SerializablePredicate;
+
+public class IndexedListDataProviderTest extends ListDataProviderTest {
+
+    private final Comparator<StrBean> byRandomNumber = Comparator
+            .comparing(StrBean::getRandomNumber)
+            .thenComparing(StrBean::getId);
+
+    @Override
+    protected ListDataProvider<StrBean> createDataProvider() {
+        return new IndexedListDataProvider<>(data);
+    }
+
+    @Test
+    public void fetchPages_sameAsFullSort() {
+        List<StrBean> expected = data.stream().filter(gt5Filter)
+                .sorted(byRandomNumber).collect(Collectors.toList());
+
+        // First pages are selected without sorting everything
+        assertEquals(expected.subList(0, 5), fetch(0, 5, gt5Filter));
+        assertEquals(expected.subList(5, 10), fetch(5, 5, gt5Filter));
+        assertEquals(expected.size(), dataProvider
+                .size(new Query<>(0, Integer.MAX_VALUE, null, byRandomNumber,
+                        gt5Filter)));
+
+        assertEquals(expected.subList(20, expected.size()),
+                fetch(20, Integer.MAX_VALUE, gt5Filter));
+        assertEquals(expected.subList(0, 5), fetch(0, 5, gt5Filter));
+    }
+
+    @Test
+    public void refreshItem_viewsUpdated() {
+        List<StrBean> sorted = fetch(0, Integer.MAX_VALUE, null);
+        int fooCount = fetch(0, Integer.MAX_VALUE, fooFilter).size();
+
+        StrBean last = sorted.get(sorted.size() - 1);
+        StrBean first = sorted.stream()
+                .filter(bean -> bean.getValue().equals("Bar")).findFirst()
+                .get();
+        last.setValue("Foo");
+        first.setValue("Foo");
+        dataProvider.refreshItem(last);
+        dataProvider.refreshItem(first);
+
+        List<StrBean> expected = new ArrayList<>(data);
+        expected.sort(byRandomNumber);
+        assertEquals(expected, fetch(0, Integer.MAX_VALUE, null));
+        assertEquals(
+                data.stream().filter(fooFilter).sorted(byRandomNumber)
+                        .collect(Collectors.toList()),
+                fetch(0, Integer.MAX_VALUE, fooFilter));
+        assertEquals(fooCount + 2, fetch(0, Integer.MAX_VALUE, fooFilter)
+                .size());
+
+        last.setValue("Bar");
+        dataProvider.refreshItem(last);
+        assertEquals(fooCount + 1, dataProvider.size(
+                new Query<>(0, Integer.MAX_VALUE, null, byRandomNumber,
+                        fooFilter)));
+    }
+
+    @Test
+    public void backendChange_visibleAfterRefreshAll() {
+        int size = dataProvider.size(new Query<>());
+        data.add(new StrBean("Foo", 1000, 1));
+        assertEquals(size, dataProvider.size(new Query<>()));
+
+        dataProvider.refreshAll();
+        assertEquals(size + 1, dataProvider.size(new Query<>()));
+    }
+
+    @Test
+    public void valueFilter_viewCached() {
+        int size = dataProvider.size(filterQuery(new ValueFilter("Foo")));
+        data.add(new StrBean("Foo", 1000, 1));
+
+        assertEquals(size,
+                dataProvider.size(filterQuery(new ValueFilter("Foo"))));
+    }
+
+    @Test
+    public void lambdaFilters_cachedViewsKept() {
+        int size = dataProvider.size(new Query<>());
+        for (int i = 0; i < 10; i++) {
+            dataProvider.size(filterQuery(bean -> true));
+        }
+        data.add(new StrBean("Foo", 1000, 1));
+
+        assertEquals(size, dataProvider.size(new Query<>()));
+        assertEquals(size + 1, dataProvider.size(filterQuery(bean -> true)));
+    }
+
+    private static Query<StrBean, SerializablePredicate<StrBean>> filterQuery(
+            SerializablePredicate<StrBean> filter) {
+        return new Query<>(0, Integer.MAX_VALUE, null, null, filter);
+    }
+
+    private static class ValueFilter implements SerializablePredicate<StrBean> {
+        private final String value;
+
+        private ValueFilter(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean test(StrBean bean) {
+            return value.equals(bean.getValue());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ValueFilter
+                    && value.equals(((ValueFilter) obj).value);
+        }
+
+        @Override
+        public int hashCode() {
+            return value.hashCode();
+        }
+    }
+
+    private List<StrBean> fetch(int offset, int limit,
+            SerializablePredicate<StrBean> filter) {
+        return dataProvider.fetch(new Query<>(offset, limit, null,
+                byRandomNumber, filter)).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,140 @@
+package com.vaadin.data.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IntKeyMapperTest {
+
+    @Test
+    public void key_sameObjectSameKey() {
+        IntKeyMapper<Object> mapper = new IntKeyMapper<>();
+        Object o1 = new Object();
+        Object o2 = new Object();
+
+        String key1 = mapper.key(o1);
+        String key2 = mapper.key(o2);
+        assertNotEquals(key1, key2);
+        assertEquals(key1, mapper.key(o1));
+        assertSame(o1, mapper.get(key1));
+        assertSame(o2, mapper.get(key2));
+        assertEquals(2, mapper.size());
+    }
+
+    @Test
+    public void remove_newKeyWhenMappedAgain() {
+        IntKeyMapper<Object> mapper = new IntKeyMapper<>();
+        Object o1 = new Object();
+        String key = mapper.key(o1);
+
+        mapper.remove(o1);
+        assertFalse(mapper.has(o1));
+        assertNull(mapper.get(key));
+        assertNotEquals(key, mapper.key(o1));
+    }
+
+    @Test
+    public void refresh_newInstanceWithSameId() {
+        IntKeyMapper<StrBean> mapper = new IntKeyMapper<>(StrBean::getId);
+        StrBean bean = new StrBean("Foo", 1, 0);
+        String key = mapper.key(bean);
+
+        StrBean updated = new StrBean("Bar", 1, 0);
+        assertTrue(mapper.has(updated));
+        mapper.refresh(updated);
+        assertSame(updated, mapper.get(key));
+        assertEquals(key, mapper.key(updated));
+    }
+
+    @Test
+    public void setIdentifierGetter_keysKept() {
+        IntKeyMapper<StrBean> mapper = new IntKeyMapper<>();
+        StrBean bean = new StrBean("Foo", 1, 0);
+        String key = mapper.key(bean);
+
+        mapper.setIdentifierGetter(StrBean::getId);
+        assertEquals(key, mapper.key(new StrBean("Bar", 1, 0)));
+        assertEquals(1, mapper.size());
+    }
+
+    @Test
+    public void lastKeyUsed_wrapsAroundSkippingKeysInUse() throws Exception {
+        IntKeyMapper<Object> mapper = new IntKeyMapper<>();
+        Object o1 = new Object();
+        Object o2 = new Object();
+        assertEquals(1, mapper.intKey(o1));
+
+        Field lastKey = IntKeyMapper.class.getDeclaredField("lastKey");
+        lastKey.setAccessible(true);
+        lastKey.setInt(mapper, Integer.MAX_VALUE - 1);
+        assertEquals(Integer.MAX_VALUE, mapper.intKey(o2));
+        mapper.remove(o2);
+
+        Object o3 = new Object();
+        assertEquals(2, mapper.intKey(o3));
+        assertSame(o1, mapper.get(1));
+        assertSame(o3, mapper.get(2));
+        assertNull(mapper.get(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void nullAndInvalidKeys() {
+        IntKeyMapper<Object> mapper = new IntKeyMapper<>();
+        assertEquals("null", mapper.key(null));
+        assertNull(mapper.get("null"));
+        assertNull(mapper.get(""));
+        assertNull(mapper.get("01"));
+        assertNull(mapper.get("A"));
+        assertNull(mapper.get("zzzzzzz"));
+    }
+
+    @Test
+    public void encodeKey_decodedBack() {
+        for (int key : new int[] { 0, 1, 35, 36, 1000, Integer.MAX_VALUE }) {
+            assertEquals(key,
+                    IntKeyMapper.decodeKey(IntKeyMapper.encodeKey(key)));
+        }
+        assertEquals("a", IntKeyMapper.encodeKey(10));
+        assertEquals(-1, IntKeyMapper.decodeKey("zzzzzz"));
+    }
+
+    @Test
+    public void randomOperations_sameAsMap() {
+        IntKeyMapper<Integer> mapper = new IntKeyMapper<>();
+        Map<Integer, String> keys = new HashMap<>();
+        List<String> removedKeys = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            Integer item = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                mapper.remove(item);
+                String key = keys.remove(item);
+                if (key != null) {
+                    removedKeys.add(key);
+                }
+            } else {
+                String key = mapper.key(item);
+                String previous = keys.put(item, key);
+                assertTrue(previous == null || previous.equals(key));
+            }
+        }
+        assertEquals(keys.size(), mapper.size());
+        keys.forEach((item, key) -> assertEquals(item, mapper.get(key)));
+        for (String key : removedKeys) {
+            assertFalse(keys.containsValue(key));
+            assertNull(mapper.get(key));
+        }
+    }
+}
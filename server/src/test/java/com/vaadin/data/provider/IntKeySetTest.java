@@ -0,0 +1,74 @@
+package com.vaadin.data.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class IntKeySetTest {
+
+    @Test
+    public void intAndOtherKeys() {
+        IntKeySet set = new IntKeySet();
+        assertTrue(set.add("1"));
+        assertTrue(set.add("a"));
+        assertTrue(set.add("01"));
+        assertTrue(set.add("Key"));
+        assertFalse(set.add("a"));
+
+        assertEquals(4, set.size());
+        assertTrue(set.contains("01"));
+        assertFalse(set.contains("b"));
+        assertEquals(new HashSet<>(Arrays.asList("1", "a", "01", "Key")),
+                new HashSet<>(set));
+
+        assertTrue(set.remove("1"));
+        assertTrue(set.remove("Key"));
+        assertFalse(set.remove("1"));
+        assertEquals(new HashSet<>(Arrays.asList("a", "01")),
+                new HashSet<>(set));
+    }
+
+    @Test
+    public void iteratorRemove() {
+        IntKeySet set = new IntKeySet();
+        for (int i = 0; i < 100; i++) {
+            set.add(IntKeyMapper.encodeKey(i));
+        }
+        Iterator<String> iterator = set.iterator();
+        while (iterator.hasNext()) {
+            if (IntKeyMapper.decodeKey(iterator.next()) % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        assertEquals(50, set.size());
+        assertTrue(set.contains("1"));
+        assertFalse(set.contains("2"));
+    }
+
+    @Test
+    public void randomOperations_sameAsHashSet() {
+        IntKeySet set = new IntKeySet();
+        Set<String> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            String key = IntKeyMapper.encodeKey(random.nextInt(5000));
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(key), set.add(key));
+            } else {
+                assertEquals(expected.remove(key), set.remove(key));
+            }
+        }
+        assertEquals(expected, set);
+        set.retainAll(Arrays.asList("1", "2", "3"));
+        expected.retainAll(Arrays.asList("1", "2", "3"));
+        assertEquals(expected, set);
+    }
+}
@@ -0,0 +1,76 @@
+package com.vaadin.data.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.SerializablePredicate;
+import com.vaadin.ui.UI;
+
+public class ParallelListDataProviderTest extends ListDataProviderTest {
+
+    @Override
+    protected ListDataProvider<StrBean> createDataProvider() {
+        ListDataProvider<StrBean> dataProvider = super.createDataProvider();
+        dataProvider.setParallelThreshold(0);
+        return dataProvider;
+    }
+
+    @After
+    public void clearCurrentUI() {
+        UI.setCurrent(null);
+    }
+
+    @Test
+    public void largeCollection_sameResultsAsSequential() {
+        List<StrBean> items = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            items.add(new StrBean("Foo", i, random.nextInt(10)));
+        }
+        ListDataProvider<StrBean> sequential = new ListDataProvider<>(items);
+        ListDataProvider<StrBean> parallel = new ListDataProvider<>(items);
+        parallel.setParallelThreshold(50000);
+        assertTrue(parallel.isParallel());
+
+        // Many ties, the order of equal items must be kept
+        Query<StrBean, SerializablePredicate<StrBean>> query = new Query<>(
+                100, 50000, null,
+                Comparator.comparing(StrBean::getRandomNumber), gt5Filter);
+        assertEquals(sequential.size(query), parallel.size(query));
+        assertEquals(sequential.fetch(query).collect(Collectors.toList()),
+                parallel.fetch(query).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void filterAndSort_currentUIAvailable() {
+        UI ui = Mockito.mock(UI.class);
+        UI.setCurrent(ui);
+        List<StrBean> items = StrBean.generateRandomBeans(10000);
+        ListDataProvider<StrBean> dataProvider = new ListDataProvider<>(
+                items);
+        dataProvider.setParallelThreshold(0);
+        dataProvider.setFilter(item -> {
+            assertSame(ui, UI.getCurrent());
+            return true;
+        });
+        dataProvider.setSortComparator((item1, item2) -> {
+            assertSame(ui, UI.getCurrent());
+            return Integer.compare(item1.getId(), item2.getId());
+        });
+
+        assertEquals(items.size(),
+                dataProvider.fetch(new Query<>()).count());
+        assertSame(ui, UI.getCurrent());
+    }
+}
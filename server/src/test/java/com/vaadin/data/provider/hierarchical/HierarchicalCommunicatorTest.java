@@ -13,11 +13,18 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class HierarchicalCommunicatorTest {
 
@@ -97,6 +104,75 @@ public class HierarchicalCommunicatorTest {
         assertEquals(-1, communicator.getParentIndex(FOLDER).longValue());
     }
 
+    @Test
+    public void hasChildren_checkedOnceForPushedRows() {
+        AtomicInteger singleChecks = new AtomicInteger();
+        List<Collection<String>> batchChecks = new ArrayList<>();
+        TreeDataProvider<String> countingProvider = new TreeDataProvider<String>(
+                treeData) {
+            @Override
+            public boolean hasChildren(String item) {
+                singleChecks.incrementAndGet();
+                return super.hasChildren(item);
+            }
+
+            @Override
+            public Map<String, Boolean> hasChildrenForItems(
+                    Collection<String> items) {
+                batchChecks.add(new ArrayList<>(items));
+                Map<String, Boolean> result = new HashMap<>();
+                for (String item : items) {
+                    result.put(item, !treeData.getChildren(item).isEmpty());
+                }
+                return result;
+            }
+        };
+        communicator.setDataProvider(countingProvider, null);
+
+        communicator.pushData(0, Arrays.asList(ROOT, FOLDER, LEAF));
+        communicator.pushData(0, Arrays.asList(ROOT, FOLDER, LEAF));
+        assertEquals(
+                Collections.singletonList(Arrays.asList(ROOT, FOLDER, LEAF)),
+                batchChecks);
+        assertEquals(0, singleChecks.get());
+
+        treeData.addItem(LEAF, "NEW");
+        countingProvider.refreshItem(LEAF, true);
+        assertTrue(communicator.hasChildren(LEAF));
+        assertEquals(1, singleChecks.get());
+    }
+
+    @Test
+    public void refreshItemWithChildren_childCountUpdated() {
+        communicator.expand(ROOT);
+        communicator.expand(FOLDER);
+        assertEquals(3, communicator.getDataProviderSize());
+
+        treeData.addItem(FOLDER, "LEAF2");
+        // Child counts are cached until the children are refreshed
+        assertEquals(3, communicator.getDataProviderSize());
+        dataProvider.refreshItem(FOLDER, true);
+        assertEquals(4, communicator.getDataProviderSize());
+    }
+
+    @Test
+    public void refreshFromBackgroundThread_mapperNotModified()
+            throws InterruptedException {
+        communicator.expand(ROOT);
+        communicator.expand(FOLDER);
+        treeData.addItem(FOLDER, "LEAF2");
+
+        // The session is locked by the test thread, so the mapper must only
+        // be updated through UI.access
+        Thread thread = new Thread(() -> {
+            dataProvider.refreshItem(FOLDER, true);
+            dataProvider.refreshAll();
+        });
+        thread.start();
+        thread.join();
+        assertEquals(3, communicator.getDataProviderSize());
+    }
+
     private static class TestHierarchicalDataCommunicator<T>
             extends HierarchicalDataCommunicator<T> {
         @Override
@@ -1,6 +1,7 @@
 package com.vaadin.data.provider.hierarchical;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -210,6 +211,33 @@ public class HierarchyMapperWithDataTest {
         verifyFetchIsCorrect(expectedResult, range);
     }
 
+    @Test
+    public void getIndexOfAfterExpandAndCollapse() {
+        Node secondRoot = roots.get(1);
+        Node parent = testData.get(testData.indexOf(secondRoot) + 1);
+        Node leaf = testData.get(testData.indexOf(parent) + 1);
+
+        expand(secondRoot);
+        expand(parent);
+        assertEquals(Integer.valueOf(3),
+                mapper.getIndexOf(leaf).orElse(null));
+        assertEquals(Integer.valueOf(ROOT_COUNT + PARENT_COUNT + LEAF_COUNT
+                - 3), mapper.getIndexOf(roots.get(2)).orElse(null));
+        assertEquals(Integer.valueOf(2), mapper.getParentIndex(leaf));
+
+        expand(roots.get(0));
+        assertEquals(Integer.valueOf(3 + PARENT_COUNT),
+                mapper.getIndexOf(leaf).orElse(null));
+
+        collapse(secondRoot);
+        assertEquals(Integer.valueOf(1 + PARENT_COUNT),
+                mapper.getIndexOf(secondRoot).orElse(null));
+        assertEquals(Integer.valueOf(2 + PARENT_COUNT),
+                mapper.getIndexOf(roots.get(2)).orElse(null));
+        assertFalse(mapper.getIndexOf(leaf).isPresent());
+        checkMapSize();
+    }
+
     private void expand(Node node) {
         insertRows(mapper.expand(node, mapper.getIndexOf(node).orElse(null)));
     }
@@ -0,0 +1,246 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.communication.PushConnection;
+import com.vaadin.shared.communication.ClientRpc;
+import com.vaadin.shared.communication.PushMode;
+import com.vaadin.ui.UI;
+
+/**
+ * Delivers messages to a large number of UIs with a local stand-in for the
+ * Atmosphere push connection, which records what each push would send.
+ */
+public class BroadcastTopicTest {
+
+    private static final int SESSIONS = 500;
+    private static final int UIS_PER_SESSION = 2;
+
+    public interface TestClientRpc extends ClientRpc {
+        public void update(String value, List<Integer> numbers);
+
+        public void update(String value);
+    }
+
+    private static class TestUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+        }
+    }
+
+    /**
+     * Stand-in for the Atmosphere push connection. Instead of writing the
+     * changes to a browser, the pending RPC calls of the UI are collected.
+     */
+    private static class LocalPushConnection implements PushConnection {
+        private final UI ui;
+        private final List<ClientMethodInvocation> sent = new ArrayList<>();
+        private int pushCount = 0;
+
+        private LocalPushConnection(UI ui) {
+            this.ui = ui;
+        }
+
+        @Override
+        public void push() {
+            assertTrue(ui.getSession().hasLock());
+            pushCount++;
+            sent.addAll(ui.retrievePendingRpcCalls());
+            ui.getConnectorTracker().markAllConnectorsClean();
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public void disconnect() {
+        }
+    }
+
+    private VaadinService service;
+    private ExecutorService executor;
+    private final List<LocalPushConnection> connections = new ArrayList<>();
+
+    @Before
+    public void setup() throws Exception {
+        service = new MockVaadinServletService();
+        executor = Executors.newFixedThreadPool(8);
+        int uiId = 0;
+        for (int i = 0; i < SESSIONS; i++) {
+            MockVaadinSession session = new MockVaadinSession(service);
+            session.lock();
+            for (int j = 0; j < UIS_PER_SESSION; j++) {
+                UI ui = new TestUI();
+                ui.setSession(session);
+                ui.doInit(Mockito.mock(VaadinRequest.class), uiId++, "foo");
+                session.addUI(ui);
+                ui.getPushConfiguration().setPushMode(PushMode.AUTOMATIC);
+                LocalPushConnection connection = new LocalPushConnection(ui);
+                ui.setPushConnection(connection);
+                connections.add(connection);
+            }
+            session.unlock();
+        }
+        for (LocalPushConnection connection : connections) {
+            connection.pushCount = 0;
+            connection.sent.clear();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void publish_deliveredOncePerUiWithOnePushEach() throws Exception {
+        BroadcastTopic<String> topic = service.getBroadcastTopic("test");
+        topic.setExecutor(executor);
+        topic.setParallelism(4);
+        assertSame(topic, service.getBroadcastTopic("test"));
+
+        Set<UI> received = ConcurrentHashMap.newKeySet();
+        AtomicInteger deliveries = new AtomicInteger();
+        for (LocalPushConnection connection : connections) {
+            topic.subscribe(connection.ui, message -> {
+                assertSame(connection.ui, UI.getCurrent());
+                assertTrue(connection.ui.getSession().hasLock());
+                received.add(connection.ui);
+                deliveries.incrementAndGet();
+                connection.ui.markAsDirty();
+            });
+        }
+        assertEquals(SESSIONS * UIS_PER_SESSION, topic.getSubscriptionCount());
+
+        topic.publish("message").get(30, TimeUnit.SECONDS);
+
+        assertEquals(SESSIONS * UIS_PER_SESSION, deliveries.get());
+        assertEquals(SESSIONS * UIS_PER_SESSION, received.size());
+        for (LocalPushConnection connection : connections) {
+            assertEquals(1, connection.pushCount);
+        }
+    }
+
+    @Test
+    public void publish_sharedRpcEncodedOnce() throws Exception {
+        BroadcastTopic<SharedClientRpc> topic = service
+                .getBroadcastTopic("rpc");
+        topic.setExecutor(executor);
+        for (LocalPushConnection connection : connections) {
+            topic.subscribe(connection.ui, rpc -> rpc.sendTo(connection.ui));
+        }
+
+        List<Integer> numbers = new ArrayList<>();
+        numbers.add(1);
+        numbers.add(2);
+        SharedClientRpc rpc = SharedClientRpc.create(TestClientRpc.class,
+                "update", "value", numbers);
+        topic.publish(rpc).get(30, TimeUnit.SECONDS);
+
+        Object[] expected = connections.get(0).sent.get(0).getParameters();
+        assertEquals("\"value\"", ((EncodedJson) expected[0]).getJson());
+        assertEquals("[1,2]", ((EncodedJson) expected[1]).getJson());
+        for (LocalPushConnection connection : connections) {
+            assertEquals(1, connection.sent.size());
+            ClientMethodInvocation invocation = connection.sent.get(0);
+            assertEquals(TestClientRpc.class.getName(),
+                    invocation.getInterfaceName());
+            assertEquals("update", invocation.getMethodName());
+            assertSame(expected[0], invocation.getParameters()[0]);
+            assertSame(expected[1], invocation.getParameters()[1]);
+        }
+    }
+
+    @Test
+    public void publish_defaultExecutor_deliveredOnDaemonThreads()
+            throws Exception {
+        BroadcastTopic<String> topic = service.getBroadcastTopic("default");
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        for (LocalPushConnection connection : connections) {
+            topic.subscribe(connection.ui,
+                    message -> threads.add(Thread.currentThread()));
+        }
+
+        topic.publish("message").get(30, TimeUnit.SECONDS);
+
+        for (Thread thread : threads) {
+            assertTrue(thread.isDaemon());
+            assertTrue(thread.getName().startsWith("vaadin-broadcast-"));
+        }
+    }
+
+    @Test
+    public void sharedRpc_overloadSelectedByParameters() throws Exception {
+        SharedClientRpc rpc = SharedClientRpc.create(TestClientRpc.class,
+                "update", "value");
+        UI ui = connections.get(0).ui;
+        ui.accessSynchronously(() -> rpc.sendTo(ui));
+
+        ClientMethodInvocation invocation = connections.get(0).sent.get(0);
+        assertEquals(1, invocation.getParameters().length);
+        assertEquals(1, invocation.getParameterTypes().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sharedRpc_noMatchingOverload_throws() {
+        SharedClientRpc.create(TestClientRpc.class, "update", 1);
+    }
+
+    @Test
+    public void serializedTopic_subscriptionsNotIncluded() throws Exception {
+        BroadcastTopic<String> topic = service.getBroadcastTopic("serialize");
+        topic.subscribe(connections.get(0).ui, message -> {
+        });
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(topic);
+        }
+        BroadcastTopic<?> copy;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (BroadcastTopic<?>) in.readObject();
+        }
+
+        assertEquals("serialize", copy.getName());
+        assertEquals(0, copy.getSubscriptionCount());
+        assertEquals(1, topic.getSubscriptionCount());
+    }
+
+    @Test
+    public void detachedUi_subscriptionRemoved() throws Exception {
+        BroadcastTopic<String> topic = service.getBroadcastTopic("detach");
+        UI ui = connections.get(0).ui;
+        topic.subscribe(ui, message -> {
+        });
+        topic.subscribe(connections.get(1).ui, message -> {
+        }).remove();
+        assertEquals(1, topic.getSubscriptionCount());
+
+        VaadinSession session = ui.getSession();
+        ui.accessSynchronously(() -> session.removeUI(ui));
+        assertEquals(0, topic.getSubscriptionCount());
+    }
+}
@@ -0,0 +1,133 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.tests.server.ClassesSerializableTest;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.ComponentTest;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+
+public class CompactDiffStateStoreTest {
+
+    private CompactDiffStateStore store;
+    private Label connector;
+
+    @Before
+    public void setup() {
+        store = new CompactDiffStateStore();
+        connector = new Label();
+    }
+
+    @Test
+    public void encodeAndDecode_valuesPreserved() {
+        JsonObject state = createState();
+        store.put(connector, state);
+        store.responseWritten();
+
+        JsonObject decoded = store.get(connector);
+        assertNotSame(state, decoded);
+        assertTrue(state.toJson() + " != " + decoded.toJson(),
+                JsonCodec.jsonEquals(state, decoded));
+        assertEquals(-0.0, decoded.getNumber("negativeZero"), 0);
+        assertTrue(1 / decoded.getNumber("negativeZero") < 0);
+        assertTrue(store.getEncodedSize() < state.toJson().length());
+    }
+
+    @Test
+    public void modifiedStateRetainedAfterResponse() {
+        store.put(connector, createState());
+        store.responseWritten();
+
+        store.get(connector).put("string", "changed");
+        assertSame(store.get(connector), store.get(connector));
+        store.responseWritten();
+
+        assertEquals("changed", store.get(connector).getString("string"));
+    }
+
+    @Test
+    public void removeAndClear() {
+        Label other = new Label();
+        store.put(connector, createState());
+        store.put(other, createState());
+        store.responseWritten();
+
+        store.remove(connector);
+        assertNull(store.get(connector));
+        assertEquals("value", store.get(other).getString("string"));
+
+        store.clear();
+        assertNull(store.get(other));
+    }
+
+    @Test
+    public void serialize_statesPreserved() throws Exception {
+        store.put(connector, createState());
+
+        CompactDiffStateStore deserialized = ClassesSerializableTest
+                .serializeAndDeserialize(store);
+
+        assertTrue(store.getEncodedSize() > 0);
+        assertEquals(store.getEncodedSize(), deserialized.getEncodedSize());
+    }
+
+    @Test
+    public void connectorTracker_compactStoreUsedForDiffing() {
+        UI ui = new MockUI();
+        ui.getConnectorTracker().setDiffStateStore(store);
+        Label label = new Label("foo");
+        ui.setContent(label);
+
+        ComponentTest.updateDiffState(label);
+        ui.getConnectorTracker().setWritingResponse(true);
+        ui.getConnectorTracker().setWritingResponse(false);
+        assertTrue(store.getEncodedSize() > 0);
+
+        assertEquals("foo", ui.getConnectorTracker().getDiffState(label)
+                .getString("text"));
+
+        label.setValue("bar");
+        JsonObject diff = label.encodeState();
+        assertEquals("bar", diff.getString("text"));
+        assertEquals(1, diff.keys().length);
+    }
+
+    private static JsonObject createState() {
+        JsonObject state = Json.createObject();
+        state.put("string", "value");
+        state.put("unicode", "\u00e5\u00e4\u00f6 \u20ac \uD83D\uDE00");
+        state.put("true", true);
+        state.put("false", false);
+        state.put("null", Json.createNull());
+        state.put("smallInt", 3);
+        state.put("negativeInt", -123456);
+        state.put("largeInt", Integer.MAX_VALUE);
+        state.put("beyondInt", 1e12);
+        state.put("double", 0.1);
+        state.put("negativeZero", -0.0);
+
+        JsonArray array = Json.createArray();
+        array.set(0, "a");
+        array.set(1, 2);
+        array.set(2, Json.createObject());
+        state.put("array", array);
+
+        JsonObject nested = Json.createObject();
+        nested.put("string", "nested");
+        nested.put("array", Json.createArray());
+        state.put("nested", nested);
+        return state;
+    }
+}
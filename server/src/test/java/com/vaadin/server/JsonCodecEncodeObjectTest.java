@@ -0,0 +1,133 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.vaadin.shared.ui.grid.GridState;
+
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+
+public class JsonCodecEncodeObjectTest {
+
+    public static class Bean {
+        public boolean bool = true;
+        public int integer = 42;
+        public long longValue = 1L << 40;
+        public float floatValue = 1.5f;
+        public char character = 'c';
+        public String string = "string";
+        public String nullString;
+        public List<String> list = new ArrayList<>(Arrays.asList("a", "b"));
+        private double property = 0.25;
+
+        public double getProperty() {
+            return property;
+        }
+
+        public void setProperty(double property) {
+            this.property = property;
+        }
+    }
+
+    @Test
+    public void encode_allPropertiesEncoded() {
+        JsonObject encoded = encode(new Bean(), null);
+
+        assertTrue(encoded.getBoolean("bool"));
+        assertEquals(42, encoded.getNumber("integer"), 0);
+        assertEquals(1L << 40, encoded.getNumber("longValue"), 0);
+        assertEquals(1.5, encoded.getNumber("floatValue"), 0);
+        assertEquals("c", encoded.getString("character"));
+        assertEquals("string", encoded.getString("string"));
+        assertEquals(JsonType.NULL, encoded.get("nullString").getType());
+        assertEquals(2, encoded.getArray("list").length());
+        assertEquals(0.25, encoded.getNumber("property"), 0);
+    }
+
+    @Test
+    public void encode_noReference_diffContainsNonNullValues() {
+        JsonObject diff = diff(new Bean(), null);
+
+        assertEquals(8, diff.keys().length);
+        assertFalse(diff.hasKey("nullString"));
+    }
+
+    @Test
+    public void encode_unchanged_emptyDiff() {
+        Bean bean = new Bean();
+        JsonObject reference = encode(bean, null);
+
+        assertEquals(0, diff(bean, reference).keys().length);
+    }
+
+    @Test
+    public void encode_changedProperties_onlyChangesInDiff() {
+        Bean bean = new Bean();
+        JsonObject reference = encode(bean, null);
+
+        bean.bool = false;
+        bean.integer = 43;
+        bean.string = null;
+        bean.nullString = "not null";
+        bean.list.add("c");
+        bean.setProperty(0.5);
+
+        JsonObject diff = diff(bean, reference);
+        assertEquals(6, diff.keys().length);
+        assertFalse(diff.getBoolean("bool"));
+        assertEquals(43, diff.getNumber("integer"), 0);
+        assertEquals(JsonType.NULL, diff.get("string").getType());
+        assertEquals("not null", diff.getString("nullString"));
+        assertEquals(3, diff.getArray("list").length());
+        assertEquals(0.5, diff.getNumber("property"), 0);
+    }
+
+    @Test
+    public void encode_referenceOfDifferentType_valueInDiff() {
+        Bean bean = new Bean();
+        JsonObject reference = encode(bean, null);
+        reference.put("integer", "42");
+        reference.put("bool", 1);
+        reference.put("string", false);
+
+        JsonObject diff = diff(bean, reference);
+        assertEquals(3, diff.keys().length);
+    }
+
+    @Test
+    public void encode_sharedState_sameAsFullEncodingWithoutReference() {
+        GridState state = new GridState();
+        state.caption = "Grid";
+        state.frozenColumnCount = 2;
+        state.columnOrder.add("col");
+
+        JsonObject encoded = encode(state, null);
+        JsonObject reference = encode(state, null);
+        assertTrue(JsonCodec.jsonEquals(encoded, reference));
+        assertEquals(0, diff(state, reference).keys().length);
+
+        state.frozenColumnCount = 3;
+        JsonObject diff = diff(state, reference);
+        assertEquals(1, diff.keys().length);
+        assertEquals(3, diff.getNumber("frozenColumnCount"), 0);
+    }
+
+    private static JsonObject encode(Object bean, JsonObject reference) {
+        return (JsonObject) JsonCodec
+                .encode(bean, reference, bean.getClass(), null)
+                .getEncodedValue();
+    }
+
+    private static JsonObject diff(Object bean, JsonObject reference) {
+        return (JsonObject) JsonCodec
+                .encode(bean, reference, bean.getClass(), null).getDiff();
+    }
+}
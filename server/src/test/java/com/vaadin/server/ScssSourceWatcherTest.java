@@ -0,0 +1,121 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ScssSourceWatcherTest {
+
+    // Some platforms poll for changes instead of getting notified
+    private static final int TIMEOUT_SECONDS = 30;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ScssSourceWatcher watcher;
+
+    @Before
+    public void setup() {
+        watcher = ScssSourceWatcher.create();
+        assertNotNull(watcher);
+    }
+
+    @After
+    public void teardown() {
+        watcher.close();
+    }
+
+    @Test
+    public void modifySource_listenerNotifiedOnce() throws Exception {
+        File styles = folder.newFile("styles.scss");
+        File mixins = folder.newFolder("mixins");
+        File mixin = new File(mixins, "mixin.scss");
+        write(mixin, "$color: red;");
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        assertTrue(watcher.watch(Arrays.asList(styles, mixin), () -> {
+            calls.incrementAndGet();
+            latch.countDown();
+        }));
+
+        write(mixin, "$color: blue;");
+        assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // Already notified, further changes are ignored
+        CountDownLatch other = new CountDownLatch(1);
+        assertTrue(watcher.watch(Collections.singletonList(styles),
+                other::countDown));
+        write(styles, ".v-app {}");
+        assertTrue(other.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void otherFileInDirectory_listenerNotNotified() throws Exception {
+        File styles = folder.newFile("styles.scss");
+        AtomicInteger calls = new AtomicInteger();
+        assertTrue(watcher.watch(Collections.singletonList(styles),
+                calls::incrementAndGet));
+
+        // Written next to the theme by VaadinServlet after compiling it
+        write(new File(folder.getRoot(), "styles.scss.cache"), "{}");
+        CountDownLatch latch = new CountDownLatch(1);
+        File addons = folder.newFile("addons.scss");
+        assertTrue(watcher.watch(Collections.singletonList(addons),
+                latch::countDown));
+        write(addons, ".v-app {}");
+        assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    public void deletedSourceCreated_listenerNotified() throws Exception {
+        File styles = new File(folder.getRoot(), "styles.scss");
+        CountDownLatch latch = new CountDownLatch(1);
+        assertTrue(watcher.watch(Collections.singletonList(styles),
+                latch::countDown));
+
+        write(styles, ".v-app {}");
+        assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void unwatch_listenerNotNotified() throws Exception {
+        File styles = folder.newFile("styles.scss");
+        AtomicInteger calls = new AtomicInteger();
+        Runnable listener = calls::incrementAndGet;
+        assertTrue(watcher.watch(Collections.singletonList(styles), listener));
+        watcher.unwatch(listener);
+
+        write(styles, ".v-app {}");
+        // Watch the directory again to know that the change has been seen
+        CountDownLatch latch = new CountDownLatch(1);
+        File addons = folder.newFile("addons.scss");
+        assertTrue(watcher.watch(Collections.singletonList(addons),
+                latch::countDown));
+        write(addons, ".v-app {}");
+        assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(0, calls.get());
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,186 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SessionLockMonitorTest {
+
+    private VaadinService service;
+    private SessionLockMonitor monitor;
+    private VaadinSession session;
+    private SessionLock lock;
+
+    @Before
+    public void setup() throws Exception {
+        service = new MockVaadinServletService();
+        monitor = service.getSessionLockMonitor();
+        session = new MockVaadinSession(service);
+        lock = new SessionLock();
+        lock.attachStatistics(monitor, session);
+    }
+
+    @Test
+    public void disabled_nothingRecorded() {
+        lock.lock();
+        lock.unlock();
+        lock.lockShared();
+        lock.unlockShared();
+
+        assertFalse(monitor.isEnabled());
+        assertEquals(0, monitor.getLockCount());
+        assertEquals(0, lock.getStatistics().getHoldTimes().getCount());
+    }
+
+    @Test
+    public void enabled_waitAndHoldTimesRecorded() throws Exception {
+        monitor.setEnabled(true);
+        List<SessionLockEvent> events = new ArrayList<>();
+        service.addSessionLockListener(events::add);
+
+        lock.lock();
+        lock.lock();
+        Thread.sleep(20);
+        lock.unlock();
+        lock.unlock();
+        lock.lockShared();
+        lock.unlockShared();
+
+        assertEquals(2, events.size());
+        SessionLockEvent exclusive = events.get(0);
+        assertSame(session, exclusive.getSession());
+        assertSame(service, exclusive.getService());
+        assertFalse(exclusive.isShared());
+        assertEquals(SessionLockMonitor.BACKGROUND_REQUEST_TYPE,
+                exclusive.getRequestType());
+        assertTrue(exclusive.getHoldTime() >= TimeUnit.MILLISECONDS
+                .toNanos(20));
+        assertTrue(events.get(1).isShared());
+
+        SessionLockStatistics statistics = lock.getStatistics();
+        assertEquals(2, statistics.getHoldTimes().getCount());
+        assertEquals(2, statistics.getWaitTimes().getCount());
+        assertEquals(2, monitor.getLockCount());
+        assertTrue(monitor.getMaxHoldTime() >= 20);
+        long[] buckets = monitor.getHoldTimeHistogram();
+        assertEquals(LockTimeHistogram.getBucketUpperBounds().length + 1,
+                buckets.length);
+        assertEquals(2, sum(buckets));
+
+        monitor.resetStatistics();
+        assertEquals(0, monitor.getLockCount());
+        assertEquals(0, sum(monitor.getWaitTimeHistogram()));
+    }
+
+    @Test
+    public void enabled_waitForOtherHolderRecorded() throws Exception {
+        monitor.setEnabled(true);
+        lock.lock();
+        Thread waiter = new Thread(() -> {
+            lock.lock();
+            lock.unlock();
+        });
+        waiter.start();
+        Thread.sleep(50);
+        lock.unlock();
+        waiter.join();
+
+        assertEquals(2, lock.getStatistics().getWaitTimes().getCount());
+        assertTrue(monitor.getMaxWaitTime() >= 40);
+    }
+
+    @Test
+    public void exclusiveHolder_describedWhileHeld() throws Exception {
+        monitor.setEnabled(true);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            lock.lock();
+            try {
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+        }, "slow holder");
+        holder.start();
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        SessionLockStatistics statistics = lock.getStatistics();
+        assertSame(holder, statistics.getHolderThread());
+        assertEquals(SessionLockMonitor.BACKGROUND_REQUEST_TYPE,
+                statistics.getHolderRequestType());
+        assertEquals(1, monitor.getExclusiveHolderCount());
+        String[] holders = monitor.dumpExclusiveHolders();
+        assertEquals(1, holders.length);
+        assertTrue(holders[0].contains("slow holder"));
+        assertTrue(holders[0].contains("CountDownLatch.await"));
+
+        release.countDown();
+        holder.join();
+        assertNull(statistics.getHolderThread());
+        assertEquals(0, statistics.getCurrentHoldTime());
+        assertEquals(0, monitor.getExclusiveHolderCount());
+        assertArrayEquals(new String[0], monitor.dumpExclusiveHolders());
+    }
+
+    @Test
+    public void enabledWhileHeld_holdNotRecorded() {
+        lock.lock();
+        monitor.setEnabled(true);
+        lock.unlock();
+
+        assertEquals(0, monitor.getLockCount());
+        assertEquals(0, monitor.getExclusiveHolderCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeSlowHoldThreshold_throws() {
+        monitor.setSlowHoldThreshold(-1);
+    }
+
+    @Test
+    public void registerMBean_attributesAvailable() throws Exception {
+        ObjectName name = new ObjectName(
+                "com.vaadin:type=SessionLockMonitor,name=test");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        monitor.registerMBean(name);
+        try {
+            server.setAttribute(name,
+                    new Attribute("Enabled", true));
+            assertTrue(monitor.isEnabled());
+            lock.lock();
+            lock.unlock();
+            assertEquals(1L, server.getAttribute(name, "LockCount"));
+        } finally {
+            service.destroy();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    private static long sum(long[] values) {
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+}
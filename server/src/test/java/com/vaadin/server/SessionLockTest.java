@@ -0,0 +1,167 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class SessionLockTest {
+
+    private final SessionLock lock = new SessionLock();
+
+    private Thread start(Runnable runnable) {
+        Thread thread = new Thread(runnable);
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    public void lockShared_heldByManyThreads() throws Exception {
+        CountDownLatch bothLocked = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable reader = () -> {
+            lock.lockShared();
+            try {
+                bothLocked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlockShared();
+            }
+        };
+        Thread first = start(reader);
+        Thread second = start(reader);
+
+        assertTrue(bothLocked.await(5, TimeUnit.SECONDS));
+        assertEquals(2, lock.getSharedHolderCount());
+        assertFalse(lock.tryLock());
+
+        release.countDown();
+        first.join();
+        second.join();
+        assertEquals(0, lock.getSharedHolderCount());
+        assertTrue(lock.tryLock());
+        lock.unlock();
+    }
+
+    @Test
+    public void lock_waitsForSharedHolders() throws Exception {
+        lock.lockShared();
+        AtomicBoolean locked = new AtomicBoolean();
+        Thread writer = start(() -> {
+            lock.lock();
+            locked.set(true);
+            lock.unlock();
+        });
+
+        writer.join(200);
+        assertFalse(locked.get());
+
+        lock.unlockShared();
+        writer.join();
+        assertTrue(locked.get());
+    }
+
+    @Test
+    public void lockShared_waitsForExclusiveHolder() throws Exception {
+        lock.lock();
+        AtomicBoolean locked = new AtomicBoolean();
+        Thread reader = start(() -> {
+            lock.lockShared();
+            locked.set(true);
+            lock.unlockShared();
+        });
+
+        reader.join(200);
+        assertFalse(locked.get());
+
+        lock.unlock();
+        reader.join();
+        assertTrue(locked.get());
+    }
+
+    @Test
+    public void lockShared_newReadersWaitForWaitingWriter() throws Exception {
+        lock.lockShared();
+        CountDownLatch writerLocked = new CountDownLatch(1);
+        Thread writer = start(() -> {
+            lock.lock();
+            writerLocked.countDown();
+            lock.unlock();
+        });
+        // Give the writer time to start waiting for the shared holder
+        Thread.sleep(100);
+
+        AtomicBoolean readerLocked = new AtomicBoolean();
+        Thread reader = start(() -> {
+            lock.lockShared();
+            readerLocked.set(writerLocked.getCount() == 0);
+            lock.unlockShared();
+        });
+        reader.join(200);
+        assertFalse(readerLocked.get());
+
+        lock.unlockShared();
+        writer.join();
+        reader.join();
+        assertTrue(readerLocked.get());
+    }
+
+    @Test
+    public void lockShared_reentrantAndAllowedForExclusiveHolder() {
+        lock.lock();
+        lock.lockShared();
+        assertTrue(lock.isSharedHeldByCurrentThread());
+        lock.unlock();
+        lock.lockShared();
+        lock.unlockShared();
+        lock.unlockShared();
+        assertFalse(lock.isSharedHeldByCurrentThread());
+        assertEquals(0, lock.getSharedHolderCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void lock_whileHoldingOnlyShared_throws() {
+        lock.lockShared();
+        try {
+            lock.lock();
+        } finally {
+            lock.unlockShared();
+        }
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void unlockShared_notHeld_throws() {
+        lock.unlockShared();
+    }
+
+    @Test
+    public void tryLockWithTimeout_sharedNotReleased_returnsFalse()
+            throws Exception {
+        Thread reader = start(() -> {
+            lock.lockShared();
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlockShared();
+            }
+        });
+        while (lock.getSharedHolderCount() == 0) {
+            Thread.sleep(10);
+        }
+
+        assertFalse(lock.tryLock(50, TimeUnit.MILLISECONDS));
+        assertFalse(lock.isHeldByCurrentThread());
+        assertTrue(lock.tryLock(5, TimeUnit.SECONDS));
+        lock.unlock();
+        reader.join();
+    }
+}
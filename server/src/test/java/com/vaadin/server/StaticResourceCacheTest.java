@@ -0,0 +1,288 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.vaadin.server.StaticResourceCache.PrecompressedEncoding;
+import com.vaadin.server.StaticResourceCache.Resource;
+
+public class StaticResourceCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StaticResourceCache cache;
+    private File file;
+
+    @Before
+    public void setup() throws IOException {
+        cache = new StaticResourceCache(2);
+        file = folder.newFile("resource.js");
+        write(file, "0123456789");
+    }
+
+    @Test
+    public void getResource_cachedUntilFileModified() throws IOException {
+        URL url = file.toURI().toURL();
+        Resource resource = cache.getResource(url);
+        assertEquals(10, resource.getLength());
+        assertSame(resource, cache.getResource(url));
+
+        write(file, "changed content");
+        file.setLastModified(resource.getLastModified() + 2000);
+        Resource changed = cache.getResource(url);
+        assertEquals(15, changed.getLength());
+        assertNotEquals(resource.getETag(), changed.getETag());
+    }
+
+    @Test
+    public void getResource_missing_null() throws IOException {
+        assertNull(cache.getResource(new File(folder.getRoot(), "missing.js")
+                .toURI().toURL()));
+    }
+
+    @Test
+    public void getResource_sameContent_sameETag() throws IOException {
+        File other = folder.newFile("other.js");
+        write(other, "0123456789");
+        assertEquals(cache.getResource(file.toURI().toURL()).getETag(),
+                cache.getResource(other.toURI().toURL()).getETag());
+    }
+
+    @Test
+    public void getPrecompressed() throws IOException {
+        Resource resource = cache.getResource(file.toURI().toURL());
+        assertNull(
+                cache.getPrecompressed(resource, PrecompressedEncoding.GZIP));
+
+        File other = folder.newFile("other.js");
+        write(other, "content");
+        write(folder.newFile("other.js.gz"), "compressed");
+        write(folder.newFile("other.js.br"), "brotli");
+        Resource otherResource = cache.getResource(other.toURI().toURL());
+        Resource precompressed = cache.getPrecompressed(otherResource,
+                PrecompressedEncoding.GZIP);
+        assertNotNull(precompressed);
+        assertEquals("compressed".length(), precompressed.getLength());
+        assertSame(precompressed, cache.getPrecompressed(otherResource,
+                PrecompressedEncoding.GZIP));
+        assertEquals("brotli".length(), cache
+                .getPrecompressed(otherResource, PrecompressedEncoding.BROTLI)
+                .getLength());
+    }
+
+    @Test
+    public void negotiate() {
+        assertEquals(Collections.emptyList(),
+                StaticResourceCache.negotiate(null));
+        assertEquals(
+                Arrays.asList(PrecompressedEncoding.BROTLI,
+                        PrecompressedEncoding.GZIP),
+                StaticResourceCache.negotiate("gzip, deflate, br"));
+        assertEquals(
+                Arrays.asList(PrecompressedEncoding.GZIP,
+                        PrecompressedEncoding.BROTLI),
+                StaticResourceCache
+                        .negotiate("gzip, br;q=0.8, identity;q=0.5"));
+        assertEquals(Arrays.asList(PrecompressedEncoding.GZIP),
+                StaticResourceCache.negotiate("br;q=0, *"));
+        assertEquals(Arrays.asList(PrecompressedEncoding.GZIP),
+                StaticResourceCache.negotiate("x-gzip"));
+        // Uncompressed content preferred
+        assertEquals(Collections.emptyList(),
+                StaticResourceCache.negotiate("gzip;q=0.5, identity"));
+        assertEquals(Collections.emptyList(),
+                StaticResourceCache.negotiate("deflate"));
+    }
+
+    @Test
+    public void openStream_fromOffset() throws IOException {
+        Resource resource = cache.getResource(file.toURI().toURL());
+        try (InputStream is = resource.openStream(4)) {
+            assertEquals('4', is.read());
+        }
+    }
+
+    @Test
+    public void parseRange() {
+        assertArrayEquals(new long[] { 0, 9 },
+                StaticResourceCache.parseRange("bytes=0-", 10));
+        assertArrayEquals(new long[] { 2, 5 },
+                StaticResourceCache.parseRange("bytes=2-5", 10));
+        assertArrayEquals(new long[] { 2, 9 },
+                StaticResourceCache.parseRange("bytes=2-100", 10));
+        assertArrayEquals(new long[] { 7, 9 },
+                StaticResourceCache.parseRange("bytes=-3", 10));
+        assertArrayEquals(new long[] { 0, 9 },
+                StaticResourceCache.parseRange("bytes=-30", 10));
+
+        assertSame(StaticResourceCache.UNSATISFIABLE_RANGE,
+                StaticResourceCache.parseRange("bytes=10-", 10));
+        assertSame(StaticResourceCache.UNSATISFIABLE_RANGE,
+                StaticResourceCache.parseRange("bytes=-0", 10));
+
+        assertNull(StaticResourceCache.parseRange("bytes=5-2", 10));
+        assertNull(StaticResourceCache.parseRange("bytes=0-1,3-4", 10));
+        assertNull(StaticResourceCache.parseRange("bytes=a-b", 10));
+        assertNull(StaticResourceCache.parseRange("items=0-1", 10));
+    }
+
+    @Test
+    public void matchesETag() {
+        assertTrue(StaticResourceCache.matchesETag("\"abc\"", "\"abc\""));
+        assertTrue(StaticResourceCache.matchesETag("\"x\", W/\"abc\"",
+                "\"abc\""));
+        assertTrue(StaticResourceCache.matchesETag("*", "\"abc\""));
+        assertFalse(StaticResourceCache.matchesETag("\"abd\"", "\"abc\""));
+        assertFalse(StaticResourceCache.matchesETag(null, "\"abc\""));
+    }
+
+    @Test
+    public void writeStaticResourceResponse_eTagAndNotModified()
+            throws IOException {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        HttpServletResponse response = mockResponse(
+                new ByteArrayOutputStream());
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.writeStaticResourceResponse(request, response,
+                file.toURI().toURL());
+        String eTag = cache.getResource(file.toURI().toURL()).getETag();
+        Mockito.verify(response).setHeader("ETag", eTag);
+        Mockito.verify(response).setContentLength(10);
+
+        Mockito.when(request.getHeader("If-None-Match")).thenReturn(eTag);
+        response = mockResponse(new ByteArrayOutputStream());
+        servlet.writeStaticResourceResponse(request, response,
+                file.toURI().toURL());
+        Mockito.verify(response)
+                .setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        Mockito.verify(response, Mockito.never()).getOutputStream();
+    }
+
+    @Test
+    public void writeStaticResourceResponse_range() throws IOException {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getHeader("Range")).thenReturn("bytes=2-5");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletResponse response = mockResponse(out);
+        new VaadinServlet().writeStaticResourceResponse(request, response,
+                file.toURI().toURL());
+
+        Mockito.verify(response)
+                .setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        Mockito.verify(response).setHeader("Content-Range", "bytes 2-5/10");
+        Mockito.verify(response).setContentLength(4);
+        assertEquals("2345", new String(out.toByteArray(),
+                StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void writeStaticResourceResponse_unsatisfiableRange()
+            throws IOException {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getHeader("Range")).thenReturn("bytes=20-");
+        HttpServletResponse response = mockResponse(
+                new ByteArrayOutputStream());
+        new VaadinServlet().writeStaticResourceResponse(request, response,
+                file.toURI().toURL());
+
+        Mockito.verify(response).setStatus(
+                HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        Mockito.verify(response).setHeader("Content-Range", "bytes */10");
+    }
+
+    @Test
+    public void writeStaticResourceResponse_staleIfRange_fullContent()
+            throws IOException {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getHeader("Range")).thenReturn("bytes=2-5");
+        Mockito.when(request.getHeader("If-Range")).thenReturn("\"old\"");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletResponse response = mockResponse(out);
+        new VaadinServlet().writeStaticResourceResponse(request, response,
+                file.toURI().toURL());
+
+        Mockito.verify(response, Mockito.never())
+                .setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertEquals("0123456789", new String(out.toByteArray(),
+                StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void writeStaticResourceResponse_brotliPreferred()
+            throws IOException {
+        write(folder.newFile("resource.js.gz"), "gzip");
+        write(folder.newFile("resource.js.br"), "br");
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getHeader("Accept-Encoding"))
+                .thenReturn("gzip, deflate, br");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletResponse response = mockResponse(out);
+        VaadinServlet servlet = new VaadinServlet() {
+            @Override
+            protected boolean allowServePrecompressedResource(
+                    HttpServletRequest request, String url) {
+                return true;
+            }
+        };
+        servlet.writeStaticResourceResponse(request, response,
+                file.toURI().toURL());
+
+        Mockito.verify(response).setHeader("Content-Encoding", "br");
+        Mockito.verify(response).setHeader("Vary", "Accept-Encoding");
+        assertEquals("br",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+        Mockito.when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+        out = new ByteArrayOutputStream();
+        response = mockResponse(out);
+        servlet.writeStaticResourceResponse(request, response,
+                file.toURI().toURL());
+        Mockito.verify(response).setHeader("Content-Encoding", "gzip");
+        assertEquals("gzip",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private static HttpServletResponse mockResponse(ByteArrayOutputStream out)
+            throws IOException {
+        HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(response.getOutputStream())
+                .thenReturn(new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        out.write(b);
+                    }
+                });
+        return response;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -3,6 +3,14 @@ package com.vaadin.server;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -149,6 +157,74 @@ public class VaadinServiceTest {
                 "Original value", CurrentInstance.get(String.class));
     }
 
+    @Test
+    public void accessExecutor_tasksRunInExecutorThread() throws Exception {
+        VaadinService service = createService();
+        ExecutorService executor = AccessExecutors.newBoundedExecutor(1);
+        service.setAccessExecutor(executor);
+        try {
+            MockVaadinSession session = new MockVaadinSession(service);
+            AtomicReference<Thread> taskThread = new AtomicReference<>();
+            session.access(() -> taskThread.set(Thread.currentThread()))
+                    .get(10, TimeUnit.SECONDS);
+
+            assertNotSame(Thread.currentThread(), taskThread.get());
+            assertTrue(taskThread.get().getName().startsWith("Vaadin access"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void accessExecutorShutDown_queuedPurgeDropped_purgedInline()
+            throws Exception {
+        VaadinService service = createService();
+        ExecutorService executor = AccessExecutors.newBoundedExecutor(1);
+        service.setAccessExecutor(executor);
+        CountDownLatch blocked = new CountDownLatch(1);
+        executor.execute(() -> {
+            blocked.countDown();
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException e) {
+                // Interrupted by shutdownNow
+            }
+        });
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+        MockVaadinSession session = new MockVaadinSession(service);
+        Future<Void> first = session.access(() -> {
+        });
+        // Drops the purge waiting for the blocked thread
+        assertEquals(1, executor.shutdownNow().size());
+        Future<Void> second = session.access(() -> {
+        });
+
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+    }
+
+    @Test
+    public void accessTaskMetrics() {
+        VaadinService service = createService();
+
+        MockVaadinSession session = new MockVaadinSession(service);
+        session.lock();
+        service.accessSession(session, () -> {
+        });
+        service.accessSession(session, () -> {
+        });
+        assertEquals(2, session.getPendingAccessTaskCount());
+        assertEquals(0, session.getAccessTaskCount());
+
+        session.unlock();
+        assertEquals(0, session.getPendingAccessTaskCount());
+        assertEquals(2, session.getAccessTaskCount());
+        assertTrue(session.getTotalAccessWaitTime() > 0);
+        assertTrue(session.getMaxAccessWaitTime() <= session
+                .getTotalAccessWaitTime());
+    }
+
     private static VaadinService createService() {
         ServletConfig servletConfig = new MockServletConfig();
         VaadinServlet servlet = new VaadinServlet();
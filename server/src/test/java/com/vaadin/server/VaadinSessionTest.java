@@ -223,6 +223,26 @@ public class VaadinSessionTest implements Serializable {
         assertTrue(detachCalled.get());
     }
 
+    @Test
+    public void sharedLockDisabledWhileHeld_unlockSharedReleasesSharedLock() {
+        SessionLock lock = new SessionLock();
+        VaadinSession vaadinSession = new MockVaadinSession(mockService) {
+            @Override
+            public Lock getLockInstance() {
+                return lock;
+            }
+        };
+        mockService.setSharedSessionLockEnabled(true);
+        vaadinSession.lockShared();
+        assertTrue(lock.isSharedHeldByCurrentThread());
+
+        mockService.setSharedSessionLockEnabled(false);
+        vaadinSession.unlockShared();
+
+        assertFalse(lock.isSharedHeldByCurrentThread());
+        assertFalse(vaadinSession.hasReadAccess());
+    }
+
     @Test
     public void testValueUnbound() {
         MockVaadinSession vaadinSession = new MockVaadinSession(mockService);
@@ -0,0 +1,100 @@
+package com.vaadin.server.communication;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.Test;
+
+import com.vaadin.server.communication.ResponseCompression.CompressingOutputStream;
+import com.vaadin.server.communication.ResponseCompression.Encoding;
+
+public class ResponseCompressionTest {
+
+    @Test
+    public void negotiate() {
+        assertEquals(Encoding.GZIP,
+                ResponseCompression.negotiate("gzip, deflate, br"));
+        assertEquals(Encoding.GZIP, ResponseCompression.negotiate("*"));
+        assertEquals(Encoding.DEFLATE,
+                ResponseCompression.negotiate("deflate, br"));
+        assertEquals(Encoding.DEFLATE,
+                ResponseCompression.negotiate("GZIP;q=0.0, deflate;q=0.5"));
+        assertEquals(Encoding.DEFLATE,
+                ResponseCompression.negotiate("gzip;q=0, *"));
+        assertEquals(Encoding.DEFLATE,
+                ResponseCompression.negotiate("gzip;q=0.5, *;q=0.8"));
+        assertEquals(Encoding.GZIP,
+                ResponseCompression.negotiate("deflate;q=0.5, gzip"));
+        assertNull(ResponseCompression.negotiate("gzip;q=0, *;q=0"));
+        assertNull(ResponseCompression.negotiate("br, *;q=0"));
+        assertNull(ResponseCompression.negotiate("identity"));
+        assertNull(ResponseCompression.negotiate(null));
+    }
+
+    @Test
+    public void compress_gzip_roundTrip() throws IOException {
+        byte[] data = createData();
+        assertArrayEquals(data, gunzip(compress(data, Encoding.GZIP)));
+    }
+
+    @Test
+    public void compress_deflate_roundTrip() throws IOException {
+        byte[] data = createData();
+        assertArrayEquals(data, read(new InflaterInputStream(
+                new ByteArrayInputStream(compress(data, Encoding.DEFLATE)))));
+    }
+
+    @Test
+    public void compress_empty_validStream() throws IOException {
+        assertEquals(0, gunzip(compress(new byte[0], Encoding.GZIP)).length);
+    }
+
+    private static byte[] compress(byte[] data, Encoding encoding)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // Pooled deflaters must be reset between uses
+        for (int i = 0; i < 2; i++) {
+            out.reset();
+            try (CompressingOutputStream stream = ResponseCompression
+                    .compress(out, encoding)) {
+                int half = data.length / 2;
+                stream.write(data, 0, half);
+                stream.flush();
+                stream.write(data, half, data.length - half);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] createData() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            builder.append("{\"key").append(i % 100).append("\":").append(i)
+                    .append('}');
+        }
+        return builder.toString().getBytes(UTF_8);
+    }
+
+    static byte[] gunzip(byte[] data) throws IOException {
+        return read(new GZIPInputStream(new ByteArrayInputStream(data)));
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int count;
+        while ((count = in.read(buffer)) > 0) {
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+}
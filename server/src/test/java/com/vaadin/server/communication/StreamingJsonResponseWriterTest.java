@@ -0,0 +1,173 @@
+package com.vaadin.server.communication;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.communication.ResponseCompression.Encoding;
+import com.vaadin.shared.JsonConstants;
+
+public class StreamingJsonResponseWriterTest {
+
+    private VaadinResponse response;
+    private ByteArrayOutputStream out;
+
+    @Before
+    public void setup() throws IOException {
+        out = new ByteArrayOutputStream();
+        response = Mockito.mock(VaadinResponse.class);
+        Mockito.when(response.getOutputStream()).thenReturn(out);
+    }
+
+    @Test
+    public void smallResponse_bufferedUntilClose_contentLengthSet()
+            throws IOException {
+        String json = "{\"text\":\"\u00e5\u00e4\u00f6 \u20ac\"}";
+        StreamingJsonResponseWriter writer = new StreamingJsonResponseWriter(
+                response, 1024);
+        writer.write(json);
+
+        assertFalse(writer.isCommitted());
+        Mockito.verify(response, Mockito.never()).getOutputStream();
+
+        writer.close();
+
+        byte[] expected = json.getBytes(UTF_8);
+        assertArrayEquals(expected, out.toByteArray());
+        Mockito.verify(response).setContentLength(expected.length);
+        Mockito.verify(response)
+                .setContentType(JsonConstants.JSON_CONTENT_TYPE);
+        Mockito.verify(response).setNoCacheHeaders();
+    }
+
+    @Test
+    public void largeResponse_committedWhenBufferIsFull() throws IOException {
+        StringBuilder json = new StringBuilder();
+        StreamingJsonResponseWriter writer = new StreamingJsonResponseWriter(
+                response, 16);
+        for (int i = 0; i < 100; i++) {
+            String part = "\"item" + i + "\",";
+            json.append(part);
+            writer.write(part);
+        }
+
+        assertTrue(writer.isCommitted());
+        assertTrue(out.size() > 0);
+
+        writer.close();
+
+        assertEquals(json.toString(), new String(out.toByteArray(), UTF_8));
+        Mockito.verify(response, Mockito.never())
+                .setContentLength(Mockito.anyInt());
+    }
+
+    @Test
+    public void surrogatePairSplitAcrossBuffers_encodedCorrectly()
+            throws IOException {
+        // U+1F600 is encoded as a surrogate pair
+        String json = "[\"abcdefg\uD83D\uDE00\",\"\uD83D\uDE00\"]";
+        for (int bufferSize = 1; bufferSize < json.length(); bufferSize++) {
+            out.reset();
+            StreamingJsonResponseWriter writer = new StreamingJsonResponseWriter(
+                    response, bufferSize);
+            for (char c : json.toCharArray()) {
+                writer.write(c);
+            }
+            writer.close();
+
+            assertArrayEquals("Buffer size " + bufferSize,
+                    json.getBytes(UTF_8), out.toByteArray());
+        }
+    }
+
+    @Test
+    public void discardBeforeCommit_nothingWritten() throws IOException {
+        StreamingJsonResponseWriter writer = new StreamingJsonResponseWriter(
+                response, 1024);
+        writer.write("{\"partial\":");
+        writer.discard();
+        writer.close();
+
+        assertEquals(0, out.size());
+        Mockito.verify(response, Mockito.never()).getOutputStream();
+        Mockito.verify(response, Mockito.never())
+                .setContentType(Mockito.anyString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void discardAfterCommit_throws() throws IOException {
+        StreamingJsonResponseWriter writer = new StreamingJsonResponseWriter(
+                response, 4);
+        writer.write("{\"committed\":true}");
+        writer.discard();
+    }
+
+    @Test
+    public void releaseAfterCommit_writerClosed() throws IOException {
+        StreamingJsonResponseWriter writer = new StreamingJsonResponseWriter(
+                response, 4);
+        writer.setCompression(Encoding.GZIP, 0);
+        writer.write("{\"committed\":true");
+        assertTrue(writer.isCommitted());
+        int written = out.size();
+
+        writer.release();
+        writer.release();
+        writer.close();
+
+        assertEquals(written, out.size());
+    }
+
+    @Test
+    public void compressionBelowThreshold_notCompressed() throws IOException {
+        StreamingJsonResponseWriter writer = new StreamingJsonResponseWriter(
+                response, 1024);
+        writer.setCompression(Encoding.GZIP, 100);
+        writer.write("{}");
+        writer.close();
+
+        assertEquals("{}", new String(out.toByteArray(), UTF_8));
+        Mockito.verify(response).setContentLength(2);
+        Mockito.verify(response, Mockito.never())
+                .setHeader(Mockito.eq("Content-Encoding"), Mockito.anyString());
+    }
+
+    @Test
+    public void compression_bufferedAndCommittedResponsesCompressed()
+            throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            json.append("\"item").append(i).append("\",");
+        }
+        json.append("\"\u00e5\u00e4\u00f6\"]");
+
+        for (int bufferSize : new int[] { 16, 1024 * 1024 }) {
+            out.reset();
+            Mockito.reset(response);
+            Mockito.when(response.getOutputStream()).thenReturn(out);
+
+            StreamingJsonResponseWriter writer = new StreamingJsonResponseWriter(
+                    response, bufferSize);
+            writer.setCompression(Encoding.GZIP, 100);
+            writer.write(json.toString());
+            writer.close();
+
+            assertEquals(json.toString(), new String(
+                    ResponseCompressionTest.gunzip(out.toByteArray()), UTF_8));
+            assertTrue(out.size() < json.length());
+            Mockito.verify(response).setHeader("Content-Encoding", "gzip");
+            Mockito.verify(response, Mockito.never())
+                    .setContentLength(Mockito.anyInt());
+        }
+    }
+}
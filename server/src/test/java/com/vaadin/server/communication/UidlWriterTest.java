@@ -0,0 +1,156 @@
+package com.vaadin.server.communication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.communication.ServletUIInitHandlerTest.CommunicationMock;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+
+public class UidlWriterTest {
+
+    private UI ui;
+    private VerticalLayout layout;
+    private Label label;
+
+    @Before
+    public void setup() throws Exception {
+        ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        CommunicationMock mock = new CommunicationMock(ui);
+        ui.setSession(mock.session);
+
+        label = new Label("label");
+        layout = new VerticalLayout(label);
+        ui.setContent(layout);
+    }
+
+    @Test
+    public void initialResponse_typesAndHierarchyForAllConnectors()
+            throws IOException {
+        JsonObject response = write();
+
+        JsonObject types = response.getObject("types");
+        assertTrue(types.hasKey(ui.getConnectorId()));
+        assertTrue(types.hasKey(layout.getConnectorId()));
+        assertTrue(types.hasKey(label.getConnectorId()));
+
+        JsonObject hierarchy = response.getObject("hierarchy");
+        assertChildren(hierarchy, ui.getConnectorId(),
+                layout.getConnectorId());
+        assertChildren(hierarchy, layout.getConnectorId(),
+                label.getConnectorId());
+    }
+
+    @Test
+    public void leafStateChange_noTypesOrHierarchy() throws IOException {
+        write();
+
+        label.setValue("changed");
+        JsonObject response = write();
+
+        assertTrue(response.getObject("state").hasKey(label.getConnectorId()));
+        assertEquals(0, response.getObject("types").keys().length);
+        assertEquals(0, response.getObject("hierarchy").keys().length);
+    }
+
+    @Test
+    public void dirtyContainerWithUnchangedChildren_hierarchyStillSentWithState()
+            throws IOException {
+        write();
+
+        // The client assumes an empty hierarchy for connectors with state
+        // changes, so the children must be sent
+        layout.setSpacing(!layout.isSpacing());
+        JsonObject response = write();
+        assertChildren(response.getObject("hierarchy"),
+                layout.getConnectorId(), label.getConnectorId());
+    }
+
+    @Test
+    public void dirtyContainerWithoutStateChange_hierarchyOmitted()
+            throws IOException {
+        write();
+
+        layout.markAsDirty();
+        JsonObject response = write();
+        assertFalse(response.getObject("state")
+                .hasKey(layout.getConnectorId()));
+        assertFalse(response.getObject("hierarchy")
+                .hasKey(layout.getConnectorId()));
+    }
+
+    @Test
+    public void childAdded_typeForNewChildOnlyAndHierarchySent()
+            throws IOException {
+        write();
+
+        Label newLabel = new Label("new");
+        layout.addComponent(newLabel);
+        JsonObject response = write();
+
+        JsonObject types = response.getObject("types");
+        assertEquals(1, types.keys().length);
+        assertTrue(types.hasKey(newLabel.getConnectorId()));
+        assertChildren(response.getObject("hierarchy"),
+                layout.getConnectorId(), label.getConnectorId(),
+                newLabel.getConnectorId());
+    }
+
+    @Test
+    public void childRemoved_emptyHierarchySent() throws IOException {
+        write();
+
+        layout.removeAllComponents();
+        JsonObject response = write();
+
+        assertChildren(response.getObject("hierarchy"),
+                layout.getConnectorId());
+    }
+
+    @Test
+    public void repaintAll_typesAndHierarchyResent() throws IOException {
+        write();
+
+        ui.getConnectorTracker().markAllConnectorsDirty();
+        ui.getConnectorTracker().markAllClientSidesUninitialized();
+        JsonObject response = write();
+
+        assertTrue(response.getObject("types").hasKey(label.getConnectorId()));
+        assertChildren(response.getObject("hierarchy"),
+                layout.getConnectorId(), label.getConnectorId());
+    }
+
+    private JsonObject write() throws IOException {
+        StringWriter writer = new StringWriter();
+        new UidlWriter().write(ui, writer, false);
+        return Json.parse("{" + writer.toString() + "}");
+    }
+
+    private static void assertChildren(JsonObject hierarchy,
+            String connectorId, String... childIds) {
+        assertTrue("No hierarchy for " + connectorId,
+                hierarchy.hasKey(connectorId));
+        JsonArray children = hierarchy.getArray(connectorId);
+        assertEquals(childIds.length, children.length());
+        for (int i = 0; i < childIds.length; i++) {
+            assertEquals(childIds[i], children.getString(i));
+        }
+    }
+}
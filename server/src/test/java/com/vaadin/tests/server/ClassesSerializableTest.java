@@ -50,6 +50,7 @@ public class ClassesSerializableTest {
             "com\\.vaadin\\.server\\.widgetsetutils\\..*", //
             "com\\.vaadin\\.server\\.themeutils\\..*", //
             "com\\.vaadin\\.tests\\..*", // exclude automated tests
+            "com\\.vaadin\\.benchmarks\\..*", // exclude benchmarks
             "com\\.vaadin\\.tools\\..*", //
             "com\\.vaadin\\.ui\\.themes\\..*", //
             // exact class level filtering
@@ -63,13 +64,20 @@ public class ClassesSerializableTest {
             "com\\.vaadin\\.server\\.MockServletContext", //
             "com\\.vaadin\\.server\\.MockVaadinServletService", //
             "com\\.vaadin\\.server\\.Constants", //
+            "com\\.vaadin\\.server\\.CompactDiffStateStore\\$.*", //
+            "com\\.vaadin\\.server\\.ScssSourceWatcher", //
             "com\\.vaadin\\.server\\.VaadinServiceClassLoaderUtil", //
+            "com\\.vaadin\\.server\\.AccessExecutors", // fully static
+            "com\\.vaadin\\.server\\.SessionLockMonitorMBean", // JMX interface
             "com\\.vaadin\\.server\\.VaadinServiceClassLoaderUtil\\$GetClassLoaderPrivilegedAction", //
             "com\\.vaadin\\.server\\.communication\\.FileUploadHandler\\$SimpleMultiPartInputStream", //
+            "com\\.vaadin\\.server\\.communication\\.StreamingJsonResponseWriter", //
+            "com\\.vaadin\\.server\\.communication\\.ResponseCompression\\$CompressingOutputStream", //
             "com\\.vaadin\\.server\\.communication\\.PushRequestHandler.*",
             "com\\.vaadin\\.server\\.communication\\.PushHandler.*", // PushHandler
             "com\\.vaadin\\.server\\.communication\\.DateSerializer", //
             "com\\.vaadin\\.server\\.communication\\.JSONSerializer", //
+            "com\\.vaadin\\.server\\.communication\\.PushScheduler", // fully static
             "com\\.vaadin\\.ui\\.declarative\\.DesignContext", //
             // and its inner classes do not need to be serializable
             "com\\.vaadin\\.v7\\.util\\.SerializerHelper", // fully static
@@ -80,6 +88,7 @@ public class ClassesSerializableTest {
             "com\\.vaadin\\.util\\.EncodeUtil.*", //
             "com\\.vaadin\\.util\\.ReflectTools.*", //
             "com\\.vaadin\\.data\\.provider\\.InMemoryDataProviderHelpers",
+            "com\\.vaadin\\.data\\.provider\\.ParallelDataProcessing.*",
             "com\\.vaadin\\.data\\.provider\\.HierarchyMapper\\$TreeLevelQuery",
             "com\\.vaadin\\.data\\.util\\.ReflectTools.*", //
             "com\\.vaadin\\.data\\.util\\.JsonUtil.*", //
@@ -92,6 +101,7 @@ public class ClassesSerializableTest {
             "com\\.vaadin\\.server\\.AbstractClientConnector\\$1", //
             "com\\.vaadin\\.server\\.AbstractClientConnector\\$1\\$1", //
             "com\\.vaadin\\.server\\.JsonCodec\\$1", //
+            "com\\.vaadin\\.server\\.JsonCodec\\$.*PropertyEncoder", //
             "com\\.vaadin\\.server\\.communication\\.PushConnection", //
             "com\\.vaadin\\.server\\.communication\\.AtmospherePushConnection.*", //
             "com\\.vaadin\\.ui\\.components\\.colorpicker\\.ColorUtil", //
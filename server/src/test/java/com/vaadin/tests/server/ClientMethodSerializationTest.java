@@ -14,6 +14,7 @@ import org.junit.Test;
 
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.ClientMethodInvocation;
+import com.vaadin.server.EncodedJson;
 import com.vaadin.server.JavaScriptCallbackHelper;
 import com.vaadin.server.JsonCodec;
 import com.vaadin.ui.JavaScript.JavaScriptCallbackRpc;
@@ -67,6 +68,23 @@ public class ClientMethodSerializationTest {
                 JsonUtil.stringify(copyArray));
     }
 
+    @Test
+    public void testClientMethodSerialization_WithEncodedParams_StayEncoded()
+            throws Exception {
+        EncodedJson stringParam = new EncodedJson("\"a string\"");
+        EncodedJson integerParam = new EncodedJson("123");
+        ClientMethodInvocation original = new ClientMethodInvocation(null,
+                "interfaceName", BASIC_PARAMS_CALL_METHOD,
+                new Object[] { stringParam, integerParam });
+
+        ClientMethodInvocation copy = (ClientMethodInvocation) serializeAndDeserialize(
+                original);
+        assertEquals("\"a string\"",
+                ((EncodedJson) copy.getParameters()[0]).getJson());
+        assertEquals("123",
+                ((EncodedJson) copy.getParameters()[1]).getJson());
+    }
+
     @Test
     public void testClientMethodSerialization_WithBasicParams_NoChanges()
             throws Exception {
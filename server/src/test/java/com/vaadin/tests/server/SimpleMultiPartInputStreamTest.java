@@ -1,5 +1,7 @@
 package com.vaadin.tests.server;
 
+import static org.junit.Assert.assertArrayEquals;
+
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -45,6 +47,27 @@ public class SimpleMultiPartInputStreamTest {
     protected void checkBoundaryDetection(String input, String boundary,
             String expected) throws Exception {
         checkBoundaryDetection(input.getBytes(), boundary, expected.getBytes());
+        checkBulkBoundaryDetection(input.getBytes(), boundary,
+                expected.getBytes());
+    }
+
+    /**
+     * Check that the output is as expected when reading in blocks using a
+     * buffer that is smaller than the input.
+     */
+    protected void checkBulkBoundaryDetection(byte[] input, String boundary,
+            byte[] expected) throws Exception {
+        ByteArrayInputStream bais = new ByteArrayInputStream(input);
+        try (SimpleMultiPartInputStream smpis = new SimpleMultiPartInputStream(
+                bais, boundary, 8)) {
+            ByteArrayOutputStream resultStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[5];
+            int count;
+            while ((count = smpis.read(buffer, 0, buffer.length)) != -1) {
+                resultStream.write(buffer, 0, count);
+            }
+            assertArrayEquals(expected, resultStream.toByteArray());
+        }
     }
 
     @Test
@@ -113,6 +136,24 @@ public class SimpleMultiPartInputStreamTest {
                 "abcabd", "xyz123abc");
     }
 
+    @Test
+    public void testBoundaryAcrossBufferBoundaries() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            // Partial boundaries in the content
+            content.append("line ").append(i).append("\r\n--boundar");
+        }
+        checkBoundaryDetection(
+                content + getFullBoundary("boundary") + "trailing",
+                "boundary", content.toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void testNoBoundaryInInputBulkRead() throws Exception {
+        checkBulkBoundaryDetection("xyz123ab".getBytes(), "abc",
+                "xyz123ab".getBytes());
+    }
+
     /*
      * TODO fix these tests, they don't do what their method name says.
      */
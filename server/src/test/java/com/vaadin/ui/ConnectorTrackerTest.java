@@ -0,0 +1,118 @@
+package com.vaadin.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.tests.util.MockUI;
+
+public class ConnectorTrackerTest {
+
+    private UI ui;
+    private ConnectorTracker tracker;
+
+    @Before
+    public void setup() {
+        ui = new MockUI();
+        tracker = ui.getConnectorTracker();
+    }
+
+    @Test
+    public void dirtyVisibleConnectors_parentsBeforeChildren() {
+        VerticalLayout root = new VerticalLayout();
+        VerticalLayout layout = root;
+        for (int i = 0; i < 10; i++) {
+            VerticalLayout child = new VerticalLayout(new Label("" + i));
+            layout.addComponent(child);
+            layout = child;
+        }
+        ui.setContent(root);
+
+        assertParentsFirst(tracker.getDirtyVisibleConnectors());
+
+        tracker.markAllConnectorsClean();
+        // Mark dirty deepest first
+        for (Component c = layout; c != null; c = c.getParent()) {
+            c.markAsDirty();
+        }
+        List<ClientConnector> dirty = tracker.getDirtyVisibleConnectors();
+        assertEquals(ui, dirty.get(0));
+        assertEquals(root, dirty.get(1));
+        assertEquals(layout, dirty.get(dirty.size() - 1));
+        assertParentsFirst(dirty);
+    }
+
+    @Test
+    public void movedComponent_depthUpdated() {
+        VerticalLayout shallow = new VerticalLayout();
+        VerticalLayout deep = new VerticalLayout(
+                new VerticalLayout(new VerticalLayout()));
+        VerticalLayout deepest = (VerticalLayout) ((VerticalLayout) deep
+                .getComponent(0)).getComponent(0);
+        Label label = new Label();
+        shallow.addComponent(label);
+        ui.setContent(new VerticalLayout(shallow, deep));
+        tracker.markAllConnectorsClean();
+
+        deepest.addComponent(label);
+        deepest.markAsDirty();
+        List<ClientConnector> dirty = tracker.getDirtyVisibleConnectors();
+        assertTrue(dirty.indexOf(deepest) < dirty.indexOf(label));
+        assertParentsFirst(dirty);
+    }
+
+    @Test
+    public void movedClientSideInitializedComponent_depthUpdated() {
+        VerticalLayout shallow = new VerticalLayout();
+        VerticalLayout deep = new VerticalLayout(
+                new VerticalLayout(new VerticalLayout()));
+        VerticalLayout deepest = (VerticalLayout) ((VerticalLayout) deep
+                .getComponent(0)).getComponent(0);
+        Label label = new Label();
+        shallow.addComponent(label);
+        ui.setContent(new VerticalLayout(shallow, deep));
+        tracker.markClientSideInitialized(label);
+        tracker.markAllConnectorsClean();
+
+        deepest.addComponent(label);
+        deepest.markAsDirty();
+        List<ClientConnector> dirty = tracker.getDirtyVisibleConnectors();
+        assertTrue(dirty.indexOf(deepest) < dirty.indexOf(label));
+        assertParentsFirst(dirty);
+    }
+
+    @Test
+    public void markClean_removedFromDirtyConnectors() {
+        Label label = new Label();
+        ui.setContent(label);
+
+        tracker.markClean(label);
+        assertEquals(false, tracker.isDirty(label));
+        assertEquals(false,
+                tracker.getDirtyVisibleConnectors().contains(label));
+
+        label.markAsDirty();
+        assertTrue(tracker.getDirtyConnectors().contains(label));
+        assertTrue(tracker.getDirtyVisibleConnectors().contains(label));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void dirtyConnectors_unmodifiable() {
+        tracker.getDirtyConnectors().clear();
+    }
+
+    private static void assertParentsFirst(List<ClientConnector> connectors) {
+        for (int i = 0; i < connectors.size(); i++) {
+            ClientConnector parent = connectors.get(i).getParent();
+            if (parent != null && connectors.contains(parent)) {
+                assertTrue(parent + " should come before its child",
+                        connectors.indexOf(parent) < i);
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.vaadin.ui;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
@@ -8,6 +9,8 @@ import java.lang.ref.WeakReference;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -197,6 +200,70 @@ public class UITest {
         CurrentInstanceTest.waitUntilGarbageCollected(contentSentToClient);
     }
 
+    @Test
+    public void pushWithMaxFrequency_changesCoalesced() throws Exception {
+        final UI ui = new UI() {
+
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+
+        };
+        ServletConfig servletConfig = new MockServletConfig();
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(servletConfig);
+
+        DefaultDeploymentConfiguration deploymentConfiguration = new DefaultDeploymentConfiguration(
+                UI.class, new Properties());
+
+        MockVaadinSession session = new MockVaadinSession(
+                new VaadinServletService(servlet, deploymentConfiguration));
+        session.lock();
+        ui.setSession(session);
+        ui.doInit(Mockito.mock(VaadinRequest.class), 1, "foo");
+        session.addUI(ui);
+        ui.getPushConfiguration().setPushMode(PushMode.MANUAL);
+        ui.getPushConfiguration().setMaxPushFrequency(1);
+        ui.getPushConfiguration().setMaxPushLatency(100);
+
+        final AtomicInteger pushCount = new AtomicInteger();
+        final CountDownLatch delayedPush = new CountDownLatch(1);
+        ui.setPushConnection(new PushConnection() {
+
+            @Override
+            public void push() {
+                ui.getConnectorTracker().markAllConnectorsClean();
+                if (pushCount.incrementAndGet() == 2) {
+                    delayedPush.countDown();
+                }
+            }
+
+            @Override
+            public boolean isConnected() {
+                return true;
+            }
+
+            @Override
+            public void disconnect() {
+            }
+        });
+
+        ui.setContent(createContent());
+        ui.push();
+        assertEquals(1, pushCount.get());
+
+        // Changes right after a push are delayed and sent together
+        ui.setContent(createContent());
+        ui.push();
+        ui.setContent(createContent());
+        ui.push();
+        assertEquals(1, pushCount.get());
+        session.unlock();
+
+        delayedPush.await(5, TimeUnit.SECONDS);
+        assertEquals(2, pushCount.get());
+    }
+
     private Component createContent() {
         VerticalLayout vl = new VerticalLayout();
         vl.addComponent(new Button("foo"));
@@ -34,6 +34,16 @@ public interface DataCommunicatorClientRpc extends ClientRpc {
      */
     void reset(int size);
 
+    /**
+     * Informs the client-side DataSource that the size has changed without
+     * invalidating the data. Rows are added to or removed from the end.
+     *
+     * @param size
+     *            the new size of the data source
+     * @since 8.13
+     */
+    void updateSize(int size);
+
     /**
      * Sets the data of the client-side DataSource to match the given data
      * starting from given index.